@@ -10,6 +10,7 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -20,7 +21,6 @@ import org.apache.commons.collections15.iterators.IteratorChain;
 
 import repast.simphony.context.ContextEvent.EventType;
 import repast.simphony.space.projection.Projection;
-import repast.simphony.util.collections.DelegatedIterator;
 import repast.simphony.util.collections.IndexedIterable;
 import repast.simphony.util.collections.IterableAdaptor;
 import repast.simphony.valueLayer.ValueLayer;
@@ -458,17 +458,28 @@ public abstract class AbstractContext<T> extends AbstractCollection<T> implement
  */
 class ContextIndexedIterable<T> implements IndexedIterable<T> {
 
-  private class CIIterator<T> extends DelegatedIterator<T> {
+  private class CIIterator implements Iterator<T> {
 
-    public CIIterator(Iterator<T> delegate) {
-      super(delegate);
+    private int cursor = 0;
+    private T lastObj;
+
+    public boolean hasNext() {
+      return cursor < list.size();
+    }
+
+    public T next() {
+      if (cursor >= list.size()) throw new NoSuchElementException();
+      lastObj = list.get(cursor++);
+      return lastObj;
     }
 
-    @Override
+    // removes the object from the context which will
+    // also remove it from the list.
     public void remove() {
-      super.remove();
+      if (lastObj == null) throw new IllegalStateException();
       context.remove(lastObj);
-
+      cursor--;
+      lastObj = null;
     }
   }
 
@@ -518,6 +529,6 @@ class ContextIndexedIterable<T> implements IndexedIterable<T> {
    * @return an Iterator.
    */
   public Iterator<T> iterator() {
-    return new CIIterator<T>(list.iterator());
+    return new CIIterator();
   }
 }
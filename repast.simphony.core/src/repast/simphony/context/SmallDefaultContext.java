@@ -3,14 +3,18 @@ package repast.simphony.context;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import org.apache.commons.collections15.iterators.IteratorChain;
 import org.apache.commons.collections15.iterators.SingletonIterator;
 
 import repast.simphony.random.RandomHelper;
@@ -18,13 +22,46 @@ import repast.simphony.util.collections.CompositeIndexedIterable;
 import repast.simphony.util.collections.IndexedIterable;
 import repast.simphony.util.collections.IterableAdaptor;
 
+/**
+ * Context that stores its agents in a list per agent class. Each agent's
+ * position in its list is kept in an index map so that membership tests and
+ * removal take constant time. An agent is removed by moving the last agent in
+ * its list into its position. Iteration order depends only on the sequence of
+ * adds and removes and so is repeatable for a given random seed.
+ * <p>
+ * 
+ * The IndexedIterables returned by {@link #getObjects(Class)} are live views
+ * that are cached per class. A view resolves which per class lists (and which
+ * sub context views) it contains only when a new agent class is first added
+ * or the sub contexts change, so repeated queries do not allocate. Changes to
+ * the sub contexts of a SmallDefaultContext sub context are passed up to this
+ * context, so that the views of this context see them as well.
+ * 
+ * @author Nick Collier
+ */
 public class SmallDefaultContext<T> extends AbstractContext<T> {
 
-  // to insure iteration order is repeatable.
+  // to insure iteration order is repeatable. Lists are kept when they
+  // become empty so that their order does not change.
   protected Map<Class, List<T>> objectMap = new LinkedHashMap<Class, List<T>>();
+  // agent -> index of the agent in its list in the objectMap
+  protected Map<Object, Integer> indexMap = new HashMap<Object, Integer>();
   private int size;
+  // incremented by every add and remove so that iterators can fail fast
+  private int modCount = 0;
   protected IndexedIterable allObjs = null;
 
+  // incremented whenever the per class lists or the sub contexts change
+  // so that the cached views know to resolve their lists again.
+  private volatile int structureVersion = 0;
+  private ConcurrentMap<Class<?>, TypeView> views = new ConcurrentHashMap<Class<?>, TypeView>();
+  // number of sub contexts that are not SmallDefaultContexts, or that are but
+  // have such a sub context themselves. These do not provide live views and
+  // so the views cannot be cached.
+  private int unindexedSubContexts = 0;
+  // the SmallDefaultContexts that this is a sub context of
+  private List<SmallDefaultContext<?>> parents = new ArrayList<SmallDefaultContext<?>>();
+
   public SmallDefaultContext() {
     super();
   }
@@ -38,21 +75,207 @@ public class SmallDefaultContext<T> extends AbstractContext<T> {
     setTypeID(typeID);
   }
 
+  /**
+   * Iterates over the lists in the objectMap. Removing through the iterator
+   * removes the agent from the context. Adding or removing agents other than
+   * through the iterator makes the iterator throw a
+   * ConcurrentModificationException.
+   */
+  private class ContentsIterator implements Iterator<T> {
+
+    private Iterator<List<T>> lists = objectMap.values().iterator();
+    private List<T> list = Collections.emptyList();
+    private int cursor = 0;
+    private T last;
+    private int expectedModCount = modCount;
+
+    public boolean hasNext() {
+      while (cursor >= list.size()) {
+        if (!lists.hasNext()) return false;
+        list = lists.next();
+        cursor = 0;
+      }
+      return true;
+    }
+
+    public T next() {
+      checkForComodification(expectedModCount);
+      if (!hasNext()) throw new NoSuchElementException();
+      last = list.get(cursor++);
+      return last;
+    }
+
+    public void remove() {
+      if (last == null) throw new IllegalStateException();
+      checkForComodification(expectedModCount);
+      SmallDefaultContext.this.remove(last);
+      expectedModCount = modCount;
+      // the last agent in the list has been moved into the
+      // removed agent's position, so visit that position again
+      cursor--;
+      last = null;
+    }
+  }
+
+  /**
+   * The lists and sub context views that make up a TypeView at some
+   * structure version.
+   */
+  private static class Resolution<T> {
+
+    int version;
+    List<T>[] lists;
+    IndexedIterable<T>[] children;
+
+    Resolution(int version, List<T>[] lists, IndexedIterable<T>[] children) {
+      this.version = version;
+      this.lists = lists;
+      this.children = children;
+    }
+  }
+
+  /**
+   * Live view of the objects in this context and its sub contexts that are of
+   * a particular type.
+   */
+  private class TypeView implements IndexedIterable<T> {
+
+    private Class<?> type;
+    private volatile Resolution<T> resolution;
+
+    TypeView(Class<?> type) {
+      this.type = type;
+    }
+
+    @SuppressWarnings("unchecked")
+    Resolution<T> resolve() {
+      Resolution<T> res = resolution;
+      int version = structureVersion;
+      if (res != null && res.version == version) return res;
+
+      List<List<T>> lists = new ArrayList<List<T>>();
+      for (Map.Entry<Class, List<T>> entry : objectMap.entrySet()) {
+        if (type.isAssignableFrom(entry.getKey())) lists.add(entry.getValue());
+      }
+      List<IndexedIterable<T>> children = new ArrayList<IndexedIterable<T>>();
+      for (Context<? extends T> context : subContexts.values()) {
+        children.add((IndexedIterable<T>) context.getObjects(type));
+      }
+      res = new Resolution<T>(version, lists.toArray(new List[lists.size()]),
+          children.toArray(new IndexedIterable[children.size()]));
+      // the views of unindexed sub contexts are snapshots, so they are
+      // resolved again on each use rather than cached
+      if (unindexedSubContexts == 0) resolution = res;
+      return res;
+    }
+
+    public int size() {
+      Resolution<T> res = resolve();
+      int count = 0;
+      for (List<T> list : res.lists) {
+        count += list.size();
+      }
+      for (IndexedIterable<T> child : res.children) {
+        count += child.size();
+      }
+      return count;
+    }
+
+    public T get(int index) {
+      if (index < 0) throw new IndexOutOfBoundsException("Index: " + index);
+      Resolution<T> res = resolve();
+      int i = index;
+      for (List<T> list : res.lists) {
+        if (i < list.size()) return list.get(i);
+        i -= list.size();
+      }
+      for (IndexedIterable<T> child : res.children) {
+        if (i < child.size()) return child.get(i);
+        i -= child.size();
+      }
+      throw new IndexOutOfBoundsException("Index: " + index);
+    }
+
+    public Iterator<T> iterator() {
+      return new TypeViewIterator(resolve());
+    }
+  }
+
+  /**
+   * Iterates over a TypeView. Removing through the iterator removes the agent
+   * from the context. As with ContentsIterator, other changes to this context
+   * make the iterator throw a ConcurrentModificationException.
+   */
+  private class TypeViewIterator implements Iterator<T> {
+
+    private List<T>[] lists;
+    private IndexedIterable<T>[] children;
+    private int listIndex = 0, cursor = 0, childIndex = 0;
+    private Iterator<T> childIter;
+    private T last;
+    private boolean lastFromChild;
+    private int expectedModCount = modCount;
+
+    TypeViewIterator(Resolution<T> res) {
+      lists = res.lists;
+      children = res.children;
+    }
+
+    public boolean hasNext() {
+      while (listIndex < lists.length) {
+        if (cursor < lists[listIndex].size()) return true;
+        listIndex++;
+        cursor = 0;
+      }
+
+      while (childIter == null || !childIter.hasNext()) {
+        if (childIndex == children.length) return false;
+        childIter = children[childIndex++].iterator();
+      }
+      return true;
+    }
+
+    public T next() {
+      checkForComodification(expectedModCount);
+      if (!hasNext()) throw new NoSuchElementException();
+      if (listIndex < lists.length) {
+        last = lists[listIndex].get(cursor++);
+        lastFromChild = false;
+      } else {
+        last = childIter.next();
+        lastFromChild = true;
+      }
+      return last;
+    }
+
+    public void remove() {
+      if (last == null) throw new IllegalStateException();
+      if (lastFromChild) {
+        childIter.remove();
+      } else {
+        checkForComodification(expectedModCount);
+        SmallDefaultContext.this.remove(last);
+        expectedModCount = modCount;
+        // the last agent in the list has been moved into the
+        // removed agent's position, so visit that position again
+        cursor--;
+      }
+      last = null;
+    }
+  }
+
+  private void checkForComodification(int expectedModCount) {
+    if (modCount != expectedModCount) throw new ConcurrentModificationException();
+  }
+
   @Override
   protected boolean containsInternal(Object o) {
-    for (List<T> list : objectMap.values()) {
-      if (list.contains(o)) return true;
-    }
-    return false;
+    return indexMap.containsKey(o);
   }
 
   @Override
   protected Iterator<T> iteratorInternal() {
-    IteratorChain<T> chain = new IteratorChain<T>();
-    for (List<T> list : objectMap.values()) {
-      chain.addIterator(list.iterator());
-    }
-    return chain;
+    return new ContentsIterator();
   }
 
   @Override
@@ -61,38 +284,38 @@ public class SmallDefaultContext<T> extends AbstractContext<T> {
   }
 
   @Override
-  // NOTE this makes no attempt to
-  // avoid adding duplicate items. Such a check
-  // must be done before calling this method in
-  // order to preserve set semantics.
   protected boolean addInternal(T o) {
-    allObjs = null;
+    if (indexMap.containsKey(o)) return false;
     Class clazz = o.getClass();
     List<T> list = objectMap.get(clazz);
     if (list == null) {
       list = new ArrayList<T>();
       objectMap.put(clazz, list);
+      structureVersion++;
     }
 
-    // doesn't make sense to check the retVal
-    // here as List.add will always return true.
+    indexMap.put(o, list.size());
+    allObjs = null;
     list.add(o);
     size++;
+    modCount++;
     return true;
   }
 
   @Override
   protected boolean removeInternal(Object obj) {
+    Integer index = indexMap.remove(obj);
+    if (index == null) return false;
     allObjs = null;
-    Class<? extends Object> clazz = obj.getClass();
-    List<T> list = objectMap.get(clazz);
-    if (list == null) return false;
-    boolean val = list.remove(obj);
-    if (list.size() == 0) {
-      objectMap.remove(clazz);
+    List<T> list = objectMap.get(obj.getClass());
+    T last = list.remove(list.size() - 1);
+    if (index < list.size()) {
+      list.set(index, last);
+      indexMap.put(last, index);
     }
-    if (val) size--;
-    return val;
+    size--;
+    modCount++;
+    return true;
   }
 
   /* (non-Javadoc)
@@ -127,15 +350,64 @@ public class SmallDefaultContext<T> extends AbstractContext<T> {
     return toRemove.size() > 0;
   }
 
+  @Override
+  public void addSubContext(Context<? extends T> context) {
+    unlinkSubContext(subContexts.get(context.getId()));
+    super.addSubContext(context);
+    if (context instanceof SmallDefaultContext) {
+      ((SmallDefaultContext<?>) context).parents.add(this);
+    }
+    subContextsChanged();
+  }
+
+  @Override
+  public void removeSubContext(Context<? extends T> context) {
+    unlinkSubContext(subContexts.get(context.getId()));
+    super.removeSubContext(context);
+    subContextsChanged();
+  }
+
+  private void unlinkSubContext(Context<?> context) {
+    if (context instanceof SmallDefaultContext) {
+      ((SmallDefaultContext<?>) context).parents.remove(this);
+    }
+  }
+
+  private void subContextsChanged() {
+    int count = 0;
+    for (Context<? extends T> context : subContexts.values()) {
+      if (!(context instanceof SmallDefaultContext)
+          || ((SmallDefaultContext<?>) context).unindexedSubContexts > 0) {
+        count++;
+      }
+    }
+    unindexedSubContexts = count;
+    structureVersion++;
+    allObjs = null;
+    for (SmallDefaultContext<?> parent : parents) {
+      parent.subContextsChanged();
+    }
+  }
+
   /**
    * Gets a IndexedIterable over the all the objects in this context (and thus in the sub contexts) that are
-   * of the specified type.
+   * of the specified type. If all the sub contexts, and all their sub contexts, are SmallDefaultContexts, the
+   * returned IndexedIterable is a cached, live view that reflects subsequent adds and removes.
    *
    * @param clazz the type of objects to return
    * @return a IndexedIterable over the all the objects in this context (and thus in the sub contexts) that are
    *         of the specified type.
    */
   public IndexedIterable<T> getObjects(Class<?> clazz) {
+    if (unindexedSubContexts == 0) {
+      TypeView view = views.get(clazz);
+      if (view == null) {
+        view = new TypeView(clazz);
+        TypeView existing = views.putIfAbsent(clazz, view);
+        if (existing != null) view = existing;
+      }
+      return view;
+    }
 
     CompositeIndexedIterable<T> iter = new CompositeIndexedIterable<T>();
     for (Map.Entry<Class, List<T>> entry : objectMap.entrySet()) {
@@ -1,5 +1,11 @@
 package repast.simphony.context.space.graph;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import repast.simphony.space.graph.Network;
 import simphony.util.messages.MessageCenter;
 
 /**
@@ -11,4 +17,21 @@ public abstract class AbstractGenerator<T> implements NetworkGenerator<T> {
 
   protected static final MessageCenter msg = MessageCenter.getMessageCenter(AbstractGenerator.class);
 
+  /**
+   * Gets the nodes of the specified network as a list. Each node's position
+   * in the list is the index that JUNG's Indexer assigns it, so generators
+   * that work with indices create the same topology as those that use an
+   * Indexer.
+   *
+   * @param network the network whose nodes to get
+   * @return the nodes of the network.
+   */
+  protected List<T> indexNodes(Network<T> network) {
+    Set<T> set = new HashSet<T>();
+    for (T node : network.getNodes()) {
+      set.add(node);
+    }
+    return new ArrayList<T>(set);
+  }
+
 }
@@ -0,0 +1,100 @@
+package repast.simphony.context.space.graph;
+
+import java.util.List;
+
+import repast.simphony.random.RandomHelper;
+import repast.simphony.space.graph.Network;
+
+/**
+ * Generates a scale free network by preferential attachment, as proposed by
+ * Barabasi and Albert. The first initialNodes nodes are linked to each other
+ * and each of the remaining nodes is then linked to edgesPerNode distinct
+ * nodes that precede it, each chosen with a probability proportional to its
+ * degree. In a directed network the edges go from the new node to the nodes it
+ * chooses.
+ * <p/>
+ * Every edge's endpoints are recorded in a list, so a node appears in the list
+ * once for each edge it has and a node can be chosen in proportion to its
+ * degree by picking a random entry from the list (Batagelj and Brandes,
+ * "Efficient generation of large random networks", 2005). The time taken is
+ * therefore proportional to the number of edges created.
+ */
+public class BarabasiAlbertGenerator<T> extends AbstractGenerator<T> {
+
+  private int initialNodes, edgesPerNode;
+
+  /**
+   * Creates a BarabasiAlbertGenerator.
+   *
+   * @param initialNodes the number of initially linked nodes. This must be at
+   *                     least edgesPerNode.
+   * @param edgesPerNode the number of edges created for each subsequent node
+   */
+  public BarabasiAlbertGenerator(int initialNodes, int edgesPerNode) {
+    if (edgesPerNode < 1) {
+      msg.error("Error creating BarabasiAlbertGenerator",
+              new IllegalArgumentException("Edges per node must be at least 1."));
+    }
+    if (initialNodes < edgesPerNode) {
+      msg.error("Error creating BarabasiAlbertGenerator",
+              new IllegalArgumentException("Initial nodes must be at least edges per node."));
+    }
+    this.initialNodes = Math.max(1, initialNodes);
+    this.edgesPerNode = Math.max(1, edgesPerNode);
+  }
+
+  /**
+   * Adds edges to the specified network to create a scale free network.
+   *
+   * @param network the network to add edges to
+   * @return the created network
+   */
+  public Network<T> createNetwork(Network<T> network) {
+    List<T> nodes = indexNodes(network);
+    int n = nodes.size();
+    int seedCount = Math.min(initialNodes, n);
+    int m = Math.min(edgesPerNode, seedCount);
+
+    long edgeCount = (long) seedCount * (seedCount - 1) / 2 + (long) (n - seedCount) * m;
+    EdgeBuffer edges = new EdgeBuffer((int) edgeCount);
+    int[] endpoints = new int[(int) (edgeCount * 2)];
+    int endpointCount = 0;
+
+    for (int i = 0; i < seedCount; i++) {
+      for (int j = i + 1; j < seedCount; j++) {
+        edges.add(i, j);
+        endpoints[endpointCount++] = i;
+        endpoints[endpointCount++] = j;
+      }
+    }
+
+    int[] chosen = new int[m];
+    for (int v = seedCount; v < n; v++) {
+      for (int c = 0; c < m; c++) {
+        int u;
+        do {
+          // a single seed node has no edges so it is picked directly
+          u = endpointCount == 0 ? RandomHelper.nextIntFromTo(0, v - 1)
+                  : endpoints[RandomHelper.nextIntFromTo(0, endpointCount - 1)];
+        } while (contains(chosen, c, u));
+        chosen[c] = u;
+      }
+
+      for (int c = 0; c < m; c++) {
+        edges.add(v, chosen[c]);
+        endpoints[endpointCount++] = v;
+        endpoints[endpointCount++] = chosen[c];
+      }
+    }
+
+    edges.addTo(network, nodes);
+    return network;
+  }
+
+  private boolean contains(int[] array, int size, int value) {
+    for (int i = 0; i < size; i++) {
+      if (array[i] == value) return true;
+    }
+    return false;
+  }
+}
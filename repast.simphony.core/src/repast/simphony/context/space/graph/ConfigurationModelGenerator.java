@@ -0,0 +1,150 @@
+package repast.simphony.context.space.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import repast.simphony.random.RandomHelper;
+import repast.simphony.space.graph.Network;
+
+/**
+ * Generates a random network with a specified degree sequence using the
+ * configuration model. Each node is given as many edge "stubs" as its degree,
+ * the stubs are shuffled, and consecutive stubs are linked. For a directed
+ * degree sequence each out stub is linked to a shuffled in stub instead.
+ * <p/>
+ * As a network has at most one edge between a source and a target, stubs that
+ * would create a duplicate edge are dropped, as are stubs that would create a
+ * self loop unless loops are allowed. The resulting degrees can therefore be
+ * slightly lower than those specified.
+ * <p/>
+ * The degrees are matched to the nodes in the order in which
+ * network.getNodes() returns them.
+ */
+public class ConfigurationModelGenerator<T> extends AbstractGenerator<T> {
+
+  private int[] degrees, outDegrees, inDegrees;
+  private boolean loops;
+
+  /**
+   * Creates a ConfigurationModelGenerator from an undirected degree sequence.
+   * In a directed network, each pair of linked stubs becomes an edge from the
+   * first stub's node to the second's.
+   *
+   * @param degrees        the degree of each node. The sum of the degrees
+   *                       should be even.
+   * @param allowSelfLoops whether or not self loops are allowed in the created
+   *                       network
+   */
+  public ConfigurationModelGenerator(int[] degrees, boolean allowSelfLoops) {
+    if (sum(degrees) % 2 != 0) {
+      msg.error("Error creating ConfigurationModelGenerator",
+              new IllegalArgumentException("The sum of the degrees must be even."));
+    }
+    this.degrees = degrees.clone();
+    this.loops = allowSelfLoops;
+  }
+
+  /**
+   * Creates a ConfigurationModelGenerator from a directed degree sequence.
+   *
+   * @param outDegrees     the out degree of each node
+   * @param inDegrees      the in degree of each node. The sum of the in degrees
+   *                       should equal the sum of the out degrees.
+   * @param allowSelfLoops whether or not self loops are allowed in the created
+   *                       network
+   */
+  public ConfigurationModelGenerator(int[] outDegrees, int[] inDegrees, boolean allowSelfLoops) {
+    if (outDegrees.length != inDegrees.length || sum(outDegrees) != sum(inDegrees)) {
+      msg.error("Error creating ConfigurationModelGenerator", new IllegalArgumentException(
+              "The out and in degree sequences must be the same length and have the same sum."));
+    }
+    this.outDegrees = outDegrees.clone();
+    this.inDegrees = inDegrees.clone();
+    this.loops = allowSelfLoops;
+  }
+
+  private static long sum(int[] degrees) {
+    long sum = 0;
+    for (int degree : degrees) {
+      sum += degree;
+    }
+    return sum;
+  }
+
+  /**
+   * Adds edges to the specified network to create a network with the
+   * generator's degree sequence.
+   *
+   * @param network the network to add edges to
+   * @return the created network
+   */
+  public Network<T> createNetwork(Network<T> network) {
+    List<T> nodes = new ArrayList<T>(network.size());
+    for (T node : network.getNodes()) {
+      nodes.add(node);
+    }
+    int length = degrees == null ? outDegrees.length : degrees.length;
+    if (length != nodes.size()) {
+      msg.error("Error creating configuration model network", new IllegalArgumentException(
+              "The number of degrees must equal the number of nodes in the network."));
+      return network;
+    }
+
+    boolean directed = network.isDirected();
+    EdgeBuffer edges;
+    // the pairs that have been linked
+    EdgePositionMap linked;
+    if (degrees != null) {
+      int[] stubs = shuffle(stubs(degrees));
+      edges = new EdgeBuffer(stubs.length / 2);
+      linked = new EdgePositionMap(stubs.length / 2);
+      for (int i = 0; i + 1 < stubs.length; i += 2) {
+        link(stubs[i], stubs[i + 1], directed, edges, linked);
+      }
+    } else {
+      int[] sources = stubs(outDegrees);
+      int[] targets = shuffle(stubs(inDegrees));
+      int count = Math.min(sources.length, targets.length);
+      edges = new EdgeBuffer(count);
+      linked = new EdgePositionMap(count);
+      for (int i = 0; i < count; i++) {
+        link(sources[i], targets[i], directed, edges, linked);
+      }
+    }
+    edges.addTo(network, nodes);
+    return network;
+  }
+
+  // adds an edge from u to v unless it is a disallowed loop or u and v have
+  // already been linked
+  private void link(int u, int v, boolean directed, EdgeBuffer edges, EdgePositionMap linked) {
+    if (!loops && u == v) return;
+    long key = EdgePositionMap.key(u, v, directed);
+    if (linked.get(key) < 0) {
+      linked.put(key, edges.size());
+      edges.add(u, v);
+    }
+  }
+
+  // node i appears degrees[i] times
+  private int[] stubs(int[] degrees) {
+    int[] stubs = new int[(int) sum(degrees)];
+    int count = 0;
+    for (int i = 0; i < degrees.length; i++) {
+      for (int j = 0; j < degrees[i]; j++) {
+        stubs[count++] = i;
+      }
+    }
+    return stubs;
+  }
+
+  private int[] shuffle(int[] array) {
+    for (int i = array.length - 1; i > 0; i--) {
+      int j = RandomHelper.nextIntFromTo(0, i);
+      int tmp = array[i];
+      array[i] = array[j];
+      array[j] = tmp;
+    }
+    return array;
+  }
+}
@@ -0,0 +1,59 @@
+package repast.simphony.context.space.graph;
+
+import static repast.simphony.context.ContextEvent.EventType.AGENT_ADDED;
+import static repast.simphony.context.ContextEvent.EventType.AGENT_REMOVED;
+
+import org.apache.log4j.Level;
+
+import repast.simphony.context.Context;
+import repast.simphony.context.ContextEvent;
+import repast.simphony.context.ContextListener;
+import repast.simphony.space.graph.CompactNetwork;
+import repast.simphony.space.graph.RepastEdge;
+import simphony.util.messages.MessageCenter;
+
+/**
+ * A CompactNetwork whose nodes are kept in sync with the agents in a
+ * context, in the same way as a {@link ContextJungNetwork}.
+ */
+public class ContextCompactNetwork<T> extends CompactNetwork<T> implements ContextListener<T> {
+
+  private Context<T> context;
+
+  public ContextCompactNetwork(String name, boolean directed, Context<T> context) {
+    super(name, directed);
+    this.context = context;
+  }
+
+  public void eventOccured(ContextEvent<T> ev) {
+    ContextEvent.EventType type = ev.getType();
+    if (type == AGENT_ADDED) {
+      addVertex(ev.getTarget());
+    } else if (type == AGENT_REMOVED) {
+      removeVertex(ev.getTarget());
+    } else if (type == ContextEvent.EventType.PROJECTION_ADDED
+        && ev.getProjection().equals(this)) {
+      this.context = ev.getContext();
+      for (T item : context) {
+        addVertex(item);
+      }
+    } else if (type == ContextEvent.EventType.PROJECTION_REMOVED
+        && ev.getProjection().equals(this)) {
+      for (T item : context) {
+        removeVertex(item);
+      }
+      context = null;
+    }
+  }
+
+  @Override
+  public RepastEdge<T> addEdge(RepastEdge<T> edge) {
+    if (!context.contains(edge.getSource()) || !context.contains(edge.getTarget())) {
+      String message = "Source and/or target of the network"
+          + " have not been added to the context.";
+      MessageCenter.getMessageCenter(ContextCompactNetwork.class).fireMessageEvent(Level.ERROR,
+          message, new NullPointerException(message));
+    }
+    return super.addEdge(edge);
+  }
+}
@@ -15,6 +15,7 @@ import repast.simphony.space.projection.ProjectionPredicate;
 import simphony.util.messages.MessageCenter;
 
 import java.util.Collection;
+import java.util.List;
 
 import org.apache.log4j.Level;
 
@@ -102,6 +103,10 @@ public class ContextJungNetwork<T> implements Network<T>, ContextListener<T> {
     return network.addEdge(source, target);
   }
 
+  public void addEdges(List<T> nodes, int[] sources, int[] targets, int count) {
+    network.addEdges(nodes, sources, targets, count);
+  }
+
   public void addProjectionListener(ProjectionListener listener) {
     network.addProjectionListener(listener);
   }
@@ -129,6 +134,14 @@ public class ContextJungNetwork<T> implements Network<T>, ContextListener<T> {
     return network.getAdjacent(agent);
   }
 
+  /**
+   * Gets a copy of the nodes adjacent to the specified node. See
+   * {@link JungNetwork#getAdjacentCopy(Object)}.
+   */
+  public List<T> getAdjacentCopy(T agent) {
+    return network.getAdjacentCopy(agent);
+  }
+
   public int getDegree() {
     return network.getDegree();
   }
@@ -102,4 +102,5 @@ public class DefaultNetworkFactory implements NetworkFactory {
     NetworkBuilder<T> builder = new NetworkBuilder<T>(netName, context, isDirected);
     return builder.setEdgeCreator(edgeCreator).buildNetwork();
   }
+
 }
@@ -0,0 +1,57 @@
+package repast.simphony.context.space.graph;
+
+import java.util.Arrays;
+import java.util.List;
+
+import repast.simphony.space.graph.Network;
+
+/**
+ * Growable list of edges between node indices that generators fill and then
+ * add to a network in one call to
+ * {@link Network#addEdges(List, int[], int[], int)}.
+ */
+class EdgeBuffer {
+
+  private int[] sources, targets;
+  private int size;
+
+  public EdgeBuffer(int capacity) {
+    capacity = Math.max(capacity, 16);
+    sources = new int[capacity];
+    targets = new int[capacity];
+  }
+
+  public void add(int source, int target) {
+    if (size == sources.length) {
+      int capacity = size + (size >> 1);
+      sources = Arrays.copyOf(sources, capacity);
+      targets = Arrays.copyOf(targets, capacity);
+    }
+    sources[size] = source;
+    targets[size++] = target;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int getSource(int index) {
+    return sources[index];
+  }
+
+  public int getTarget(int index) {
+    return targets[index];
+  }
+
+  /**
+   * Adds the edges in this buffer to the specified network.
+   *
+   * @param network
+   *          the network to add the edges to
+   * @param nodes
+   *          the nodes that the indices in this buffer refer to
+   */
+  public <T> void addTo(Network<T> network, List<T> nodes) {
+    network.addEdges(nodes, sources, targets, size);
+  }
+}
@@ -0,0 +1,79 @@
+package repast.simphony.context.space.graph;
+
+/**
+ * Open addressing map from edge keys to the positions of the edges in an
+ * {@link EdgeBuffer}, so that generators can find duplicate edges without
+ * boxing a key per edge. An edge that is removed keeps its key with a
+ * position of -1.
+ */
+class EdgePositionMap {
+
+  private long[] keys;
+  private int[] values;
+  private boolean[] used;
+  private int size;
+
+  public EdgePositionMap(int capacity) {
+    int length = Integer.highestOneBit(Math.max(16, capacity) * 2 - 1) * 2;
+    keys = new long[length];
+    values = new int[length];
+    used = new boolean[length];
+  }
+
+  /**
+   * Gets the key of the edge between the source and target node indices. The
+   * key of an undirected edge is the same whichever way round it is given.
+   */
+  public static long key(int source, int target, boolean directed) {
+    if (!directed && source > target) return ((long) target << 32) | source;
+    return ((long) source << 32) | target;
+  }
+
+  private int slot(long key) {
+    int mask = keys.length - 1;
+    long hash = key * 0x9E3779B97F4A7C15L;
+    int slot = (int) (hash ^ (hash >>> 32)) & mask;
+    while (used[slot] && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /**
+   * Gets the position of the edge with the key, or -1.
+   */
+  public int get(long key) {
+    int slot = slot(key);
+    return used[slot] ? values[slot] : -1;
+  }
+
+  public void put(long key, int value) {
+    int slot = slot(key);
+    if (!used[slot]) {
+      if (++size > keys.length / 2) {
+        grow();
+        slot = slot(key);
+      }
+      used[slot] = true;
+      keys[slot] = key;
+    }
+    values[slot] = value;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    boolean[] oldUsed = used;
+    keys = new long[oldKeys.length * 2];
+    values = new int[keys.length];
+    used = new boolean[keys.length];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldUsed[i]) {
+        int slot = slot(oldKeys[i]);
+        used[slot] = true;
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+}
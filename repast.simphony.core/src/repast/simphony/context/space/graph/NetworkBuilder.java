@@ -20,6 +20,7 @@ public class NetworkBuilder<T> {
   private EdgeCreator edgeCreator = new DefaultEdgeCreator<T>();
   private NetworkGenerator<T> loader;
   private NetworkGenerator<T> generator;
+  private boolean compact;
 
   public NetworkBuilder(String networkName, Context<T> context, boolean isDirected) {
     this.name = networkName;
@@ -51,6 +52,20 @@ public class NetworkBuilder<T> {
     return this;
   }
 
+  /**
+   * Sets whether or not the created network stores its edges in compressed
+   * sparse row arrays. See {@link CompactNetwork} for the details. A compact
+   * network uses much less memory than the default JUNG based network but
+   * only supports the default edge creator.
+   *
+   * @param compact whether or not the created network is compact
+   * @return this NetworkBuilder
+   */
+  public NetworkBuilder setCompact(boolean compact) {
+    this.compact = compact;
+    return this;
+  }
+
   /**
    * Sets this NetworkBuilder to create the network from a file. This
    * will use the first network found in the file.
@@ -91,7 +106,12 @@ public class NetworkBuilder<T> {
    */
   public Network<T> buildNetwork() {
     Network<T> net;
-    if (isDirected) {
+    if (compact) {
+      if (edgeCreator.getClass() != DefaultEdgeCreator.class) {
+        throw new IllegalArgumentException("Compact networks only support the default edge creator");
+      }
+      net = new ContextCompactNetwork<T>(name, isDirected, context);
+    } else if (isDirected) {
       net = new ContextJungNetwork<T>(new DirectedJungNetwork<T>(name, edgeCreator), context);
     } else {
       net = new ContextJungNetwork<T>(new UndirectedJungNetwork<T>(name, edgeCreator), context);
@@ -99,6 +119,8 @@ public class NetworkBuilder<T> {
     context.addProjection(net);
     if (loader != null) net = loader.createNetwork(net);
     if (generator != null) net = generator.createNetwork(net);
+    // merge the initial topology into the rows
+    if (net instanceof CompactNetwork) ((CompactNetwork<T>) net).compact();
     return net;
   }
 }
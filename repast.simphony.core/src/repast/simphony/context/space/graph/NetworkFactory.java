@@ -95,4 +95,25 @@ public interface NetworkFactory {
                                                NetworkGenerator<T> generator,
                                                EdgeCreator<? extends RepastEdge<T>, T> edgeCreator);
 
+	/**
+	 * Creates a compact Network that stores its edges in compressed sparse row
+	 * arrays. See {@link repast.simphony.space.graph.CompactNetwork}. Any
+	 * objects in the context will be added as nodes in the returned Network.
+	 * The network is added to the specified Context as a projection and can be
+	 * retrieved from the Context with
+	 * <code>Context.getProjection(networkName)</code>.
+	 *
+	 * @param netName    the name of the network
+	 * @param context    the context of which the network will be a projection
+	 * @param isDirected whether or not the network should be directed
+	 * @param generator  used to create the initial network topology. This may be
+	 *                   null.
+	 * @return the created network.
+	 */
+	public default <T> Network<T> createCompactNetwork(String netName, Context<T> context,
+	                                                   boolean isDirected, NetworkGenerator<T> generator) {
+		return new NetworkBuilder<T>(netName, context, isDirected).setCompact(true)
+				.setGenerator(generator).buildNetwork();
+	}
+
 }
\ No newline at end of file
@@ -1,20 +1,16 @@
 package repast.simphony.context.space.graph;
 
-import java.util.HashSet;
-import java.util.Set;
-
-import org.apache.commons.collections15.BidiMap;
+import java.util.List;
 
 import repast.simphony.random.RandomHelper;
 import repast.simphony.space.graph.Network;
-import edu.uci.ics.jung.algorithms.util.Indexer;
 
 /**
- * Generates a random network with a specified approximate density. The network is
- * created by looping over all i, j node pairs and deciding on the existence
- * of a link between the nodes by comparing the value of a probability to a uniform
- * random number.  If the boolean allowLoops is false, no self loops
- * (links from i to itself) will be permitted.  If the boolean isSymmetric is
+ * Generates a random network with a specified approximate density. Each i, j node
+ * pair is linked with a probability equal to the density. Rather than testing
+ * every pair, the generator skips directly from one linked pair to the next, so
+ * the time taken is proportional to the number of edges created. If the boolean
+ * allowLoops is false, no self loops (links from i to itself) will be permitted.  If the boolean isSymmetric is
  * true, all ties will be bidirectional (i -> j = j -> i). This is what is
  * generally referred to in the network literature as "random" network -
  * a class of networks which have been well studied analytically, but which
@@ -26,7 +22,6 @@ public class RandomDensityGenerator<T> extends AbstractGenerator<T> {
 
   private double density;
   private boolean loops, isSymmetric;
-  private BidiMap<T, Integer> map;
 
   /**
    * Creates a random network.
@@ -54,83 +49,49 @@ public class RandomDensityGenerator<T> extends AbstractGenerator<T> {
    * @return the random network
    */
   public Network<T> createNetwork(Network<T> network) {
-    boolean isDirected = network.isDirected();
-    init(network);
-    if (isDirected) {
-      if (loops && isSymmetric) return symmetricLoops(network);
-      else if (!loops && !isSymmetric) return nonSymmetricNoLoops(network);
-      else if (loops) return nonSymmetricLoops(network);
-      else return symmetricNoLoops(network);
-    } else {
-      if (loops) return nonSymmetricLoops(network);
-      else return nonSymmetricNoLoops(network);
-    }
-  }
-
-  private Network<T> symmetricLoops(Network<T> network) {
-    for (int i = 0, n = network.size(); i < n; i++) {
-      T source = map.getKey(i);
-      for (int j = i; j < n; j++) {
-        if (RandomHelper.nextDouble() < density) {
-          T target = map.getKey(j);
-          network.addEdge(source, target);
-          network.addEdge(target, source);
-        }
-      }
-    }
-
-    return network;
-  }
-
-  private void init(Network<T> network) {
-    Set<T> set = new HashSet<T>();
-    for (T node : network.getNodes()) {
-      set.add(node);
-    }
-
-    map = Indexer.create(set);
-  }
-
-  private Network<T> nonSymmetricNoLoops(Network<T> network) {
-    for (int i = 0, n = network.size(); i < n; i++) {
-      T source = map.getKey(i);
-      for (int j = i + 1; j < n; j++) {
-        if (RandomHelper.nextDouble() < density) {
-          T target = map.getKey(j);
-          network.addEdge(source, target);
-        }
-      }
-    }
-
+    generate(network, indexNodes(network), loops, network.isDirected() && isSymmetric);
     return network;
   }
 
-  private Network<T> nonSymmetricLoops(Network<T> network) {
-    for (int i = 0, n = network.size(); i < n; i++) {
-      T source = map.getKey(i);
-      for (int j = i; j < n; j++) {
-        if (RandomHelper.nextDouble() < density) {
-          T target = map.getKey(j);
-          network.addEdge(source, target);
-        }
+  /**
+   * Adds an edge from i to j for each pair of node indices i < j (i <= j if
+   * loops are allowed) with a probability of density, and the edge from j to
+   * i as well if symmetric. Rather than drawing a random number for every
+   * pair, this draws the number of pairs to skip before the next edge from a
+   * geometric distribution (Batagelj and Brandes, "Efficient generation of
+   * large random networks", 2005) so the time taken is proportional to the
+   * number of edges rather than to the number of pairs.
+   */
+  private void generate(Network<T> network, List<T> nodes, boolean loops, boolean symmetric) {
+    long n = nodes.size();
+    long pairCount = loops ? n * (n + 1) / 2 : n * (n - 1) / 2;
+    if (density <= 0 || pairCount == 0) return;
+
+    // sized for the expected number of edges, up to a limit
+    EdgeBuffer edges = new EdgeBuffer((int) Math.min(1 << 24,
+            (symmetric ? 2 : 1) * density * pairCount * 1.1));
+    double logQ = Math.log(1 - density);
+    // the pairs are numbered row by row, where row i holds the pairs (i, j)
+    int i = 0;
+    long rowStart = 0;
+    long rowEnd = loops ? n : n - 1;
+    long pair = -1;
+    while (true) {
+      if (density < 1) {
+        double skip = Math.floor(Math.log(1 - RandomHelper.nextDouble()) / logQ);
+        if (skip >= pairCount - pair - 1) break;
+        pair += (long) skip;
       }
-    }
-
-    return network;
-  }
-
-  private Network<T> symmetricNoLoops(Network<T> network) {
-    for (int i = 0, n = network.size(); i < n; i++) {
-      T source = map.getKey(i);
-      for (int j = i + 1; j < n; j++) {
-        if (RandomHelper.nextDouble() < density) {
-          T target = map.getKey(j);
-          network.addEdge(source, target);
-          network.addEdge(target, source);
-        }
+      if (++pair >= pairCount) break;
+      while (pair >= rowEnd) {
+        i++;
+        rowStart = rowEnd;
+        rowEnd += loops ? n - i : n - i - 1;
       }
+      int j = (int) ((loops ? i : i + 1) + pair - rowStart);
+      edges.add(i, j);
+      if (symmetric && i != j) edges.add(j, i);
     }
-
-    return network;
+    edges.addTo(network, nodes);
   }
 }
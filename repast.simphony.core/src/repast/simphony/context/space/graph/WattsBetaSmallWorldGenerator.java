@@ -1,16 +1,10 @@
 package repast.simphony.context.space.graph;
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Set;
-
-import org.apache.commons.collections15.BidiMap;
 
 import repast.simphony.random.RandomHelper;
 import repast.simphony.space.graph.Network;
-import repast.simphony.space.graph.RepastEdge;
-import edu.uci.ics.jung.algorithms.util.Indexer;
 
 /**
  * WattsBetaSmallWorldGenerator is a graph generator that produces a small
@@ -31,6 +25,13 @@ public class WattsBetaSmallWorldGenerator<T> extends AbstractGenerator<T> {
   private int degree, numNodes;
   private boolean isSymmetrical;
 
+  // used while generating, the edges between node indices, the positions
+  // of those that have been removed, and the position of each current edge
+  private EdgeBuffer edges;
+  private BitSet removed;
+  private EdgePositionMap positions;
+  private boolean directed;
+
   /**
    * Constructs the small world graph generator.
    *
@@ -67,63 +68,81 @@ public class WattsBetaSmallWorldGenerator<T> extends AbstractGenerator<T> {
             new IllegalArgumentException("Number of nodes must be greater than 10"));
 
 
-    Set<T> set = new HashSet<T>();
-    for (T node : network.getNodes()) {
-      set.add(node);
-    }
-    BidiMap<T, Integer> map = Indexer.create(set);
-
+    List<T> nodes = indexNodes(network);
     boolean isDirected = network.isDirected();
+    boolean symmetric = isDirected && isSymmetrical;
     int numKNeighbors = degree / 2;
 
+    // the edges are built as node indices and added to the network at the end
+    int latticeSize = numNodes * numKNeighbors * (symmetric ? 2 : 1);
+    edges = new EdgeBuffer(latticeSize + (int) (latticeSize * beta * 1.1));
+    removed = new BitSet();
+    positions = new EdgePositionMap(latticeSize + (int) (latticeSize * beta * 2));
+    directed = isDirected;
+
     // create the lattice
     for (int i = 0; i < numNodes; i++) {
       for (int s = 1; s <= numKNeighbors; s++) {
-        T source = map.getKey(i);
         int upI = upIndex(i, s);
-        T target = map.getKey(upI);
-        network.addEdge(source, target);
-        if (isDirected && isSymmetrical) {
-          network.addEdge(target, source);
+        link(i, upI);
+        if (symmetric) {
+          link(upI, i);
         }
       }
     }
 
-    List<RepastEdge<T>> edges = new ArrayList<RepastEdge<T>>();
-    for (RepastEdge<T> edge : network.getEdges()) {
-      edges.add(edge);
-    }
-
-    Set<RepastEdge<T>> removedEdges = new HashSet<RepastEdge<T>>();
-
-    for (RepastEdge<T> edge : edges) {
-      if (!removedEdges.contains(edge)) {
+    for (int edge = 0, n = edges.size(); edge < n; edge++) {
+      if (!removed.get(edge)) {
         if (beta > RandomHelper.nextDouble()) {
-          int rndIndex = RandomHelper.nextIntFromTo(0, numNodes - 1);
-          T randomNode = map.getKey(rndIndex);
-          T source = edge.getSource();
-          if (!source.equals(randomNode) && !network.isPredecessor(source, randomNode)) {
-            network.removeEdge(edge);
-            network.addEdge(source, randomNode);
-
-            if (isDirected && isSymmetrical) {
-              // remove the t -> s edge
-              T target = edge.getTarget();
-              RepastEdge<T> otherEdge = network.getEdge(target, source);
-              network.removeEdge(otherEdge);
-              removedEdges.add(otherEdge);
-
-              // add the randomNode -> edge
-              network.addEdge(randomNode, source);
+          int randomNode = RandomHelper.nextIntFromTo(0, numNodes - 1);
+          int source = edges.getSource(edge);
+          if (source != randomNode && positions.get(key(source, randomNode)) < 0) {
+            int target = edges.getTarget(edge);
+            unlink(source, target);
+            link(source, randomNode);
+
+            if (symmetric) {
+              // replace the t -> s edge with randomNode -> s
+              unlink(target, source);
+              link(randomNode, source);
             }
           }
         }
       }
     }
 
+    EdgeBuffer current = new EdgeBuffer(edges.size() - removed.cardinality());
+    for (int edge = 0, n = edges.size(); edge < n; edge++) {
+      if (!removed.get(edge)) current.add(edges.getSource(edge), edges.getTarget(edge));
+    }
+    current.addTo(network, nodes);
+    edges = null;
+    removed = null;
+    positions = null;
     return network;
   }
 
+  private long key(int source, int target) {
+    return EdgePositionMap.key(source, target, directed);
+  }
+
+  // adds an edge from source to target, replacing any existing edge between
+  // them as Network.addEdge does
+  private void link(int source, int target) {
+    unlink(source, target);
+    positions.put(key(source, target), edges.size());
+    edges.add(source, target);
+  }
+
+  private void unlink(int source, int target) {
+    long key = key(source, target);
+    int position = positions.get(key);
+    if (position >= 0) {
+      removed.set(position);
+      positions.put(key, -1);
+    }
+  }
+
   /**
    * Determines the index of the neighbor ksteps above
    *
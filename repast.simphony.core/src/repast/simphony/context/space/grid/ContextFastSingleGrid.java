@@ -30,6 +30,24 @@ public class ContextFastSingleGrid<T> extends FastDenseSingleOccuGrid<T> impleme
 			int... size) {
 		super(name, adder, translator, size);
 	}
+
+	/**
+	 * Constructs this space with the specified name, adder, translator, size
+	 * and origin. The size is the size of the space meaning [3, 3] is a 3x3
+	 * space. The origin is the offset on the space where the [0,0] grid point
+	 * is.
+	 * 
+	 * @param name
+	 *            the name of the space
+	 * @param size
+	 *            the dimensions of the space
+	 * @param origin
+	 *            the origin of the space
+	 */
+	public ContextFastSingleGrid(String name, GridAdder<T> adder,
+			GridPointTranslator translator, int[] size, int[] origin) {
+		super(name, adder, translator, size, origin);
+	}
 	
 	/**
 	 * If the event is an add this will put the object at the (0, 0, ..., 0)
@@ -18,6 +18,19 @@ public class DefaultGridFactory implements GridFactory {
 
 	public <T> Grid<T> createGrid(String name, Context<T> context,
 	                              GridBuilderParameters<T> params) {
+		if (params.isDense() && params.isMultOccupancy()) {
+			ContextDenseMultiGrid<T> grid = new ContextDenseMultiGrid<T>(name, params.getAdder(),
+					params.getGridPointTranslator(), params.getDimensions(), params.getOrigin());
+			context.addProjection(grid);
+			return grid;
+		}
+		if (params.isDense()) {
+			ContextFastSingleGrid<T> grid = new ContextFastSingleGrid<T>(name, params.getAdder(),
+					params.getGridPointTranslator(), params.getDimensions(), params.getOrigin());
+			context.addProjection(grid);
+			return grid;
+		}
+
 		CellAccessor<T, Map<GridPoint, Object>> accessor = params.isMultOccupancy() ? new MultiOccupancyCellAccessor<T>()
 				: new SingleOccupancyCellAccessor<T>();
 		ContextGrid<T> dGrid = new ContextGrid<T>(name, params.getAdder(),
@@ -55,6 +55,9 @@ public class ScheduledMethodControllerAction implements ControllerAction, Contex
         params = ScheduleParameters.createOneTime(annotation.start(), annotation.priority(),
             duration);
       }
+      if (annotation.threadSafe()) {
+        params = ScheduleParameters.createThreadSafe(params);
+      }
       return params;
     }
   }
@@ -39,16 +39,27 @@ public abstract class AbstractAction implements ISchedulableAction {
    */
   protected boolean nonModelAction;
   
+  /**
+   * Whether or not this action can be executed concurrently with other
+   * thread safe actions of the same priority.
+   */
+  protected boolean threadSafe;
+  
   /**
    * The order index
    */ 
   private long index = 0;
+  
+  /**
+   * The slot of this action in the ActionQueue that contains it.
+   */
+  private int queueIndex = 0;
 
   /**
    * An rescheduler is responsible for rescheduling an action in the ActionQueue.
    */ 
   protected static interface Rescheduler {
-    public void reschedule(ActionQueue queue);
+    public void reschedule(IActionQueue queue);
   }
 
   /**
@@ -59,7 +70,7 @@ public abstract class AbstractAction implements ISchedulableAction {
   protected class IntervalRescheduler implements Rescheduler {
 	private static final long serialVersionUID = 6596470668793932788L;
 
-	public void reschedule(ActionQueue queue) {
+	public void reschedule(IActionQueue queue) {
       nextTime += interval;
       queue.toss(AbstractAction.this);
     }
@@ -72,7 +83,7 @@ public abstract class AbstractAction implements ISchedulableAction {
   protected static class OneTimeRescheduler implements Rescheduler {
 	private static final long serialVersionUID = 6926888495853469259L;
 
-	public void reschedule(ActionQueue queue) {}
+	public void reschedule(IActionQueue queue) {}
   }
 
   /**
@@ -98,6 +109,7 @@ public abstract class AbstractAction implements ISchedulableAction {
     priority = params.getPriority();
     interval = params.getInterval();
     pType = params.getPriorityType();
+    threadSafe = params.isThreadSafe();
   }
 
   /**
@@ -121,6 +133,15 @@ public abstract class AbstractAction implements ISchedulableAction {
 	return nonModelAction;
   }
   
+  /**
+   * Gets whether or not this AbstractAction is thread safe.
+   * 
+   * @return true if this AbstractAction is thread safe, otherwise false.
+   */
+  public boolean isThreadSafe() {
+    return threadSafe;
+  }
+  
   /**
    * Sets the frequency of this AbstractAction.
    * 
@@ -135,7 +156,7 @@ public abstract class AbstractAction implements ISchedulableAction {
   /**
    * Reschedule this AbstractAction for execution.
    */
-  public void reschedule(ActionQueue queue) {
+  public void reschedule(IActionQueue queue) {
     rescheduler.reschedule(queue);
   }
 
@@ -178,4 +199,18 @@ public abstract class AbstractAction implements ISchedulableAction {
   public long getOrderIndex() {
     return index;
   }
+  
+  /* (non-Javadoc)
+   * @see repast.simphony.engine.schedule.ISchedulableAction#getQueueIndex()
+   */
+  public int getQueueIndex() {
+    return queueIndex;
+  }
+  
+  /* (non-Javadoc)
+   * @see repast.simphony.engine.schedule.ISchedulableAction#setQueueIndex(int)
+   */
+  public void setQueueIndex(int index) {
+    this.queueIndex = index;
+  }
 }
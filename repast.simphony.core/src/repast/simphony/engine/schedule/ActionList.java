@@ -84,6 +84,17 @@ public class ActionList implements Iterable<ISchedulableAction> {
     return list.remove(action);
   }
 
+  /**
+   * Gets the action at the specified index.
+   * 
+   * @param index
+   *          the index of the action
+   * @return the action at the specified index.
+   */
+  public ISchedulableAction get(int index) {
+    return list.get(index);
+  }
+
   /**
    * Gets the size of this list.
    * 
@@ -10,19 +10,25 @@ import java.util.NoSuchElementException;
  * 
  * This priority queue uses a binary heap algorithm as described in Mark Allen
  * Weis, _Algorithms, Data Structures, and Problem Solving with C++_, chapter
- * 20.
+ * 20. Each action records its current slot in the heap (see
+ * {@link ISchedulableAction#getQueueIndex()}) so that an action can be
+ * removed in O(log n) time without searching the queue. Actions that do not
+ * record their slot are found by searching the queue.
  * 
  * @see repast.simphony.engine.schedule.ISchedulableAction
  * 
  * @author Nick Collier
  */
-public class ActionQueue {
+public class ActionQueue implements IActionQueue {
 
   static final long serialVersionUID = -5594830901668228513L;
 
   private int maxSize, origMax;
   private int currentSize = 0;
   private boolean orderOk = true;
+  // index of the first action tossed during a bulk insert,
+  // 0 if not in a bulk insert
+  private int bulkStart = 0;
 
   // the number of actions that are in this queue that are model actions
   private int modelActionCount = 0;
@@ -32,33 +38,6 @@ public class ActionQueue {
   // at 2i and right child is at 2i+1, and parent at i / 2.
   private ISchedulableAction[] array;
 
-  // this is used when an action is removed. We replace the removed
-  // AbstractAction
-  // with this one. By replacing we don't need to fix the heap which may be time
-  // consuming
-  static class EmptyAction extends AbstractAction {
-    private static final long serialVersionUID = -830235028902826597L;
-
-    EmptyAction(double nextTime) {
-      super(ScheduleParameters.createOneTime(nextTime));
-    }
-
-    // this should never get called because it never gets added to
-    // a group for exection
-    public void execute() {
-    }
-
-    public void addForExecution(ScheduleGroup group) {
-    }
-
-    public boolean isNonModelAction() {
-      return true;
-    }
-
-    public void setPriority(double priority) {
-    }
-  }
-
   // our top most root AbstractAction
   static class DummyAction extends AbstractAction {
     private static final long serialVersionUID = -5139789622934288912L;
@@ -120,36 +99,91 @@ public class ActionQueue {
           child++;
 
         if (array[child].getNextTime() < tmp.getNextTime())
-          array[hole] = array[child];
+          place(array[child], hole);
         else
           break;
       }
 
-      array[hole] = tmp;
+      place(tmp, hole);
     }
   }
 
+  // move the hole up the tree in order to maintain
+  // heap order. Returns the final position of the hole.
+  private int percolateUp(int hole, ISchedulableAction action) {
+    if (hole != 1) {
+      for (; action.getNextTime() < array[hole / 2].getNextTime(); hole /= 2)
+        place(array[hole / 2], hole);
+    }
+    place(action, hole);
+    return hole;
+  }
+
+  // puts the action in the specified slot and
+  // records the slot in the action.
+  private void place(ISchedulableAction action, int index) {
+    array[index] = action;
+    action.setQueueIndex(index);
+  }
+
   /**
-   * Find the specified Action in the queue and void it. Voiding means replace
-   * that action with an empty action that does nothing.
-   * 
-   * @return returns true if the action is found and voided, false if this
-   *         ActionQueue does not contain the specified AbstractAction.
+   * Removes the specified action from the queue. The action's recorded queue
+   * index is used to find it and so removal takes O(log n) time. An action
+   * that does not record its index is searched for in O(n) time.
    * 
+   * @param action
+   *          the action to remove
+   * @return returns true if the action is found and removed, false if this
+   *         ActionQueue does not contain the specified action.
    */
-  public boolean voidAction(ISchedulableAction action) {
-    boolean found = false;
-    for (int i = 0, n = array.length; i < n; i++) {
-      if (action.equals(array[i])) {
-        array[i] = new EmptyAction(action.getNextTime());
-        if (!action.isNonModelAction()) {
-          modelActionCount--;
-        }
-        found = true;
+  public boolean remove(ISchedulableAction action) {
+    if (bulkStart != 0)
+      endBulkInsert();
+    int index = action.getQueueIndex();
+    if (index == ISchedulableAction.NO_QUEUE_INDEX)
+      index = indexOf(action);
+    if (index < 1 || index > currentSize || array[index] != action)
+      return false;
+
+    ISchedulableAction last = array[currentSize];
+    array[currentSize] = null;
+    currentSize--;
+    action.setQueueIndex(0);
+    if (index <= currentSize) {
+      if (!orderOk) {
+        // heap will be fixed before the next peek or pop
+        // so just fill the hole
+        place(last, index);
+      } else if (percolateUp(index, last) == index) {
+        percolateDown(index);
       }
     }
 
-    return found;
+    if (!action.isNonModelAction()) {
+      modelActionCount--;
+    }
+    return true;
+  }
+
+  // the slot of the action, or 0 if this does not contain it
+  private int indexOf(ISchedulableAction action) {
+    for (int i = 1; i <= currentSize; i++) {
+      if (array[i] == action)
+        return i;
+    }
+    return 0;
+  }
+
+  /**
+   * Removes the specified action from the queue.
+   * 
+   * @return returns true if the action is found and removed, false if this
+   *         ActionQueue does not contain the specified action.
+   * @deprecated use {@link #remove(ISchedulableAction)} instead.
+   */
+  @Deprecated
+  public boolean voidAction(ISchedulableAction action) {
+    return remove(action);
   }
 
   /**
@@ -158,19 +192,14 @@ public class ActionQueue {
   public void insert(ISchedulableAction action) {
     // if the order is messed up already don't
     // worry about fixing it, just toss the action
-    if (!orderOk) {
+    if (!orderOk || bulkStart != 0) {
       toss(action);
       return;
     }
 
     checkSize();
     // percolate the hold up through the tree to maintain heap order
-    int hole = ++currentSize;
-    if (hole != 1) {
-      for (; action.getNextTime() < array[hole / 2].getNextTime(); hole /= 2)
-        array[hole] = array[hole / 2];
-    }
-    array[hole] = action;
+    percolateUp(++currentSize, action);
 
     if (!action.isNonModelAction()) {
       modelActionCount++;
@@ -187,6 +216,8 @@ public class ActionQueue {
   public ISchedulableAction peekMin() {
     if (currentSize == 0)
       throw new NoSuchElementException("Queue is Empty");
+    if (bulkStart != 0)
+      endBulkInsert();
     if (!orderOk)
       fixHeap();
     return array[1];
@@ -204,8 +235,9 @@ public class ActionQueue {
     ISchedulableAction tmp = array[currentSize];
     array[currentSize] = null;
     currentSize--;
+    a.setQueueIndex(0);
     if (currentSize > 0) {
-      array[1] = tmp;
+      place(tmp, 1);
       percolateDown(1);
     }
 
@@ -224,9 +256,10 @@ public class ActionQueue {
    */
   public void toss(ISchedulableAction action) {
     checkSize();
-    array[++currentSize] = action;
+    place(action, ++currentSize);
 
-    if (currentSize != 1) {
+    // order is restored at the end of a bulk insert
+    if (currentSize != 1 && bulkStart == 0) {
       // is action < its parent node.
       if (action.getNextTime() < array[currentSize / 2].getNextTime())
         orderOk = false;
@@ -237,10 +270,46 @@ public class ActionQueue {
     }
   }
 
+  /**
+   * Starts a bulk insert. Actions tossed into the queue during a bulk insert
+   * are appended without any ordering work. Heap order is restored once, when
+   * {@link #endBulkInsert()} is called.
+   */
+  public void beginBulkInsert() {
+    if (bulkStart == 0)
+      bulkStart = currentSize + 1;
+  }
+
+  /**
+   * Ends a bulk insert, restoring heap order. If only a few actions were
+   * tossed relative to the size of the queue, each is percolated into place.
+   * Otherwise the whole heap is rebuilt in a single pass.
+   */
+  public void endBulkInsert() {
+    int start = bulkStart;
+    bulkStart = 0;
+    if (start == 0 || start > currentSize || !orderOk)
+      return;
+
+    int added = currentSize - start + 1;
+    // percolating each costs added * log(size), rebuilding costs size
+    if (added * (32 - Integer.numberOfLeadingZeros(currentSize)) < currentSize) {
+      for (int i = start; i <= currentSize; i++) {
+        percolateUp(i, array[i]);
+      }
+    } else {
+      fixHeap();
+    }
+  }
+
   /**
    * Removes all elements from the queue.
    */
   public void clear() {
+    bulkStart = 0;
+    for (int i = 1; i <= currentSize; i++) {
+      array[i].setQueueIndex(0);
+    }
     currentSize = 0;
     orderOk = true;
     allocateArray(origMax);
@@ -0,0 +1,313 @@
+package repast.simphony.engine.schedule;
+
+import java.util.NoSuchElementException;
+
+/**
+ * An IActionQueue that stores actions scheduled for integral ticks in a
+ * calendar of buckets, one bucket per tick. Actions scheduled for fractional
+ * ticks, or for ticks outside the range currently covered by the calendar,
+ * are stored in a binary heap ActionQueue. Inserting, removing and popping an
+ * action in the calendar takes constant time, so models whose actions are
+ * scheduled only at integral ticks avoid the cost of maintaining heap order.
+ * <p>
+ *
+ * Actions in the same bucket are returned in no particular order. This does
+ * not effect execution order because a ScheduleGroup sorts the actions it
+ * executes.
+ *
+ * @see repast.simphony.engine.schedule.CalendarSchedule
+ */
+public class CalendarActionQueue implements IActionQueue {
+
+  // largest tick that can be stored in a bucket
+  private static final double MAX_BUCKET_TICK = (double) (1L << 52);
+
+  /**
+   * A single tick's worth of actions. Actions record their position in the
+   * bucket as a negative queue index.
+   */
+  static class Bucket {
+
+    private ISchedulableAction[] actions = new ISchedulableAction[4];
+    private int size = 0;
+
+    void add(ISchedulableAction action) {
+      if (size == actions.length) {
+        ISchedulableAction[] tmp = new ISchedulableAction[size * 2];
+        System.arraycopy(actions, 0, tmp, 0, size);
+        actions = tmp;
+      }
+      actions[size] = action;
+      action.setQueueIndex(-(size + 1));
+      size++;
+    }
+
+    ISchedulableAction last() {
+      return actions[size - 1];
+    }
+
+    ISchedulableAction removeLast() {
+      ISchedulableAction action = actions[--size];
+      actions[size] = null;
+      action.setQueueIndex(0);
+      return action;
+    }
+
+    boolean remove(ISchedulableAction action) {
+      int index = action.getQueueIndex() == ISchedulableAction.NO_QUEUE_INDEX ? indexOf(action)
+          : -action.getQueueIndex() - 1;
+      if (index < 0 || index >= size || actions[index] != action)
+        return false;
+      size--;
+      if (index != size) {
+        actions[index] = actions[size];
+        actions[index].setQueueIndex(-(index + 1));
+      }
+      actions[size] = null;
+      action.setQueueIndex(0);
+      return true;
+    }
+
+    // the position of the action, or -1 if this does not contain it
+    int indexOf(ISchedulableAction action) {
+      for (int i = 0; i < size; i++) {
+        if (actions[i] == action) return i;
+      }
+      return -1;
+    }
+
+    void clear() {
+      for (int i = 0; i < size; i++) {
+        actions[i].setQueueIndex(0);
+        actions[i] = null;
+      }
+      size = 0;
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+  }
+
+  private Bucket[] buckets;
+  private int mask;
+  // the tick of the earliest bucket in the calendar. This only moves when a
+  // bucket is consumed so that actions can still be added at the current tick.
+  private long baseTick = 0;
+  // no bucket before this tick is occupied
+  private long scanTick = 0;
+  // the number of actions in the buckets
+  private int bucketCount = 0;
+  private int bucketModelCount = 0;
+  // contains fractional and far future actions
+  private ActionQueue spill = new ActionQueue();
+
+  /**
+   * Creates a CalendarActionQueue whose calendar covers 256 ticks.
+   */
+  public CalendarActionQueue() {
+    this(256);
+  }
+
+  /**
+   * Creates a CalendarActionQueue whose calendar covers at least the specified
+   * number of ticks. Actions scheduled further than that into the future are
+   * stored in a heap until they are popped.
+   *
+   * @param calendarSize
+   *          the number of ticks covered by the calendar. This will be rounded
+   *          up to a power of two.
+   */
+  public CalendarActionQueue(int calendarSize) {
+    int size = Integer.highestOneBit(Math.max(calendarSize, 2) - 1) << 1;
+    buckets = new Bucket[size];
+    for (int i = 0; i < size; i++) {
+      buckets[i] = new Bucket();
+    }
+    mask = size - 1;
+  }
+
+  // gets whether or not the action can be stored in a bucket
+  private boolean isBucketable(double time) {
+    if (time != Math.floor(time) || time >= MAX_BUCKET_TICK) return false;
+    if (bucketCount == 0 && time >= 0) {
+      // nothing in the calendar so we can move it
+      baseTick = (long) time;
+      scanTick = baseTick;
+      return true;
+    }
+    return time >= baseTick && time < baseTick + buckets.length;
+  }
+
+  private void addToBucket(ISchedulableAction action) {
+    long tick = (long) action.getNextTime();
+    buckets[(int) (tick & mask)].add(action);
+    if (tick < scanTick) scanTick = tick;
+    bucketCount++;
+    if (!action.isNonModelAction()) {
+      bucketModelCount++;
+    }
+  }
+
+  // finds the tick of the earliest non-empty bucket, remembering it so that
+  // the next search starts there
+  private long findMinTick() {
+    while (buckets[(int) (scanTick & mask)].isEmpty()) {
+      scanTick++;
+    }
+    return scanTick;
+  }
+
+  private Bucket findMinBucket() {
+    if (bucketCount == 0) return null;
+    return buckets[(int) (findMinTick() & mask)];
+  }
+
+  /**
+   * Removes the specified action from the queue.
+   *
+   * @return returns true if the action is found and removed, false if this
+   *         queue does not contain the specified action.
+   */
+  public boolean remove(ISchedulableAction action) {
+    int index = action.getQueueIndex();
+    if (index == ISchedulableAction.NO_QUEUE_INDEX) {
+      // the action could be in either the spill queue or a bucket
+      if (spill.remove(action)) return true;
+    } else if (index >= 0) {
+      return spill.remove(action);
+    }
+    double time = action.getNextTime();
+    if (time != Math.floor(time) || time >= MAX_BUCKET_TICK) return false;
+    if (buckets[(int) ((long) time & mask)].remove(action)) {
+      bucketCount--;
+      if (!action.isNonModelAction()) {
+        bucketModelCount--;
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Insert the specified action into the queue.
+   */
+  public void insert(ISchedulableAction action) {
+    if (isBucketable(action.getNextTime())) addToBucket(action);
+    else spill.insert(action);
+  }
+
+  /**
+   * Insert the specified action into the queue. Actions in the calendar are
+   * always in order, so this is identical to insert for those actions.
+   *
+   * @param action
+   *          the action to insert into the queue
+   */
+  public void toss(ISchedulableAction action) {
+    if (isBucketable(action.getNextTime())) addToBucket(action);
+    else spill.toss(action);
+  }
+
+  /**
+   * Starts a bulk insert into the heap of actions that are not in the calendar.
+   */
+  public void beginBulkInsert() {
+    spill.beginBulkInsert();
+  }
+
+  /**
+   * Ends a bulk insert into the heap of actions that are not in the calendar.
+   */
+  public void endBulkInsert() {
+    spill.endBulkInsert();
+  }
+
+  /**
+   * Get the minimum element from the queque without removing it from the queue.
+   *
+   * @return the minimum element from the queque
+   */
+  public ISchedulableAction peekMin() {
+    Bucket bucket = findMinBucket();
+    if (bucket == null) {
+      if (spill.isEmpty()) throw new NoSuchElementException("Queue is Empty");
+      return spill.peekMin();
+    }
+    ISchedulableAction action = bucket.last();
+    if (!spill.isEmpty() && spill.peekMin().getNextTime() < action.getNextTime())
+      return spill.peekMin();
+    return action;
+  }
+
+  /**
+   * Remove the minimum element from the queque and return it.
+   *
+   * @return the minimum element from the queque
+   */
+  public ISchedulableAction popMin() {
+    Bucket bucket = findMinBucket();
+    if (bucket == null
+        || (!spill.isEmpty() && spill.peekMin().getNextTime() < bucket.last().getNextTime())) {
+      return spill.popMin();
+    }
+
+    // the calendar now starts at the consumed bucket
+    baseTick = scanTick;
+    ISchedulableAction action = bucket.removeLast();
+    bucketCount--;
+    if (!action.isNonModelAction()) {
+      bucketModelCount--;
+    }
+    return action;
+  }
+
+  /**
+   * Removes all elements from the queue.
+   */
+  public void clear() {
+    for (Bucket bucket : buckets) {
+      bucket.clear();
+    }
+    bucketCount = 0;
+    bucketModelCount = 0;
+    baseTick = 0;
+    scanTick = 0;
+    spill.clear();
+  }
+
+  /**
+   * Reinstate the heap order of the actions that are not in the calendar.
+   */
+  public void fixHeap() {
+    spill.fixHeap();
+  }
+
+  /**
+   * Returns true if the queue is empty, otherwise false.
+   *
+   * @return true if the queue is empty, otherwise false.
+   */
+  public boolean isEmpty() {
+    return bucketCount == 0 && spill.isEmpty();
+  }
+
+  /**
+   * Gets the number of elements in the queue.
+   *
+   * @return the number of elements in the queue.
+   */
+  public int size() {
+    return bucketCount + spill.size();
+  }
+
+  /**
+   * Retrieves the number of actions whose
+   * {@link ISchedulableAction#isNonModelAction()} method returns false.
+   *
+   * @return the number of model actions
+   */
+  public int getModelActionCount() {
+    return bucketModelCount + spill.getModelActionCount();
+  }
+}
@@ -0,0 +1,33 @@
+package repast.simphony.engine.schedule;
+
+/**
+ * A Schedule whose actions are queued in a {@link CalendarActionQueue}. Actions
+ * scheduled for integral ticks are kept in a bucket per tick, making the cost
+ * of queueing and dequeueing them constant. Actions scheduled for fractional
+ * ticks are queued in a binary heap, as with the default Schedule. This is
+ * appropriate for models that schedule most of their actions at integral ticks.
+ * 
+ * @see repast.simphony.engine.schedule.CalendarActionQueue
+ * @see repast.simphony.engine.schedule.CalendarScheduleFactory
+ */
+public class CalendarSchedule extends Schedule {
+
+  /**
+   * Creates a CalendarSchedule that by default uses a DefaultSchedulableActionFactory to create its
+   * scheduled actions.
+   */
+  public CalendarSchedule() {
+    this(new DefaultSchedulableActionFactory());
+  }
+
+  /**
+   * Creates a CalendarSchedule that will use the specified ISchedulableActionFactory to create its
+   * scheduled actions.
+   *
+   * @param factory the factory to use to create the actions that the Schedule will schedule
+   */
+  public CalendarSchedule(ISchedulableActionFactory factory) {
+    super(factory);
+    actionQueue = new CalendarActionQueue();
+  }
+}
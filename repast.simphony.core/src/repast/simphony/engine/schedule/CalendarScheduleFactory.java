@@ -0,0 +1,56 @@
+package repast.simphony.engine.schedule;
+
+/**
+ * A schedule factory that constructs {@link CalendarSchedule}s. Set this
+ * as the schedule factory of the run environment to use calendar queue
+ * scheduling.
+ * 
+ * @see repast.simphony.engine.environment.RunEnvironmentBuilder#setScheduleFactory(IScheduleFactory)
+ */
+public class CalendarScheduleFactory extends DefaultScheduleFactory {
+
+	/**
+	 * Synonymous with CalendarScheduleFactory(new
+	 * DefaultSchedulableActionFactory)
+	 * 
+	 * @see #CalendarScheduleFactory(ISchedulableActionFactory)
+	 */
+	public CalendarScheduleFactory() {
+		super();
+	}
+
+	/**
+	 * Constructs this ScheduleFactory which will default to creating schedules
+	 * with the specified action factory
+	 * 
+	 * @param defaultActionFactory
+	 *            the default action factory the created schedules will be fed
+	 */
+	public CalendarScheduleFactory(ISchedulableActionFactory defaultActionFactory) {
+		super(defaultActionFactory);
+	}
+
+	/**
+	 * Creates a CalendarSchedule that will use the specified
+	 * ISchedulableActionFactory to create its scheduled actions.
+	 * 
+	 * @param factory
+	 *            the factory to use to create the actions that the Schedule
+	 *            will schedule
+	 * 
+	 * @return a schedule that uses the specified factory
+	 */
+	public ISchedule createSchedule(ISchedulableActionFactory factory) {
+		return new CalendarSchedule(factory);
+	}
+
+	/**
+	 * Creates a CalendarSchedule that uses the default action factory set in
+	 * this factory to create its scheduled actions.
+	 * 
+	 * @return a schedule that uses the default factory
+	 */
+	public ISchedule createSchedule() {
+		return new CalendarSchedule(getDefaultSchedulableActionFactory());
+	}
+}
@@ -8,6 +8,8 @@ import java.lang.reflect.Method;
 import net.sf.cglib.reflect.FastClass;
 import net.sf.cglib.reflect.FastMethod;
 import repast.simphony.util.ClassUtilities;
+import repast.simphony.util.MethodInvoker;
+import repast.simphony.util.MethodInvokerFactory;
 
 /**
  * An IAction created from a method name and method parameters. When a CallBackAction is executed
@@ -22,7 +24,8 @@ public class CallBackAction implements IAction {
 
   private Object target;
   // not serializable so don't serialize it
-  private transient FastMethod method;
+  private transient MethodInvoker method;
+  private transient FastMethod fastMethod;
   private Object[] args;
   // we need to serialize this as we can't serialize the method name
   private String methodName;
@@ -37,8 +40,8 @@ public class CallBackAction implements IAction {
   public CallBackAction(Object target, Method method) {
     args = new Object[method.getParameterTypes().length];
     this.target = target;
-    this.method = FastClass.create(target.getClass()).getMethod(method);
-    methodName = this.method.getName();
+    this.method = MethodInvokerFactory.getInvoker(method);
+    methodName = method.getName();
   }
 
   /**
@@ -52,9 +55,9 @@ public class CallBackAction implements IAction {
   public CallBackAction(Object target, Method method, Object... parameters) {
     args = new Object[parameters.length];
     this.target = target;
-    this.method = FastClass.create(target.getClass()).getMethod(method);
+    this.method = MethodInvokerFactory.getInvoker(method);
     System.arraycopy(parameters, 0, args, 0, parameters.length);
-    methodName = this.method.getName();
+    methodName = method.getName();
   }
 
   /**
@@ -81,14 +84,15 @@ public class CallBackAction implements IAction {
 
   // initializes the method field
   private void initMethod(Object target, String methodName, Class[] paramTypes) {
-    FastClass fClass = FastClass.create(target.getClass());
+    method = null;
+    Method jMethod;
     try {
       // try for the quick find
-      method = fClass.getMethod(methodName, paramTypes);
-    } catch (NoSuchMethodError er) {
-      Method jMethod = ClassUtilities.findMethod(target.getClass(), methodName, paramTypes);
-      if (jMethod != null) method = FastClass.create(jMethod.getDeclaringClass()).getMethod(jMethod);
+      jMethod = target.getClass().getMethod(methodName, paramTypes);
+    } catch (NoSuchMethodException ex) {
+      jMethod = ClassUtilities.findMethod(target.getClass(), methodName, paramTypes);
     }
+    if (jMethod != null) method = MethodInvokerFactory.getInvoker(jMethod);
 
     if (method == null) {
       String pTypes = "(";
@@ -131,7 +135,7 @@ public class CallBackAction implements IAction {
   }
 
   /**
-   * Recreates the FastMethod member using the serialized methodName, target and args.
+   * Recreates the MethodInvoker member using the serialized methodName, target and args.
    *
    * @param stream
    * @throws IOException
@@ -160,11 +164,31 @@ public class CallBackAction implements IAction {
    * @return the method that this callback action will call.
    */
   public Method getMethod() {
-    return this.method.getJavaMethod();
+    return this.method.getMethod();
   }
-  
-  public FastMethod getFastMethod(){
-	  return this.method;
+
+  /**
+   * Gets the MethodInvoker used to call the method.
+   *
+   * @return the MethodInvoker used to call the method.
+   */
+  public MethodInvoker getInvoker() {
+    return this.method;
+  }
+
+  /**
+   * Gets a cglib FastMethod for the method that this callback action will call.
+   *
+   * @return a cglib FastMethod for the method that this callback action will call.
+   * @deprecated use {@link #getInvoker()} instead.
+   */
+  @Deprecated
+  public FastMethod getFastMethod() {
+    if (fastMethod == null) {
+      Method jMethod = method.getMethod();
+      fastMethod = FastClass.create(jMethod.getDeclaringClass()).getMethod(jMethod);
+    }
+    return fastMethod;
   }
 
   /**
@@ -37,4 +37,13 @@ public class DefaultAction extends AbstractAction {
   public void execute() {
     actionToExecute.execute();
   }
+
+  /**
+   * Gets the IAction that this DefaultAction executes.
+   *
+   * @return the IAction that this DefaultAction executes.
+   */
+  public IAction getAction() {
+    return actionToExecute;
+  }
 }
@@ -59,6 +59,22 @@ public class DefaultActionFactory implements IActionFactory {
     return new IterableCallBackAction(target, methodName, shuffle, parameters);
   }
 
+  /**
+   * Creates an IAction that will call the named method on each object in the specified target using the
+   * specified parameters.
+   *
+   * @param target the object on which to call the name method
+   * @param methodName the name of the method to call
+   * @param iterParams describes how to iterate over the items in the iterable
+   * @param parameters the parameters of the method
+   * @return an IAction that will call the named method on the specified target using the
+   * specified parameters.
+   */
+  public IAction createActionForIterable(Iterable target, String methodName, IterationParameters iterParams,
+                                         Object... parameters) {
+    return new IterableCallBackAction(target, methodName, iterParams, parameters);
+  }
+
   /**
    * Creates an IActionParameterPair from annotated methods in the specified
    * annotatedObj. The IAction will execute the method whose parameters best 
@@ -129,6 +145,7 @@ public class DefaultActionFactory implements IActionFactory {
           params = ScheduleParameters.createOneTime(scheduledMethod.start(), scheduledMethod.priority(),
                   duration);
         }
+        if (scheduledMethod.threadSafe()) params = ScheduleParameters.createThreadSafe(params);
         nameParamMap.put(methodName, params);
       }
     }
@@ -166,6 +183,7 @@ public class DefaultActionFactory implements IActionFactory {
           params = ScheduleParameters.createOneTime(scheduledMethod.start(), scheduledMethod.priority(),
                   duration);
         }
+        if (scheduledMethod.threadSafe()) params = ScheduleParameters.createThreadSafe(params);
         actions.add(new IActionParameterPair(action, params));
       }
     }
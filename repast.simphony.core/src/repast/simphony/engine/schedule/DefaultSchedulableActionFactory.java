@@ -107,6 +107,28 @@ public class DefaultSchedulableActionFactory implements ISchedulableActionFactor
     return new DefaultAction(scheduleParams, action, currentOrderIndex++); 
   }
 
+  /**
+   * Creates an ISchedulableAction that will call the named method on each object in the
+   * specified target using the specified parameters.
+   *
+   * @param scheduleParams the scheduling parameters
+   * @param target         the Iterable containing the objects on which to call the named method
+   * @param methodName     the name of the method to call
+   * @param iterParams     describes how to iterate over the items in the iterable
+   * @param parameters     the parameters to pass to the method
+   * @return the created ISchedulableAction
+   */
+  public ISchedulableAction createActionForIterable(ScheduleParameters scheduleParams, Iterable target,
+                                                    String methodName, IterationParameters iterParams,
+                                                    Object... parameters) {
+    IAction action = actionFactory.createActionForIterable(target, methodName, iterParams, parameters);
+
+    if (scheduleParams.getDuration() > 0) {
+      return new ThreadedAction(scheduleParams, action, currentOrderIndex++);
+    }
+    return new DefaultAction(scheduleParams, action, currentOrderIndex++);
+  }
+
   /**
    * Creates an ISchedulableACtion from ScheduleMethod annotated methods in the specified
    * annotatedObj. The action will execute the method whose parameters best
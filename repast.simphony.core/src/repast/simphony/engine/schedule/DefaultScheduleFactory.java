@@ -101,4 +101,14 @@ public class DefaultScheduleFactory implements IScheduleFactory {
 			ISchedulableActionFactory defaultFactory) {
 		this.defaultActionFactory = defaultFactory;
 	}
+
+	/**
+	 * Gets the action factory that will be used when createSchedule is called
+	 * with no arguments.
+	 * 
+	 * @return the default action factory
+	 */
+	public ISchedulableActionFactory getDefaultSchedulableActionFactory() {
+		return defaultActionFactory;
+	}
 }
@@ -5,9 +5,9 @@ import java.io.ObjectInputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
-import net.sf.cglib.reflect.FastClass;
-import net.sf.cglib.reflect.FastMethod;
 import repast.simphony.util.ClassUtilities;
+import repast.simphony.util.MethodInvoker;
+import repast.simphony.util.MethodInvokerFactory;
 import simphony.util.messages.MessageCenter;
 
 /**
@@ -22,11 +22,12 @@ public class DynamicTargetAction implements IAction {
 
   static final long serialVersionUID = 3628821571113796716L;
 	private static final Class[] EMPTY_CLASS_ARRAY = new Class[]{};
+	private static final Object[] EMPTY_ARGS = new Object[]{};
 
   private Object target;
 	private Class<?> targetClass;
 	 // not serializable so don't serialize it
-  private transient FastMethod method;
+  private transient MethodInvoker method;
   // we need to serialize this as we can't serialize the method name
   private String methodName;
 
@@ -38,24 +39,24 @@ public class DynamicTargetAction implements IAction {
    */
   public DynamicTargetAction(Method method) {
 	  targetClass = method.getDeclaringClass();
-	  this.method = FastClass.create(targetClass).getMethod(method);
-    methodName = this.method.getName();
+	  this.method = MethodInvokerFactory.getInvoker(method);
+    methodName = method.getName();
   }
 
   // initializes the method field
   private void initMethod(String methodName) {
-    FastClass fClass = FastClass.create(targetClass);
+    Method jMethod;
     try {
       // try for the quick find
-      method = fClass.getMethod(methodName, EMPTY_CLASS_ARRAY);
-    } catch (NoSuchMethodError er) {
-      Method jMethod = ClassUtilities.findMethod(target.getClass(), methodName, EMPTY_CLASS_ARRAY);
-      if (jMethod != null) method = FastClass.create(jMethod.getDeclaringClass()).getMethod(jMethod);
+      jMethod = targetClass.getMethod(methodName, EMPTY_CLASS_ARRAY);
+    } catch (NoSuchMethodException ex) {
+      jMethod = ClassUtilities.findMethod(targetClass, methodName, EMPTY_CLASS_ARRAY);
     }
+    if (jMethod != null) method = MethodInvokerFactory.getInvoker(jMethod);
 
     if (method == null) {
       // todo add some logging
-      throw new IllegalArgumentException("Method " + target.getClass().getName() + "." + methodName +"."+
+      throw new IllegalArgumentException("Method " + targetClass.getName() + "." + methodName +"."+
 				      " not found!");
     }
   }
@@ -66,7 +67,7 @@ public class DynamicTargetAction implements IAction {
    */
   public void execute() {
     try {
-      method.invoke(target, EMPTY_CLASS_ARRAY);
+      method.invoke(target, EMPTY_ARGS);
     } catch (InvocationTargetException e) {
       //msgCenter.error("Tried to call: " + method.toString(), e);
       throw new RuntimeException(e);
@@ -74,7 +75,7 @@ public class DynamicTargetAction implements IAction {
   }
 
   /**
-   * Recreates the FastMethod member using the serialized methodName, target and args.
+   * Recreates the MethodInvoker member using the serialized methodName, target and args.
    *
    * @param stream
    * @throws java.io.IOException
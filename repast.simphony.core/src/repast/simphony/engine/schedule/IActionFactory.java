@@ -48,6 +48,20 @@ public interface IActionFactory  {
    * specified parameters.
    */ 
   IAction createActionForIterable(Iterable target, String methodName, boolean shuffle, Object... parameters);
+
+  /**
+   * Creates an IAction that will call the named method on each object in the specified target using the
+   * specified parameters.
+   *
+   * @param target the object on which to call the name method
+   * @param methodName the name of the method to call
+   * @param iterParams describes how to iterate over the items in the iterable
+   * @param parameters the parameters of the method
+   * @return an IAction that will call the named method on the specified target using the
+   * specified parameters.
+   */
+  IAction createActionForIterable(Iterable target, String methodName, IterationParameters iterParams,
+                                  Object... parameters);
   
   /**
    * Creates an IActionParameterPair from annotated methods in the specified
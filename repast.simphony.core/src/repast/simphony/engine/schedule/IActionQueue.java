@@ -0,0 +1,98 @@
+package repast.simphony.engine.schedule;
+
+/**
+ * Interface for priority queues of ISchedulableAction-s. The actions are
+ * ordered according to the return value of their <code>getNextTime()</code>
+ * method call. A queue may record an action's position in the queue through
+ * {@link ISchedulableAction#setQueueIndex(int)} so that it can be removed
+ * without a search.
+ *
+ * @see repast.simphony.engine.schedule.ActionQueue
+ * @see repast.simphony.engine.schedule.CalendarActionQueue
+ */
+public interface IActionQueue {
+
+  /**
+   * Removes the specified action from the queue.
+   *
+   * @param action
+   *          the action to remove
+   * @return returns true if the action is found and removed, false if this
+   *         queue does not contain the specified action.
+   */
+  boolean remove(ISchedulableAction action);
+
+  /**
+   * Insert the specified action into the queue.
+   *
+   * @param action
+   *          the action to insert into the queue
+   */
+  void insert(ISchedulableAction action);
+
+  /**
+   * Insert the specified action into the queue without necessarily maintaining
+   * the queue's order. The order is restored before the next peek or pop.
+   *
+   * @param action
+   *          the action to insert into the queue
+   */
+  void toss(ISchedulableAction action);
+
+  /**
+   * Starts a bulk insert. Actions tossed into the queue during a bulk insert
+   * may be ordered all at once, when {@link #endBulkInsert()} is called.
+   */
+  void beginBulkInsert();
+
+  /**
+   * Ends a bulk insert, restoring the queue's order.
+   */
+  void endBulkInsert();
+
+  /**
+   * Get the minimum element from the queque without removing it from the queue.
+   *
+   * @return the minimum element from the queque
+   */
+  ISchedulableAction peekMin();
+
+  /**
+   * Remove the minimum element from the queque and return it.
+   *
+   * @return the minimum element from the queque
+   */
+  ISchedulableAction popMin();
+
+  /**
+   * Removes all elements from the queue.
+   */
+  void clear();
+
+  /**
+   * Reinstate the queue's order.
+   */
+  void fixHeap();
+
+  /**
+   * Returns true if the queue is empty, otherwise false.
+   *
+   * @return true if the queue is empty, otherwise false.
+   */
+  boolean isEmpty();
+
+  /**
+   * Gets the number of elements in the queue.
+   *
+   * @return the number of elements in the queue.
+   */
+  int size();
+
+  /**
+   * Retrieves the number of actions whose
+   * {@link ISchedulableAction#isNonModelAction()} method returns false.
+   *
+   * @return the number of model actions
+   */
+  int getModelActionCount();
+}
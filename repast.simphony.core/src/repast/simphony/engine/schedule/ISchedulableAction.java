@@ -9,6 +9,13 @@ package repast.simphony.engine.schedule;
  * @author Nick Collier
  */
 public interface ISchedulableAction extends IAction {
+
+  /**
+   * The queue index of an action that does not record its slot in the queue
+   * that contains it. Queues search for such actions when removing them.
+   */
+  int NO_QUEUE_INDEX = Integer.MIN_VALUE;
+
   /**
    * Gets the next time this ScheduledAction is to execute.
    * 
@@ -22,7 +29,7 @@ public interface ISchedulableAction extends IAction {
    * 
    * @param queue
    */ 
-  void reschedule(ActionQueue queue);
+  void reschedule(IActionQueue queue);
   
   /**
    * Add this ScheduableAction to the specified group for execution. 
@@ -66,4 +73,41 @@ public interface ISchedulableAction extends IAction {
    * @return if this is a back-end type action or not
    */
   boolean isNonModelAction();
+  
+  /**
+   * Gets whether or not this action is thread safe. Thread safe actions scheduled
+   * for the same tick with the same priority may be executed concurrently
+   * when the schedule has a parallel executor. The default implementation returns
+   * false, so such actions are always executed sequentially.
+   * 
+   * @return true if this action is thread safe, otherwise false.
+   */
+  default boolean isThreadSafe() {
+    return false;
+  }
+  
+  /**
+   * Gets the index of this action's slot in the ActionQueue that contains it. This
+   * is used by the ActionQueue to remove actions without searching for them. The
+   * default implementation returns {@link #NO_QUEUE_INDEX}, and the queue then
+   * searches for the action when removing it.
+   * 
+   * @return the index of this action's slot in its ActionQueue, 0 if 
+   * this action is not in a queue, or {@link #NO_QUEUE_INDEX} if this action does
+   * not record its slot.
+   */
+  default int getQueueIndex() {
+    return NO_QUEUE_INDEX;
+  }
+  
+  /**
+   * Sets the index of this action's slot in the ActionQueue that contains it. This 
+   * is called by the ActionQueue when the action is moved within the queue and should
+   * not be called otherwise. The default implementation ignores the index.
+   * 
+   * @param index the index of this action's slot in its ActionQueue, or 0 if 
+   * this action is not in a queue.
+   */
+  default void setQueueIndex(int index) {
+  }
 }
@@ -68,6 +68,21 @@ public interface ISchedulableActionFactory  {
    */ 
   ISchedulableAction createActionForIterable(ScheduleParameters scheduleParams, Iterable target, String methodName, 
                                         boolean shuffle, Object... parameters);
+
+  /**
+   * Creates an ISchedulableAction that will call the named method on each object in the
+   * specified target using the specified parameters.
+   *
+   * @param scheduleParams the scheduling parameters
+   * @param target the Iterable containing the objects on which to call the named method
+   * @param methodName the name of the method to call
+   * @param iterParams describes how to iterate over the items in the iterable
+   * @param parameters the parameters to pass to the method
+   *
+   * @return the created ISchedulableAction
+   */
+  ISchedulableAction createActionForIterable(ScheduleParameters scheduleParams, Iterable target, String methodName,
+                                        IterationParameters iterParams, Object... parameters);
   
   /**
    * Creates an ISchedulableACtion from ScheduleMethod annotated methods in the specified
@@ -3,6 +3,7 @@ package repast.simphony.engine.schedule;
 import org.jscience.physics.amount.Amount;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 
 /**
@@ -39,6 +40,21 @@ public interface ISchedule extends IAction {
    */ 
   ISchedulableAction scheduleIterable(ScheduleParameters scheduleParams, Iterable target, String methodName, 
                                       boolean shuffle, Object... methodParams);
+
+  /**
+   * Schedules the named method call on each object returned by specified target with the specified parameters.
+   * The objects are iterated over as described by the IterationParameters, for example in a shuffled order
+   * without copying the target or in parallel chunks.
+   *
+   * @param scheduleParams the scheduling parameters specifying start time etc.
+   * @param target the Iterable containing the objects to call the method on
+   * @param methodName the name of the method to call
+   * @param iterParams describes how to iterate over the items in the iterable
+   * @param methodParams the parameters of the method named for execution
+   * @return the actual action that was scheduled for execution.
+   */
+  ISchedulableAction scheduleIterable(ScheduleParameters scheduleParams, Iterable target, String methodName,
+                                      IterationParameters iterParams, Object... methodParams);
   
   
   /**
@@ -188,4 +204,81 @@ public interface ISchedule extends IAction {
 	 * @return if the schedule is in finishing mode
 	 */
 	boolean isFinishing();
+
+	/**
+	 * Sets the pool used to execute thread safe actions in parallel. Thread safe actions
+	 * scheduled for the same tick with the same priority are executed concurrently using
+	 * this pool. All other actions are executed sequentially in their usual order. By
+	 * default this is null and all actions are executed sequentially. The schedule does
+	 * not shut the pool down; that is up to whoever created it. The default implementation
+	 * does nothing, for schedules that always execute their actions sequentially.
+	 * 
+	 * @see ScheduleParameters#createThreadSafe(ScheduleParameters)
+	 * @see ScheduledMethod#threadSafe()
+	 * 
+	 * @param pool
+	 *            the pool used to execute thread safe actions, or null to execute all
+	 *            actions sequentially
+	 */
+	default void setParallelExecutor(ForkJoinPool pool) {
+	}
+	
+	/**
+	 * Gets the pool used to execute thread safe actions in parallel. The default
+	 * implementation returns null.
+	 * 
+	 * @return the pool used to execute thread safe actions in parallel, or null if actions
+	 *         are executed sequentially.
+	 */
+	default ForkJoinPool getParallelExecutor() {
+		return null;
+	}
+
+	/**
+	 * Sets the profiler through which this schedule executes its actions. The profiler
+	 * is notified when each tick starts and finishes and when the end of run actions
+	 * have been executed. By default this is null and actions are executed without
+	 * any profiling. The default implementation does nothing, for schedules that
+	 * cannot be profiled.
+	 * 
+	 * @see ScheduleProfiler
+	 * 
+	 * @param profiler
+	 *            the profiler, or null to turn off profiling
+	 */
+	default void setProfiler(IScheduleProfiler profiler) {
+	}
+
+	/**
+	 * Gets the profiler through which this schedule executes its actions. The default
+	 * implementation returns null.
+	 * 
+	 * @return the profiler through which this schedule executes its actions, or null
+	 *         if actions are not profiled.
+	 */
+	default IScheduleProfiler getProfiler() {
+		return null;
+	}
+
+	/**
+	 * Gets the number of actions that were rescheduled at the end of the last tick.
+	 * Repeating actions are put back into the action queue when they are rescheduled.
+	 * By default this returns 0 for schedules that do not record it.
+	 * 
+	 * @return the number of actions that were rescheduled at the end of the last tick.
+	 */
+	default int getLastRescheduleCount() {
+		return 0;
+	}
+
+	/**
+	 * Gets the time in nanoseconds spent rescheduling actions at the end of the last
+	 * tick. By default this returns 0 for schedules that do not record it.
+	 * 
+	 * @return the time in nanoseconds spent rescheduling actions at the end of the last
+	 *         tick.
+	 */
+	default long getLastRescheduleTime() {
+		return 0;
+	}
 }
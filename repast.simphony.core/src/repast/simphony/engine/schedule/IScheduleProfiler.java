@@ -0,0 +1,46 @@
+package repast.simphony.engine.schedule;
+
+/**
+ * Instrumentation hook for a Schedule. When a profiler is set on a schedule,
+ * the schedule executes each of its actions through the profiler and notifies
+ * it of the start and end of each tick and of the run. When no profiler is
+ * set, the schedule executes its actions directly.
+ *
+ * @see repast.simphony.engine.schedule.ISchedule#setProfiler(IScheduleProfiler)
+ * @see repast.simphony.engine.schedule.ScheduleProfiler
+ */
+public interface IScheduleProfiler {
+
+  /**
+   * Called before the actions scheduled for the specified tick are executed.
+   *
+   * @param tick
+   *          the tick whose actions are about to be executed
+   */
+  void tickStarted(double tick);
+
+  /**
+   * Executes the specified action, recording whatever information the profiler
+   * collects about that execution. This may be called concurrently when thread
+   * safe actions are executed in parallel.
+   *
+   * @param action
+   *          the action to execute
+   */
+  void execute(ISchedulableAction action);
+
+  /**
+   * Called after the actions scheduled for the specified tick have been
+   * executed and rescheduled.
+   *
+   * @param tick
+   *          the tick whose actions were executed
+   */
+  void tickFinished(double tick);
+
+  /**
+   * Called after the actions scheduled for the end of the run have been
+   * executed.
+   */
+  void runFinished();
+}
@@ -1,9 +1,9 @@
 package repast.simphony.engine.schedule;
 
-import net.sf.cglib.reflect.FastClass;
-import net.sf.cglib.reflect.FastMethod;
 import repast.simphony.random.RandomHelper;
 import repast.simphony.util.ClassUtilities;
+import repast.simphony.util.MethodInvoker;
+import repast.simphony.util.MethodInvokerFactory;
 import repast.simphony.util.SimUtilities;
 
 import java.io.IOException;
@@ -11,7 +11,15 @@ import java.io.ObjectInputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import cern.jet.random.Uniform;
+import cern.jet.random.engine.MersenneTwister;
+import simphony.util.messages.MessageCenter;
 
 /**
  * An IAction created from an Iterable, a method name and method parameters. When an IterableCallBackAction is executed
@@ -24,14 +32,20 @@ public class IterableCallBackAction implements IAction {
 
   //static final long serialVersionUID = 3628821571113796716L;
 
+  // the random stream of the chunk being executed by the current thread
+  private static final ThreadLocal<Uniform> chunkUniform = new ThreadLocal<Uniform>();
+
+  private static MessageCenter msgCenter = MessageCenter.getMessageCenter(IterableCallBackAction.class);
+
   private Iterable<Object> target;
   // not serializable so don't serialize it
-  private transient FastMethod method;
+  private transient MethodInvoker method;
   private Object[] args;
   // we need to serialize this as we can't serialize the method name
   private String methodName;
   private transient IAction executor = new SetupExecutor();
   private boolean shuffle;
+  private IterationParameters iterParams;
 
   /**
    * Creates an  IterableCallBackAction from the specified Iterable, method name, and method parameters. When executed,
@@ -51,16 +65,47 @@ public class IterableCallBackAction implements IAction {
     System.arraycopy(parameters, 0, args, 0, parameters.length);
   }
 
+  /**
+   * Creates an IterableCallBackAction from the specified Iterable, method name, and method parameters. When executed,
+   * the action will call the named method on each element returned from the target passing the specified parameters,
+   * iterating over the target as described by the specified IterationParameters.
+   *
+   * @param target     the object to call the method on
+   * @param methodName the name of the method to call
+   * @param iterParams describes how to iterate over the target
+   * @param parameters the parameters to pass to the method
+   * @throws IllegalArgumentException if the target does not contain a method with the appropriate signature.
+   */
+  public IterableCallBackAction(Iterable target, String methodName, IterationParameters iterParams,
+                                Object... parameters) {
+    this(target, methodName, iterParams.isShuffle(), parameters);
+    this.iterParams = iterParams;
+  }
+
+  /**
+   * Gets the uniform random stream of the chunk that the calling thread is currently executing. When an
+   * IterableCallBackAction iterates in parallel chunks, each chunk has its own stream and methods called
+   * by the action should use this stream rather than the default one so that the run is reproducible.
+   * If the calling thread is not executing a chunk, this returns {@link RandomHelper#getUniform()}.
+   *
+   * @return the uniform random stream of the chunk that the calling thread is currently executing.
+   */
+  public static Uniform getChunkUniform() {
+    Uniform uniform = chunkUniform.get();
+    return uniform == null ? RandomHelper.getUniform() : uniform;
+  }
+
   // initializes the method field
   private void initMethod(Object target, String methodName, Class[] paramTypes) {
-    FastClass fClass = FastClass.create(target.getClass());
+    method = null;
+    Method jMethod;
     try {
       // try for the quick find
-      method = fClass.getMethod(methodName, paramTypes);
-    } catch (NoSuchMethodError er) {
-      Method jMethod = ClassUtilities.findMethod(target.getClass(), methodName, paramTypes);
-      if (jMethod != null) method = FastClass.create(jMethod.getDeclaringClass()).getMethod(jMethod);
+      jMethod = target.getClass().getMethod(methodName, paramTypes);
+    } catch (NoSuchMethodException ex) {
+      jMethod = ClassUtilities.findMethod(target.getClass(), methodName, paramTypes);
     }
+    if (jMethod != null) method = MethodInvokerFactory.getInvoker(jMethod);
 
     if (method == null) {
       String pTypes = "(";
@@ -73,6 +118,23 @@ public class IterableCallBackAction implements IAction {
     }
   }
 
+  /**
+   * @return the name of the method to be called on the objects in the target.
+   */
+  public String getMethodName() {
+    return methodName;
+  }
+
+  /**
+   * Gets the method that this action calls. The method is found when the action is first executed
+   * with a non-empty target.
+   *
+   * @return the method that this action calls, or null if it has not been found yet.
+   */
+  public Method getMethod() {
+    return method == null ? null : method.getMethod();
+  }
+
   /**
    * Calls the method named in the constructor on the targets in the iterable named in the constructor.
    */
@@ -82,7 +144,7 @@ public class IterableCallBackAction implements IAction {
 
 
   /**
-   * Recreates the FastMethod member using the serialized methodName, target and args.
+   * Recreates the MethodInvoker member using the serialized methodName, target and args.
    *
    * @param stream
    * @throws java.io.IOException
@@ -93,6 +155,11 @@ public class IterableCallBackAction implements IAction {
     executor = new SetupExecutor();
   }
 
+  // reports an exception thrown by the called method
+  private void logError(InvocationTargetException e) {
+    msgCenter.error("Tried to call: " + method.getMethod(), e.getCause());
+  }
+
   class SetupExecutor implements IAction {
 
     public void execute() {
@@ -102,7 +169,8 @@ public class IterableCallBackAction implements IAction {
           paramTypes[i] = args[i].getClass();
         }
         initMethod(target.iterator().next(), methodName, paramTypes);
-        if (!shuffle) executor = new NoShuffleExecutor();
+        if (iterParams != null && (shuffle || iterParams.isParallel())) executor = new PermutationExecutor();
+        else if (!shuffle) executor = new NoShuffleExecutor();
         else if (target instanceof List) executor = new ShuffleListExecutor();
         else executor = new ShuffleIterableExecutor();
         
@@ -119,9 +187,7 @@ public class IterableCallBackAction implements IAction {
           method.invoke(obj, args);
         }
       } catch (InvocationTargetException e) {
-        // todo add proper logging!!!!
-        System.err.print("Tried to call: " + method.toString());
-        e.printStackTrace();
+        logError(e);
       }
     }
   }
@@ -139,9 +205,7 @@ public class IterableCallBackAction implements IAction {
           method.invoke(obj, args);
         }
       } catch (InvocationTargetException e) {
-        // todo add proper logging!!!!
-        System.err.print("Tried to call: " + method.toString());
-        e.printStackTrace();
+        logError(e);
       }
     }
   }
@@ -154,9 +218,126 @@ public class IterableCallBackAction implements IAction {
           method.invoke(obj, args);
         }
       } catch (InvocationTargetException e) {
-        // todo add proper logging!!!!
-        System.err.print("Tried to call: " + method.toString());
-        e.printStackTrace();
+        logError(e);
+      }
+    }
+  }
+
+  /**
+   * Iterates over the target in the order given by a reusable permutation buffer,
+   * optionally executing contiguous chunks of that order in parallel.
+   */
+  class PermutationExecutor implements IAction {
+
+    // set if the target is a random access list, in which case
+    // the elements are not copied into the buffer
+    private List<?> list;
+    private Object[] buffer = new Object[0];
+    private int[] order = new int[0];
+    private int size;
+    private ChunkTask[] chunks;
+    private RecursiveAction root;
+
+    PermutationExecutor() {
+      if (iterParams.isParallel()) {
+        chunks = new ChunkTask[iterParams.getChunkCount()];
+        for (int i = 0; i < chunks.length; i++) {
+          chunks[i] = new ChunkTask(i, new Uniform(new MersenneTwister(RandomHelper.getGenerator().nextInt())));
+        }
+        root = new RecursiveAction() {
+          protected void compute() {
+            ForkJoinTask.invokeAll(chunks);
+          }
+        };
+      }
+    }
+
+    private void load() {
+      if (target instanceof List && target instanceof RandomAccess) {
+        list = (List<?>) target;
+        size = list.size();
+      } else {
+        list = null;
+        size = 0;
+        for (Object obj : target) {
+          if (size == buffer.length) buffer = Arrays.copyOf(buffer, Math.max(16, size * 2));
+          buffer[size++] = obj;
+        }
+      }
+
+      if (order.length < size) order = new int[size + (size >> 1)];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+
+      if (shuffle) {
+        Uniform rng = RandomHelper.getUniform();
+        for (int i = size; i > 1; i--) {
+          int j = rng.nextIntFromTo(0, i - 1);
+          int tmp = order[i - 1];
+          order[i - 1] = order[j];
+          order[j] = tmp;
+        }
+      }
+    }
+
+    void run(int from, int to) {
+      try {
+        if (list == null) {
+          for (int i = from; i < to; i++) {
+            method.invoke(buffer[order[i]], args);
+          }
+        } else {
+          for (int i = from; i < to; i++) {
+            method.invoke(list.get(order[i]), args);
+          }
+        }
+      } catch (InvocationTargetException e) {
+        logError(e);
+      }
+    }
+
+    public void execute() {
+      load();
+      try {
+        if (chunks == null) {
+          run(0, size);
+        } else {
+          for (ChunkTask chunk : chunks) {
+            chunk.reinitialize();
+          }
+          root.reinitialize();
+          iterParams.getPool().invoke(root);
+        }
+      } finally {
+        // don't hold on to the elements between executions
+        if (list == null) Arrays.fill(buffer, 0, size, null);
+        list = null;
+      }
+    }
+
+    class ChunkTask extends RecursiveAction {
+
+      private static final long serialVersionUID = 1L;
+
+      private int index;
+      private Uniform uniform;
+
+      ChunkTask(int index, Uniform uniform) {
+        this.index = index;
+        this.uniform = uniform;
+      }
+
+      protected void compute() {
+        int from = (int) ((long) size * index / chunks.length);
+        int to = (int) ((long) size * (index + 1) / chunks.length);
+        Uniform prev = chunkUniform.get();
+        chunkUniform.set(uniform);
+        try {
+          run(from, to);
+        } finally {
+          chunkUniform.set(prev);
+        }
       }
     }
   }
@@ -0,0 +1,125 @@
+package repast.simphony.engine.schedule;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Parameters describing how an IterableCallBackAction iterates over its
+ * target. Use the static <code>create*</code> methods to create the
+ * appropriate IterationParameters object.
+ * <p>
+ *
+ * Unlike shuffling with
+ * {@link ISchedule#scheduleIterable(ScheduleParameters, Iterable, String, boolean, Object...)}
+ * the target is neither copied into a new list nor itself shuffled. Instead,
+ * the iteration order is taken from a permutation buffer that is reused from
+ * tick to tick. Parallel iteration splits that order into a fixed number of
+ * chunks that are executed on a ForkJoinPool. Each chunk has its own random
+ * number stream, available to the called method through
+ * {@link IterableCallBackAction#getChunkUniform()}, so a run is reproducible
+ * for a given seed regardless of how the chunks are scheduled on threads.
+ *
+ * @see repast.simphony.engine.schedule.ISchedule
+ */
+public class IterationParameters {
+
+  private boolean shuffle;
+  private int chunkCount;
+  private ForkJoinPool pool;
+
+  protected IterationParameters(boolean shuffle, int chunkCount, ForkJoinPool pool) {
+    if (chunkCount < 0)
+      throw new IllegalArgumentException("Chunk count must be non-negative");
+    this.shuffle = shuffle;
+    this.chunkCount = chunkCount;
+    this.pool = pool;
+  }
+
+  /**
+   * Creates IterationParameters for iterating over the target sequentially.
+   *
+   * @param shuffle
+   *          whether or not to iterate in a random order
+   * @return the created IterationParameters.
+   */
+  public static IterationParameters createSerial(boolean shuffle) {
+    return new IterationParameters(shuffle, 0, null);
+  }
+
+  /**
+   * Creates IterationParameters for iterating over the target in the specified
+   * number of chunks, executing the chunks in parallel on the common
+   * ForkJoinPool. The method called on the target's elements must be safe to
+   * call concurrently.
+   *
+   * @param shuffle
+   *          whether or not to iterate in a random order
+   * @param chunkCount
+   *          the number of chunks to split the target into
+   * @return the created IterationParameters.
+   */
+  public static IterationParameters createParallel(boolean shuffle, int chunkCount) {
+    return new IterationParameters(shuffle, chunkCount, null);
+  }
+
+  /**
+   * Creates IterationParameters for iterating over the target in the specified
+   * number of chunks, executing the chunks in parallel on the specified pool.
+   * The method called on the target's elements must be safe to call
+   * concurrently.
+   *
+   * @param shuffle
+   *          whether or not to iterate in a random order
+   * @param chunkCount
+   *          the number of chunks to split the target into
+   * @param pool
+   *          the pool to execute the chunks on
+   * @return the created IterationParameters.
+   */
+  public static IterationParameters createParallel(boolean shuffle, int chunkCount,
+      ForkJoinPool pool) {
+    return new IterationParameters(shuffle, chunkCount, pool);
+  }
+
+  /**
+   * Gets whether or not the target is iterated in a random order.
+   *
+   * @return whether or not the target is iterated in a random order.
+   */
+  public boolean isShuffle() {
+    return shuffle;
+  }
+
+  /**
+   * Gets whether or not the target is iterated in parallel chunks.
+   *
+   * @return whether or not the target is iterated in parallel chunks.
+   */
+  public boolean isParallel() {
+    return chunkCount > 0;
+  }
+
+  /**
+   * Gets the number of chunks the target is split into. This is 0 if the target
+   * is iterated sequentially.
+   *
+   * @return the number of chunks the target is split into.
+   */
+  public int getChunkCount() {
+    return chunkCount;
+  }
+
+  /**
+   * Gets the pool the chunks are executed on.
+   *
+   * @return the pool the chunks are executed on, or the common pool if no pool
+   *         was specified.
+   */
+  public ForkJoinPool getPool() {
+    return pool == null ? ForkJoinPool.commonPool() : pool;
+  }
+
+  @Override
+  public String toString() {
+    return "shuffle: " + shuffle + ", chunks: " + chunkCount;
+  }
+}
@@ -4,6 +4,7 @@ import org.jscience.physics.amount.Amount;
 
 import javax.measure.unit.Unit;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 
 /**
@@ -26,12 +27,13 @@ public class Schedule implements ISchedule {
 
   static final long serialVersionUID = 7686585829552316670L;
 
-  protected ActionQueue actionQueue;
+  protected IActionQueue actionQueue;
   protected double tickCount = -1;
   protected ScheduleGroup groupToExecute;
   protected ScheduleGroup endActions;
   protected ISchedulableActionFactory actionFactory;
   protected Amount userTimeUnits;
+  protected IScheduleProfiler profiler;
 
   /**
    * Creates a Schedule that by default uses a DefaultSchedulableActionFactory to create its
@@ -212,6 +214,26 @@ public class Schedule implements ISchedule {
     return sAction;
   }
 
+  /**
+   * Schedules the named method call on each object returned by specified target with the specified parameters.
+   * The objects are iterated over as described by the IterationParameters, for example in a shuffled order
+   * without copying the target or in parallel chunks.
+   *
+   * @param scheduleParams the scheduling parameters specifying start time etc.
+   * @param target         the Iterable containing the objects to call the method on
+   * @param methodName     the name of the method to call
+   * @param iterParams     describes how to iterate over the items in the iterable
+   * @param methodParams   the parameters of the method named for execution
+   * @return the actual action that was scheduled for execution.
+   */
+  public ISchedulableAction scheduleIterable(ScheduleParameters scheduleParams, Iterable target, String methodName,
+                                             IterationParameters iterParams, Object... methodParams) {
+    ISchedulableAction sAction = actionFactory.createActionForIterable(scheduleParams, target, methodName,
+            iterParams, methodParams);
+    scheduleAction(sAction);
+    return sAction;
+  }
+
   /**
    * Schedules for execution any methods in the specified object that have been annotated with the
    * ScheduledMethod annotation. The ScheduledMethod annotation tags the method as one that should be
@@ -294,7 +316,7 @@ public class Schedule implements ISchedule {
     if (action.getNextTime() == ScheduleParameters.END) return endActions.remove(action);
     // removing at current time will always return false
     else if (action.getNextTime() == this.getTickCount()) return false;
-    else return actionQueue.voidAction(action);
+    else return actionQueue.remove(action);
 
   }
 
@@ -315,9 +337,8 @@ public class Schedule implements ISchedule {
 
     double newTick = queueMin;
     groupToExecute.clear();
-    // we call addToGroup rather than adding the popped action directly to
-    // the group so that "Removed" actions do not add themselves to the 
-    // group. See ActionQueue.EmptyAction
+    // we call addForExecution rather than adding the popped action directly to
+    // the group so that actions can decide whether or not to add themselves
     actionQueue.popMin().addForExecution(groupToExecute);
 
     if (actionQueue.size() > 0) {
@@ -333,9 +354,9 @@ public class Schedule implements ISchedule {
       }
     }
 
-    // there may have been empty removed actions in the queue. These don't
-    // add themselves to group on addGroup so we only update the true tick count
-    // if there are actual DefaultActions to execute.
+    // actions may not add themselves to the group in addForExecution
+    // so we only update the true tick count if there are actual actions
+    // to execute.
     if (groupToExecute.size() > 0) setTickCount(newTick);
   }
 
@@ -347,12 +368,33 @@ public class Schedule implements ISchedule {
   public void execute() {
     preExecute();
     groupToExecute.sort();
+    if (profiler != null) profiler.tickStarted(tickCount);
 
     while (groupToExecute.hasMoreToExecute()) {
       groupToExecute.execute();
     }
 
     groupToExecute.reschedule(actionQueue);
+    if (profiler != null) profiler.tickFinished(tickCount);
+  }
+
+  /**
+   * Gets the number of actions that were rescheduled at the end of the last tick.
+   * Repeating actions are put back into the action queue when they are rescheduled.
+   *
+   * @return the number of actions that were rescheduled at the end of the last tick.
+   */
+  public int getLastRescheduleCount() {
+    return groupToExecute.getRescheduleCount();
+  }
+
+  /**
+   * Gets the time in nanoseconds spent rescheduling actions at the end of the last tick.
+   *
+   * @return the time in nanoseconds spent rescheduling actions at the end of the last tick.
+   */
+  public long getLastRescheduleTime() {
+    return groupToExecute.getRescheduleTime();
   }
 
   /**
@@ -361,6 +403,7 @@ public class Schedule implements ISchedule {
   public void executeEndActions() {
     endActions.sort();
     endActions.execute();
+    if (profiler != null) profiler.runFinished();
   }
 
   /**
@@ -388,4 +431,56 @@ public class Schedule implements ISchedule {
   public boolean isFinishing() {
     return this.groupToExecute.isFinishing();
 	}
+
+  /**
+   * Sets the pool used to execute thread safe actions in parallel. Thread safe actions
+   * scheduled for the same tick with the same priority are executed concurrently using
+   * this pool. All other actions are executed sequentially in their usual order. By
+   * default this is null and all actions are executed sequentially. The schedule does
+   * not shut the pool down; that is up to whoever created it.
+   *
+   * @param pool the pool used to execute thread safe actions, or null to execute all
+   *             actions sequentially
+   * @see ScheduleParameters#createThreadSafe(ScheduleParameters)
+   * @see ScheduledMethod#threadSafe()
+   */
+  public void setParallelExecutor(ForkJoinPool pool) {
+    groupToExecute.setParallelExecutor(pool);
+    endActions.setParallelExecutor(pool);
+  }
+
+  /**
+   * Gets the pool used to execute thread safe actions in parallel.
+   *
+   * @return the pool used to execute thread safe actions in parallel, or null if actions
+   *         are executed sequentially.
+   */
+  public ForkJoinPool getParallelExecutor() {
+    return groupToExecute.getParallelExecutor();
+  }
+
+  /**
+   * Sets the profiler through which this schedule executes its actions. The profiler
+   * is notified when each tick starts and finishes and when the end of run actions
+   * have been executed. By default this is null and actions are executed without
+   * any profiling.
+   *
+   * @param profiler the profiler, or null to turn off profiling
+   * @see ScheduleProfiler
+   */
+  public void setProfiler(IScheduleProfiler profiler) {
+    this.profiler = profiler;
+    groupToExecute.setProfiler(profiler);
+    endActions.setProfiler(profiler);
+  }
+
+  /**
+   * Gets the profiler through which this schedule executes its actions.
+   *
+   * @return the profiler through which this schedule executes its actions, or null
+   *         if actions are not profiled.
+   */
+  public IScheduleProfiler getProfiler() {
+    return profiler;
+  }
 }
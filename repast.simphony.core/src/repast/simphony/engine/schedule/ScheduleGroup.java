@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import repast.simphony.random.RandomHelper;
 import cern.jet.random.Uniform;
@@ -63,6 +65,11 @@ public class ScheduleGroup implements IAction {
 
   protected boolean finishing = false;
 
+  // number of actions rescheduled and the time taken
+  // to reschedule them in the last call to reschedule
+  private int rescheduleCount = 0;
+  private long rescheduleTime = 0;
+
   // whether or not the group is currently executing. We need to know this
   // because execution may add actions to execute.
   private boolean executing = false;
@@ -73,6 +80,14 @@ public class ScheduleGroup implements IAction {
   private boolean actionsAddedDuringExec = false;
   private List<ISchedulableAction> actionsAddedWhileExecuting = new ArrayList<ISchedulableAction>();
 
+  // pool used to execute thread safe actions in parallel, if null
+  // all actions are executed sequentially.
+  private ForkJoinPool pool;
+
+  // executes and profiles the actions, if null the actions are
+  // executed directly.
+  private IScheduleProfiler profiler;
+
   /**
    * Compares ISchedulableActions according to their priority. Lower priority
    * later in order.
@@ -99,6 +114,36 @@ public class ScheduleGroup implements IAction {
   private Comparator<ISchedulableAction> iComp = new PriorityComparator();
   private Comparator<ISchedulableAction> oComp = new OrderComparator();
 
+  /**
+   * Executes a contiguous run of thread safe actions from an ActionList,
+   * splitting the run in half until a single action remains.
+   */
+  @SuppressWarnings("serial")
+  static class ParallelExecution extends RecursiveAction {
+
+    private ActionList list;
+    private int start, end;
+    private IScheduleProfiler profiler;
+
+    ParallelExecution(ActionList list, int start, int end, IScheduleProfiler profiler) {
+      this.list = list;
+      this.start = start;
+      this.end = end;
+      this.profiler = profiler;
+    }
+
+    protected void compute() {
+      if (end - start == 1) {
+        if (profiler == null) list.get(start).execute();
+        else profiler.execute(list.get(start));
+      } else {
+        int mid = (start + end) >>> 1;
+        invokeAll(new ParallelExecution(list, start, mid, profiler), new ParallelExecution(list,
+            mid, end, profiler));
+      }
+    }
+  }
+
   /**
    * Add an IScheduleAction to this ScheduleGroup.
    * 
@@ -196,15 +241,19 @@ public class ScheduleGroup implements IAction {
   private boolean executeList(ActionList list) {
     int i = 0;
     boolean interrupted = false;
-    for (Iterator<ISchedulableAction> iter = list.iterator(); iter.hasNext();) {
-      if (actionsAddedDuringExec) {
-        break;
+    for (int n = list.size(); i < n && !actionsAddedDuringExec;) {
+      int end = pool == null ? i + 1 : findParallelEnd(list, i);
+      for (int j = i; j < end; j++) {
+        executedActions.add(list.get(j));
+      }
+      
+      if (end - i == 1) {
+        if (profiler == null) list.get(i).execute();
+        else profiler.execute(list.get(i));
       } else {
-        ISchedulableAction action = iter.next();
-        executedActions.add(action);
-        action.execute();
-        i++;
+        pool.invoke(new ParallelExecution(list, i, end, profiler));
       }
+      i = end;
     }
     list.delete(i);
     
@@ -217,6 +266,24 @@ public class ScheduleGroup implements IAction {
     return interrupted;
   }
 
+  // finds the end (exclusive) of the run of thread safe actions
+  // with the same priority that begins at start. 
+  private int findParallelEnd(ActionList list, int start) {
+    ISchedulableAction first = list.get(start);
+    int end = start + 1;
+    if (first.isThreadSafe()) {
+      for (int n = list.size(); end < n; end++) {
+        ISchedulableAction action = list.get(end);
+        if (!action.isThreadSafe() || action.getPriorityType() != first.getPriorityType()
+            || (first.getPriorityType() == PriorityType.OTHER && action.getPriority() != first
+                .getPriority())) {
+          break;
+        }
+      }
+    }
+    return end;
+  }
+
   /**
    * Executes all the ISchedulableAction in this ScheduleGroup.
    */
@@ -261,15 +328,43 @@ public class ScheduleGroup implements IAction {
   /**
    * Reschedules all the ISchedulableActions contained by this ScheduleGroup.
    * 
-   * @see repast.simphony.engine.schedule.ISchedulableAction#reschedule(ActionQueue)
+   * @see repast.simphony.engine.schedule.ISchedulableAction#reschedule(IActionQueue)
    */
-  public void reschedule(ActionQueue aQueue) {
+  public void reschedule(IActionQueue aQueue) {
+    long start = System.nanoTime();
+    rescheduleCount = 0;
     if (!finishing) {
+      // bulk insert so that the heap order is restored
+      // once rather than for each action
+      aQueue.beginBulkInsert();
       for (ISchedulableAction action : executedActions) {
         action.reschedule(aQueue);
       }
+      aQueue.endBulkInsert();
+      rescheduleCount = executedActions.size();
     }
     executedActions.clear();
+    rescheduleTime = System.nanoTime() - start;
+  }
+
+  /**
+   * Gets the number of executed actions that were passed to their reschedulers in
+   * the last call to reschedule.
+   * 
+   * @return the number of executed actions that were passed to their reschedulers 
+   * in the last call to reschedule.
+   */
+  public int getRescheduleCount() {
+    return rescheduleCount;
+  }
+
+  /**
+   * Gets the time in nanoseconds taken by the last call to reschedule.
+   * 
+   * @return the time in nanoseconds taken by the last call to reschedule.
+   */
+  public long getRescheduleTime() {
+    return rescheduleTime;
   }
 
   /**
@@ -314,6 +409,54 @@ public class ScheduleGroup implements IAction {
     randomActions.clear();
   }
 
+  /**
+   * Sets the pool used to execute thread safe actions in parallel. Thread safe
+   * actions that are adjacent in the execution order and that have the same
+   * priority are executed concurrently using this pool. All other actions are
+   * executed sequentially in their usual order. If the pool is null, all
+   * actions are executed sequentially.
+   * 
+   * @param pool
+   *          the pool to execute thread safe actions with, or null to
+   *          execute all actions sequentially
+   * 
+   * @see ISchedulableAction#isThreadSafe()
+   */
+  public void setParallelExecutor(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Gets the pool used to execute thread safe actions in parallel.
+   * 
+   * @return the pool used to execute thread safe actions in parallel, or null if
+   *         actions are executed sequentially.
+   */
+  public ForkJoinPool getParallelExecutor() {
+    return pool;
+  }
+
+  /**
+   * Sets the profiler through which the actions in this group are executed. If
+   * the profiler is null, the actions are executed directly.
+   *
+   * @param profiler
+   *          the profiler, or null to turn off profiling
+   */
+  public void setProfiler(IScheduleProfiler profiler) {
+    this.profiler = profiler;
+  }
+
+  /**
+   * Gets the profiler through which the actions in this group are executed.
+   *
+   * @return the profiler through which the actions in this group are executed,
+   *         or null if the group is not profiled.
+   */
+  public IScheduleProfiler getProfiler() {
+    return profiler;
+  }
+
   public void setFinishing(boolean finishing) {
     this.finishing = finishing;
   }
@@ -42,11 +42,18 @@ public class ScheduleParameters {
   // be explicit.
   private double duration = 0;
   private Frequency frequency = Frequency.REPEAT;
+  private boolean threadSafe = false;
   private int hashCode = 17;
 
   protected ScheduleParameters(double start, Frequency frequency, double interval, double priority,
       PriorityType pType, double duration) {
+    this(start, frequency, interval, priority, pType, duration, false);
+  }
+
+  protected ScheduleParameters(double start, Frequency frequency, double interval, double priority,
+      PriorityType pType, double duration, boolean threadSafe) {
     this.start = start;
+    this.threadSafe = threadSafe;
     this.frequency = frequency;
     this.interval = interval;
     this.priority = priority;
@@ -75,6 +82,7 @@ public class ScheduleParameters {
     l = Double.doubleToLongBits(duration);
     hashCode = 31 * hashCode + frequency.hashCode();
     hashCode = 31 * hashCode + this.pType.hashCode();
+    hashCode = 31 * hashCode + (threadSafe ? 1 : 0);
   }
 
   /**
@@ -423,6 +431,24 @@ public class ScheduleParameters {
     return new ScheduleParameters(END, Frequency.ONE_TIME, 0, priority, null, NO_DURATION);
   }
 
+  /**
+   * Creates a copy of the specified ScheduleParameters that marks the action
+   * as thread safe. When a Schedule has a parallel executor set, thread safe
+   * actions that execute at the same tick and with the same priority may be
+   * executed concurrently with each other. Thread safe actions must not
+   * schedule or remove other actions.
+   * 
+   * @param params
+   *          the parameters to copy
+   * @return a thread safe copy of the specified parameters.
+   * 
+   * @see Schedule#setParallelExecutor(java.util.concurrent.ForkJoinPool)
+   */
+  public static ScheduleParameters createThreadSafe(ScheduleParameters params) {
+    return new ScheduleParameters(params.start, params.frequency, params.interval,
+        params.priority, params.pType, params.duration, true);
+  }
+
   /**
    * Gets the scheduled starting time for an action.
    * 
@@ -490,6 +516,17 @@ public class ScheduleParameters {
     return duration;
   }
 
+  /**
+   * Gets whether or not actions scheduled with these parameters are thread
+   * safe and so can be executed concurrently with other thread safe actions
+   * of the same priority.
+   * 
+   * @return true if the action is thread safe, otherwise false.
+   */
+  public boolean isThreadSafe() {
+    return threadSafe;
+  }
+
   /**
    * Gets the hash code for this schedule parameters.
    * 
@@ -518,13 +555,14 @@ public class ScheduleParameters {
     return otherParams.start == this.start && otherParams.frequency.equals(this.frequency)
         && otherParams.interval == this.interval
         && ((Double) otherParams.priority).equals(this.priority)
-        && otherParams.duration == this.duration && otherParams.pType == this.pType;
+        && otherParams.duration == this.duration && otherParams.pType == this.pType
+        && otherParams.threadSafe == this.threadSafe;
   }
 
   public String toString() {
     return String
         .format(
-            "ScheduleParameters[start: %f, frequency: %s, interval: %f, priority: %f, priorityType: %s, duration: %f]",
-            start, frequency, interval, priority, pType, duration);
+            "ScheduleParameters[start: %f, frequency: %s, interval: %f, priority: %f, priorityType: %s, duration: %f, threadSafe: %b]",
+            start, frequency, interval, priority, pType, duration, threadSafe);
   }
 }
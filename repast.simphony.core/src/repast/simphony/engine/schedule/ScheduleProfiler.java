@@ -0,0 +1,468 @@
+package repast.simphony.engine.schedule;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import simphony.util.messages.MessageCenter;
+
+/**
+ * Profiles the execution of a schedule's actions. Executions are aggregated by
+ * the class of the action's target and the name of the method the action
+ * calls. For a CallBackAction this is the callback target and method, for an
+ * IterableCallBackAction the class that declares the method and for any other
+ * IAction the action's class and "execute". For each of these the profiler
+ * records the number of executions, the wall time and, when the JVM supports
+ * it, an estimate of the bytes allocated by the executing thread. The totals
+ * for each tick are recorded as well, keeping only the most recent ticks (see
+ * {@link #setTickHistorySize(int)}).
+ * <p>
+ *
+ * The profiler can be registered as a JMX MBean and, if output files are set,
+ * writes CSV files of the action summary and the per tick totals at the end of
+ * the run. A schedule without a profiler does no profiling work at all.
+ *
+ * @see repast.simphony.engine.schedule.ISchedule#setProfiler(IScheduleProfiler)
+ */
+public class ScheduleProfiler implements IScheduleProfiler, ScheduleProfilerMBean {
+
+  private static MessageCenter msgCenter = MessageCenter.getMessageCenter(ScheduleProfiler.class);
+
+  /**
+   * The default name under which the profiler is registered as an MBean.
+   */
+  public static final String OBJECT_NAME = "repast.simphony:type=ScheduleProfiler";
+
+  private static final String ACTION_HEADER = "class,method,count,total_time_ns,mean_time_ns,max_time_ns,allocated_bytes";
+  private static final String TICK_HEADER = "tick,executions,time_ns,allocated_bytes";
+
+  /**
+   * The default number of ticks whose totals are kept.
+   */
+  public static final int DEFAULT_TICK_HISTORY_SIZE = 100000;
+
+  /**
+   * Recorded data for a single target class and method.
+   */
+  static class ActionStats {
+
+    String className, methodName;
+    LongAdder count = new LongAdder();
+    LongAdder time = new LongAdder();
+    LongAdder bytes = new LongAdder();
+    AtomicLong max = new AtomicLong();
+
+    ActionStats(String className, String methodName) {
+      this.className = className;
+      this.methodName = methodName;
+    }
+
+    void record(long nanos, long allocated) {
+      count.increment();
+      time.add(nanos);
+      bytes.add(allocated);
+      long current = max.get();
+      while (nanos > current && !max.compareAndSet(current, nanos)) {
+        current = max.get();
+      }
+    }
+
+    String toCSV() {
+      long n = count.sum();
+      long total = time.sum();
+      return className + "," + methodName + "," + n + "," + total + "," + (n == 0 ? 0 : total / n)
+          + "," + max.get() + "," + bytes.sum();
+    }
+  }
+
+  private ConcurrentMap<Class<?>, ConcurrentMap<String, ActionStats>> stats = new ConcurrentHashMap<Class<?>, ConcurrentMap<String, ActionStats>>();
+
+  /**
+   * Measures the bytes allocated by the current thread. This is the only class
+   * that refers to the com.sun.management API, so it is only loaded if that
+   * API is available.
+   */
+  private static class AllocationCounter {
+
+    private com.sun.management.ThreadMXBean bean;
+
+    // returns null if allocation cannot be measured
+    static AllocationCounter create() {
+      ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      if (!(bean instanceof com.sun.management.ThreadMXBean))
+        return null;
+      com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+      if (!sunBean.isThreadAllocatedMemorySupported())
+        return null;
+      if (!sunBean.isThreadAllocatedMemoryEnabled())
+        sunBean.setThreadAllocatedMemoryEnabled(true);
+      AllocationCounter counter = new AllocationCounter();
+      counter.bean = sunBean;
+      return counter;
+    }
+
+    long allocated() {
+      return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+  }
+
+  private AllocationCounter allocCounter;
+
+  // the totals of the most recent ticks in a ring whose size grows up to
+  // tickHistorySize. Tick i is at i % tickHistorySize.
+  private int tickHistorySize = DEFAULT_TICK_HISTORY_SIZE;
+  private double[] ticks = new double[64];
+  private long[] tickTimes = new long[64];
+  private long[] tickExecutions = new long[64];
+  private long[] tickBytes = new long[64];
+  private int tickCount = 0;
+  private long tickStart;
+  private LongAdder executions = new LongAdder();
+  private LongAdder bytes = new LongAdder();
+
+  private File actionFile, tickFile;
+  private ObjectName objectName;
+
+  /**
+   * Creates a ScheduleProfiler that estimates allocation if the JVM supports
+   * it.
+   */
+  public ScheduleProfiler() {
+    this(true);
+  }
+
+  /**
+   * Creates a ScheduleProfiler.
+   *
+   * @param measureAllocation
+   *          whether or not to estimate the bytes allocated by each action.
+   *          This is ignored if the JVM does not support measuring thread
+   *          allocation.
+   */
+  public ScheduleProfiler(boolean measureAllocation) {
+    if (measureAllocation) {
+      try {
+        allocCounter = AllocationCounter.create();
+      } catch (LinkageError er) {
+        // not a JVM with the com.sun.management API
+      } catch (RuntimeException ex) {
+        msgCenter.warn("Unable to measure allocation in the schedule profiler", ex);
+      }
+    }
+  }
+
+  /**
+   * Sets the number of ticks whose totals are kept. Once more ticks than this
+   * have been profiled, the totals of the oldest ticks are discarded. This
+   * also discards any ticks recorded so far.
+   *
+   * @param size
+   *          the number of ticks whose totals are kept
+   */
+  public synchronized void setTickHistorySize(int size) {
+    if (size < 1)
+      throw new IllegalArgumentException("Tick history size must be at least 1");
+    tickHistorySize = size;
+    int length = Math.min(64, size);
+    ticks = new double[length];
+    tickTimes = new long[length];
+    tickExecutions = new long[length];
+    tickBytes = new long[length];
+    tickCount = 0;
+  }
+
+  /**
+   * Gets the number of ticks whose totals are kept.
+   *
+   * @return the number of ticks whose totals are kept.
+   */
+  public synchronized int getTickHistorySize() {
+    return tickHistorySize;
+  }
+
+  /**
+   * Sets the files that the action summary and the per tick totals are written
+   * to when the run finishes. Either may be null in which case that file is not
+   * written.
+   *
+   * @param actionFile
+   *          the file to write the action summary to
+   * @param tickFile
+   *          the file to write the per tick totals to
+   */
+  public void setOutputFiles(File actionFile, File tickFile) {
+    this.actionFile = actionFile;
+    this.tickFile = tickFile;
+  }
+
+  /**
+   * Registers this profiler with the platform MBean server under
+   * {@link #OBJECT_NAME}, replacing any previously registered profiler.
+   */
+  public void registerMBean() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      if (server.isRegistered(name))
+        server.unregisterMBean(name);
+      server.registerMBean(this, name);
+      objectName = name;
+    } catch (Exception ex) {
+      msgCenter.warn("Unable to register schedule profiler MBean", ex);
+    }
+  }
+
+  /**
+   * Unregisters this profiler from the platform MBean server, if it has been
+   * registered.
+   */
+  public void unregisterMBean() {
+    if (objectName != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+      } catch (Exception ex) {
+        msgCenter.warn("Unable to unregister schedule profiler MBean", ex);
+      }
+      objectName = null;
+    }
+  }
+
+  public void tickStarted(double tick) {
+    executions.reset();
+    bytes.reset();
+    tickStart = System.nanoTime();
+  }
+
+  public void execute(ISchedulableAction action) {
+    long allocated = allocCounter == null ? 0 : allocCounter.allocated();
+    long start = System.nanoTime();
+    try {
+      action.execute();
+    } finally {
+      long time = System.nanoTime() - start;
+      if (allocCounter != null)
+        allocated = allocCounter.allocated() - allocated;
+      // found after executing, as an IterableCallBackAction only knows
+      // its method once it has run
+      findStats(action).record(time, allocated);
+      executions.increment();
+      bytes.add(allocated);
+    }
+  }
+
+  public synchronized void tickFinished(double tick) {
+    long time = System.nanoTime() - tickStart;
+    if (tickCount == ticks.length && tickCount < tickHistorySize) {
+      int size = (int) Math.min(tickCount * 2L, tickHistorySize);
+      ticks = Arrays.copyOf(ticks, size);
+      tickTimes = Arrays.copyOf(tickTimes, size);
+      tickExecutions = Arrays.copyOf(tickExecutions, size);
+      tickBytes = Arrays.copyOf(tickBytes, size);
+    }
+    int index = tickCount % tickHistorySize;
+    ticks[index] = tick;
+    tickTimes[index] = time;
+    tickExecutions[index] = executions.sum();
+    tickBytes[index] = bytes.sum();
+    tickCount++;
+  }
+
+  public void runFinished() {
+    dump(actionFile, tickFile);
+  }
+
+  // finds the stats for the target class and method of the action
+  private ActionStats findStats(ISchedulableAction action) {
+    IAction target = action;
+    if (action instanceof DefaultAction)
+      target = ((DefaultAction) action).getAction();
+    else if (action instanceof ThreadedAction)
+      target = ((ThreadedAction) action).getAction();
+
+    Class<?> clazz;
+    String methodName;
+    if (target instanceof CallBackAction) {
+      CallBackAction callBack = (CallBackAction) target;
+      clazz = callBack.getTarget().getClass();
+      methodName = callBack.getMethodName();
+    } else if (target instanceof IterableCallBackAction) {
+      IterableCallBackAction callBack = (IterableCallBackAction) target;
+      clazz = callBack.getMethod() == null ? Iterable.class : callBack.getMethod()
+          .getDeclaringClass();
+      methodName = callBack.getMethodName();
+    } else if (target instanceof DynamicTargetAction) {
+      DynamicTargetAction dynamic = (DynamicTargetAction) target;
+      clazz = dynamic.getTarget() == null ? DynamicTargetAction.class : dynamic.getTarget()
+          .getClass();
+      methodName = dynamic.getMethodName();
+    } else {
+      clazz = target.getClass();
+      methodName = "execute";
+    }
+
+    ConcurrentMap<String, ActionStats> methods = stats.get(clazz);
+    if (methods == null) {
+      methods = new ConcurrentHashMap<String, ActionStats>();
+      ConcurrentMap<String, ActionStats> existing = stats.putIfAbsent(clazz, methods);
+      if (existing != null)
+        methods = existing;
+    }
+
+    ActionStats actionStats = methods.get(methodName);
+    if (actionStats == null) {
+      actionStats = new ActionStats(clazz.getName(), methodName);
+      ActionStats existing = methods.putIfAbsent(methodName, actionStats);
+      if (existing != null)
+        actionStats = existing;
+    }
+    return actionStats;
+  }
+
+  private List<ActionStats> sortedStats() {
+    List<ActionStats> list = new ArrayList<ActionStats>();
+    for (ConcurrentMap<String, ActionStats> methods : stats.values()) {
+      list.addAll(methods.values());
+    }
+    Collections.sort(list, new Comparator<ActionStats>() {
+      public int compare(ActionStats o1, ActionStats o2) {
+        return Long.compare(o2.time.sum(), o1.time.sum());
+      }
+    });
+    return list;
+  }
+
+  /**
+   * Writes the action summary as CSV to the specified writer. There is one row
+   * per target class and method, sorted by total time in descending order.
+   *
+   * @param writer
+   *          the writer to write to
+   */
+  public void writeActionCSV(Writer writer) {
+    PrintWriter out = new PrintWriter(writer);
+    out.println(ACTION_HEADER);
+    for (ActionStats actionStats : sortedStats()) {
+      out.println(actionStats.toCSV());
+    }
+    out.flush();
+  }
+
+  /**
+   * Writes the per tick totals of the ticks that are kept as CSV to the
+   * specified writer.
+   *
+   * @param writer
+   *          the writer to write to
+   */
+  public synchronized void writeTickCSV(Writer writer) {
+    PrintWriter out = new PrintWriter(writer);
+    out.println(TICK_HEADER);
+    for (int i = Math.max(0, tickCount - tickHistorySize); i < tickCount; i++) {
+      int index = i % tickHistorySize;
+      out.println(ticks[index] + "," + tickExecutions[index] + "," + tickTimes[index] + ","
+          + tickBytes[index]);
+    }
+    out.flush();
+  }
+
+  public void dump(String actionFile, String tickFile) {
+    dump(actionFile == null ? null : new File(actionFile), tickFile == null ? null : new File(
+        tickFile));
+  }
+
+  private void dump(File actionFile, File tickFile) {
+    if (actionFile != null) {
+      try {
+        Writer writer = new FileWriter(actionFile);
+        try {
+          writeActionCSV(writer);
+        } finally {
+          writer.close();
+        }
+      } catch (IOException ex) {
+        msgCenter.error("Error writing schedule profile to " + actionFile, ex);
+      }
+    }
+
+    if (tickFile != null) {
+      try {
+        Writer writer = new FileWriter(tickFile);
+        try {
+          writeTickCSV(writer);
+        } finally {
+          writer.close();
+        }
+      } catch (IOException ex) {
+        msgCenter.error("Error writing schedule profile to " + tickFile, ex);
+      }
+    }
+  }
+
+  public synchronized void reset() {
+    stats.clear();
+    tickCount = 0;
+    executions.reset();
+    bytes.reset();
+  }
+
+  public synchronized int getTickCount() {
+    return tickCount;
+  }
+
+  public synchronized double getLastTick() {
+    return tickCount == 0 ? Double.NaN : ticks[(tickCount - 1) % tickHistorySize];
+  }
+
+  public synchronized long getLastTickTime() {
+    return tickCount == 0 ? 0 : tickTimes[(tickCount - 1) % tickHistorySize];
+  }
+
+  public long getExecutionCount() {
+    long count = 0;
+    for (ConcurrentMap<String, ActionStats> methods : stats.values()) {
+      for (ActionStats actionStats : methods.values()) {
+        count += actionStats.count.sum();
+      }
+    }
+    return count;
+  }
+
+  public long getTotalTime() {
+    long time = 0;
+    for (ConcurrentMap<String, ActionStats> methods : stats.values()) {
+      for (ActionStats actionStats : methods.values()) {
+        time += actionStats.time.sum();
+      }
+    }
+    return time;
+  }
+
+  public boolean isMeasuringAllocation() {
+    return allocCounter != null;
+  }
+
+  public String[] getActionSummary() {
+    List<ActionStats> list = sortedStats();
+    String[] rows = new String[list.size()];
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = list.get(i).toCSV();
+    }
+    return rows;
+  }
+}
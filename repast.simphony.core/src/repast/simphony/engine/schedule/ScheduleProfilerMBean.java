@@ -0,0 +1,73 @@
+package repast.simphony.engine.schedule;
+
+/**
+ * JMX management interface for a ScheduleProfiler.
+ */
+public interface ScheduleProfilerMBean {
+
+  /**
+   * Gets the number of ticks that have been profiled.
+   *
+   * @return the number of ticks that have been profiled.
+   */
+  int getTickCount();
+
+  /**
+   * Gets the most recent tick that has been profiled.
+   *
+   * @return the most recent tick that has been profiled.
+   */
+  double getLastTick();
+
+  /**
+   * Gets the wall time in nanoseconds taken by the most recently profiled tick.
+   *
+   * @return the wall time in nanoseconds taken by the most recently profiled
+   *         tick.
+   */
+  long getLastTickTime();
+
+  /**
+   * Gets the total number of action executions that have been profiled.
+   *
+   * @return the total number of action executions that have been profiled.
+   */
+  long getExecutionCount();
+
+  /**
+   * Gets the total time in nanoseconds spent executing profiled actions.
+   *
+   * @return the total time in nanoseconds spent executing profiled actions.
+   */
+  long getTotalTime();
+
+  /**
+   * Gets whether or not the bytes allocated by each action are estimated.
+   *
+   * @return whether or not the bytes allocated by each action are estimated.
+   */
+  boolean isMeasuringAllocation();
+
+  /**
+   * Gets a summary of each profiled action as a CSV formatted row, sorted by
+   * total time in descending order.
+   *
+   * @return a summary of each profiled action.
+   */
+  String[] getActionSummary();
+
+  /**
+   * Writes the action summary and per tick totals to the specified files.
+   *
+   * @param actionFile
+   *          the file to write the action summary to
+   * @param tickFile
+   *          the file to write the per tick totals to
+   */
+  void dump(String actionFile, String tickFile);
+
+  /**
+   * Discards all the data recorded so far.
+   */
+  void reset();
+}
@@ -56,4 +56,12 @@ public @interface ScheduledMethod {
    * methods, if more than one agent is being scheduled by this annonation.
    */
   boolean shuffle() default true;
+  
+  /**
+   * Whether or not the method is thread safe. If true and the schedule has a parallel 
+   * executor, the method may be executed concurrently with other thread safe actions 
+   * scheduled for the same tick with the same priority. A thread safe method must not 
+   * schedule or remove other actions. Default is false.
+   */
+  boolean threadSafe() default false;
 }
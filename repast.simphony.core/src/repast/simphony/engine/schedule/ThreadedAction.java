@@ -1,21 +1,39 @@
 package repast.simphony.engine.schedule;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 
 /**
  * An ISchedulableAction that will run in the background for some specificable number of ticks (the duration).
  * If the ThreadedAction is still running after that number of ticks, the ThreadedAction will 
  * behave like a normal foreground action, that is, the the schedule will wait until the ThreadedAction
- * completes before executing the next scheduled actions. 
+ * completes before executing the next scheduled actions. <p>
+ * 
+ * The background execution is submitted to a shared Executor. By default this executor runs each action
+ * in its own virtual thread on Java 21 and later, and uses a bounded pool of daemon threads otherwise.
+ * A different executor can be set with {@link #setExecutor(Executor)}.
  * 
  * @author Nick Collier
  */
 public class ThreadedAction extends AbstractAction {
   
   static final long serialVersionUID = -2127288227326049810L;
+
+  private static volatile Executor executor;
   
   private IAction action;
-  private boolean done = false;
-  private Thread runner;
+  // completes when the background execution has finished
+  private transient CompletableFuture<Void> future;
+  private transient ActionRunner runner;
   private double duration;
 
   /**
@@ -32,7 +50,7 @@ public class ThreadedAction extends AbstractAction {
      * 
      * @param queue
      */ 
-    public void reschedule(ActionQueue queue) {
+    public void reschedule(IActionQueue queue) {
       if (!updated) {
         nextTime += duration;
         queue.toss(ThreadedAction.this);
@@ -57,7 +75,7 @@ public class ThreadedAction extends AbstractAction {
      * 
      * @param queue
      */ 
-    public void reschedule(ActionQueue queue) {
+    public void reschedule(IActionQueue queue) {
       if (updateForEnd) {
         // this will schedule it to block at now + duration.
         // executing at this time should wait until the run thread 
@@ -76,31 +94,82 @@ public class ThreadedAction extends AbstractAction {
   }
 
   /**
-   * Runner that performs the actual execution of the wrapped IAction in its run() method.
+   * Holds the default executor so that it is only created if it is used.
+   */ 
+  static class DefaultExecutorHolder {
+
+    static final Executor EXECUTOR = createDefaultExecutor();
+
+    private static Executor createDefaultExecutor() {
+      try {
+        // java 21 and later
+        Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        return (Executor) method.invoke(null);
+      } catch (Exception ex) {
+        // no virtual threads so use a bounded pool
+      }
+
+      final AtomicInteger count = new AtomicInteger();
+      ThreadFactory factory = new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "ThreadedAction Thread-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      };
+      int size = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 60L, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(), factory);
+      pool.allowCoreThreadTimeOut(true);
+      return pool;
+    }
+  }
+
+  /**
+   * Runs the IAction in the background. The thread that runs the action is
+   * recorded so that it can be interrupted.
    */ 
   static class ActionRunner implements Runnable {
 
     IAction iAction;
-    ThreadedAction owner;
+    private Thread thread;
+    private boolean interrupted = false;
 
     /**
-     * Creates an ActionRunner that will execute the specified IAction and whose owner is the
-     * specified TheadedAction. 
+     * Creates an ActionRunner that will execute the specified IAction.
      * 
      * @param action the IAction to execute
-     * @param owner the ThreadedAction within which this ActionRunner runs
      */ 
-   public ActionRunner(IAction action, ThreadedAction owner) {
-     iAction = action;
-     this.owner = owner;
-   }
+    public ActionRunner(IAction action) {
+      iAction = action;
+    }
 
     /**
      * Executes the IAction specified in the constructor
      */ 
     public void run() {
-      iAction.execute();
-      owner.done();
+      synchronized (this) {
+        if (interrupted) return;
+        thread = Thread.currentThread();
+      }
+      try {
+        iAction.execute();
+      } finally {
+        synchronized (this) {
+          thread = null;
+          // don't leave a pooled thread interrupted
+          if (interrupted) Thread.interrupted();
+        }
+      }
+    }
+
+    /**
+     * Interrupts the thread running the IAction, or prevents the IAction
+     * from running if it has not yet started.
+     */ 
+    public synchronized void interrupt() {
+      interrupted = true;
+      if (thread != null) thread.interrupt();
     }
   }
 
@@ -120,12 +189,23 @@ public class ThreadedAction extends AbstractAction {
     setIsNonModelAction(action);
   }
 
-  // called by the ActionRunner when it is done -- this releases the wait() in
-  // the excecute below.
-  private synchronized void done() {
-    done = true;
-    // releases the wait() in the execute below
-    notifyAll();
+  /**
+   * Sets the executor used to run ThreadedActions in the background. 
+   * 
+   * @param exec the executor to use, or null to use the default executor
+   */ 
+  public static void setExecutor(Executor exec) {
+    executor = exec;
+  }
+
+  /**
+   * Gets the executor used to run ThreadedActions in the background.
+   * 
+   * @return the executor used to run ThreadedActions in the background.
+   */ 
+  public static Executor getExecutor() {
+    Executor exec = executor;
+    return exec == null ? DefaultExecutorHolder.EXECUTOR : exec;
   }
 
   /**
@@ -139,27 +219,41 @@ public class ThreadedAction extends AbstractAction {
 
   /**
    * Executes this ThreadedAction. If the action has not yet started, this will
-   * create the background thread and start to run it. If the thread has started this will
-   * wait for the thread to complete.
+   * submit it to the executor to run in the background. If it has started this will
+   * wait for it to complete. Any exception thrown by the action is rethrown here.
    */ 
   public void execute() {
-    if (runner == null) {
-      runner = new Thread(new ActionRunner(action, this));
-      runner.setName("ThreadedAction Thread");
-      runner.start();
+    if (future == null) {
+      runner = new ActionRunner(action);
+      future = CompletableFuture.runAsync(runner, getExecutor());
     } else {
+      // set future to null, so if this gets rescheduled by the rescheduler
+      // then it will run in the background again.
+      CompletableFuture<Void> barrier = future;
+      ActionRunner barrierRunner = runner;
+      future = null;
+      runner = null;
       try {
-        synchronized (this) {
-          while (!done) wait();
-        }
-
-        // set runner to null, so if this gets rescheduled by the rescheduler
-        // then it will run the background thread again.
-        runner = null;
-        done = false;
+        barrier.get();
       } catch (InterruptedException ex) {
-        runner.interrupt();
+        // CompletableFuture.cancel doesn't interrupt the running action
+        barrierRunner.interrupt();
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException ex) {
+        Throwable cause = ex.getCause();
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        if (cause instanceof Error) throw (Error) cause;
+        throw new RuntimeException(cause);
       }
     }
   }
+
+  /**
+   * Gets the IAction that this ThreadedAction runs in the background.
+   *
+   * @return the IAction that this ThreadedAction runs in the background.
+   */
+  public IAction getAction() {
+    return action;
+  }
 }
@@ -14,7 +14,9 @@ import repast.simphony.util.collections.IterableAdaptor;
  * that are within a specified distance of a specified object in either
  * all the continuous spaces in a context or in a specific continuous space.
  * "Within" includes the distance, so within 10 means all the objects from a
- * distance of 0 to 10 including 10.
+ * distance of 0 to 10 including 10. The objects are found using
+ * {@link ContinuousSpace#getObjectsWithin(NdPoint, double)} so the query
+ * doesn't need to check every object in the space.
  *
  * @author Nick Collier
  * @version $Revision$ $Date$
@@ -23,22 +25,17 @@ public class ContinuousWithin<T> extends WithinDistance<T> {
 
 	private ContinuousSpace<T> space;
 
-	private static class WithinPredicate implements Predicate {
+	// excludes the query's target from the objects found by the space
+	private static class NotTargetPredicate implements Predicate {
 
-		private ContinuousSpace space;
-		private NdPoint origin;
-		private double distSq;
 		private Object target;
 
-		public WithinPredicate(double distSq, NdPoint origin, ContinuousSpace space, Object target) {
-			this.distSq = distSq;
-			this.origin = origin;
-			this.space = space;
+		public NotTargetPredicate(Object target) {
 			this.target = target;
 		}
 
 		public boolean evaluate(Object o) {
-			return !o.equals(target) && space.getDistanceSq(space.getLocation(o),origin) <= distSq;
+			return !o.equals(target);
 		}
 	}
 
@@ -79,8 +76,8 @@ public class ContinuousWithin<T> extends WithinDistance<T> {
 	protected Iterable<T> createIterable() {
 		NdPoint origin = space.getLocation(obj);
 		if (origin == null) return EMPTY;
-		return new FilteredIterator<T>(space.getObjects().iterator(),
-						new WithinPredicate(distanceSq, origin, space, obj));
+		return new FilteredIterator<T>(space.getObjectsWithin(origin, distance).iterator(),
+						new NotTargetPredicate(obj));
 	}
 
 	/**
@@ -98,8 +95,8 @@ public class ContinuousWithin<T> extends WithinDistance<T> {
 		for (ContinuousSpace<T> space : context.getProjections(ContinuousSpace.class)) {
 			NdPoint origin = space.getLocation(obj);
 			if (origin != null) {
-				chain.addIterator(new FilteredIterator<T>(space.getObjects().iterator(),
-								new WithinPredicate(distanceSq, origin, space, obj)));
+				chain.addIterator(new FilteredIterator<T>(space.getObjectsWithin(origin, distance).iterator(),
+								new NotTargetPredicate(obj)));
 			}
 		}
 		return new IterableAdaptor<T>(chain);
@@ -1,70 +1,24 @@
 package repast.simphony.query.space.grid;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import repast.simphony.space.grid.Grid;
-import repast.simphony.space.grid.GridPoint;
-import repast.simphony.util.collections.Contains;
-import repast.simphony.util.collections.FilteredIterator;
-import repast.simphony.util.collections.IterableAdaptor;
-import repast.simphony.util.collections.IteratorOverIterables;
 
 
 /**
  *
  * Queries a grid for the Von Neumann neighborhood of a specific point or object.
+ * The neighborhood is collected with
+ * {@link Grid#forEachInVN(repast.simphony.space.grid.GridPoint, int[], java.util.function.Consumer)},
+ * which can be used directly to visit a neighborhood without creating a list.
  *
  * @author Nick Collier
  */
 public class VNQuery<T> extends AbstractGridQuery<T> {
 
-	private class VNIterator extends IteratorOverIterables<T> {
-
-		int dimIndex = 0;
-		int valIndex;
-		int max;
-		int dimMax;
-		int[] tmpPoint;
-		int centerVal;
-		GridPoint center;
-
-		public VNIterator(GridPoint center) {
-			this.center = center;
-			int size = dims.size();
-			dimMax = size - 1;
-			valIndex = mins[dimIndex];
-			max = maxs[dimIndex];
-			centerVal = center.getCoord(dimIndex);
-			tmpPoint = new int[size];
-			center.toIntArray(tmpPoint);
-			init();
-		}
-
-		protected Iterable<T> getNext() {
-			if (valIndex == centerVal) {
-				valIndex++;
-			}
-
-			while (valIndex > max) {
-				dimIndex++;
-				if (dimIndex > dimMax) return null;
-				valIndex = mins[dimIndex];
-				max = maxs[dimIndex];
-				center.toIntArray(tmpPoint);
-				centerVal = center.getCoord(dimIndex);
-				if (valIndex == centerVal) valIndex++;
-			}
-
-			tmpPoint[dimIndex] = valIndex++;
-			return grid.getObjectsAt(tmpPoint);
-		}
-
-		public void remove() {
-			throw new UnsupportedOperationException();
-		}
-	}
-
 	/**
 	 * Creates a Von Neumann query on the specified grid using the specified object
 	 * as the source where the neighborhood is specified by the extent. The
@@ -84,24 +38,6 @@ public class VNQuery<T> extends AbstractGridQuery<T> {
 		super(grid, source, extent);
 	}
 
-	private void setupMinMax(int size) {
-		for (int i = 0; i < size; i++) {
-			double coord = point.getCoord(i);
-			double max = coord + extent[i];
-			double min = coord - extent[i];
-			mins[i] = (int)min;
-			maxs[i] = (int)max;
-			if (!grid.isPeriodic()) {
-				int origin = (int) dims.getOrigin(i);
-				if (min < -origin) min = -origin;
-				int dimension = (int) dims.getDimension(i);
-				if (max > dimension - origin - 1) max = dimension - origin - 1;
-				mins[i] = (int)min;
-				maxs[i] = (int)max;
-			}
-		}
-	}
-
 	/**
 	 * Gets an iterable over all the objects that make up the Von Neumann neighborhood of
 	 * the source object. The source object and neighborhood extent are specified in the
@@ -118,9 +54,9 @@ public class VNQuery<T> extends AbstractGridQuery<T> {
 	 */
 	public Iterable<T> query() {
 		if (point == null) return emptyList;
-		int size = dims.size();
-		setupMinMax(size);
-		return new IterableAdaptor<T>(new VNIterator(point));
+		List<T> list = new ArrayList<T>();
+		grid.forEachInVN(point, extent, list::add);
+		return list;
 	}
 
 	/**
@@ -142,8 +78,10 @@ public class VNQuery<T> extends AbstractGridQuery<T> {
 		for (T item : iter) {
 			set.add(item);
 		}
-		int size = dims.size();
-		setupMinMax(size);
-		return new FilteredIterator<T>(new VNIterator(point), new Contains<T>(set));
+		List<T> list = new ArrayList<T>();
+		grid.forEachInVN(point, extent, obj -> {
+			if (set.contains(obj)) list.add(obj);
+		});
+		return list;
 	}
 }
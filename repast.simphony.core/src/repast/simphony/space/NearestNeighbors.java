@@ -0,0 +1,182 @@
+package repast.simphony.space;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the k objects nearest to some point. Candidate objects are offered
+ * together with their squared distance from the point and the k nearest are
+ * kept in a bounded max heap, so collecting from n candidates takes O(n log
+ * k) time rather than the O(n log n) of sorting all of them.
+ */
+public class NearestNeighbors<T> {
+
+  private int k;
+  private Class<?> filter;
+  private Object exclude;
+
+  private Object[] objs;
+  private double[] distances;
+  private int size = 0;
+
+  /**
+   * Creates a NearestNeighbors that will collect the k nearest objects.
+   *
+   * @param k
+   *          the number of objects to collect
+   * @param filter
+   *          only objects that are instances of this class are collected. If
+   *          this is null, all objects are collected.
+   * @param exclude
+   *          an object that is never collected, typically the object the
+   *          distances are measured from. This may be null.
+   */
+  public NearestNeighbors(int k, Class<?> filter, Object exclude) {
+    if (k < 0) throw new IllegalArgumentException("k must be non-negative");
+    this.k = k;
+    this.filter = filter;
+    this.exclude = exclude;
+    int capacity = Math.min(k, 16);
+    objs = new Object[capacity];
+    distances = new double[capacity];
+  }
+
+  /**
+   * Gets whether or not the specified object is one that can be collected,
+   * that is, it passes the filter and is not the excluded object.
+   *
+   * @param obj
+   *          the object to check
+   * @return whether or not the specified object is one that can be
+   *         collected.
+   */
+  public boolean accepts(Object obj) {
+    return obj != exclude && (filter == null || filter.isInstance(obj));
+  }
+
+  /**
+   * Offers the specified object to this NearestNeighbors. The object is
+   * collected if it is accepted and it is nearer than the farthest object
+   * collected so far, or if fewer than k objects have been collected.
+   *
+   * @param obj
+   *          the object
+   * @param distanceSq
+   *          the squared distance of the object from the point
+   */
+  public void offer(Object obj, double distanceSq) {
+    if (size == k) {
+      if (k == 0 || distanceSq >= distances[0] || !accepts(obj)) return;
+      // replace the farthest
+      siftDown(obj, distanceSq);
+    } else if (accepts(obj)) {
+      if (size == objs.length) grow();
+      siftUp(size++, obj, distanceSq);
+    }
+  }
+
+  private void grow() {
+    int capacity = (int) Math.min((long) k, objs.length * 2L);
+    Object[] tmpObjs = new Object[capacity];
+    System.arraycopy(objs, 0, tmpObjs, 0, size);
+    objs = tmpObjs;
+    double[] tmpDistances = new double[capacity];
+    System.arraycopy(distances, 0, tmpDistances, 0, size);
+    distances = tmpDistances;
+  }
+
+  private void siftUp(int index, Object obj, double distanceSq) {
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (distances[parent] >= distanceSq) break;
+      objs[index] = objs[parent];
+      distances[index] = distances[parent];
+      index = parent;
+    }
+    objs[index] = obj;
+    distances[index] = distanceSq;
+  }
+
+  private void siftDown(Object obj, double distanceSq) {
+    int index = 0;
+    int half = size >>> 1;
+    while (index < half) {
+      int child = 2 * index + 1;
+      if (child + 1 < size && distances[child + 1] > distances[child]) child++;
+      if (distanceSq >= distances[child]) break;
+      objs[index] = objs[child];
+      distances[index] = distances[child];
+      index = child;
+    }
+    objs[index] = obj;
+    distances[index] = distanceSq;
+  }
+
+  /**
+   * Gets whether or not k objects have been collected.
+   *
+   * @return whether or not k objects have been collected.
+   */
+  public boolean isFull() {
+    return size == k;
+  }
+
+  /**
+   * Gets the squared distance of the farthest collected object, or positive
+   * infinity if fewer than k objects have been collected. Objects farther
+   * than this need not be offered.
+   *
+   * @return the squared distance of the farthest collected object, or
+   *         positive infinity if fewer than k objects have been collected.
+   */
+  public double getMaxDistanceSq() {
+    if (size < k) return Double.POSITIVE_INFINITY;
+    return k == 0 ? Double.NEGATIVE_INFINITY : distances[0];
+  }
+
+  /**
+   * Gets the number of objects collected so far.
+   *
+   * @return the number of objects collected so far.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the collected objects sorted from nearest to farthest.
+   *
+   * @return the collected objects sorted from nearest to farthest.
+   */
+  @SuppressWarnings("unchecked")
+  public List<T> toList() {
+    // heap sort a copy so that this can still be added to
+    Object[] tmpObjs = new Object[size];
+    double[] tmpDistances = new double[size];
+    System.arraycopy(objs, 0, tmpObjs, 0, size);
+    System.arraycopy(distances, 0, tmpDistances, 0, size);
+    Object[] heapObjs = objs;
+    double[] heapDistances = distances;
+    int heapSize = size;
+
+    objs = tmpObjs;
+    distances = tmpDistances;
+    Object[] sorted = new Object[heapSize];
+    while (size > 0) {
+      Object obj = objs[0];
+      size--;
+      sorted[size] = obj;
+      if (size > 0) siftDown(objs[size], distances[size]);
+    }
+
+    objs = heapObjs;
+    distances = heapDistances;
+    size = heapSize;
+
+    List<T> list = new ArrayList<T>(sorted.length);
+    for (Object obj : sorted) {
+      list.add((T) obj);
+    }
+    return list;
+  }
+}
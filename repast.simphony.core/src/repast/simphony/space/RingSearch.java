@@ -0,0 +1,111 @@
+package repast.simphony.space;
+
+/**
+ * Visits the cells of an n-dimensional lattice of cells in expanding rings
+ * around a center cell. Ring r is made up of the cells in the box of radius r
+ * around the center that are not in the box of radius r - 1, so each cell is
+ * visited at most once. This is the cell order used for nearest neighbor
+ * searches: subclasses collect the objects in each visited cell and stop the
+ * search once no unvisited cell can contain anything nearer.
+ */
+public abstract class RingSearch {
+
+  /**
+   * Visits the specified cell.
+   *
+   * @param cell
+   *          the zero based coordinates of the cell. If the lattice is
+   *          periodic these are already wrapped into the lattice. The array
+   *          is reused between calls.
+   * @return false to abort the search, otherwise true.
+   */
+  protected abstract boolean visit(int[] cell);
+
+  /**
+   * Gets whether or not the search is done once all the cells in the specified
+   * ring have been visited, that is, whether no cell in the following rings
+   * can contain anything of interest.
+   *
+   * @param ring
+   *          the ring whose cells have all been visited
+   * @return true if the search is done, otherwise false.
+   */
+  protected abstract boolean isDone(int ring);
+
+  /**
+   * Visits the cells in expanding rings around the specified center until
+   * {@link #isDone(int)} returns true or all the cells have been visited.
+   *
+   * @param cellCounts
+   *          the number of cells along each dimension
+   * @param center
+   *          the zero based coordinates of the center cell
+   * @param periodic
+   *          whether or not the lattice wraps around its borders
+   * @return false if the search was aborted by {@link #visit(int[])},
+   *         otherwise true.
+   */
+  public boolean search(int[] cellCounts, int[] center, boolean periodic) {
+    int dimCount = cellCounts.length;
+    int[] los = new int[dimCount];
+    int[] his = new int[dimCount];
+    int[] prevLos = new int[dimCount];
+    int[] prevHis = new int[dimCount];
+    int[] counter = new int[dimCount];
+    int[] cell = new int[dimCount];
+    for (int r = 0;; r++) {
+      boolean all = true;
+      for (int i = 0; i < dimCount; i++) {
+        int n = cellCounts[i];
+        prevLos[i] = los[i];
+        prevHis[i] = his[i];
+        if (periodic && 2L * r + 1 >= n) {
+          los[i] = 0;
+          his[i] = n - 1;
+        } else if (periodic) {
+          los[i] = center[i] - r;
+          his[i] = center[i] + r;
+          all = false;
+        } else {
+          los[i] = Math.max(0, center[i] - r);
+          his[i] = Math.min(n - 1, center[i] + r);
+          if (los[i] != 0 || his[i] != n - 1) all = false;
+        }
+        counter[i] = los[i];
+      }
+
+      // visit the cells in this ring's box that were not in the
+      // previous ring's box.
+      while (true) {
+        boolean inPrev = r > 0;
+        for (int i = 0; i < dimCount; i++) {
+          int n = cellCounts[i];
+          int c = counter[i];
+          if (periodic) {
+            c %= n;
+            if (c < 0) c += n;
+            if (inPrev) {
+              int offset = (c - prevLos[i]) % n;
+              if (offset < 0) offset += n;
+              inPrev = offset <= prevHis[i] - prevLos[i];
+            }
+          } else if (inPrev) {
+            inPrev = c >= prevLos[i] && c <= prevHis[i];
+          }
+          cell[i] = c;
+        }
+        if (!inPrev && !visit(cell)) return false;
+
+        int i = 0;
+        while (i < dimCount && counter[i] == his[i]) {
+          counter[i] = los[i];
+          i++;
+        }
+        if (i == dimCount) break;
+        counter[i]++;
+      }
+
+      if (all || isDone(r)) return true;
+    }
+  }
+}
@@ -1,11 +1,16 @@
 /*CopyrightHere*/
 package repast.simphony.space.continuous;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import repast.simphony.random.RandomHelper;
 import repast.simphony.space.Dimensions;
+import repast.simphony.space.NearestNeighbors;
+import repast.simphony.space.SpatialException;
 import repast.simphony.space.SpatialMath;
 import repast.simphony.space.projection.DefaultProjection;
 import repast.simphony.space.projection.ProjectionEvent;
@@ -23,6 +28,12 @@ public abstract class AbstractContinuousSpace<T, U> extends DefaultProjection<T>
 	 */
 	public static class PointHolder { 
 		public NdPoint point;
+		// whether or not point has been handed out of the space, in which
+		// case it must be replaced rather than updated in place
+		boolean shared = false;
+		// the holder's cell and position in that cell in the SpatialHash
+		int cell = SpatialHash.NO_CELL;
+		int cellPos;
 	}
 	
 	// this holds the objects that have been added, this includes ones that have
@@ -43,6 +54,15 @@ public abstract class AbstractContinuousSpace<T, U> extends DefaultProjection<T>
 	
 	protected int size = 0;
 
+	protected SpatialHash<T> index;
+
+	// holds the location passed to the primitive moveTo methods
+	private double[] moveTmp;
+
+	// holds the adjusted location in doMove. This is swapped with the
+	// coordinates of a point that is updated in place.
+	private double[] movedTmp;
+
 	/**
 	 * Constructs this space with the specified name, adder, translator,
 	 * accessor and size. The size is the size of the space meaning [3, 3] is a
@@ -73,6 +93,9 @@ public abstract class AbstractContinuousSpace<T, U> extends DefaultProjection<T>
 		this.agentLocationMap = new HashMap<T, PointHolder>();
 		this.locationStorage = createLocationStorage();
 		this.translator.init(dimensions);
+		this.index = new SpatialHash<T>(this, SpatialHash.DEFAULT_CELL_SIZE);
+		this.moveTmp = new double[dimensions.size()];
+		this.movedTmp = new double[dimensions.size()];
 	}
 	/**
 	 * Constructs this space with the specified name, adder, translator,
@@ -99,6 +122,9 @@ public abstract class AbstractContinuousSpace<T, U> extends DefaultProjection<T>
 		this.agentLocationMap = new HashMap<T, PointHolder>();
 		this.locationStorage = createLocationStorage();
 		this.translator.init(dimensions);
+		this.index = new SpatialHash<T>(this, SpatialHash.DEFAULT_CELL_SIZE);
+		this.moveTmp = new double[dimensions.size()];
+		this.movedTmp = new double[dimensions.size()];
 	}
 	
 	protected abstract U createLocationStorage();
@@ -121,8 +147,79 @@ public abstract class AbstractContinuousSpace<T, U> extends DefaultProjection<T>
 		return doMove(object, null, newLocation);
 	}
 
-	// moves the specified object from the specifid point to the new location
-	// returns true if the move succeeded.
+	/**
+	 * Moves the specified object from its current location into the specified
+	 * 2D location. This is equivalent to <code>moveTo(object, x, y)</code>
+	 * with a varargs location, but does not create an array for the location.
+	 * See {@link #doMove(Object, double[], double[])} for when the object's
+	 * location is updated in place.
+	 * 
+	 * @param object
+	 * @param x
+	 * @param y
+	 * @return true if the move was successful, otherwise false.
+	 * @throws repast.simphony.space.SpatialException
+	 *             if the object is not already in the space or if the space is
+	 *             not 2 dimensional.
+	 */
+	public boolean moveTo(T object, double x, double y) {
+		checkDimensionCount(2);
+		double[] location = moveTmp;
+		location[0] = x;
+		location[1] = y;
+		return doMove(object, null, location);
+	}
+
+	/**
+	 * Moves the specified object from its current location into the specified
+	 * 3D location. This is equivalent to <code>moveTo(object, x, y, z)</code>
+	 * with a varargs location, but does not create an array for the location.
+	 * See {@link #doMove(Object, double[], double[])} for when the object's
+	 * location is updated in place.
+	 * 
+	 * @param object
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return true if the move was successful, otherwise false.
+	 * @throws repast.simphony.space.SpatialException
+	 *             if the object is not already in the space or if the space is
+	 *             not 3 dimensional.
+	 */
+	public boolean moveTo(T object, double x, double y, double z) {
+		checkDimensionCount(3);
+		double[] location = moveTmp;
+		location[0] = x;
+		location[1] = y;
+		location[2] = z;
+		return doMove(object, null, location);
+	}
+
+	private void checkDimensionCount(int count) {
+		if (dimensions.size() != count) {
+			throw new SpatialException("Cannot move to a " + count
+					+ "D location in a space with " + dimensions.size() + " dimensions");
+		}
+	}
+
+	/**
+	 * Moves the specified object by the displacement, or to the new location
+	 * if the displacement is null. If the object's current NdPoint has never
+	 * been handed out of the space, it is removed from the location storage,
+	 * updated in place and put back, so that the move itself creates no
+	 * points or coordinate arrays. Otherwise the object is given a new
+	 * NdPoint. The location storage may still allocate when the point is put
+	 * back; the default map based storage creates a map entry per move, and
+	 * multi occupancy storage creates a list for each newly occupied location.
+	 * 
+	 * @param object
+	 *            the object to move
+	 * @param displacement
+	 *            the amount to move the object, or null
+	 * @param newLocation
+	 *            the location to move the object to, if displacement is null
+	 * @return true if the move succeeded, otherwise false.
+	 */
 	protected boolean doMove(T object, double[] displacement, double[] newLocation) {
 		PointHolder holder = agentLocationMap.get(object);
 		if (holder == null) {
@@ -139,15 +236,36 @@ public abstract class AbstractContinuousSpace<T, U> extends DefaultProjection<T>
 							+ dimensions.size() + ".");
 		}
 
-		double[] movedCoords = new double[dimensions.size()];
+		double[] movedCoords = movedTmp;
 		if (holder.point == null || displacement == null) {
 			translator.transform(movedCoords, newLocation);
 		} else {
 			holder.point.toDoubleArray(movedCoords);
 			translator.translate(movedCoords, displacement);
 		}
-		NdPoint movedPoint = new NdPoint(movedCoords);
 
+		NdPoint point = holder.point;
+		// a move to the current location keeps the put before the remove so
+		// that it fails in a single occupancy space, as any other move to an
+		// occupied location does
+		if (point != null && !holder.shared && !Arrays.equals(point.point, movedCoords)) {
+			accessor.remove(object, locationStorage, point);
+			movedTmp = point.point;
+			point.point = movedCoords;
+			if (!accessor.put(object, locationStorage, point)) {
+				point.point = movedTmp;
+				movedTmp = movedCoords;
+				accessor.put(object, locationStorage, point);
+				return false;
+			}
+			index.update(object, holder);
+			if (!listeners.isEmpty()) {
+				fireProjectionEvent(new ProjectionEvent(this, object, ProjectionEvent.OBJECT_MOVED));
+			}
+			return true;
+		}
+
+		NdPoint movedPoint = new NdPoint(movedCoords.clone());
 		if (accessor.put(object, locationStorage, movedPoint)) {
 			if (holder.point != null) {
 				accessor.remove(object, locationStorage, holder.point);
@@ -155,9 +273,12 @@ public abstract class AbstractContinuousSpace<T, U> extends DefaultProjection<T>
 				// if the object hasn't yet been put in the space
 				size++;
 			}
-			holder.point = movedPoint; 
-			fireProjectionEvent(new ProjectionEvent(this, object,
-					ProjectionEvent.OBJECT_MOVED));
+			holder.point = movedPoint;
+			holder.shared = false;
+			index.update(object, holder);
+			if (!listeners.isEmpty()) {
+				fireProjectionEvent(new ProjectionEvent(this, object, ProjectionEvent.OBJECT_MOVED));
+			}
 			return true;
 		} else {
 			return false;
@@ -176,9 +297,31 @@ public abstract class AbstractContinuousSpace<T, U> extends DefaultProjection<T>
 		if (holder == null) {
 			return null;
 		}
+		holder.shared = true;
 		return holder.point;
 	}
 
+	/**
+	 * Copies the location of the specified object into the specified array.
+	 * Unlike {@link #getLocation(Object)}, this does not prevent the space from
+	 * updating the object's location in place on its next move.
+	 * 
+	 * @param obj
+	 *            the object
+	 * @param location
+	 *            the array to copy the location into. If this is null, a new
+	 *            array is created.
+	 * @return the array containing the location, or null if the object is not
+	 *         in the space.
+	 */
+	public double[] getLocation(Object obj, double[] location) {
+		PointHolder holder = agentLocationMap.get(obj);
+		if (holder == null || holder.point == null) {
+			return null;
+		}
+		return holder.point.toDoubleArray(location);
+	}
+
 	/**
 	 * Gets the number of objects currently in the space. This does NOT include
 	 * any objects that may have been added, but have NOT been moved to a space
@@ -292,7 +435,9 @@ public abstract class AbstractContinuousSpace<T, U> extends DefaultProjection<T>
 		}
 
 		if (doMove(object, displacement, null)) {
-			return agentLocationMap.get(object).point;
+			PointHolder holder = agentLocationMap.get(object);
+			holder.shared = true;
+			return holder.point;
 		} else {
 			return null;
 		}
@@ -356,13 +501,16 @@ public abstract class AbstractContinuousSpace<T, U> extends DefaultProjection<T>
 	}
 
 	protected void removeAll() {
-		for (T t : agentLocationMap.keySet()) {
+		// copied because remove removes the object from the map
+		for (T t : new ArrayList<T>(agentLocationMap.keySet())) {
 			remove(t);
 		}
 	}
 
 	protected void remove(T t) {
-		NdPoint location = agentLocationMap.remove(t).point;
+		PointHolder holder = agentLocationMap.remove(t);
+		index.remove(holder);
+		NdPoint location = holder.point;
 		if (location != null) {
 			accessor.remove(t, locationStorage, location);
 		}
@@ -375,6 +523,99 @@ public abstract class AbstractContinuousSpace<T, U> extends DefaultProjection<T>
 		return translator.isPeriodic();
 	}
 
+	/**
+	 * Gets all the objects within the specified distance of the specified
+	 * point. "Within" includes the distance, so within 10 means all the objects
+	 * from a distance of 0 to 10 including 10. The objects are found using
+	 * this space's {@link SpatialHash} and so only the objects in the cells
+	 * near the point are checked.
+	 * 
+	 * @param point
+	 *            the point to measure the distance from
+	 * @param distance
+	 *            the distance
+	 * @return all the objects within the specified distance of the specified
+	 *         point.
+	 */
+	public List<T> getObjectsWithin(NdPoint point, double distance) {
+		List<T> result = new ArrayList<T>();
+		index.findWithin(point, distance, isPeriodic(), result);
+		return result;
+	}
+
+	/**
+	 * Gets the k objects nearest to the specified object, taking into account
+	 * the space's topology. The specified object itself is not included. The
+	 * objects are found by searching this space's {@link SpatialHash} outwards
+	 * from the object's location.
+	 * 
+	 * @param obj
+	 *            the object to measure the distance from
+	 * @param k
+	 *            the number of objects to get
+	 * @return the k nearest objects, sorted from nearest to farthest. This
+	 *         will contain fewer than k objects if the space contains fewer
+	 *         than k other objects, and none if the object is not in the space.
+	 */
+	public List<T> getNearest(T obj, int k) {
+		PointHolder holder = agentLocationMap.get(obj);
+		NdPoint point = holder == null ? null : holder.point;
+		if (point == null) return new ArrayList<T>();
+		NearestNeighbors<T> nearest = new NearestNeighbors<T>(k, null, obj);
+		index.findNearest(point, isPeriodic(), nearest);
+		return nearest.toList();
+	}
+
+	/**
+	 * Gets the k objects nearest to the specified point that are instances of
+	 * the specified class, taking into account the space's topology. The
+	 * objects are found by searching this space's {@link SpatialHash} outwards
+	 * from the point.
+	 * 
+	 * @param point
+	 *            the point to measure the distance from
+	 * @param k
+	 *            the number of objects to get
+	 * @param filter
+	 *            only objects that are instances of this class are returned. If
+	 *            this is null, objects of any class are returned.
+	 * @return the k nearest objects, sorted from nearest to farthest. This
+	 *         will contain fewer than k objects if the space contains fewer
+	 *         than k matching objects.
+	 */
+	public List<T> getNearest(NdPoint point, int k, Class<?> filter) {
+		NearestNeighbors<T> nearest = new NearestNeighbors<T>(k, filter, null);
+		index.findNearest(point, isPeriodic(), nearest);
+		return nearest.toList();
+	}
+
+	/**
+	 * Sets the requested size of the cells of the index used to find the
+	 * objects within some distance of a point. Queries are fastest when the
+	 * cell size is close to the typical query distance.
+	 * 
+	 * @param cellSize
+	 *            the requested cell size
+	 */
+	public void setIndexCellSize(double cellSize) {
+		index = new SpatialHash<T>(this, cellSize);
+		for (Map.Entry<T, PointHolder> entry : agentLocationMap.entrySet()) {
+			PointHolder holder = entry.getValue();
+			holder.cell = SpatialHash.NO_CELL;
+			if (holder.point != null) index.update(entry.getKey(), holder);
+		}
+	}
+
+	/**
+	 * Gets the requested size of the cells of the index used to find the
+	 * objects within some distance of a point.
+	 * 
+	 * @return the requested size of the cells of the index.
+	 */
+	public double getIndexCellSize() {
+		return index.getCellSize();
+	}
+
 	/**
 	 * Evaluate this Projection against the specified Predicate. This typically
 	 * involves a double dispatch where the Projection calls back to the
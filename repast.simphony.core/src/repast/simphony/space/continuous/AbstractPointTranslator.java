@@ -44,8 +44,8 @@ public abstract class AbstractPointTranslator implements PointTranslator {
 	}
 
 	protected void boundsCheck(int i, double value) {
-		double[] origin = dimensions.originToDoubleArray(null);
-		if (value < -origin[i] || value >= dimensions.getDimension(i) - origin[i]) {
+		double origin = dimensions.getOrigin(i);
+		if (value < -origin || value >= dimensions.getDimension(i) - origin) {
 			throw new SpatialException("Target location " + value +
 							" is outside of grid's dimensions.");
 		}
@@ -1,8 +1,12 @@
 /*CopyrightHere*/
 package repast.simphony.space.continuous;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import repast.simphony.space.Dimensions;
 import repast.simphony.space.Direction;
+import repast.simphony.space.NearestNeighbors;
 import repast.simphony.space.grid.GridPoint;
 import repast.simphony.space.projection.Projection;
 
@@ -49,6 +53,41 @@ public interface ContinuousSpace<T> extends Projection<T> {
 	 */
 	boolean moveTo(T object, double... newLocation);
 
+	/**
+	 * Moves the specified object from its current location to the specified
+	 * 2D location without creating an array for the location.
+	 * 
+	 * @param object
+	 * @param x
+	 * @param y
+	 * @return true if the move was successful, otherwise false.
+	 * @throws repast.simphony.space.SpatialException
+	 *             if the object is not already in the space or if the space is
+	 *             not 2 dimensional.
+	 * @see #moveTo(Object, double...)
+	 */
+	default boolean moveTo(T object, double x, double y) {
+		return moveTo(object, new double[] { x, y });
+	}
+
+	/**
+	 * Moves the specified object from its current location to the specified
+	 * 3D location without creating an array for the location.
+	 * 
+	 * @param object
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return true if the move was successful, otherwise false.
+	 * @throws repast.simphony.space.SpatialException
+	 *             if the object is not already in the space or if the space is
+	 *             not 3 dimensional.
+	 * @see #moveTo(Object, double...)
+	 */
+	default boolean moveTo(T object, double x, double y, double z) {
+		return moveTo(object, new double[] { x, y, z });
+	}
+
 	/**
 	 * Gets the location of the specified object.
 	 * 
@@ -58,6 +97,21 @@ public interface ContinuousSpace<T> extends Projection<T> {
 	 */
 	NdPoint getLocation(Object obj);
 
+	/**
+	 * Copies the location of the specified object into the specified array.
+	 * 
+	 * @param obj
+	 * @param location
+	 *            the array to copy the location into. If this is null, a new
+	 *            array is created.
+	 * @return the array containing the location, or null if the object is not
+	 *         in the space.
+	 */
+	default double[] getLocation(Object obj, double[] location) {
+		NdPoint point = getLocation(obj);
+		return point == null ? null : point.toDoubleArray(location);
+	}
+
 	/**
 	 * Gets the number of objects currently in the space. This does NOT include
 	 * any objects that may have been added, but have NOT been moved to a space
@@ -172,6 +226,79 @@ public interface ContinuousSpace<T> extends Projection<T> {
 	 * @return true if this space is periodic, otherwise false.
 	 */
 	boolean isPeriodic();
+
+	/**
+	 * Gets all the objects within the specified distance of the specified
+	 * point, taking into account the space's topology. "Within" includes the
+	 * distance, so within 10 means all the objects from a distance of 0 to 10
+	 * including 10.
+	 * 
+	 * @param point
+	 *            the point to measure the distance from
+	 * @param distance
+	 *            the distance
+	 * @return all the objects within the specified distance of the specified
+	 *         point.
+	 */
+	default Iterable<T> getObjectsWithin(NdPoint point, double distance) {
+		// checks every object, implementations with a spatial index override this
+		List<T> list = new ArrayList<T>();
+		double distanceSq = distance * distance;
+		for (T obj : getObjects()) {
+			NdPoint location = getLocation(obj);
+			if (location != null && getDistanceSq(point, location) <= distanceSq)
+				list.add(obj);
+		}
+		return list;
+	}
+
+	/**
+	 * Gets the k objects nearest to the specified object, taking into account
+	 * the space's topology. The specified object itself is not included.
+	 * 
+	 * @param obj
+	 *            the object to measure the distance from
+	 * @param k
+	 *            the number of objects to get
+	 * @return the k nearest objects, sorted from nearest to farthest. This
+	 *         will contain fewer than k objects if the space contains fewer
+	 *         than k other objects, and none if the object is not in the space.
+	 */
+	default List<T> getNearest(T obj, int k) {
+		NdPoint point = getLocation(obj);
+		if (point == null) return new ArrayList<T>();
+		// checks every object, implementations with a spatial index override this
+		NearestNeighbors<T> nearest = new NearestNeighbors<T>(k, null, obj);
+		for (T other : getObjects()) {
+			NdPoint location = getLocation(other);
+			if (location != null) nearest.offer(other, getDistanceSq(point, location));
+		}
+		return nearest.toList();
+	}
+
+	/**
+	 * Gets the k objects nearest to the specified point that are instances of
+	 * the specified class, taking into account the space's topology.
+	 * 
+	 * @param point
+	 *            the point to measure the distance from
+	 * @param k
+	 *            the number of objects to get
+	 * @param filter
+	 *            only objects that are instances of this class are returned. If
+	 *            this is null, objects of any class are returned.
+	 * @return the k nearest objects, sorted from nearest to farthest. This
+	 *         will contain fewer than k objects if the space contains fewer
+	 *         than k matching objects.
+	 */
+	default List<T> getNearest(NdPoint point, int k, Class<?> filter) {
+		NearestNeighbors<T> nearest = new NearestNeighbors<T>(k, filter, null);
+		for (T obj : getObjects()) {
+			NdPoint location = getLocation(obj);
+			if (location != null) nearest.offer(obj, getDistanceSq(point, location));
+		}
+		return nearest.toList();
+	}
 	
 	/**
 	 * Returns the distance between the NdPoints point1 and point2, 
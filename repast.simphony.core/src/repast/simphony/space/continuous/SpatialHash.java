@@ -0,0 +1,345 @@
+package repast.simphony.space.continuous;
+
+import java.util.Collection;
+
+import repast.simphony.space.Dimensions;
+import repast.simphony.space.NearestNeighbors;
+import repast.simphony.space.RingSearch;
+import repast.simphony.space.continuous.AbstractContinuousSpace.PointHolder;
+
+/**
+ * Uniform grid index over the locations of the objects in a continuous space.
+ * The space's extent is divided into equally sized cells and each located
+ * object is stored in the cell that contains it. Radius queries then only
+ * need to look at the objects in the cells that overlap the query's bounding
+ * box rather than at every object in the space, and nearest neighbor queries
+ * search outwards from the cell containing the query point.
+ * <p>
+ *
+ * The cell size in each dimension is the requested cell size adjusted so that
+ * the cells evenly divide that dimension. This lets queries in periodic spaces
+ * wrap around the borders cell by cell. Objects located outside the space's
+ * extent (e.g. when the space has {@link InfiniteBorders}) are kept in an
+ * overflow cell that is checked by every query.
+ */
+public class SpatialHash<T> {
+
+	/**
+	 * The default requested cell size.
+	 */
+	public static final double DEFAULT_CELL_SIZE = 1;
+
+	/**
+	 * The maximum number of cells in the index. If the requested cell size
+	 * would result in more cells than this, the cell size is increased.
+	 */
+	public static final int MAX_CELLS = 1 << 18;
+
+	static final int NO_CELL = -1;
+
+	/**
+	 * The objects in a single cell, together with their PointHolders which
+	 * record each object's position in the cell.
+	 */
+	private static class Cell {
+
+		Object[] objs = new Object[4];
+		PointHolder[] holders = new PointHolder[4];
+		int size = 0;
+
+		void add(Object obj, PointHolder holder) {
+			if (size == objs.length) {
+				Object[] tmpObjs = new Object[size * 2];
+				System.arraycopy(objs, 0, tmpObjs, 0, size);
+				objs = tmpObjs;
+				PointHolder[] tmpHolders = new PointHolder[size * 2];
+				System.arraycopy(holders, 0, tmpHolders, 0, size);
+				holders = tmpHolders;
+			}
+			objs[size] = obj;
+			holders[size] = holder;
+			holder.cellPos = size;
+			size++;
+		}
+
+		void remove(int pos) {
+			size--;
+			if (pos != size) {
+				objs[pos] = objs[size];
+				holders[pos] = holders[size];
+				holders[pos].cellPos = pos;
+			}
+			objs[size] = null;
+			holders[size] = null;
+		}
+	}
+
+	private ContinuousSpace<T> space;
+	private double cellSize;
+	private double[] mins, maxs, cellWidths;
+	private int[] cellCounts, strides;
+	// the last cell is the overflow cell
+	private Cell[] cells;
+	private int overflow;
+
+	/**
+	 * Creates a SpatialHash for the specified space.
+	 *
+	 * @param space
+	 *            the space whose objects are indexed. Query distances are
+	 *            calculated using this space.
+	 * @param cellSize
+	 *            the requested size of the cells
+	 */
+	public SpatialHash(ContinuousSpace<T> space, double cellSize) {
+		if (!(cellSize > 0)) {
+			throw new IllegalArgumentException("Cell size must be greater than 0");
+		}
+		this.space = space;
+		Dimensions dimensions = space.getDimensions();
+		int dimCount = dimensions.size();
+		mins = new double[dimCount];
+		maxs = new double[dimCount];
+		cellWidths = new double[dimCount];
+		cellCounts = new int[dimCount];
+		strides = new int[dimCount];
+
+		double size = cellSize;
+		while (!initCells(dimensions, size)) {
+			size *= 2;
+		}
+		this.cellSize = cellSize;
+		cells = new Cell[overflow + 1];
+	}
+
+	// returns false if the size results in too many cells
+	private boolean initCells(Dimensions dimensions, double size) {
+		long count = 1;
+		for (int i = 0; i < cellCounts.length; i++) {
+			double width = dimensions.getDimension(i);
+			double n = Math.floor(width / size);
+			cellCounts[i] = n < 1 ? 1 : (int) Math.min(n, MAX_CELLS);
+			cellWidths[i] = width > 0 ? width / cellCounts[i] : 1;
+			mins[i] = -dimensions.getOrigin(i);
+			maxs[i] = mins[i] + width;
+			strides[i] = (int) count;
+			count *= cellCounts[i];
+			if (count > MAX_CELLS) return false;
+		}
+		overflow = (int) count;
+		return true;
+	}
+
+	/**
+	 * Gets the requested size of the cells.
+	 *
+	 * @return the requested size of the cells.
+	 */
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * Gets the actual width of the cells along the specified dimension.
+	 *
+	 * @param dimension
+	 *            the dimension index
+	 * @return the actual width of the cells along the specified dimension.
+	 */
+	public double getCellWidth(int dimension) {
+		return cellWidths[dimension];
+	}
+
+	private int cellIndex(NdPoint point) {
+		int index = 0;
+		for (int i = 0; i < cellCounts.length; i++) {
+			double coord = point.getCoord(i);
+			if (coord < mins[i] || coord > maxs[i]) return overflow;
+			int c = (int) ((coord - mins[i]) / cellWidths[i]);
+			// points on the max border go in the last cell
+			if (c >= cellCounts[i]) c = cellCounts[i] - 1;
+			index += c * strides[i];
+		}
+		return index;
+	}
+
+	/**
+	 * Updates the index with the current location of the specified object.
+	 *
+	 * @param obj
+	 *            the object whose location has changed
+	 * @param holder
+	 *            the holder containing the object's location
+	 */
+	void update(T obj, PointHolder holder) {
+		int index = cellIndex(holder.point);
+		if (index == holder.cell) return;
+		if (holder.cell != NO_CELL) {
+			cells[holder.cell].remove(holder.cellPos);
+		}
+		Cell cell = cells[index];
+		if (cell == null) {
+			cell = new Cell();
+			cells[index] = cell;
+		}
+		cell.add(obj, holder);
+		holder.cell = index;
+	}
+
+	/**
+	 * Removes the object whose location is in the specified holder from the
+	 * index.
+	 *
+	 * @param holder
+	 *            the holder containing the object's location
+	 */
+	void remove(PointHolder holder) {
+		if (holder.cell != NO_CELL) {
+			cells[holder.cell].remove(holder.cellPos);
+			holder.cell = NO_CELL;
+		}
+	}
+
+	/**
+	 * Adds all the objects within the specified distance of the specified
+	 * point to the specified collection. "Within" includes the distance.
+	 *
+	 * @param point
+	 *            the point to measure the distance from
+	 * @param distance
+	 *            the distance
+	 * @param periodic
+	 *            whether or not the space wraps around its borders
+	 * @param result
+	 *            the collection to add the objects to
+	 */
+	public void findWithin(NdPoint point, double distance, boolean periodic,
+			Collection<? super T> result) {
+		if (!(distance >= 0)) return;
+		double distSq = distance * distance;
+
+		int dimCount = cellCounts.length;
+		int[] los = new int[dimCount];
+		int[] his = new int[dimCount];
+		for (int i = 0; i < dimCount; i++) {
+			double coord = point.getCoord(i) - mins[i];
+			double lo = Math.floor((coord - distance) / cellWidths[i]);
+			double hi = Math.floor((coord + distance) / cellWidths[i]);
+			if (periodic) {
+				if (hi - lo + 1 >= cellCounts[i]) {
+					lo = 0;
+					hi = cellCounts[i] - 1;
+				}
+			} else {
+				lo = Math.max(lo, 0);
+				hi = Math.min(hi, cellCounts[i] - 1);
+				if (lo > hi) {
+					// only the overflow cell can contain anything
+					dimCount = -1;
+					break;
+				}
+			}
+			los[i] = (int) lo;
+			his[i] = (int) hi;
+		}
+
+		if (dimCount != -1) {
+			// odometer style iteration over the cells in the bounding box
+			int[] counter = los.clone();
+			while (true) {
+				int index = 0;
+				for (int i = 0; i < dimCount; i++) {
+					int c = counter[i];
+					if (periodic) {
+						c %= cellCounts[i];
+						if (c < 0) c += cellCounts[i];
+					}
+					index += c * strides[i];
+				}
+				addWithin(cells[index], point, distSq, result);
+
+				int i = 0;
+				while (i < dimCount && counter[i] == his[i]) {
+					counter[i] = los[i];
+					i++;
+				}
+				if (i == dimCount) break;
+				counter[i]++;
+			}
+		}
+
+		addWithin(cells[overflow], point, distSq, result);
+	}
+
+	/**
+	 * Offers the objects nearest to the specified point to the specified
+	 * NearestNeighbors. The cells are searched in expanding rings around the
+	 * cell containing the point until no unsearched cell can contain an object
+	 * nearer than those already collected.
+	 *
+	 * @param point
+	 *            the point to measure the distance from
+	 * @param periodic
+	 *            whether or not the space wraps around its borders
+	 * @param nearest
+	 *            collects the nearest objects
+	 */
+	public void findNearest(final NdPoint point, boolean periodic,
+			final NearestNeighbors<T> nearest) {
+		addNearest(cells[overflow], point, nearest);
+
+		int dimCount = cellCounts.length;
+		int[] center = new int[dimCount];
+		double minWidth = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < dimCount; i++) {
+			int n = cellCounts[i];
+			double c = Math.floor((point.getCoord(i) - mins[i]) / cellWidths[i]);
+			if (periodic) {
+				c %= n;
+				if (c < 0) c += n;
+			} else {
+				c = Math.max(0, Math.min(c, n - 1));
+			}
+			center[i] = (int) c;
+			minWidth = Math.min(minWidth, cellWidths[i]);
+		}
+
+		final double ringWidth = minWidth;
+		new RingSearch() {
+			@Override
+			protected boolean visit(int[] cell) {
+				int index = 0;
+				for (int i = 0; i < cell.length; i++) {
+					index += cell[i] * strides[i];
+				}
+				addNearest(cells[index], point, nearest);
+				return true;
+			}
+
+			@Override
+			protected boolean isDone(int ring) {
+				// the cells in the next ring are at least this far from the point
+				double bound = ring * ringWidth;
+				return nearest.isFull() && nearest.getMaxDistanceSq() <= bound * bound;
+			}
+		}.search(cellCounts, center, periodic);
+	}
+
+	private void addNearest(Cell cell, NdPoint point, NearestNeighbors<T> nearest) {
+		if (cell == null) return;
+		for (int i = 0; i < cell.size; i++) {
+			nearest.offer(cell.objs[i], space.getDistanceSq(point, cell.holders[i].point));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void addWithin(Cell cell, NdPoint point, double distSq,
+			Collection<? super T> result) {
+		if (cell == null) return;
+		for (int i = 0; i < cell.size; i++) {
+			if (space.getDistanceSq(point, cell.holders[i].point) <= distSq) {
+				result.add((T) cell.objs[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,957 @@
+package repast.simphony.space.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import repast.simphony.random.RandomHelper;
+import repast.simphony.space.projection.DefaultProjection;
+import repast.simphony.space.projection.ProjectionEvent;
+
+/**
+ * A Network that stores its adjacency in compressed sparse row (CSR) arrays
+ * rather than in a graph of edge objects. Each node is given an int id and the
+ * neighbors of all the nodes are held in a single int array, sorted by id
+ * within each node's row, with an optional parallel float array of weights.
+ * A directed network also holds the reverse (predecessor) rows.
+ * <p/>
+ *
+ * Edges added and removed after the rows are built are recorded in a delta
+ * overlay: added edges are appended to small per node arrays and removed
+ * edges are marked in a bit set. When the overlay grows past a fraction of
+ * the rows, the rows are rebuilt from the current edges. {@link #compact()}
+ * can be used to rebuild them explicitly, for example after building the
+ * initial topology.
+ * <p/>
+ *
+ * RepastEdges are only created when they are asked for, e.g. by
+ * {@link #getEdges()} or when a listener is notified of an added edge. These
+ * edges are views of the network: their weights are read from and written to
+ * the network. Consequently this network only supports plain RepastEdges and
+ * edge weights are stored with float precision. As with the JUNG based
+ * networks, there is at most one edge between a source and a target, and
+ * adding another replaces it. Edges in the compacted rows are returned in node
+ * id order, edges added since then in the order they were added.
+ */
+public class CompactNetwork<T> extends DefaultProjection<T> implements Network<T> {
+
+  /**
+   * The minimum number of overlay changes before the rows are rebuilt.
+   */
+  public static final int MIN_COMPACTION_THRESHOLD = 1024;
+
+  private static final int[] EMPTY = new int[0];
+
+  /**
+   * Growable list of neighbor ids and weights.
+   */
+  private static class Adjacency {
+    int[] ids = new int[4];
+    float[] weights = new float[4];
+    int size;
+
+    void add(int id, float weight) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+        weights = Arrays.copyOf(weights, size * 2);
+      }
+      ids[size] = id;
+      weights[size++] = weight;
+    }
+
+    int indexOf(int id) {
+      for (int i = 0; i < size; i++) {
+        if (ids[i] == id) return i;
+      }
+      return -1;
+    }
+
+    // keeps the order of the remaining entries
+    void remove(int index) {
+      System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+      System.arraycopy(weights, index + 1, weights, index, size - index - 1);
+      size--;
+    }
+  }
+
+  /**
+   * A RepastEdge that reads and writes its weight through to the network. Two
+   * CompactEdges are equal if they are views of the same edge in the same
+   * network, so the edges returned by different calls and passed to listeners
+   * can be compared.
+   */
+  private static class CompactEdge<T> extends RepastEdge<T> {
+
+    private final CompactNetwork<T> network;
+
+    CompactEdge(CompactNetwork<T> network, T source, T target, double weight) {
+      super(source, target, network.directed, weight);
+      this.network = network;
+    }
+
+    @Override
+    public double getWeight() {
+      double weight = network.getWeight(source, target);
+      return Double.isNaN(weight) ? super.getWeight() : weight;
+    }
+
+    @Override
+    public void setWeight(double weight) {
+      super.setWeight(weight);
+      if (network != null) network.setWeight(source, target, weight);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == this) return true;
+      if (!(obj instanceof CompactEdge)) return false;
+      CompactEdge<?> other = (CompactEdge<?>) obj;
+      if (network != other.network) return false;
+      if (source.equals(other.source) && target.equals(other.target)) return true;
+      return !network.directed && source.equals(other.target) && target.equals(other.source);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = System.identityHashCode(network);
+      if (network.directed) return 31 * (31 * result + source.hashCode()) + target.hashCode();
+      // symmetric in source and target
+      return 31 * result + (source.hashCode() ^ target.hashCode());
+    }
+  }
+
+  protected final boolean directed;
+  private final EdgeCreator<RepastEdge<T>, T> creator = new DefaultEdgeCreator<T>();
+
+  private Map<T, Integer> ids = new HashMap<T, Integer>();
+  // indexed by id, null where a node has been removed
+  private ArrayList<T> nodes = new ArrayList<T>();
+
+  // the number of nodes that have rows
+  private int rowCount;
+  private int[] outOffsets = { 0 };
+  private int[] outIds = EMPTY;
+  // null if every weight is 1
+  private float[] outWeights;
+  private BitSet outRemoved = new BitSet();
+  private int[] outRemovedCounts = EMPTY;
+  private Adjacency[] outAdded = new Adjacency[16];
+
+  // predecessor rows, only used if directed
+  private int[] inOffsets = { 0 };
+  private int[] inIds = EMPTY;
+  private BitSet inRemoved = new BitSet();
+  private int[] inRemovedCounts = EMPTY;
+  private Adjacency[] inAdded = new Adjacency[16];
+
+  private int edgeCount;
+  // overlay changes since the last compaction
+  private int deltaCount;
+
+  /**
+   * Creates a CompactNetwork with the specified name.
+   *
+   * @param name
+   *          the name of the network
+   * @param directed
+   *          whether or not the network is directed
+   */
+  public CompactNetwork(String name, boolean directed) {
+    super(name);
+    this.directed = directed;
+  }
+
+  public boolean isDirected() {
+    return directed;
+  }
+
+  /**
+   * Gets the EdgeCreator used to create edges for this Network. This always
+   * creates plain RepastEdges.
+   *
+   * @return the edge creator of this network
+   */
+  public EdgeCreator<? extends RepastEdge<T>, T> getEdgeCreator() {
+    return creator;
+  }
+
+  /**
+   * Adds the specified node to this network. This does nothing if the node is
+   * already in the network.
+   *
+   * @param node
+   *          the node to add
+   */
+  public void addVertex(T node) {
+    if (ids.containsKey(node)) return;
+    getOrCreateId(node);
+    if (!listeners.isEmpty()) {
+      fireProjectionEvent(new ProjectionEvent<T>(this, node, ProjectionEvent.OBJECT_ADDED));
+    }
+  }
+
+  /**
+   * Removes the specified node and all its edges from this network.
+   *
+   * @param node
+   *          the node to remove
+   */
+  public void removeVertex(T node) {
+    Integer id = ids.get(node);
+    if (id == null) return;
+    int u = id;
+    List<RepastEdge<T>> removed = listeners.isEmpty() ? null : new ArrayList<RepastEdge<T>>();
+    for (int v : outNeighbors(u)) {
+      removeEdgeIds(u, v, removed);
+    }
+    if (directed) {
+      for (int v : inNeighbors(u)) {
+        removeEdgeIds(v, u, removed);
+      }
+    }
+
+    ids.remove(node);
+    nodes.set(u, null);
+    deltaCount++;
+
+    if (removed != null) {
+      fireProjectionEvent(new ProjectionEvent<T>(this, node, ProjectionEvent.OBJECT_REMOVED));
+      for (RepastEdge<T> edge : removed) {
+        fireProjectionEvent(new ProjectionEvent<T>(this, edge, ProjectionEvent.EDGE_REMOVED));
+      }
+    }
+    compactIfNeeded();
+  }
+
+  public RepastEdge<T> addEdge(T source, T target) {
+    return addEdge(source, target, 1);
+  }
+
+  public RepastEdge<T> addEdge(T source, T target, double weight) {
+    RepastEdge<T> edge = new CompactEdge<T>(this, source, target, weight);
+    link(source, target, weight, edge);
+    return edge;
+  }
+
+  /**
+   * Adds the specified edge to this Network. Only the edge's source, target
+   * and weight are stored, so {@link #getEdge(Object, Object)} will return a
+   * different edge object between the same source and target. Listeners are
+   * passed that edge rather than the specified one, so that the subject of
+   * the added event equals the subject of the event when the edge is removed.
+   *
+   * @param edge
+   *          the edge to add.
+   * @return the added edge.
+   */
+  public RepastEdge<T> addEdge(RepastEdge<T> edge) {
+    edge.setDirected(directed);
+    T source = edge.getSource();
+    T target = edge.getTarget();
+    double weight = edge.getWeight();
+    link(source, target, weight, edge instanceof CompactEdge ? edge : new CompactEdge<T>(this,
+        source, target, weight));
+    return edge;
+  }
+
+  /**
+   * Adds an edge from list.get(sources[i]) to list.get(targets[i]) for each i
+   * from 0 to count - 1. If this network has no edges and no listeners, the
+   * rows are built directly from the index arrays with a counting sort rather
+   * than by adding the edges one at a time. The edges have a weight of 1.
+   *
+   * @param list
+   *          the nodes that the source and target indices refer to
+   * @param sources
+   *          the index of the source of each edge
+   * @param targets
+   *          the index of the target of each edge
+   * @param count
+   *          the number of edges to add
+   */
+  public void addEdges(List<T> list, int[] sources, int[] targets, int count) {
+    if (edgeCount > 0 || !listeners.isEmpty()) {
+      for (int i = 0; i < count; i++) {
+        addEdge(list.get(sources[i]), list.get(targets[i]));
+      }
+      return;
+    }
+
+    // drop the ids of any removed nodes before adding new ones
+    if (ids.size() != nodes.size()) compact();
+    int[] idOf = new int[list.size()];
+    for (int i = 0; i < idOf.length; i++) {
+      idOf[i] = getOrCreateId(list.get(i));
+    }
+
+    int n = nodes.size();
+    int[] offsets = new int[n + 1];
+    for (int i = 0; i < count; i++) {
+      int u = idOf[sources[i]];
+      int v = idOf[targets[i]];
+      offsets[u + 1]++;
+      if (!directed && u != v) offsets[v + 1]++;
+    }
+    for (int i = 0; i < n; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    int[] next = Arrays.copyOf(offsets, n);
+    int[] rowIds = new int[offsets[n]];
+    for (int i = 0; i < count; i++) {
+      int u = idOf[sources[i]];
+      int v = idOf[targets[i]];
+      rowIds[next[u]++] = v;
+      if (!directed && u != v) rowIds[next[v]++] = u;
+    }
+
+    // sort each row and drop duplicate edges, shifting the rows down
+    int size = 0;
+    int loops = 0;
+    for (int u = 0; u < n; u++) {
+      int from = offsets[u];
+      int to = offsets[u + 1];
+      offsets[u] = size;
+      Arrays.sort(rowIds, from, to);
+      for (int slot = from; slot < to; slot++) {
+        int v = rowIds[slot];
+        if (size > offsets[u] && rowIds[size - 1] == v) continue;
+        rowIds[size++] = v;
+        if (v == u) loops++;
+      }
+    }
+    offsets[n] = size;
+
+    rowCount = n;
+    outOffsets = offsets;
+    outIds = size == rowIds.length ? rowIds : Arrays.copyOf(rowIds, size);
+    outWeights = null;
+    outRemoved = new BitSet();
+    outRemovedCounts = new int[n];
+    inRemoved = new BitSet();
+    inRemovedCounts = new int[n];
+    if (directed) {
+      buildInRows();
+    }
+    edgeCount = directed ? size : (size + loops) / 2;
+    deltaCount = 0;
+  }
+
+  private void link(T source, T target, double weight, RepastEdge<T> edge) {
+    int u = getOrCreateId(source);
+    int v = getOrCreateId(target);
+    if (hasEdge(u, v)) {
+      removeEdgeIds(u, v, null);
+      if (!listeners.isEmpty()) {
+        fireProjectionEvent(new ProjectionEvent<T>(this, new CompactEdge<T>(this, source, target,
+            weight), ProjectionEvent.EDGE_REMOVED));
+      }
+    }
+    float w = (float) weight;
+    insert(u, v, w, outIds, outOffsets, outRemoved, outRemovedCounts, outAdded, true);
+    if (directed) {
+      insert(v, u, w, inIds, inOffsets, inRemoved, inRemovedCounts, inAdded, false);
+    } else if (u != v) {
+      insert(v, u, w, outIds, outOffsets, outRemoved, outRemovedCounts, outAdded, true);
+    }
+    edgeCount++;
+
+    if (!listeners.isEmpty()) {
+      fireProjectionEvent(new ProjectionEvent<T>(this, edge, ProjectionEvent.EDGE_ADDED));
+    }
+    compactIfNeeded();
+  }
+
+  private void insert(int u, int v, float weight, int[] rowIds, int[] offsets, BitSet removed,
+      int[] removedCounts, Adjacency[] added, boolean weighted) {
+    int slot = rowSlot(u, v, rowIds, offsets);
+    if (slot >= 0) {
+      // reuse the removed slot in the row
+      removed.clear(slot);
+      removedCounts[u]--;
+      deltaCount--;
+      if (weighted) setSlotWeight(slot, weight);
+    } else {
+      Adjacency adj = added[u];
+      if (adj == null) {
+        adj = new Adjacency();
+        added[u] = adj;
+      }
+      adj.add(v, weight);
+      deltaCount++;
+    }
+  }
+
+  public RepastEdge<T> getEdge(T source, T target) {
+    Integer u = ids.get(source);
+    Integer v = ids.get(target);
+    if (u == null || v == null) return null;
+    double weight = weight(u, v);
+    if (Double.isNaN(weight)) return null;
+    return new CompactEdge<T>(this, source, target, weight);
+  }
+
+  public void removeEdge(RepastEdge<T> edge) {
+    Integer u = ids.get(edge.getSource());
+    Integer v = ids.get(edge.getTarget());
+    if (u == null || v == null || !hasEdge(u, v)) return;
+    removeEdgeIds(u, v, null);
+    if (!listeners.isEmpty()) {
+      fireProjectionEvent(new ProjectionEvent<T>(this, edge, ProjectionEvent.EDGE_REMOVED));
+    }
+    compactIfNeeded();
+  }
+
+  // removes the edge from u to v, adding a view of it to removed if removed is
+  // not null
+  private void removeEdgeIds(int u, int v, List<RepastEdge<T>> removed) {
+    if (removed != null) {
+      removed.add(new CompactEdge<T>(this, nodes.get(u), nodes.get(v), weight(u, v)));
+    }
+    delete(u, v, outIds, outOffsets, outRemoved, outRemovedCounts, outAdded);
+    if (directed) {
+      delete(v, u, inIds, inOffsets, inRemoved, inRemovedCounts, inAdded);
+    } else if (u != v) {
+      delete(v, u, outIds, outOffsets, outRemoved, outRemovedCounts, outAdded);
+    }
+    edgeCount--;
+  }
+
+  private void delete(int u, int v, int[] rowIds, int[] offsets, BitSet removed,
+      int[] removedCounts, Adjacency[] added) {
+    int slot = rowSlot(u, v, rowIds, offsets);
+    if (slot >= 0 && !removed.get(slot)) {
+      removed.set(slot);
+      removedCounts[u]++;
+      deltaCount++;
+    } else {
+      Adjacency adj = added[u];
+      adj.remove(adj.indexOf(v));
+      deltaCount--;
+    }
+  }
+
+  /**
+   * Returns whether or not this network contains an edge with the specified
+   * edge's source and target.
+   *
+   * @param edge
+   *          the edge to check
+   * @return true if the network contains the specified edge, otherwise false.
+   */
+  public boolean containsEdge(RepastEdge<T> edge) {
+    Integer u = ids.get(edge.getSource());
+    Integer v = ids.get(edge.getTarget());
+    return u != null && v != null && hasEdge(u, v);
+  }
+
+  public int size() {
+    return ids.size();
+  }
+
+  public int numEdges() {
+    return edgeCount;
+  }
+
+  public int getDegree() {
+    return edgeCount;
+  }
+
+  public void removeEdges() {
+    if (listeners.isEmpty()) {
+      clearEdges();
+    } else {
+      for (RepastEdge<T> edge : getEdges()) {
+        removeEdge(edge);
+      }
+    }
+  }
+
+  private void clearEdges() {
+    rowCount = 0;
+    outOffsets = new int[] { 0 };
+    outIds = EMPTY;
+    outWeights = null;
+    outRemoved = new BitSet();
+    outRemovedCounts = EMPTY;
+    outAdded = new Adjacency[Math.max(16, nodes.size())];
+    inOffsets = new int[] { 0 };
+    inIds = EMPTY;
+    inRemoved = new BitSet();
+    inRemovedCounts = EMPTY;
+    inAdded = new Adjacency[outAdded.length];
+    edgeCount = 0;
+    deltaCount = 0;
+  }
+
+  public Iterable<T> getPredecessors(T agent) {
+    Integer u = ids.get(agent);
+    if (u == null) return new ArrayList<T>();
+    return toNodes(directed ? inNeighbors(u) : outNeighbors(u));
+  }
+
+  public Iterable<T> getSuccessors(T agent) {
+    Integer u = ids.get(agent);
+    if (u == null) return new ArrayList<T>();
+    return toNodes(outNeighbors(u));
+  }
+
+  public Iterable<T> getAdjacent(T agent) {
+    Integer u = ids.get(agent);
+    if (u == null) return new ArrayList<T>();
+    if (!directed) return toNodes(outNeighbors(u));
+    LinkedHashSet<T> out = new LinkedHashSet<T>();
+    for (int v : inNeighbors(u)) {
+      out.add(nodes.get(v));
+    }
+    for (int v : outNeighbors(u)) {
+      out.add(nodes.get(v));
+    }
+    return out;
+  }
+
+  public T getRandomPredecessor(T agent) {
+    Integer u = ids.get(agent);
+    if (u == null) return null;
+    if (!directed) return getRandomSuccessor(agent);
+    int v = randomNeighbor(u, inIds, inOffsets, inRemoved, inRemovedCounts, inAdded);
+    return v < 0 ? null : nodes.get(v);
+  }
+
+  public T getRandomSuccessor(T agent) {
+    Integer u = ids.get(agent);
+    if (u == null) return null;
+    int v = randomNeighbor(u, outIds, outOffsets, outRemoved, outRemovedCounts, outAdded);
+    return v < 0 ? null : nodes.get(v);
+  }
+
+  public T getRandomAdjacent(T agent) {
+    Integer id = ids.get(agent);
+    if (id == null) return null;
+    if (!directed) return getRandomSuccessor(agent);
+
+    int u = id;
+    int outSize = rowSize(u, outOffsets, outAdded);
+    int inSize = rowSize(u, inOffsets, inAdded);
+    if (liveSize(u, outOffsets, outRemovedCounts, outAdded) == 0
+        && liveSize(u, inOffsets, inRemovedCounts, inAdded) == 0) return null;
+    // pick a slot uniformly, rejecting removed slots and predecessors that
+    // are also successors so that each adjacent node is equally likely
+    while (true) {
+      int index = RandomHelper.getUniform().nextIntFromTo(0, outSize + inSize - 1);
+      if (index < outSize) {
+        int v = slotNeighbor(u, index, outIds, outOffsets, outRemoved, outAdded);
+        if (v >= 0) return nodes.get(v);
+      } else {
+        int v = slotNeighbor(u, index - outSize, inIds, inOffsets, inRemoved, inAdded);
+        if (v >= 0 && !hasEdge(u, v)) return nodes.get(v);
+      }
+    }
+  }
+
+  private int randomNeighbor(int u, int[] rowIds, int[] offsets, BitSet removed,
+      int[] removedCounts, Adjacency[] added) {
+    if (liveSize(u, offsets, removedCounts, added) == 0) return -1;
+    int size = rowSize(u, offsets, added);
+    while (true) {
+      int v = slotNeighbor(u, RandomHelper.getUniform().nextIntFromTo(0, size - 1), rowIds,
+          offsets, removed, added);
+      if (v >= 0) return v;
+    }
+  }
+
+  // the neighbor in the specified slot of u's row and overlay, or -1 if the
+  // slot has been removed
+  private int slotNeighbor(int u, int index, int[] rowIds, int[] offsets, BitSet removed,
+      Adjacency[] added) {
+    if (u < rowCount) {
+      int from = offsets[u];
+      int baseSize = offsets[u + 1] - from;
+      if (index < baseSize) return removed.get(from + index) ? -1 : rowIds[from + index];
+      index -= baseSize;
+    }
+    return added[u].ids[index];
+  }
+
+  public boolean isPredecessor(T first, T second) {
+    Integer u = ids.get(first);
+    Integer v = ids.get(second);
+    return u != null && v != null && hasEdge(u, v);
+  }
+
+  public boolean isSuccessor(T first, T second) {
+    Integer u = ids.get(first);
+    Integer v = ids.get(second);
+    return u != null && v != null && hasEdge(v, u);
+  }
+
+  public boolean isAdjacent(T first, T second) {
+    Integer u = ids.get(first);
+    Integer v = ids.get(second);
+    return u != null && v != null && (hasEdge(u, v) || hasEdge(v, u));
+  }
+
+  public int getDegree(T agent) {
+    Integer id = ids.get(agent);
+    if (id == null) return 0;
+    int u = id;
+    int degree = liveSize(u, outOffsets, outRemovedCounts, outAdded);
+    if (directed) {
+      degree += liveSize(u, inOffsets, inRemovedCounts, inAdded);
+      // a self loop is a single incident edge
+      if (hasEdge(u, u)) degree--;
+    }
+    return degree;
+  }
+
+  public int getInDegree(T agent) {
+    Integer u = ids.get(agent);
+    if (u == null) return 0;
+    if (!directed) return getDegree(agent);
+    return liveSize(u, inOffsets, inRemovedCounts, inAdded);
+  }
+
+  public int getOutDegree(T agent) {
+    Integer u = ids.get(agent);
+    if (u == null) return 0;
+    return liveSize(u, outOffsets, outRemovedCounts, outAdded);
+  }
+
+  public Iterable<RepastEdge<T>> getInEdges(T agent) {
+    Integer id = ids.get(agent);
+    List<RepastEdge<T>> edges = new ArrayList<RepastEdge<T>>();
+    if (id == null) return edges;
+    int u = id;
+    if (!directed) return getEdges(agent);
+    for (int v : inNeighbors(u)) {
+      edges.add(new CompactEdge<T>(this, nodes.get(v), agent, weight(v, u)));
+    }
+    return edges;
+  }
+
+  public Iterable<RepastEdge<T>> getOutEdges(T agent) {
+    Integer id = ids.get(agent);
+    List<RepastEdge<T>> edges = new ArrayList<RepastEdge<T>>();
+    if (id == null) return edges;
+    int u = id;
+    for (int v : outNeighbors(u)) {
+      edges.add(new CompactEdge<T>(this, agent, nodes.get(v), weight(u, v)));
+    }
+    return edges;
+  }
+
+  public Iterable<RepastEdge<T>> getEdges(T agent) {
+    Integer id = ids.get(agent);
+    List<RepastEdge<T>> edges = new ArrayList<RepastEdge<T>>();
+    if (id == null) return edges;
+    int u = id;
+    for (int v : outNeighbors(u)) {
+      edges.add(new CompactEdge<T>(this, agent, nodes.get(v), weight(u, v)));
+    }
+    if (directed) {
+      for (int v : inNeighbors(u)) {
+        if (v != u) edges.add(new CompactEdge<T>(this, nodes.get(v), agent, weight(v, u)));
+      }
+    }
+    return edges;
+  }
+
+  public Iterable<RepastEdge<T>> getEdges() {
+    List<RepastEdge<T>> edges = new ArrayList<RepastEdge<T>>(edgeCount);
+    for (int u = 0, n = nodes.size(); u < n; u++) {
+      T source = nodes.get(u);
+      if (source == null) continue;
+      for (int v : outNeighbors(u)) {
+        // undirected edges are in the rows of both their nodes
+        if (directed || u <= v) {
+          edges.add(new CompactEdge<T>(this, source, nodes.get(v), weight(u, v)));
+        }
+      }
+    }
+    return edges;
+  }
+
+  public Iterable<T> getNodes() {
+    List<T> list = new ArrayList<T>(ids.size());
+    for (T node : nodes) {
+      if (node != null) list.add(node);
+    }
+    return list;
+  }
+
+  /**
+   * Gets the weight of the edge between the specified source and target.
+   *
+   * @param source
+   *          the source of the edge
+   * @param target
+   *          the target of the edge
+   * @return the weight of the edge between the specified source and target,
+   *         or NaN if there is no such edge.
+   */
+  public double getWeight(T source, T target) {
+    Integer u = ids.get(source);
+    Integer v = ids.get(target);
+    if (u == null || v == null) return Double.NaN;
+    return weight(u, v);
+  }
+
+  /**
+   * Sets the weight of the edge between the specified source and target. This
+   * does nothing if there is no such edge.
+   *
+   * @param source
+   *          the source of the edge
+   * @param target
+   *          the target of the edge
+   * @param weight
+   *          the new weight
+   */
+  public void setWeight(T source, T target, double weight) {
+    Integer u = ids.get(source);
+    Integer v = ids.get(target);
+    if (u == null || v == null || !hasEdge(u, v)) return;
+    setWeight((int) u, (int) v, (float) weight);
+    if (!directed && !u.equals(v)) setWeight((int) v, (int) u, (float) weight);
+  }
+
+  private void setWeight(int u, int v, float weight) {
+    int slot = rowSlot(u, v, outIds, outOffsets);
+    if (slot >= 0 && !outRemoved.get(slot)) {
+      setSlotWeight(slot, weight);
+    } else {
+      Adjacency adj = outAdded[u];
+      adj.weights[adj.indexOf(v)] = weight;
+    }
+  }
+
+  private void setSlotWeight(int slot, float weight) {
+    if (outWeights == null) {
+      if (weight == 1f) return;
+      outWeights = new float[outIds.length];
+      Arrays.fill(outWeights, 1f);
+    }
+    outWeights[slot] = weight;
+  }
+
+  /**
+   * Rebuilds the rows from the current edges, merging the overlay into the
+   * rows and dropping the ids of removed nodes. This is done automatically
+   * when the overlay becomes large relative to the rows, but can be called
+   * explicitly after a large number of changes.
+   */
+  public void compact() {
+    int oldCount = nodes.size();
+    int[] newIds = new int[oldCount];
+    ArrayList<T> newNodes = nodes;
+    Map<T, Integer> newIdMap = ids;
+    if (ids.size() == oldCount) {
+      // no nodes have been removed so the ids don't change
+      for (int u = 0; u < oldCount; u++) {
+        newIds[u] = u;
+      }
+    } else {
+      newNodes = new ArrayList<T>(ids.size());
+      newIdMap = new HashMap<T, Integer>((int) (ids.size() / .75f) + 1);
+      for (int u = 0; u < oldCount; u++) {
+        T node = nodes.get(u);
+        if (node == null) {
+          newIds[u] = -1;
+        } else {
+          newIds[u] = newNodes.size();
+          newIdMap.put(node, newNodes.size());
+          newNodes.add(node);
+        }
+      }
+    }
+
+    int n = newNodes.size();
+    int[] offsets = new int[n + 1];
+    for (int u = 0; u < oldCount; u++) {
+      if (newIds[u] >= 0) {
+        offsets[newIds[u] + 1] = liveSize(u, outOffsets, outRemovedCounts, outAdded);
+      }
+    }
+    for (int i = 0; i < n; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+
+    int[] rowIds = new int[offsets[n]];
+    float[] weights = new float[offsets[n]];
+    boolean weighted = false;
+    long[] tmp = new long[16];
+    for (int u = 0; u < oldCount; u++) {
+      if (newIds[u] < 0) continue;
+      // the live row entries are already sorted as renumbering keeps the
+      // order of the ids
+      int start = offsets[newIds[u]];
+      int baseSize = 0;
+      if (u < rowCount) {
+        for (int slot = outOffsets[u], end = outOffsets[u + 1]; slot < end; slot++) {
+          if (outRemoved.get(slot)) continue;
+          rowIds[start + baseSize] = newIds[outIds[slot]];
+          weights[start + baseSize++] = outWeights == null ? 1f : outWeights[slot];
+        }
+      }
+
+      // sort the overlay and merge it into the row from the back
+      Adjacency adj = outAdded[u];
+      int addedSize = adj == null ? 0 : adj.size;
+      for (int i = 0; i < addedSize; i++) {
+        tmp = pack(tmp, i, newIds[adj.ids[i]], adj.weights[i]);
+      }
+      Arrays.sort(tmp, 0, addedSize);
+      int i = baseSize - 1;
+      int j = addedSize - 1;
+      for (int k = start + baseSize + addedSize - 1; j >= 0; k--) {
+        int addedId = (int) (tmp[j] >>> 32);
+        if (i >= 0 && rowIds[start + i] > addedId) {
+          rowIds[k] = rowIds[start + i];
+          weights[k] = weights[start + i--];
+        } else {
+          rowIds[k] = addedId;
+          weights[k] = Float.intBitsToFloat((int) tmp[j--]);
+        }
+      }
+
+      if (!weighted) {
+        for (int k = start, end = start + baseSize + addedSize; k < end; k++) {
+          if (weights[k] != 1f) weighted = true;
+        }
+      }
+    }
+
+    ids = newIdMap;
+    nodes = newNodes;
+    rowCount = n;
+    outOffsets = offsets;
+    outIds = rowIds;
+    outWeights = weighted ? weights : null;
+    outRemoved = new BitSet();
+    outRemovedCounts = new int[n];
+    outAdded = new Adjacency[Math.max(16, n)];
+    inAdded = new Adjacency[outAdded.length];
+    inRemoved = new BitSet();
+    inRemovedCounts = new int[n];
+    if (directed) {
+      buildInRows();
+    }
+    deltaCount = 0;
+  }
+
+  private static long[] pack(long[] tmp, int index, int id, float weight) {
+    if (index == tmp.length) tmp = Arrays.copyOf(tmp, index * 2);
+    tmp[index] = ((long) id << 32) | (Float.floatToRawIntBits(weight) & 0xFFFFFFFFL);
+    return tmp;
+  }
+
+  // builds the predecessor rows from the successor rows. Sources are visited
+  // in id order so each row is sorted.
+  private void buildInRows() {
+    int n = rowCount;
+    int[] offsets = new int[n + 1];
+    for (int id : outIds) {
+      offsets[id + 1]++;
+    }
+    for (int i = 0; i < n; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    int[] next = Arrays.copyOf(offsets, n);
+    int[] rowIds = new int[outIds.length];
+    for (int u = 0; u < n; u++) {
+      for (int slot = outOffsets[u], end = outOffsets[u + 1]; slot < end; slot++) {
+        rowIds[next[outIds[slot]]++] = u;
+      }
+    }
+    inOffsets = offsets;
+    inIds = rowIds;
+  }
+
+  private void compactIfNeeded() {
+    if (deltaCount > Math.max(MIN_COMPACTION_THRESHOLD, (outIds.length + nodes.size()) / 2)) {
+      compact();
+    }
+  }
+
+  private int getOrCreateId(T node) {
+    Integer id = ids.get(node);
+    if (id != null) return id;
+    int u = nodes.size();
+    ids.put(node, u);
+    nodes.add(node);
+    if (u == outAdded.length) {
+      outAdded = Arrays.copyOf(outAdded, u * 2);
+      inAdded = Arrays.copyOf(inAdded, u * 2);
+    }
+    return u;
+  }
+
+  // the slot of v in u's row whether or not it has been removed, or -1
+  private int rowSlot(int u, int v, int[] rowIds, int[] offsets) {
+    if (u >= rowCount) return -1;
+    int slot = Arrays.binarySearch(rowIds, offsets[u], offsets[u + 1], v);
+    return slot < 0 ? -1 : slot;
+  }
+
+  private boolean hasEdge(int u, int v) {
+    int slot = rowSlot(u, v, outIds, outOffsets);
+    if (slot >= 0 && !outRemoved.get(slot)) return true;
+    Adjacency adj = outAdded[u];
+    return adj != null && adj.indexOf(v) >= 0;
+  }
+
+  // the weight of the edge from u to v, or NaN if there is no such edge
+  private double weight(int u, int v) {
+    int slot = rowSlot(u, v, outIds, outOffsets);
+    if (slot >= 0 && !outRemoved.get(slot)) return outWeights == null ? 1 : outWeights[slot];
+    Adjacency adj = outAdded[u];
+    int index = adj == null ? -1 : adj.indexOf(v);
+    return index < 0 ? Double.NaN : adj.weights[index];
+  }
+
+  // the number of slots in u's row and overlay including removed slots
+  private int rowSize(int u, int[] offsets, Adjacency[] added) {
+    int size = u < rowCount ? offsets[u + 1] - offsets[u] : 0;
+    return added[u] == null ? size : size + added[u].size;
+  }
+
+  private int liveSize(int u, int[] offsets, int[] removedCounts, Adjacency[] added) {
+    int size = rowSize(u, offsets, added);
+    return u < rowCount ? size - removedCounts[u] : size;
+  }
+
+  private int[] outNeighbors(int u) {
+    return neighbors(u, outIds, outOffsets, outRemoved, outRemovedCounts, outAdded);
+  }
+
+  private int[] inNeighbors(int u) {
+    return neighbors(u, inIds, inOffsets, inRemoved, inRemovedCounts, inAdded);
+  }
+
+  private int[] neighbors(int u, int[] rowIds, int[] offsets, BitSet removed,
+      int[] removedCounts, Adjacency[] added) {
+    int[] result = new int[liveSize(u, offsets, removedCounts, added)];
+    int index = 0;
+    if (u < rowCount) {
+      for (int slot = offsets[u], end = offsets[u + 1]; slot < end; slot++) {
+        if (!removed.get(slot)) result[index++] = rowIds[slot];
+      }
+    }
+    Adjacency adj = added[u];
+    if (adj != null) {
+      System.arraycopy(adj.ids, 0, result, index, adj.size);
+    }
+    return result;
+  }
+
+  private List<T> toNodes(int[] neighbors) {
+    List<T> list = new ArrayList<T>(neighbors.length);
+    for (int v : neighbors) {
+      list.add(nodes.get(v));
+    }
+    return list;
+  }
+}
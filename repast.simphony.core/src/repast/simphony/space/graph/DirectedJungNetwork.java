@@ -1,6 +1,5 @@
 package repast.simphony.space.graph;
 
-import edu.uci.ics.jung.graph.DirectedOrderedSparseMultigraph;
 import edu.uci.ics.jung.graph.util.EdgeType;
 
 
@@ -12,7 +11,7 @@ public class DirectedJungNetwork<T> extends JungNetwork<T> {
 
   public DirectedJungNetwork(String name, EdgeCreator<? extends RepastEdge<T>, T> creator) {
     super(name, creator);
-    graph = new DirectedOrderedSparseMultigraph<T, RepastEdge<T>>();
+    graph = new CountedDirectedGraph<T>();
   }
 
   @Override
@@ -1,22 +1,43 @@
 package repast.simphony.space.graph;
 
+import edu.uci.ics.jung.graph.DirectedOrderedSparseMultigraph;
 import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.UndirectedOrderedSparseMultigraph;
 import edu.uci.ics.jung.graph.util.EdgeType;
-import repast.simphony.random.RandomHelper;
+import edu.uci.ics.jung.graph.util.Pair;
 import repast.simphony.space.projection.DefaultProjection;
 import repast.simphony.space.projection.ProjectionEvent;
 import repast.simphony.space.projection.ProjectionPredicate;
 
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
-
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Network implemented on top of a JUNG graph. The edges are also indexed by
+ * node so that random neighbors can be picked in constant time, and
+ * getAdjacent returns a live view of the graph rather than a copy. As with
+ * getEdges, the network must not be modified while iterating over that view;
+ * getAdjacentCopy returns a copy that can be iterated while the network is
+ * modified. getSuccessors and getPredecessors return copies. The graphs
+ * created by the directed and undirected networks count their modifications,
+ * so the index is rebuilt when it is next used if the graph has been modified
+ * directly rather than through the network. A graph passed to
+ * {@link #setGraph(Graph)} is only checked for a change in its edge count, so
+ * such a graph should be modified through the network.
+ */
 public abstract class JungNetwork<T> extends DefaultProjection<T> implements
 		Network<T> {
 
 	protected Graph<T, RepastEdge<T>> graph;
-	private ArrayList<T> tmpRandomList = new ArrayList<T>();
+  // created lazily, see neighbors()
+  private NeighborIndex<T> index;
+  // the graph's modification count when the index was last in sync with it
+  private int indexModCount;
   protected EdgeCreator<? extends RepastEdge<T>, T> creator;
 
   public JungNetwork(String name) {
@@ -48,8 +69,39 @@ public abstract class JungNetwork<T> extends DefaultProjection<T> implements
 
   public void setGraph(Graph<T, RepastEdge<T>> graph) {
 		this.graph = graph;
+		index = null;
 	}
 
+  // gets the graph's modification count. Graphs that don't count their
+  // modifications fall back to their edge count.
+  private int modCount() {
+    if (graph instanceof CountedGraph) return ((CountedGraph) graph).getModCount();
+    return graph.getEdgeCount();
+  }
+
+  // gets the neighbor index, rebuilding it if the graph has been replaced
+  // or modified directly
+  private NeighborIndex<T> neighbors() {
+    int modCount = modCount();
+    if (index == null || indexModCount != modCount) {
+      index = new NeighborIndex<T>(isDirected(), graph);
+      indexModCount = modCount;
+    }
+    return index;
+  }
+
+  // gets the index if it is in sync with the graph, otherwise null
+  private NeighborIndex<T> syncedIndex() {
+    if (index != null && indexModCount == modCount()) return index;
+    index = null;
+    return null;
+  }
+
+  // records that the index has been updated with the graph's last change
+  private void indexSynced() {
+    indexModCount = modCount();
+  }
+
 	public Graph<T, RepastEdge<T>> getGraph() {
 		return graph;
 	}
@@ -58,11 +110,29 @@ public abstract class JungNetwork<T> extends DefaultProjection<T> implements
 		return predicate.evaluate(this);
 	}
 
+	/**
+	 * Gets the nodes adjacent to the specified node. The predecessors come
+	 * first followed by any successors that are not also predecessors. The
+	 * returned collection is an unmodifiable live view of the network, so the
+	 * network must not be modified while iterating over it.
+	 */
 	public Iterable<T> getAdjacent(T agent) {
-		Collection<T> out = new LinkedHashSet<T>();
-		out.addAll(graph.getPredecessors(agent));
-		out.addAll(graph.getSuccessors(agent));
-		return out;
+		return adjacent(agent);
+	}
+
+	/**
+	 * Gets a copy of the nodes adjacent to the specified node in the order
+	 * that {@link #getAdjacent(Object)} returns them. The network can be
+	 * modified while iterating over the copy.
+	 */
+	public List<T> getAdjacentCopy(T agent) {
+		return new ArrayList<T>(adjacent(agent));
+	}
+
+	private Collection<T> adjacent(T agent) {
+		if (!graph.containsVertex(agent)) return Collections.emptyList();
+		if (!isDirected()) return new OppositeView<T>(agent, graph.getIncidentEdges(agent));
+		return new AdjacentView(agent);
 	}
 
 	public int getDegree() {
@@ -106,36 +176,15 @@ public abstract class JungNetwork<T> extends DefaultProjection<T> implements
 	}
 
 	public T getRandomAdjacent(T agent) {
-		int size = graph.getNeighbors(agent).size();
-		if (size == 0) {
-			return null;
-		}
-		int index = RandomHelper.getUniform().nextIntFromTo(0, size - 1);
-		tmpRandomList.clear();
-		tmpRandomList.addAll(graph.getNeighbors(agent));
-		return tmpRandomList.get(index);
+		return neighbors().getRandomAdjacent(agent);
 	}
 
 	public T getRandomPredecessor(T agent) {
-		int size = graph.getPredecessors(agent).size();
-		if (size == 0) {
-			return null;
-		}
-		int index = RandomHelper.getUniform().nextIntFromTo(0, size - 1);
-		tmpRandomList.clear();
-		tmpRandomList.addAll(graph.getPredecessors(agent));
-		return tmpRandomList.get(index);
+		return neighbors().getRandomPredecessor(agent);
 	}
 
 	public T getRandomSuccessor(T agent) {
-		int size = graph.getSuccessors(agent).size();
-		if (size == 0) {
-			return null;
-		}
-		int index = RandomHelper.getUniform().nextIntFromTo(0, size - 1);
-		tmpRandomList.clear();
-		tmpRandomList.addAll(graph.getSuccessors(agent));
-		return tmpRandomList.get(index);
+		return neighbors().getRandomSuccessor(agent);
 	}
 
 	public Iterable<T> getSuccessors(T agent) {
@@ -160,7 +209,12 @@ public abstract class JungNetwork<T> extends DefaultProjection<T> implements
 	}
 
 	public void removeEdge(RepastEdge<T> edge) {
+	        NeighborIndex<T> synced = syncedIndex();
 	        if (graph.removeEdge(edge)) {
+	          if (synced != null) {
+	            synced.remove(edge);
+	            indexSynced();
+	          }
 	          fireProjectionEvent(new ProjectionEvent<T>(this, edge,
     				ProjectionEvent.EDGE_REMOVED));
 	        }
@@ -179,7 +233,12 @@ public abstract class JungNetwork<T> extends DefaultProjection<T> implements
   public RepastEdge<T> addEdge(RepastEdge<T> edge) {
     RepastEdge<T> oldEdge = graph.findEdge(edge.getSource(), edge.getTarget());
     if (oldEdge != null) removeEdge(oldEdge);
+    NeighborIndex<T> synced = syncedIndex();
     graph.addEdge(edge, edge.getSource(), edge.getTarget());
+    if (synced != null) {
+      synced.add(edge);
+      indexSynced();
+    }
 		fireProjectionEvent(new ProjectionEvent<T>(this, edge,
 				ProjectionEvent.EDGE_ADDED));
 		return edge;
@@ -188,7 +247,12 @@ public abstract class JungNetwork<T> extends DefaultProjection<T> implements
   public RepastEdge<T> addEdge(RepastEdge<T> edge, EdgeType type) {
 	RepastEdge<T> oldEdge = graph.findEdge(edge.getSource(), edge.getTarget());
     if (oldEdge != null) removeEdge(oldEdge);
+    NeighborIndex<T> synced = syncedIndex();
     graph.addEdge(edge, edge.getSource(), edge.getTarget(), type);
+    if (synced != null) {
+      synced.add(edge);
+      indexSynced();
+    }
 		fireProjectionEvent(new ProjectionEvent<T>(this, edge,
 				ProjectionEvent.EDGE_ADDED));
 		return edge;
@@ -198,6 +262,17 @@ public abstract class JungNetwork<T> extends DefaultProjection<T> implements
 		return addEdge(source, target, 1);
 	}
 
+	/**
+	 * Adds the edges one at a time. The neighbor index is not updated while
+	 * the edges are added but rebuilt when it is next needed.
+	 */
+	public void addEdges(List<T> nodes, int[] sources, int[] targets, int count) {
+		index = null;
+		for (int i = 0; i < count; i++) {
+			addEdge(nodes.get(sources[i]), nodes.get(targets[i]));
+		}
+	}
+
 	public RepastEdge<T> getEdge(T source, T target) {
 		return graph.findEdge(source, target);
 	}
@@ -207,7 +282,10 @@ public abstract class JungNetwork<T> extends DefaultProjection<T> implements
 	}
 
 	public void addVertex(T vertex) {
+		NeighborIndex<T> synced = syncedIndex();
 		graph.addVertex(vertex);
+		// the index only has entries for nodes with edges
+		if (synced != null) indexSynced();
 		fireProjectionEvent(new ProjectionEvent<T>(this, vertex,
 				ProjectionEvent.OBJECT_ADDED));
 	}
@@ -219,7 +297,14 @@ public abstract class JungNetwork<T> extends DefaultProjection<T> implements
     for (RepastEdge<T> edge : edges)
     	tempEdges.add(edge);
       
+		NeighborIndex<T> synced = syncedIndex();
 		graph.removeVertex(vertex);
+		if (synced != null) {
+			for (RepastEdge<T> edge : tempEdges)
+				synced.remove(edge);
+			synced.removeNode(vertex);
+			indexSynced();
+		}
 		
 		fireProjectionEvent(new ProjectionEvent<T>(this, vertex,ProjectionEvent.OBJECT_REMOVED));
 		
@@ -234,4 +319,179 @@ public abstract class JungNetwork<T> extends DefaultProjection<T> implements
 			 ie=this.getEdges().iterator();
 		 }
 	}
-}
\ No newline at end of file
+
+  // a live view of the nodes at the other end of a collection of edges
+  private static class OppositeView<T> extends AbstractCollection<T> {
+
+    private final T agent;
+    private final Collection<RepastEdge<T>> edges;
+
+    public OppositeView(T agent, Collection<RepastEdge<T>> edges) {
+      this.agent = agent;
+      this.edges = edges;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      final Iterator<RepastEdge<T>> iter = edges.iterator();
+      return new Iterator<T>() {
+        public boolean hasNext() {
+          return iter.hasNext();
+        }
+
+        public T next() {
+          RepastEdge<T> edge = iter.next();
+          T source = edge.getSource();
+          return source.equals(agent) ? edge.getTarget() : source;
+        }
+
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return edges.size();
+    }
+  }
+
+  // a live view of the predecessors of a node in a directed network followed
+  // by the successors that are not also predecessors
+  private class AdjacentView extends AbstractCollection<T> {
+
+    private final T agent;
+    private final Collection<RepastEdge<T>> inEdges, outEdges;
+
+    public AdjacentView(T agent) {
+      this.agent = agent;
+      inEdges = graph.getInEdges(agent);
+      outEdges = graph.getOutEdges(agent);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      final Iterator<RepastEdge<T>> in = inEdges.iterator();
+      final Iterator<RepastEdge<T>> out = outEdges.iterator();
+      final NeighborIndex<T> neighbors = neighbors();
+      return new Iterator<T>() {
+        private T next = advance();
+
+        private T advance() {
+          if (in.hasNext()) return in.next().getSource();
+          while (out.hasNext()) {
+            T target = out.next().getTarget();
+            if (!neighbors.hasEdge(target, agent)) return target;
+          }
+          return null;
+        }
+
+        public boolean hasNext() {
+          return next != null;
+        }
+
+        public T next() {
+          if (next == null) throw new NoSuchElementException();
+          T current = next;
+          next = advance();
+          return current;
+        }
+
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      int size = 0;
+      for (Iterator<T> iter = iterator(); iter.hasNext(); iter.next()) {
+        size++;
+      }
+      return size;
+    }
+  }
+
+  // a graph that counts its modifications, so that the network can tell
+  // when its neighbor index is stale
+  interface CountedGraph {
+    int getModCount();
+  }
+
+  // all of JUNG's addEdge variants delegate to addEdge(E, Pair, EdgeType)
+  static class CountedDirectedGraph<T> extends
+      DirectedOrderedSparseMultigraph<T, RepastEdge<T>> implements CountedGraph {
+
+    private static final long serialVersionUID = 1L;
+
+    private int modCount;
+
+    public int getModCount() {
+      return modCount;
+    }
+
+    @Override
+    public boolean addVertex(T vertex) {
+      modCount++;
+      return super.addVertex(vertex);
+    }
+
+    @Override
+    public boolean removeVertex(T vertex) {
+      modCount++;
+      return super.removeVertex(vertex);
+    }
+
+    @Override
+    public boolean addEdge(RepastEdge<T> edge, Pair<? extends T> endpoints,
+        EdgeType edgeType) {
+      modCount++;
+      return super.addEdge(edge, endpoints, edgeType);
+    }
+
+    @Override
+    public boolean removeEdge(RepastEdge<T> edge) {
+      modCount++;
+      return super.removeEdge(edge);
+    }
+  }
+
+  static class CountedUndirectedGraph<T> extends
+      UndirectedOrderedSparseMultigraph<T, RepastEdge<T>> implements CountedGraph {
+
+    private static final long serialVersionUID = 1L;
+
+    private int modCount;
+
+    public int getModCount() {
+      return modCount;
+    }
+
+    @Override
+    public boolean addVertex(T vertex) {
+      modCount++;
+      return super.addVertex(vertex);
+    }
+
+    @Override
+    public boolean removeVertex(T vertex) {
+      modCount++;
+      return super.removeVertex(vertex);
+    }
+
+    @Override
+    public boolean addEdge(RepastEdge<T> edge, Pair<? extends T> endpoints,
+        EdgeType edgeType) {
+      modCount++;
+      return super.addEdge(edge, endpoints, edgeType);
+    }
+
+    @Override
+    public boolean removeEdge(RepastEdge<T> edge) {
+      modCount++;
+      return super.removeEdge(edge);
+    }
+  }
+}
@@ -0,0 +1,174 @@
+package repast.simphony.space.graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import edu.uci.ics.jung.graph.Graph;
+import repast.simphony.random.RandomHelper;
+
+/**
+ * Indexes the edges of a {@link JungNetwork} by node so that random neighbors
+ * can be picked in constant time. Each node has an array list of its out edges
+ * and, if the network is directed, of its in edges. The position of each edge
+ * in those lists is recorded so that an edge can be removed by swapping the
+ * last edge in a list into its place.
+ */
+class NeighborIndex<T> {
+
+  private static class Entry<T> {
+    // the incident edges if the network is undirected
+    ArrayList<RepastEdge<T>> out = new ArrayList<RepastEdge<T>>();
+    // null if the network is undirected
+    ArrayList<RepastEdge<T>> in;
+  }
+
+  private final boolean directed;
+  private final Map<T, Entry<T>> entries = new HashMap<T, Entry<T>>();
+  // the position of each edge in its source's out list and in its target's in
+  // (or incident) list. The second position is -1 for an undirected self loop.
+  private final Map<RepastEdge<T>, int[]> positions = new IdentityHashMap<RepastEdge<T>, int[]>();
+
+  public NeighborIndex(boolean directed) {
+    this.directed = directed;
+  }
+
+  /**
+   * Creates an index of the edges in the specified graph.
+   */
+  public NeighborIndex(boolean directed, Graph<T, RepastEdge<T>> graph) {
+    this(directed);
+    for (RepastEdge<T> edge : graph.getEdges()) {
+      add(edge);
+    }
+  }
+
+  private Entry<T> entry(T node) {
+    Entry<T> entry = entries.get(node);
+    if (entry == null) {
+      entry = new Entry<T>();
+      if (directed) entry.in = new ArrayList<RepastEdge<T>>();
+      entries.put(node, entry);
+    }
+    return entry;
+  }
+
+  public void add(RepastEdge<T> edge) {
+    if (positions.containsKey(edge)) return;
+    T source = edge.getSource();
+    T target = edge.getTarget();
+    int[] pos = new int[2];
+    Entry<T> sourceEntry = entry(source);
+    pos[0] = sourceEntry.out.size();
+    sourceEntry.out.add(edge);
+    if (directed) {
+      Entry<T> targetEntry = entry(target);
+      pos[1] = targetEntry.in.size();
+      targetEntry.in.add(edge);
+    } else if (!source.equals(target)) {
+      Entry<T> targetEntry = entry(target);
+      pos[1] = targetEntry.out.size();
+      targetEntry.out.add(edge);
+    } else {
+      pos[1] = -1;
+    }
+    positions.put(edge, pos);
+  }
+
+  public void remove(RepastEdge<T> edge) {
+    int[] pos = positions.remove(edge);
+    if (pos == null) return;
+    T source = edge.getSource();
+    T target = edge.getTarget();
+    removeAt(entries.get(source).out, pos[0], source, true);
+    if (directed) {
+      removeAt(entries.get(target).in, pos[1], target, false);
+    } else if (pos[1] != -1) {
+      removeAt(entries.get(target).out, pos[1], target, true);
+    }
+  }
+
+  // removes the edge at index from the list of node by moving the last edge
+  // in the list into its place
+  private void removeAt(ArrayList<RepastEdge<T>> list, int index, T node, boolean out) {
+    RepastEdge<T> moved = list.remove(list.size() - 1);
+    if (index == list.size()) return;
+    list.set(index, moved);
+    int[] pos = positions.get(moved);
+    if (directed) {
+      pos[out ? 0 : 1] = index;
+    } else {
+      pos[moved.getSource().equals(node) ? 0 : 1] = index;
+    }
+  }
+
+  /**
+   * Removes the specified node from this index. Any edges incident to the node
+   * should be removed first.
+   */
+  public void removeNode(T node) {
+    entries.remove(node);
+  }
+
+  public T getRandomSuccessor(T node) {
+    Entry<T> entry = entries.get(node);
+    if (entry == null || entry.out.isEmpty()) return null;
+    return opposite(node, entry.out.get(randomIndex(entry.out.size())));
+  }
+
+  public T getRandomPredecessor(T node) {
+    if (!directed) return getRandomSuccessor(node);
+    Entry<T> entry = entries.get(node);
+    if (entry == null || entry.in.isEmpty()) return null;
+    return entry.in.get(randomIndex(entry.in.size())).getSource();
+  }
+
+  public T getRandomAdjacent(T node) {
+    if (!directed) return getRandomSuccessor(node);
+    Entry<T> entry = entries.get(node);
+    if (entry == null) return null;
+    int outSize = entry.out.size();
+    int inSize = entry.in.size();
+    if (outSize + inSize == 0) return null;
+    // pick an edge uniformly, rejecting predecessors that are also successors
+    // so that each adjacent node is equally likely
+    while (true) {
+      int index = randomIndex(outSize + inSize);
+      if (index < outSize) return entry.out.get(index).getTarget();
+      T source = entry.in.get(index - outSize).getSource();
+      if (!hasEdge(node, source)) return source;
+    }
+  }
+
+  /**
+   * Gets whether or not there is an edge from source to target. For a directed
+   * network this searches the shorter of the source's out edges and the
+   * target's in edges.
+   */
+  public boolean hasEdge(T source, T target) {
+    Entry<T> sourceEntry = entries.get(source);
+    Entry<T> targetEntry = entries.get(target);
+    if (sourceEntry == null || targetEntry == null) return false;
+    ArrayList<RepastEdge<T>> targetEdges = directed ? targetEntry.in : targetEntry.out;
+    if (sourceEntry.out.size() <= targetEdges.size()) {
+      for (RepastEdge<T> edge : sourceEntry.out) {
+        if (opposite(source, edge).equals(target)) return true;
+      }
+    } else {
+      for (RepastEdge<T> edge : targetEdges) {
+        if (opposite(target, edge).equals(source)) return true;
+      }
+    }
+    return false;
+  }
+
+  private T opposite(T node, RepastEdge<T> edge) {
+    T source = edge.getSource();
+    return source.equals(node) ? edge.getTarget() : source;
+  }
+
+  private int randomIndex(int size) {
+    return RandomHelper.getUniform().nextIntFromTo(0, size - 1);
+  }
+}
@@ -1,5 +1,7 @@
 package repast.simphony.space.graph;
 
+import java.util.List;
+
 import repast.simphony.space.projection.Projection;
 
 /**
@@ -58,6 +60,24 @@ public interface Network<T> extends Projection<T> {
    */
   RepastEdge<T> addEdge(RepastEdge<T> edge);
 
+  /**
+   * Adds an edge from nodes.get(sources[i]) to nodes.get(targets[i]) for
+   * each i from 0 to count - 1. This has the same result as calling
+   * {@link #addEdge(Object, Object) addEdge} for each pair, which is what the
+   * default implementation does, but implementations may add the edges in
+   * bulk. It is intended for network generators that work with node indices.
+   *
+   * @param nodes the nodes that the source and target indices refer to
+   * @param sources the index of the source of each edge
+   * @param targets the index of the target of each edge
+   * @param count the number of edges to add
+   */
+  default void addEdges(List<T> nodes, int[] sources, int[] targets, int count) {
+    for (int i = 0; i < count; i++) {
+      addEdge(nodes.get(sources[i]), nodes.get(targets[i]));
+    }
+  }
+
   /**
    * Retrieves the edge between the specified source and target. If multiple
    * edges exist between these two objects, the first found will be returned.
@@ -0,0 +1,663 @@
+package repast.simphony.space.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import repast.simphony.random.RandomHelper;
+import repast.simphony.space.projection.ProjectionEvent;
+import repast.simphony.space.projection.ProjectionListener;
+
+/**
+ * Computes structural metrics of a Network in parallel without any GUI: the
+ * degree distribution, clustering coefficients, sampled betweenness
+ * centrality and connected components. The network is copied into int
+ * adjacency arrays the first time a metric is asked for, and the metrics are
+ * computed on that copy on a ForkJoinPool. Both the copy and the computed
+ * metrics are kept until the network changes, so several metrics can be
+ * recorded each tick (for example by a data source) for the cost of one copy.
+ * <p/>
+ *
+ * Clustering and components treat a directed network as undirected, i.e.
+ * components are weakly connected components. Betweenness follows the
+ * direction of the edges and ignores edge weights.
+ */
+public class NetworkMetrics<T> implements ProjectionListener<T> {
+
+  // ranges smaller than this are not split across tasks
+  private static final int MIN_RANGE = 1 << 12;
+
+  private interface Range {
+    void run(int from, int to);
+  }
+
+  private final Network<T> network;
+  private ForkJoinPool pool;
+
+  // the snapshot, null when the network has changed
+  private List<T> nodes;
+  private Map<T, Integer> ids;
+  private int[] sources, targets;
+  // undirected adjacency without self loops or duplicates
+  private int[] adjOffsets, adjIds;
+  // successors, only used if the network is directed
+  private int[] outOffsets, outIds;
+
+  // computed metrics, null until asked for
+  private long[] degreeDistribution;
+  private double[] clustering;
+  private int[] components;
+  private int componentCount, largestComponentSize;
+
+  /**
+   * Creates a NetworkMetrics for the specified network that runs on the
+   * common ForkJoinPool.
+   *
+   * @param network
+   *          the network to compute the metrics of
+   */
+  public NetworkMetrics(Network<T> network) {
+    this(network, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates a NetworkMetrics for the specified network that runs on the
+   * specified pool.
+   *
+   * @param network
+   *          the network to compute the metrics of
+   * @param pool
+   *          the pool to compute the metrics on
+   */
+  public NetworkMetrics(Network<T> network, ForkJoinPool pool) {
+    this.network = network;
+    this.pool = pool;
+    network.addProjectionListener(this);
+  }
+
+  /**
+   * Gets the network whose metrics this computes.
+   *
+   * @return the network whose metrics this computes.
+   */
+  public Network<T> getNetwork() {
+    return network;
+  }
+
+  /**
+   * Sets the pool that the metrics are computed on.
+   *
+   * @param pool
+   *          the pool that the metrics are computed on
+   */
+  public void setPool(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Discards the snapshot and the computed metrics when the network changes.
+   */
+  public void projectionEventOccurred(ProjectionEvent<T> evt) {
+    if (evt.getType() != ProjectionEvent.OBJECT_MOVED) {
+      nodes = null;
+    }
+  }
+
+  /**
+   * Stops this from listening to the network.
+   */
+  public void dispose() {
+    network.removeProjectionListener(this);
+  }
+
+  private void snapshot() {
+    if (nodes != null) return;
+    nodes = new ArrayList<T>();
+    ids = new HashMap<T, Integer>();
+    for (T node : network.getNodes()) {
+      ids.put(node, nodes.size());
+      nodes.add(node);
+    }
+    int n = nodes.size();
+
+    int m = network.numEdges();
+    sources = new int[m];
+    targets = new int[m];
+    int count = 0;
+    for (RepastEdge<T> edge : network.getEdges()) {
+      if (count == m) {
+        sources = Arrays.copyOf(sources, m * 2 + 1);
+        targets = Arrays.copyOf(targets, sources.length);
+        m = sources.length;
+      }
+      sources[count] = ids.get(edge.getSource());
+      targets[count++] = ids.get(edge.getTarget());
+    }
+    if (count != sources.length) {
+      sources = Arrays.copyOf(sources, count);
+      targets = Arrays.copyOf(targets, count);
+    }
+
+    // the adjacency holds each edge in both directions, then each row is
+    // sorted and duplicates are dropped
+    adjOffsets = new int[n + 1];
+    for (int i = 0; i < count; i++) {
+      if (sources[i] == targets[i]) continue;
+      adjOffsets[sources[i] + 1]++;
+      adjOffsets[targets[i] + 1]++;
+    }
+    for (int i = 0; i < n; i++) {
+      adjOffsets[i + 1] += adjOffsets[i];
+    }
+    int[] next = Arrays.copyOf(adjOffsets, n);
+    final int[] adj = new int[adjOffsets[n]];
+    for (int i = 0; i < count; i++) {
+      if (sources[i] == targets[i]) continue;
+      adj[next[sources[i]]++] = targets[i];
+      adj[next[targets[i]]++] = sources[i];
+    }
+    final int[] offsets = adjOffsets;
+    final int[] sizes = new int[n];
+    run(n, new Range() {
+      public void run(int from, int to) {
+        for (int u = from; u < to; u++) {
+          int start = offsets[u];
+          int end = offsets[u + 1];
+          Arrays.sort(adj, start, end);
+          int size = 0;
+          for (int slot = start; slot < end; slot++) {
+            if (size == 0 || adj[start + size - 1] != adj[slot]) adj[start + size++] = adj[slot];
+          }
+          sizes[u] = size;
+        }
+      }
+    });
+    adjIds = new int[sum(sizes)];
+    int[] newOffsets = new int[n + 1];
+    for (int u = 0; u < n; u++) {
+      newOffsets[u + 1] = newOffsets[u] + sizes[u];
+      System.arraycopy(adj, offsets[u], adjIds, newOffsets[u], sizes[u]);
+    }
+    adjOffsets = newOffsets;
+
+    if (network.isDirected()) {
+      outOffsets = new int[n + 1];
+      for (int i = 0; i < count; i++) {
+        outOffsets[sources[i] + 1]++;
+      }
+      for (int i = 0; i < n; i++) {
+        outOffsets[i + 1] += outOffsets[i];
+      }
+      next = Arrays.copyOf(outOffsets, n);
+      outIds = new int[count];
+      for (int i = 0; i < count; i++) {
+        outIds[next[sources[i]]++] = targets[i];
+      }
+    } else {
+      outOffsets = adjOffsets;
+      outIds = adjIds;
+    }
+
+    degreeDistribution = null;
+    clustering = null;
+    components = null;
+  }
+
+  private static int sum(int[] array) {
+    int sum = 0;
+    for (int value : array) {
+      sum += value;
+    }
+    return sum;
+  }
+
+  // runs the range [0, count) split into tasks on the pool
+  private void run(int count, final Range range) {
+    int tasks = Math.min(pool.getParallelism() * 4, (count + MIN_RANGE - 1) / MIN_RANGE);
+    if (tasks <= 1) {
+      range.run(0, count);
+      return;
+    }
+    final List<RecursiveAction> actions = new ArrayList<RecursiveAction>(tasks);
+    for (int i = 0; i < tasks; i++) {
+      final int from = (int) ((long) count * i / tasks);
+      final int to = (int) ((long) count * (i + 1) / tasks);
+      actions.add(new RecursiveAction() {
+        protected void compute() {
+          range.run(from, to);
+        }
+      });
+    }
+    invoke(actions);
+  }
+
+  // runs the actions on the pool, or directly in the current pool if this is
+  // already running in one
+  private void invoke(final List<RecursiveAction> actions) {
+    if (ForkJoinTask.inForkJoinPool()) {
+      ForkJoinTask.invokeAll(actions);
+    } else {
+      pool.invoke(new RecursiveAction() {
+        protected void compute() {
+          invokeAll(actions);
+        }
+      });
+    }
+  }
+
+  private int id(T node) {
+    Integer id = ids.get(node);
+    if (id == null) throw new IllegalArgumentException("Node is not in the network: " + node);
+    return id;
+  }
+
+  /**
+   * Gets the number of nodes in the network.
+   *
+   * @return the number of nodes in the network.
+   */
+  public int getNodeCount() {
+    snapshot();
+    return nodes.size();
+  }
+
+  /**
+   * Gets the number of edges in the network.
+   *
+   * @return the number of edges in the network.
+   */
+  public int getEdgeCount() {
+    snapshot();
+    return sources.length;
+  }
+
+  /**
+   * Gets the degree distribution of the network. Element k of the returned
+   * array is the number of nodes with a degree of k, where a node's degree is
+   * the number of edges incident to it as with {@link Network#getDegree(Object)}.
+   *
+   * @return the degree distribution of the network.
+   */
+  public long[] getDegreeDistribution() {
+    snapshot();
+    if (degreeDistribution == null) {
+      int n = nodes.size();
+      int[] degrees = new int[n];
+      for (int i = 0; i < sources.length; i++) {
+        degrees[sources[i]]++;
+        if (sources[i] != targets[i]) degrees[targets[i]]++;
+      }
+      int max = 0;
+      for (int degree : degrees) {
+        max = Math.max(max, degree);
+      }
+      degreeDistribution = new long[n == 0 ? 0 : max + 1];
+      for (int degree : degrees) {
+        degreeDistribution[degree]++;
+      }
+    }
+    return degreeDistribution.clone();
+  }
+
+  /**
+   * Gets the mean degree of the nodes in the network.
+   *
+   * @return the mean degree of the nodes in the network, or 0 if the network
+   *         has no nodes.
+   */
+  public double getMeanDegree() {
+    long[] distribution = getDegreeDistribution();
+    long count = 0;
+    double sum = 0;
+    for (int k = 0; k < distribution.length; k++) {
+      count += distribution[k];
+      sum += (double) k * distribution[k];
+    }
+    return count == 0 ? 0 : sum / count;
+  }
+
+  private void computeClustering() {
+    snapshot();
+    if (clustering != null) return;
+    final double[] values = new double[nodes.size()];
+    run(values.length, new Range() {
+      public void run(int from, int to) {
+        for (int u = from; u < to; u++) {
+          int start = adjOffsets[u];
+          int k = adjOffsets[u + 1] - start;
+          if (k < 2) {
+            // as in RepastJungGraphStatistics
+            values[u] = k;
+            continue;
+          }
+          // each link between two neighbors is counted from both ends
+          long links = 0;
+          for (int slot = start, end = start + k; slot < end; slot++) {
+            links += intersection(u, adjIds[slot]);
+          }
+          values[u] = links / ((double) k * (k - 1));
+        }
+      }
+    });
+    clustering = values;
+  }
+
+  // the number of neighbors u and v have in common
+  private int intersection(int u, int v) {
+    int i = adjOffsets[u], iEnd = adjOffsets[u + 1];
+    int j = adjOffsets[v], jEnd = adjOffsets[v + 1];
+    int count = 0;
+    if (iEnd - i > (jEnd - j) * 16) {
+      // a hub and a small node, so look up the small node's neighbors
+      for (; j < jEnd; j++) {
+        if (Arrays.binarySearch(adjIds, i, iEnd, adjIds[j]) >= 0) count++;
+      }
+      return count;
+    }
+    if (jEnd - j > (iEnd - i) * 16) return intersection(v, u);
+    while (i < iEnd && j < jEnd) {
+      int a = adjIds[i];
+      int b = adjIds[j];
+      if (a == b) {
+        count++;
+        i++;
+        j++;
+      } else if (a < b) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Gets the clustering coefficient of the specified node: the fraction of
+   * the pairs of its neighbors that are themselves adjacent. A node with no
+   * neighbors has a coefficient of 0 and a node with one neighbor a
+   * coefficient of 1.
+   *
+   * @param node
+   *          the node
+   * @return the clustering coefficient of the specified node.
+   */
+  public double getClusteringCoefficient(T node) {
+    computeClustering();
+    return clustering[id(node)];
+  }
+
+  /**
+   * Gets the clustering coefficient of every node.
+   *
+   * @return the clustering coefficient of every node.
+   */
+  public Map<T, Double> getClusteringCoefficients() {
+    computeClustering();
+    Map<T, Double> map = new HashMap<T, Double>();
+    for (int u = 0; u < clustering.length; u++) {
+      map.put(nodes.get(u), clustering[u]);
+    }
+    return map;
+  }
+
+  /**
+   * Gets the average of the clustering coefficients of the nodes.
+   *
+   * @return the average of the clustering coefficients of the nodes, or 0 if
+   *         the network has no nodes.
+   */
+  public double getAverageClusteringCoefficient() {
+    computeClustering();
+    double sum = 0;
+    for (double value : clustering) {
+      sum += value;
+    }
+    return clustering.length == 0 ? 0 : sum / clustering.length;
+  }
+
+  /**
+   * Estimates the betweenness centrality of every node with Brandes'
+   * algorithm run from the specified number of randomly sampled source
+   * nodes. The sums are scaled by the number of nodes over the number of
+   * samples, so if sampleCount is at least the number of nodes, the exact
+   * betweenness is returned. As usual, the betweenness of an undirected
+   * network counts each pair of nodes once. The samples are drawn with
+   * RandomHelper and searched in parallel.
+   *
+   * @param sampleCount
+   *          the number of source nodes to sample
+   * @return the estimated betweenness of every node.
+   */
+  public Map<T, Double> getBetweenness(int sampleCount) {
+    snapshot();
+    final int n = nodes.size();
+    final int[] samples = sample(Math.min(sampleCount, n), n);
+    int tasks = Math.max(1, Math.min(samples.length, pool.getParallelism()));
+    final double[][] partials = new double[tasks][];
+    final List<RecursiveAction> actions = new ArrayList<RecursiveAction>(tasks);
+    for (int t = 0; t < tasks; t++) {
+      final int task = t;
+      final int from = (int) ((long) samples.length * t / tasks);
+      final int to = (int) ((long) samples.length * (t + 1) / tasks);
+      actions.add(new RecursiveAction() {
+        protected void compute() {
+          partials[task] = brandes(samples, from, to, n);
+        }
+      });
+    }
+    if (tasks == 1) {
+      actions.get(0).invoke();
+    } else {
+      invoke(actions);
+    }
+
+    double scale = samples.length == 0 ? 0 : (double) n / samples.length;
+    if (!network.isDirected()) scale /= 2;
+    Map<T, Double> map = new HashMap<T, Double>();
+    for (int u = 0; u < n; u++) {
+      double sum = 0;
+      for (double[] partial : partials) {
+        sum += partial[u];
+      }
+      map.put(nodes.get(u), sum * scale);
+    }
+    return map;
+  }
+
+  // picks count distinct node ids
+  private int[] sample(int count, int n) {
+    int[] picked = new int[n];
+    for (int i = 0; i < n; i++) {
+      picked[i] = i;
+    }
+    if (count == n) return picked;
+    for (int i = 0; i < count; i++) {
+      int j = RandomHelper.getUniform().nextIntFromTo(i, n - 1);
+      int tmp = picked[i];
+      picked[i] = picked[j];
+      picked[j] = tmp;
+    }
+    return Arrays.copyOf(picked, count);
+  }
+
+  // the dependencies accumulated from the samples in [from, to)
+  private double[] brandes(int[] samples, int from, int to, int n) {
+    double[] betweenness = new double[n];
+    int[] dist = new int[n];
+    double[] sigma = new double[n];
+    double[] delta = new double[n];
+    int[] order = new int[n];
+    Arrays.fill(dist, -1);
+    for (int i = from; i < to; i++) {
+      int s = samples[i];
+      // breadth first search, recording the order in which the nodes are
+      // visited
+      dist[s] = 0;
+      sigma[s] = 1;
+      order[0] = s;
+      int head = 0, tail = 1;
+      while (head < tail) {
+        int u = order[head++];
+        for (int slot = outOffsets[u], end = outOffsets[u + 1]; slot < end; slot++) {
+          int v = outIds[slot];
+          if (dist[v] < 0) {
+            dist[v] = dist[u] + 1;
+            order[tail++] = v;
+          }
+          if (dist[v] == dist[u] + 1) sigma[v] += sigma[u];
+        }
+      }
+
+      // accumulate the dependencies in reverse order
+      for (int k = tail - 1; k >= 0; k--) {
+        int w = order[k];
+        for (int slot = outOffsets[w], end = outOffsets[w + 1]; slot < end; slot++) {
+          int v = outIds[slot];
+          if (dist[v] == dist[w] + 1) delta[w] += sigma[w] / sigma[v] * (1 + delta[v]);
+        }
+        if (w != s) betweenness[w] += delta[w];
+      }
+
+      for (int k = 0; k < tail; k++) {
+        int u = order[k];
+        dist[u] = -1;
+        sigma[u] = 0;
+        delta[u] = 0;
+      }
+    }
+    return betweenness;
+  }
+
+  private void computeComponents() {
+    snapshot();
+    if (components != null) return;
+    int n = nodes.size();
+    final AtomicIntegerArray parents = new AtomicIntegerArray(n);
+    for (int u = 0; u < n; u++) {
+      parents.set(u, u);
+    }
+    run(sources.length, new Range() {
+      public void run(int from, int to) {
+        for (int i = from; i < to; i++) {
+          union(parents, sources[i], targets[i]);
+        }
+      }
+    });
+
+    final int[] roots = new int[n];
+    run(n, new Range() {
+      public void run(int from, int to) {
+        for (int u = from; u < to; u++) {
+          roots[u] = find(parents, u);
+        }
+      }
+    });
+    int[] sizes = new int[n];
+    int count = 0;
+    int largest = 0;
+    for (int u = 0; u < n; u++) {
+      if (sizes[roots[u]]++ == 0) count++;
+      largest = Math.max(largest, sizes[roots[u]]);
+    }
+    components = roots;
+    componentCount = count;
+    largestComponentSize = largest;
+  }
+
+  // finds the root of u, halving the path on the way
+  private static int find(AtomicIntegerArray parents, int u) {
+    int parent = parents.get(u);
+    while (parent != u) {
+      int grandparent = parents.get(parent);
+      parents.compareAndSet(u, parent, grandparent);
+      u = parent;
+      parent = parents.get(u);
+    }
+    return u;
+  }
+
+  // links the roots of u and v, always making the larger id point to the
+  // smaller so that concurrent unions cannot create a cycle
+  private static void union(AtomicIntegerArray parents, int u, int v) {
+    while (true) {
+      u = find(parents, u);
+      v = find(parents, v);
+      if (u == v) return;
+      if (u < v) {
+        int tmp = u;
+        u = v;
+        v = tmp;
+      }
+      if (parents.compareAndSet(u, u, v)) return;
+    }
+  }
+
+  /**
+   * Gets the number of connected components in the network. In a directed
+   * network these are the weakly connected components.
+   *
+   * @return the number of connected components in the network.
+   */
+  public int getComponentCount() {
+    computeComponents();
+    return componentCount;
+  }
+
+  /**
+   * Gets the number of nodes in the largest connected component.
+   *
+   * @return the number of nodes in the largest connected component.
+   */
+  public int getLargestComponentSize() {
+    computeComponents();
+    return largestComponentSize;
+  }
+
+  /**
+   * Gets whether or not the specified nodes are in the same connected
+   * component.
+   *
+   * @param first
+   *          the first node
+   * @param second
+   *          the second node
+   * @return true if the nodes are in the same component, otherwise false.
+   */
+  public boolean isConnected(T first, T second) {
+    computeComponents();
+    return components[id(first)] == components[id(second)];
+  }
+
+  /**
+   * Gets the connected components of the network, largest first.
+   *
+   * @return the connected components of the network.
+   */
+  public List<List<T>> getComponents() {
+    computeComponents();
+    Map<Integer, List<T>> map = new HashMap<Integer, List<T>>();
+    for (int u = 0; u < components.length; u++) {
+      List<T> list = map.get(components[u]);
+      if (list == null) {
+        list = new ArrayList<T>();
+        map.put(components[u], list);
+      }
+      list.add(nodes.get(u));
+    }
+    List<List<T>> list = new ArrayList<List<T>>(map.values());
+    Collections.sort(list, new Comparator<List<T>>() {
+      public int compare(List<T> a, List<T> b) {
+        return b.size() - a.size();
+      }
+    });
+    return list;
+  }
+}
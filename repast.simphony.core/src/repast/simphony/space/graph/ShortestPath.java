@@ -1,17 +1,48 @@
 package repast.simphony.space.graph;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
-import repast.simphony.context.space.graph.ContextJungNetwork;
 import repast.simphony.space.projection.ProjectionEvent;
 import repast.simphony.space.projection.ProjectionListener;
-import edu.uci.ics.jung.algorithms.shortestpath.DijkstraShortestPath;
-import edu.uci.ics.jung.graph.Graph;
 
 /**
  * Calculates the shortest path from a specified node to all other nodes in the
- * net using Dijkstra's algorithm.
- * 
+ * net using Dijkstra's algorithm, or a breadth first search if every edge has
+ * a weight of 1. This works with any Network.
+ * <p/>
+ *
+ * The shortest path tree of each queried source node is kept in a bounded
+ * least recently used cache (see {@link #setCacheSize(int)}). Rather than
+ * discarding the cache whenever the network changes, the cached trees are
+ * updated incrementally: an added edge only propagates the distances it
+ * shortens, and a removed edge only invalidates the trees in which it is a
+ * tree edge. Trees for many sources can be computed in parallel with
+ * {@link #computePaths(Collection)}.
+ * <p/>
+ *
+ * In landmark mode (see {@link #setLandmarks(Collection)}), the distances
+ * from and to a few landmark nodes are kept up to date and queries from
+ * sources without a cached tree are answered with an A* search that uses those
+ * distances as lower bounds, so that no full tree need be computed.
+ * <p/>
+ *
+ * Edge weights must not be negative. Changes to the weight of an edge that is
+ * already in the network are not seen by this ShortestPath until
+ * {@link #clear()} is called.
+ *
  * @author Nick Collier
  * @author Eric Tatara
  * @version $Revision$ $Date$
@@ -19,29 +50,86 @@ import edu.uci.ics.jung.graph.Graph;
 
 public class ShortestPath<T> implements ProjectionListener<T> {
 
+	/**
+	 * The default maximum number of cached shortest path trees.
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 32;
+
+	// the distance of a node from the root of a tree and the edge that
+	// reaches it
+	private static class Label<T> {
+		double dist;
+		RepastEdge<T> edge;
+
+		Label(double dist, RepastEdge<T> edge) {
+			this.dist = dist;
+			this.edge = edge;
+		}
+	}
+
+	// shortest distances from the root, or to the root if reverse
+	private static class Tree<T> {
+		final T root;
+		final boolean reverse;
+		final Map<T, Label<T>> labels = new HashMap<T, Label<T>>();
+
+		Tree(T root, boolean reverse) {
+			this.root = root;
+			this.reverse = reverse;
+		}
+
+		double getDistance(T node) {
+			Label<T> label = labels.get(node);
+			return label == null ? Double.POSITIVE_INFINITY : label.dist;
+		}
+	}
+
+	private static class QueueEntry<T> implements Comparable<QueueEntry<T>> {
+		final T node;
+		final double dist;
+
+		QueueEntry(T node, double dist) {
+			this.node = node;
+			this.dist = dist;
+		}
+
+		public int compareTo(QueueEntry<T> other) {
+			return Double.compare(dist, other.dist);
+		}
+	}
+
 	private Network<T> net;
-	private boolean calc = true;
 	private T source;
-  private JungEdgeTransformer transformer;
-  private DijkstraShortestPath<T,RepastEdge<T>> dsp;
-  
+	private int cacheSize = DEFAULT_CACHE_SIZE;
+	private LinkedHashMap<T, Tree<T>> trees = new LinkedHashMap<T, Tree<T>>(16, .75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<T, Tree<T>> eldest) {
+			return size() > cacheSize;
+		}
+	};
+
+	private List<T> landmarks = new ArrayList<T>();
+	// null where a landmark's tree has been invalidated
+	private List<Tree<T>> landmarkTrees = new ArrayList<Tree<T>>();
+	private List<Tree<T>> reverseLandmarkTrees = new ArrayList<Tree<T>>();
+
   /**
    * Constructor
-   * 
+   *
    * @param net the Network
    */
-  
+
     public ShortestPath(){
-    	
+
     }
 	public ShortestPath(Network<T> net){
 		init(net);
 	}
-	
+
 	/**
 	 * Creates shortest path info from the specified source to all other nodes
 	 * in the specified network.
-	 * 
+	 *
 	 * @deprecated  As of release 1.2, replaced by {@link #ShortestPath(Network<T> net)}
 	 * @param net the network
 	 * @param source the source node
@@ -49,57 +137,183 @@ public class ShortestPath<T> implements ProjectionListener<T> {
 	@Deprecated
 	public ShortestPath(Network<T> net, T source) {
 		this.source = source;
-	  init(net);	
+	  init(net);
 	}
-	
-	
+
+
 	private void init(Network<T> net){
 		this.net = net;
-		transformer = new JungEdgeTransformer<T>();
 		net.addProjectionListener(this);
 	}
 
+	/**
+	 * Sets the maximum number of shortest path trees that are cached. The
+	 * least recently used tree is dropped when the cache is full. Setting this
+	 * to at least the number of nodes caches the paths between all pairs of
+	 * nodes once they have been queried.
+	 *
+	 * @param cacheSize the maximum number of cached trees
+	 */
+	public void setCacheSize(int cacheSize) {
+		if (cacheSize < 1) throw new IllegalArgumentException("Cache size must be at least 1");
+		this.cacheSize = cacheSize;
+		Iterator<T> iter = trees.keySet().iterator();
+		while (trees.size() > cacheSize) {
+			iter.next();
+			iter.remove();
+		}
+	}
+
+	/**
+	 * Gets the maximum number of shortest path trees that are cached.
+	 *
+	 * @return the maximum number of shortest path trees that are cached.
+	 */
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	/**
+	 * Sets the landmark nodes. Queries from a source whose tree is not cached
+	 * are then answered by an A* search guided by the distances from (and in a
+	 * directed network, to) each landmark. A handful of landmarks spread across
+	 * the network works best, see {@link #selectLandmarks(int)}. An empty
+	 * collection turns landmark mode off.
+	 *
+	 * @param landmarks the landmark nodes
+	 */
+	public void setLandmarks(Collection<T> landmarks) {
+		this.landmarks = new ArrayList<T>(landmarks);
+		landmarkTrees = new ArrayList<Tree<T>>(Collections.<Tree<T>>nCopies(landmarks.size(),
+				null));
+		reverseLandmarkTrees = new ArrayList<Tree<T>>(landmarkTrees);
+	}
+
+	/**
+	 * Selects the specified number of landmarks and turns on landmark mode.
+	 * The first landmark is the first node in the network, and each subsequent
+	 * landmark is the node furthest from the landmarks selected so far.
+	 *
+	 * @param count the number of landmarks to select
+	 * @return the selected landmarks.
+	 */
+	public List<T> selectLandmarks(int count) {
+		List<T> selected = new ArrayList<T>();
+		Map<T, Double> nearest = new HashMap<T, Double>();
+		Iterator<T> nodes = net.getNodes().iterator();
+		if (count > 0 && nodes.hasNext()) selected.add(nodes.next());
+		while (selected.size() < count) {
+			Tree<T> tree = computeTree(selected.get(selected.size() - 1), false);
+			T furthest = null;
+			double max = -1;
+			for (T node : net.getNodes()) {
+				Double dist = nearest.get(node);
+				double d = Math.min(dist == null ? Double.POSITIVE_INFINITY : dist,
+						tree.getDistance(node));
+				nearest.put(node, d);
+				if (d > max) {
+					max = d;
+					furthest = node;
+				}
+			}
+			if (max <= 0) break;
+			selected.add(furthest);
+		}
+		setLandmarks(selected);
+		return selected;
+	}
+
+	/**
+	 * Gets the landmark nodes.
+	 *
+	 * @return the landmark nodes.
+	 */
+	public List<T> getLandmarks() {
+		return Collections.unmodifiableList(landmarks);
+	}
+
+	/**
+	 * Computes and caches the shortest path trees of the specified sources in
+	 * parallel on the common ForkJoinPool. If there are more sources than the
+	 * cache size, only the trees of the last sources are kept.
+	 *
+	 * @param sources the source nodes
+	 */
+	public void computePaths(Collection<T> sources) {
+		computePaths(sources, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Computes and caches the shortest path trees of the specified sources in
+	 * parallel on the specified pool. If there are more sources than the
+	 * cache size, only the trees of the last sources are kept.
+	 *
+	 * @param sources the source nodes
+	 * @param pool the pool to compute the trees on
+	 */
+	public void computePaths(Collection<T> sources, ForkJoinPool pool) {
+		List<ForkJoinTask<Tree<T>>> tasks = new ArrayList<ForkJoinTask<Tree<T>>>();
+		for (final T root : sources) {
+			if (trees.containsKey(root)) continue;
+			tasks.add(pool.submit(new Callable<Tree<T>>() {
+				public Tree<T> call() {
+					return computeTree(root, false);
+				}
+			}));
+		}
+		for (ForkJoinTask<Tree<T>> task : tasks) {
+			Tree<T> tree = task.join();
+			trees.put(tree.root, tree);
+		}
+	}
+
 	/**
 	 * Returns a list of RepastEdges in the shortest path from source to target.
-	 * 
+	 *
 	 * @param source
 	 * @param target
 	 * @return
 	 */
 	public List<RepastEdge<T>> getPath(T source, T target){
-		
-		if (calc){
-			calcPaths();
-			calc = false;
+		LinkedList<RepastEdge<T>> path = new LinkedList<RepastEdge<T>>();
+		Map<T, Label<T>> labels;
+		Tree<T> tree = trees.get(source);
+		if (tree != null || landmarks.isEmpty()) {
+			labels = getTree(source).labels;
+		} else {
+			labels = search(source, target);
 		}
-		return dsp.getPath(source, target); 
+
+		if (!labels.containsKey(target)) return path;
+		T node = target;
+		while (!node.equals(source)) {
+			RepastEdge<T> edge = labels.get(node).edge;
+			path.addFirst(edge);
+			node = opposite(node, edge);
+		}
+		return path;
 	}
-	
+
 	/**
 	 * Gets the path length from the source node to the target node.
-	 * 
+	 *
 	 * @param source the node we want to get the path length from
 	 * @param target the node we want to get the path length to
 	 * @return the path length from the source node to the target node.
 	 */
 	public double getPathLength(T source, T target){
-		if (calc){
-			calcPaths();
-			calc = false;
+		Tree<T> tree = trees.get(source);
+		if (tree != null || landmarks.isEmpty()) {
+			return getTree(source).getDistance(target);
 		}
-		
-		Number n = dsp.getDistance(source, target);
-
-		if (n != null)
-			return n.doubleValue();
-		else
-			return Double.POSITIVE_INFINITY;
+		Label<T> label = search(source, target).get(target);
+		return label == null ? Double.POSITIVE_INFINITY : label.dist;
 	}
-	
+
 	/**
 	 * Gets the path length from the source node specified in the constructor
 	 *  to the target node.
-	 * 
+	 *
 	 * @deprecated  As of release 1.2, replaced by {@link #getPathLength(T source, T target)}
 	 * @param target the node we want to get the path length to
 	 * @return the path length from the source node to the target node.
@@ -108,33 +322,293 @@ public class ShortestPath<T> implements ProjectionListener<T> {
 	public double getPathLength(T target){
 		return getPathLength(this.source, target);
 	}
-	
+
+	// gets the cached tree of the source, computing it if necessary
+	private Tree<T> getTree(T source) {
+		Tree<T> tree = trees.get(source);
+		if (tree == null) {
+			tree = computeTree(source, false);
+			trees.put(source, tree);
+		}
+		return tree;
+	}
+
+	private Iterable<RepastEdge<T>> edges(T node, boolean reverse) {
+		if (!net.isDirected()) return net.getEdges(node);
+		return reverse ? net.getInEdges(node) : net.getOutEdges(node);
+	}
+
+	private T opposite(T node, RepastEdge<T> edge) {
+		T source = edge.getSource();
+		return source.equals(node) ? edge.getTarget() : source;
+	}
+
+	private static double weight(RepastEdge<?> edge) {
+		double weight = edge.getWeight();
+		if (weight < 0) throw new IllegalArgumentException("Edge weights must be non-negative");
+		return weight;
+	}
+
+	/**
+	 * Computes the shortest path tree of the root with a breadth first search,
+	 * switching to Dijkstra's algorithm if an edge with a weight other than 1
+	 * is found.
+	 */
+	private Tree<T> computeTree(T root, boolean reverse) {
+		Tree<T> tree = new Tree<T>(root, reverse);
+		tree.labels.put(root, new Label<T>(0, null));
+		ArrayDeque<T> queue = new ArrayDeque<T>();
+		queue.add(root);
+		while (!queue.isEmpty()) {
+			T node = queue.poll();
+			double dist = tree.labels.get(node).dist + 1;
+			Iterable<RepastEdge<T>> edges = edges(node, reverse);
+			if (edges == null) continue;
+			for (RepastEdge<T> edge : edges) {
+				if (weight(edge) != 1) {
+					tree.labels.clear();
+					tree.labels.put(root, new Label<T>(0, null));
+					propagate(tree, root);
+					return tree;
+				}
+				T other = opposite(node, edge);
+				if (!tree.labels.containsKey(other)) {
+					tree.labels.put(other, new Label<T>(dist, edge));
+					queue.add(other);
+				}
+			}
+		}
+		return tree;
+	}
+
 	/**
-	 * Creates shortest path info  nodes using the Jung Dijkstra algorithm
+	 * Runs Dijkstra's algorithm from the specified node, whose label is
+	 * already set, lowering the distances of any nodes that can be reached
+	 * by a shorter path through it.
 	 */
-	private void calcPaths(){
-		Graph<T, RepastEdge<T>> graph = null;
-		
-		if (net instanceof JungNetwork)
-			graph = ((JungNetwork)net).getGraph();
-		else if (net instanceof ContextJungNetwork)
-			graph = ((ContextJungNetwork)net).getGraph();
-		
-		dsp = new DijkstraShortestPath<T,RepastEdge<T>>(graph, transformer);
+	private void propagate(Tree<T> tree, T start) {
+		PriorityQueue<QueueEntry<T>> queue = new PriorityQueue<QueueEntry<T>>();
+		queue.add(new QueueEntry<T>(start, tree.labels.get(start).dist));
+		while (!queue.isEmpty()) {
+			QueueEntry<T> entry = queue.poll();
+			if (entry.dist > tree.labels.get(entry.node).dist) continue;
+			Iterable<RepastEdge<T>> edges = edges(entry.node, tree.reverse);
+			if (edges == null) continue;
+			for (RepastEdge<T> edge : edges) {
+				T other = opposite(entry.node, edge);
+				double dist = entry.dist + weight(edge);
+				Label<T> label = tree.labels.get(other);
+				if (label == null) {
+					tree.labels.put(other, new Label<T>(dist, edge));
+				} else if (dist < label.dist) {
+					label.dist = dist;
+					label.edge = edge;
+				} else {
+					continue;
+				}
+				queue.add(new QueueEntry<T>(other, dist));
+			}
+		}
 	}
-	
+
 	/**
-	 * Called when the network is modified so that this will recalculate the
+	 * A* search from source to target using the landmark distances as lower
+	 * bounds. Returns the labels of the nodes settled by the search.
+	 */
+	private Map<T, Label<T>> search(T source, T target) {
+		List<Tree<T>> forward = new ArrayList<Tree<T>>();
+		List<Tree<T>> backward = new ArrayList<Tree<T>>();
+		for (int i = 0; i < landmarks.size(); i++) {
+			if (landmarkTrees.get(i) == null) {
+				landmarkTrees.set(i, computeTree(landmarks.get(i), false));
+			}
+			forward.add(landmarkTrees.get(i));
+			if (net.isDirected()) {
+				if (reverseLandmarkTrees.get(i) == null) {
+					reverseLandmarkTrees.set(i, computeTree(landmarks.get(i), true));
+				}
+				backward.add(reverseLandmarkTrees.get(i));
+			}
+		}
+
+		Map<T, Label<T>> labels = new HashMap<T, Label<T>>();
+		Map<T, Double> bounds = new HashMap<T, Double>();
+		labels.put(source, new Label<T>(0, null));
+		PriorityQueue<QueueEntry<T>> queue = new PriorityQueue<QueueEntry<T>>();
+		queue.add(new QueueEntry<T>(source, bound(source, target, forward, backward, bounds)));
+		while (!queue.isEmpty()) {
+			QueueEntry<T> entry = queue.poll();
+			Label<T> current = labels.get(entry.node);
+			if (entry.dist > current.dist + bounds.get(entry.node)) continue;
+			if (entry.node.equals(target)) break;
+			Iterable<RepastEdge<T>> edges = edges(entry.node, false);
+			if (edges == null) continue;
+			for (RepastEdge<T> edge : edges) {
+				T other = opposite(entry.node, edge);
+				double dist = current.dist + weight(edge);
+				Label<T> label = labels.get(other);
+				if (label != null && dist >= label.dist) continue;
+				double bound = bound(other, target, forward, backward, bounds);
+				if (bound == Double.POSITIVE_INFINITY) continue;
+				if (label == null) {
+					labels.put(other, new Label<T>(dist, edge));
+				} else {
+					label.dist = dist;
+					label.edge = edge;
+				}
+				queue.add(new QueueEntry<T>(other, dist + bound));
+			}
+		}
+		return labels;
+	}
+
+	// a lower bound on the distance from node to target. This is infinite if
+	// the node cannot reach the target.
+	private double bound(T node, T target, List<Tree<T>> forward, List<Tree<T>> backward,
+			Map<T, Double> bounds) {
+		Double cached = bounds.get(node);
+		if (cached != null) return cached;
+		double bound = 0;
+		for (Tree<T> tree : forward) {
+			// d(L, t) <= d(L, n) + d(n, t)
+			double toTarget = tree.getDistance(target);
+			double toNode = tree.getDistance(node);
+			if (toNode == Double.POSITIVE_INFINITY) continue;
+			if (toTarget == Double.POSITIVE_INFINITY) {
+				// L reaches n but not t, so n cannot reach t
+				bound = Double.POSITIVE_INFINITY;
+				break;
+			}
+			bound = Math.max(bound, net.isDirected() ? toTarget - toNode
+					: Math.abs(toTarget - toNode));
+		}
+		for (Tree<T> tree : backward) {
+			// d(n, L) <= d(n, t) + d(t, L)
+			double fromNode = tree.getDistance(node);
+			double fromTarget = tree.getDistance(target);
+			if (fromNode == Double.POSITIVE_INFINITY || fromTarget == Double.POSITIVE_INFINITY) {
+				continue;
+			}
+			bound = Math.max(bound, fromNode - fromTarget);
+		}
+		bounds.put(node, bound);
+		return bound;
+	}
+
+	private List<Tree<T>> allTrees() {
+		List<Tree<T>> all = new ArrayList<Tree<T>>(trees.values());
+		for (Tree<T> tree : landmarkTrees) {
+			if (tree != null) all.add(tree);
+		}
+		for (Tree<T> tree : reverseLandmarkTrees) {
+			if (tree != null) all.add(tree);
+		}
+		return all;
+	}
+
+	private void edgeAdded(RepastEdge<T> edge) {
+		if (edge.getWeight() < 0) {
+			// let the next query fail
+			clear();
+			return;
+		}
+		for (Tree<T> tree : allTrees()) {
+			T from = tree.reverse ? edge.getTarget() : edge.getSource();
+			T to = tree.reverse ? edge.getSource() : edge.getTarget();
+			relax(tree, from, to, edge);
+			if (!net.isDirected()) relax(tree, to, from, edge);
+		}
+	}
+
+	// lowers the distance to "to" through the edge if it is shorter and
+	// propagates the change
+	private void relax(Tree<T> tree, T from, T to, RepastEdge<T> edge) {
+		Label<T> fromLabel = tree.labels.get(from);
+		if (fromLabel == null) return;
+		double dist = fromLabel.dist + edge.getWeight();
+		Label<T> label = tree.labels.get(to);
+		if (label == null) {
+			tree.labels.put(to, new Label<T>(dist, edge));
+		} else if (dist < label.dist) {
+			label.dist = dist;
+			label.edge = edge;
+		} else {
+			return;
+		}
+		propagate(tree, to);
+	}
+
+	private void edgeRemoved(RepastEdge<T> edge) {
+		for (Iterator<Tree<T>> iter = trees.values().iterator(); iter.hasNext();) {
+			if (usesEdge(iter.next(), edge)) iter.remove();
+		}
+		for (int i = 0; i < landmarks.size(); i++) {
+			if (landmarkTrees.get(i) != null && usesEdge(landmarkTrees.get(i), edge)) {
+				landmarkTrees.set(i, null);
+			}
+			if (reverseLandmarkTrees.get(i) != null && usesEdge(reverseLandmarkTrees.get(i), edge)) {
+				reverseLandmarkTrees.set(i, null);
+			}
+		}
+	}
+
+	// whether or not the edge is one of the tree's edges. Edges are compared by
+	// their endpoints, so in a multigraph the removal of one of several parallel
+	// edges also drops the trees that use another of them. That only costs a
+	// recomputation, never a stale tree.
+	private boolean usesEdge(Tree<T> tree, RepastEdge<T> edge) {
+		return isTreeEdge(tree, edge.getSource(), edge) || isTreeEdge(tree, edge.getTarget(), edge);
+	}
+
+	private boolean isTreeEdge(Tree<T> tree, T node, RepastEdge<T> edge) {
+		Label<T> label = tree.labels.get(node);
+		if (label == null || label.edge == null) return false;
+		RepastEdge<T> treeEdge = label.edge;
+		if (treeEdge == edge) return true;
+		if (treeEdge.getSource().equals(edge.getSource())
+				&& treeEdge.getTarget().equals(edge.getTarget())) return true;
+		return !net.isDirected() && treeEdge.getSource().equals(edge.getTarget())
+				&& treeEdge.getTarget().equals(edge.getSource());
+	}
+
+	/**
+	 * Discards all the cached shortest path trees, including those of the
+	 * landmarks, so that they are recomputed when next needed. Call this after
+	 * changing the weight of an edge that is already in the network.
+	 */
+	public void clear() {
+		trees.clear();
+		for (int i = 0; i < landmarks.size(); i++) {
+			landmarkTrees.set(i, null);
+			reverseLandmarkTrees.set(i, null);
+		}
+	}
+
+	/**
+	 * Called when the network is modified so that this will update the
 	 * shortest path info.
-	 * 
+	 *
 	 * @param evt
 	 */
+	@SuppressWarnings("unchecked")
 	public void projectionEventOccurred(ProjectionEvent<T> evt) {
-		if (evt.getType() != ProjectionEvent.OBJECT_MOVED) {
-			calc = true;
+		if (evt.getType() == ProjectionEvent.EDGE_ADDED) {
+			edgeAdded((RepastEdge<T>) evt.getSubject());
+		} else if (evt.getType() == ProjectionEvent.EDGE_REMOVED) {
+			edgeRemoved((RepastEdge<T>) evt.getSubject());
+		} else if (evt.getType() == ProjectionEvent.OBJECT_REMOVED) {
+			// the removal of its edges is reported separately
+			T node = (T) evt.getSubject();
+			trees.remove(node);
+			int index = landmarks.indexOf(node);
+			if (index != -1) {
+				landmarks.remove(index);
+				landmarkTrees.remove(index);
+				reverseLandmarkTrees.remove(index);
+			}
 		}
 	}
-	
+
 	/**
 	 * Removes this as a projection listener when this ShortestPath is garbage
 	 * collected.
@@ -143,14 +617,14 @@ public class ShortestPath<T> implements ProjectionListener<T> {
 		if (net != null)
 			net.removeProjectionListener(this);
 	}
-	
+
 	/**
-	 * Null the object so that the Garbage Collector recognizes to remove 
+	 * Null the object so that the Garbage Collector recognizes to remove
 	 * the object from the jvm.
 	 */
-	public static ShortestPath finished(ShortestPath<?> sp){
+	public static <T> ShortestPath<T> finished(ShortestPath<T> sp){
 		sp.finalize();
 		sp=null;
 		return sp;
 	}
-}
\ No newline at end of file
+}
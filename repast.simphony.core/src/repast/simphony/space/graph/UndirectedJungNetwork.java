@@ -1,6 +1,5 @@
 package repast.simphony.space.graph;
 
-import edu.uci.ics.jung.graph.UndirectedOrderedSparseMultigraph;
 import edu.uci.ics.jung.graph.util.EdgeType;
 
 
@@ -12,7 +11,7 @@ public class UndirectedJungNetwork<T> extends JungNetwork<T> {
 
   public UndirectedJungNetwork(String name, EdgeCreator<? extends RepastEdge<T>, T> creator) {
     super(name, creator);
-    graph = new UndirectedOrderedSparseMultigraph<T, RepastEdge<T>>();
+    graph = new CountedUndirectedGraph<T>();
   }
 
   @Override
@@ -2,10 +2,14 @@
 package repast.simphony.space.grid;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
+import repast.simphony.space.NearestNeighbors;
+import repast.simphony.space.RingSearch;
 import repast.simphony.space.SpatialException;
 import repast.simphony.space.SpatialMath;
 import repast.simphony.space.projection.DefaultProjection;
@@ -19,12 +23,43 @@ public abstract class AbstractGrid<T, U> extends DefaultProjection<T> implements
 
   private final List<T> EMPTY_LIST = new ArrayList<T>();
   private double[] vectorTmp;
+  // hold the target and the transformed coordinates during a move. A
+  // translator is not required to handle the same array as both.
+  private int[] targetTmp, moveTmp;
+
+  /**
+   * A neighborhood offset table together with the parameters it was built
+   * for. These are immutable so that a cached table can be read by concurrent
+   * queries.
+   */
+  private static final class Neighborhood {
+
+    final int[] extent;
+    final double distance;
+    final boolean periodic;
+    final int[] offsets;
+
+    Neighborhood(int[] extent, double distance, boolean periodic, int[] offsets) {
+      this.extent = extent == null ? null : extent.clone();
+      this.distance = distance;
+      this.periodic = periodic;
+      this.offsets = offsets;
+    }
+  }
+
+  // the most recently used neighborhood offset tables
+  private volatile Neighborhood moore, vn, within;
 
   /**
    * A little class used for getting rid of some hash table lookups.
    */
   public static class PointHolder {
     GridPoint point;
+    // index of the point's cell for grids with flat array storage
+    int index = -1;
+    // whether or not point has been handed out of the grid, in which
+    // case it must be replaced rather than updated in place
+    boolean shared = false;
   }
 
   // this holds the objects that have been added, this includes ones that have
@@ -70,6 +105,8 @@ public abstract class AbstractGrid<T, U> extends DefaultProjection<T> implements
     }
     this.dimensions = new GridDimensions(aSize);
     vectorTmp = new double[this.dimensions.size()];
+    targetTmp = new int[this.dimensions.size()];
+    moveTmp = new int[this.dimensions.size()];
 
     this.agentLocationMap = new HashMap<T, PointHolder>();
     this.locationStorage = createLocationStorage();
@@ -100,6 +137,8 @@ public abstract class AbstractGrid<T, U> extends DefaultProjection<T> implements
     }
     this.dimensions = new GridDimensions(aSize, origin);
     vectorTmp = new double[this.dimensions.size()];
+    targetTmp = new int[this.dimensions.size()];
+    moveTmp = new int[this.dimensions.size()];
 
     this.agentLocationMap = new HashMap<T, PointHolder>();
     this.locationStorage = createLocationStorage();
@@ -133,17 +172,73 @@ public abstract class AbstractGrid<T, U> extends DefaultProjection<T> implements
       throw new SpatialException("Number of new location dimensions must match grid dimensions");
     }
 
-    int[] movedCoords = new int[dimensions.size()];
-    translator.transform(movedCoords, newLocation);
-    return doMove(object, movedCoords, holder) != null;
+    translator.transform(moveTmp, newLocation);
+    return doMove(object, moveTmp, holder) != null;
 
   }
 
+  /**
+   * Moves the specified object from its current location into the specified
+   * 2D location. This is equivalent to <code>moveTo(object, x, y)</code> with
+   * a varargs location, but does not create an array for the location.
+   *
+   * @param object the object to move
+   * @param x      the x coordinate of the new location
+   * @param y      the y coordinate of the new location
+   * @return true if the move was successful, otherwise false.
+   * @throws repast.simphony.space.SpatialException
+   *          if the object is not already in the space or if the grid is not
+   *          2 dimensional.
+   */
+  public boolean moveTo(T object, int x, int y) {
+    PointHolder holder = getMovingHolder(object, 2);
+    targetTmp[0] = x;
+    targetTmp[1] = y;
+    translator.transform(moveTmp, targetTmp);
+    return doMove(object, moveTmp, holder) != null;
+  }
+
+  /**
+   * Moves the specified object from its current location into the specified
+   * 3D location. This is equivalent to <code>moveTo(object, x, y, z)</code>
+   * with a varargs location, but does not create an array for the location.
+   *
+   * @param object the object to move
+   * @param x      the x coordinate of the new location
+   * @param y      the y coordinate of the new location
+   * @param z      the z coordinate of the new location
+   * @return true if the move was successful, otherwise false.
+   * @throws repast.simphony.space.SpatialException
+   *          if the object is not already in the space or if the grid is not
+   *          3 dimensional.
+   */
+  public boolean moveTo(T object, int x, int y, int z) {
+    PointHolder holder = getMovingHolder(object, 3);
+    targetTmp[0] = x;
+    targetTmp[1] = y;
+    targetTmp[2] = z;
+    translator.transform(moveTmp, targetTmp);
+    return doMove(object, moveTmp, holder) != null;
+  }
+
+  private PointHolder getMovingHolder(T object, int dimCount) {
+    PointHolder holder = agentLocationMap.get(object);
+    if (holder == null) {
+      throw new SpatialException("Object '" + object +
+              "' must be added to the grid's context before it can be moved");
+    }
+
+    if (dimCount != dimensions.size()) {
+      throw new SpatialException("Number of new location dimensions must match grid dimensions");
+    }
+    return holder;
+  }
 
   // assigns the specified object to the specified coordinates.
   // returns null if the object cannot be put at the specified coordinates.
-  private GridPoint doMove(T object, int[] movedCoords, PointHolder holder) {
-    GridPoint movedPoint = new GridPoint(movedCoords);
+  // The coordinates may be a temporary array and so are copied if kept.
+  protected GridPoint doMove(T object, int[] movedCoords, PointHolder holder) {
+    GridPoint movedPoint = new GridPoint(movedCoords.clone());
     if (accessor.put(object, locationStorage, movedPoint)) {
       if (holder.point == null) {
         // if the object hasn't yet been put in the space
@@ -152,14 +247,35 @@ public abstract class AbstractGrid<T, U> extends DefaultProjection<T> implements
         accessor.remove(object, locationStorage, holder.point);
       }
       holder.point = movedPoint;
-      fireProjectionEvent(new ProjectionEvent(this, object,
-              ProjectionEvent.OBJECT_MOVED));
+      // events are only created if someone is listening
+      if (!listeners.isEmpty()) {
+        fireProjectionEvent(new ProjectionEvent(this, object, ProjectionEvent.OBJECT_MOVED));
+      }
       return holder.point;
     } else {
       return null;
     }
   }
 
+  /**
+   * Sets the location in the specified holder to the specified coordinates.
+   * If the holder's current location has never been handed out of the grid,
+   * it is updated in place, otherwise it is replaced with a new GridPoint.
+   * This should only be used by grids whose location storage does not keep
+   * references to the GridPoints.
+   *
+   * @param holder the holder
+   * @param coords the coordinates
+   */
+  protected void setLocation(PointHolder holder, int[] coords) {
+    if (holder.point == null || holder.shared) {
+      holder.point = new GridPoint(coords.clone());
+      holder.shared = false;
+    } else {
+      System.arraycopy(coords, 0, holder.point.point, 0, coords.length);
+    }
+  }
+
   /**
    * Gets the location of the specified object.
    *
@@ -172,9 +288,29 @@ public abstract class AbstractGrid<T, U> extends DefaultProjection<T> implements
     if (loc == null) {
       return null;
     }
+    loc.shared = true;
     return loc.point;
   }
 
+  /**
+   * Copies the location of the specified object into the specified array.
+   * Unlike {@link #getLocation(Object)}, this does not prevent the grid from
+   * updating the object's location in place on its next move.
+   *
+   * @param obj      the object
+   * @param location the array to copy the location into. If this is null, a
+   *                 new array is created.
+   * @return the array containing the location, or null if the object is not
+   *         in the space.
+   */
+  public int[] getLocation(Object obj, int[] location) {
+    PointHolder loc = agentLocationMap.get(obj);
+    if (loc == null || loc.point == null) {
+      return null;
+    }
+    return loc.point.toIntArray(location);
+  }
+
   /**
    * Gets the number of objects currently in the space. This does NOT include
    * any objects that may have been added, but have NOT been moved to a space
@@ -299,11 +435,12 @@ public abstract class AbstractGrid<T, U> extends DefaultProjection<T> implements
                       + "' must be added to the space's context before it can be moved");
     }
 
-    int[] movedCoords = new int[dimensions.size()];
     // assumes that the first introducing move into a grid is never by displacement
-    holder.point.toIntArray(movedCoords);
-    translator.translate(movedCoords, displacement);
-    return doMove(object, movedCoords, holder);
+    holder.point.toIntArray(moveTmp);
+    translator.translate(moveTmp, displacement);
+    GridPoint point = doMove(object, moveTmp, holder);
+    if (point != null) holder.shared = true;
+    return point;
   }
 
   /**
@@ -387,7 +524,8 @@ public abstract class AbstractGrid<T, U> extends DefaultProjection<T> implements
   }
 
   protected void removeAll() {
-    for (T t : agentLocationMap.keySet()) {
+    // copied because remove removes the object from the map
+    for (T t : new ArrayList<T>(agentLocationMap.keySet())) {
       remove(t);
     }
   }
@@ -473,4 +611,257 @@ public abstract class AbstractGrid<T, U> extends DefaultProjection<T> implements
     return sum;
 
   }
+
+  /**
+   * Gets the k objects nearest to the specified object, taking into account
+   * the grid's topology. The specified object itself is not included.
+   *
+   * @param obj the object to measure the distance from
+   * @param k   the number of objects to get
+   * @return the k nearest objects, sorted from nearest to farthest. This
+   *         will contain fewer than k objects if the grid contains fewer
+   *         than k other objects, and none if the object is not in the grid.
+   */
+  public List<T> getNearest(T obj, int k) {
+    // getLocation would hand out the point and stop it being moved in place
+    PointHolder holder = agentLocationMap.get(obj);
+    if (holder == null || holder.point == null) return new ArrayList<T>();
+    return findNearest(holder.point, k, null, obj);
+  }
+
+  /**
+   * Gets the k objects nearest to the specified point that are instances of
+   * the specified class, taking into account the grid's topology.
+   *
+   * @param point  the point to measure the distance from
+   * @param k      the number of objects to get
+   * @param filter only objects that are instances of this class are returned. If
+   *               this is null, objects of any class are returned.
+   * @return the k nearest objects, sorted from nearest to farthest. This
+   *         will contain fewer than k objects if the grid contains fewer
+   *         than k matching objects.
+   */
+  public List<T> getNearest(GridPoint point, int k, Class<?> filter) {
+    return findNearest(point, k, filter, null);
+  }
+
+  /**
+   * Finds the k nearest objects by searching the cells in expanding rings
+   * around the point until no unsearched cell can contain an object nearer
+   * than those already found. If the grid is sparse enough that the search
+   * visits more cells than there are objects, or if the grid is unbounded,
+   * the objects' locations are checked directly instead.
+   */
+  protected List<T> findNearest(GridPoint point, int k, Class<?> filter, Object exclude) {
+    NearestNeighbors<T> nearest = new NearestNeighbors<T>(k, filter, exclude);
+    if (translator instanceof InfiniteBorders || !findNearestInCells(point, nearest)) {
+      nearest = new NearestNeighbors<T>(k, filter, exclude);
+      for (Map.Entry<T, PointHolder> entry : agentLocationMap.entrySet()) {
+        GridPoint location = entry.getValue().point;
+        if (location != null) nearest.offer(entry.getKey(), getDistanceSq(point, location));
+      }
+    }
+    return nearest.toList();
+  }
+
+  // returns false if the search visits too many cells
+  private boolean findNearestInCells(final GridPoint point, final NearestNeighbors<T> nearest) {
+    boolean periodic = isPeriodic();
+    int dimCount = dimensions.size();
+    int[] cellCounts = new int[dimCount];
+    int[] center = new int[dimCount];
+    for (int i = 0; i < dimCount; i++) {
+      int n = dimensions.getDimension(i);
+      int c = point.getCoord(i) + dimensions.getOrigin(i);
+      if (periodic) {
+        c %= n;
+        if (c < 0) c += n;
+      } else {
+        c = Math.max(0, Math.min(c, n - 1));
+      }
+      cellCounts[i] = n;
+      center[i] = c;
+    }
+
+    final GridPoint probe = new GridPoint(new int[dimCount]);
+    return new RingSearch() {
+      long budget = 2L * size + 64;
+
+      @Override
+      protected boolean visit(int[] cell) {
+        if (--budget < 0) return false;
+        for (int i = 0; i < cell.length; i++) {
+          probe.point[i] = cell[i] - dimensions.getOrigin(i);
+        }
+        double distanceSq = -1;
+        for (T obj : accessor.getAll(locationStorage, probe)) {
+          if (obj == null) continue;
+          if (distanceSq < 0) distanceSq = getDistanceSq(point, probe);
+          nearest.offer(obj, distanceSq);
+        }
+        return true;
+      }
+
+      @Override
+      protected boolean isDone(int ring) {
+        // the cells in the next ring are at least this far from the point
+        double bound = ring + 1;
+        return nearest.isFull() && nearest.getMaxDistanceSq() <= bound * bound;
+      }
+    }.search(cellCounts, center, periodic);
+  }
+
+  /**
+   * Passes each object in the Moore neighborhood of the specified object to
+   * the specified action. The neighborhood does not include the object's own
+   * cell. Nothing is visited if the object does not have a location.
+   *
+   * @param source the object at the center of the neighborhood
+   * @param extent the extent of the neighborhood in each dimension. If this is
+   *               null or empty, the extent is one in each dimension.
+   * @param action the action to pass the objects to
+   */
+  public void forEachInMoore(T source, int[] extent, Consumer<? super T> action) {
+    PointHolder holder = agentLocationMap.get(source);
+    if (holder != null && holder.point != null) forEachInMoore(holder.point, extent, action);
+  }
+
+  /**
+   * Passes each object in the Moore neighborhood of the specified point to
+   * the specified action. The neighborhood does not include the point's own
+   * cell.
+   *
+   * @param center the center of the neighborhood
+   * @param extent the extent of the neighborhood in each dimension. If this is
+   *               null or empty, the extent is one in each dimension.
+   * @param action the action to pass the objects to
+   */
+  public void forEachInMoore(GridPoint center, int[] extent, Consumer<? super T> action) {
+    Neighborhood ngh = moore;
+    if (ngh == null || !Arrays.equals(extent, ngh.extent)) {
+      int[] offsets = GridNeighborhood.mooreOffsets(GridNeighborhood.checkExtent(dimensions.size(), extent));
+      ngh = new Neighborhood(extent, 0, false, offsets);
+      moore = ngh;
+    }
+    forEachInCells(center.point, ngh.offsets, null, action);
+  }
+
+  /**
+   * Passes each object in the Von Neumann neighborhood of the specified
+   * object to the specified action. The neighborhood does not include the
+   * object's own cell. Nothing is visited if the object does not have a
+   * location.
+   *
+   * @param source the object at the center of the neighborhood
+   * @param extent the extent of the neighborhood in each dimension. If this is
+   *               null or empty, the extent is one in each dimension.
+   * @param action the action to pass the objects to
+   */
+  public void forEachInVN(T source, int[] extent, Consumer<? super T> action) {
+    PointHolder holder = agentLocationMap.get(source);
+    if (holder != null && holder.point != null) forEachInVN(holder.point, extent, action);
+  }
+
+  /**
+   * Passes each object in the Von Neumann neighborhood of the specified
+   * point to the specified action. The neighborhood does not include the
+   * point's own cell.
+   *
+   * @param center the center of the neighborhood
+   * @param extent the extent of the neighborhood in each dimension. If this is
+   *               null or empty, the extent is one in each dimension.
+   * @param action the action to pass the objects to
+   */
+  public void forEachInVN(GridPoint center, int[] extent, Consumer<? super T> action) {
+    Neighborhood ngh = vn;
+    if (ngh == null || !Arrays.equals(extent, ngh.extent)) {
+      int[] offsets = GridNeighborhood.vonNeumannOffsets(GridNeighborhood.checkExtent(dimensions.size(), extent));
+      ngh = new Neighborhood(extent, 0, false, offsets);
+      vn = ngh;
+    }
+    forEachInCells(center.point, ngh.offsets, null, action);
+  }
+
+  /**
+   * Passes each object within the specified distance of the specified object
+   * to the specified action, taking into account the grid's topology. The
+   * specified object itself is not passed. Nothing is visited if the object
+   * does not have a location.
+   *
+   * @param source   the object to measure the distance from
+   * @param distance the distance
+   * @param action   the action to pass the objects to
+   */
+  public void forEachWithin(T source, double distance, Consumer<? super T> action) {
+    PointHolder holder = agentLocationMap.get(source);
+    if (holder != null && holder.point != null) {
+      forEachInCells(holder.point.point, getWithinOffsets(distance), source, action);
+    }
+  }
+
+  /**
+   * Passes each object within the specified distance of the specified point
+   * to the specified action, taking into account the grid's topology.
+   *
+   * @param center   the point to measure the distance from
+   * @param distance the distance
+   * @param action   the action to pass the objects to
+   */
+  public void forEachWithin(GridPoint center, double distance, Consumer<? super T> action) {
+    forEachInCells(center.point, getWithinOffsets(distance), null, action);
+  }
+
+  private int[] getWithinOffsets(double distance) {
+    boolean periodic = isPeriodic();
+    Neighborhood ngh = within;
+    if (ngh == null || Double.compare(distance, ngh.distance) != 0 || periodic != ngh.periodic) {
+      int[] offsets = GridNeighborhood.withinOffsets(distance, dimensions, periodic);
+      ngh = new Neighborhood(null, distance, periodic, offsets);
+      within = ngh;
+    }
+    return ngh.offsets;
+  }
+
+  // visits the cells at each offset from the center. Cells outside
+  // a non periodic grid are skipped.
+  private void forEachInCells(int[] center, int[] offsets, Object exclude,
+                              Consumer<? super T> action) {
+    int dimCount = center.length;
+    boolean periodic = isPeriodic();
+    // one probe per call, so that concurrent and nested visits don't share it
+    GridPoint cell = new GridPoint(new int[dimCount]);
+    for (int j = 0; j < offsets.length; j += dimCount) {
+      boolean inside = true;
+      for (int i = 0; i < dimCount; i++) {
+        int n = dimensions.getDimension(i);
+        int origin = dimensions.getOrigin(i);
+        int c = center[i] + offsets[j + i] + origin;
+        if (periodic) {
+          c %= n;
+          if (c < 0) c += n;
+        } else if (c < 0 || c >= n) {
+          inside = false;
+          break;
+        }
+        cell.point[i] = c - origin;
+      }
+      if (inside) forEachAt(cell, exclude, action);
+    }
+  }
+
+  /**
+   * Passes each object at the specified location to the specified action.
+   * The location is within the grid's dimensions. Subclasses can override
+   * this to read their location storage directly.
+   *
+   * @param location the location
+   * @param exclude  an object that is not passed to the action. This may be
+   *                 null.
+   * @param action   the action to pass the objects to
+   */
+  protected void forEachAt(GridPoint location, Object exclude, Consumer<? super T> action) {
+    for (T obj : accessor.getAll(locationStorage, location)) {
+      if (obj != null && (exclude == null || !exclude.equals(obj))) action.accept(obj);
+    }
+  }
 }
@@ -43,8 +43,8 @@ public abstract class AbstractGridPointTranslator implements GridPointTranslator
 	}
 
 	protected void boundsCheck(int i, int value) {
-		int[] origin = dimensions.originToIntArray(null);
-		if (value < -origin[i] || value >= dimensions.getDimension(i) - origin[i]) {
+		int origin = dimensions.getOrigin(i);
+		if (value < -origin || value >= dimensions.getDimension(i) - origin) {
 			throw new SpatialException("Target location " + value +
 							" is outside of grid's dimensions.");
 		}
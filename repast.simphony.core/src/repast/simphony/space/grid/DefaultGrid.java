@@ -1,7 +1,9 @@
 package repast.simphony.space.grid;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * A default implementation of a grid backed by a map.
@@ -86,4 +88,25 @@ public class DefaultGrid<T> extends AbstractGrid<T, Map<GridPoint, Object>> {
 	protected Map<GridPoint, Object> createLocationStorage() {
 		return new HashMap<GridPoint, Object>();
 	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	protected void forEachAt(GridPoint location, Object exclude, Consumer<? super T> action) {
+		// the default accessors' storage is read directly to avoid
+		// creating an iterator per cell
+		Class<?> accessorClass = accessor.getClass();
+		if (accessorClass == MultiOccupancyCellAccessor.class) {
+			List<T> list = (List<T>) locationStorage.get(location);
+			if (list == null) return;
+			for (int i = 0, n = list.size(); i < n; i++) {
+				T obj = list.get(i);
+				if (exclude == null || !exclude.equals(obj)) action.accept(obj);
+			}
+		} else if (accessorClass == SingleOccupancyCellAccessor.class) {
+			T obj = (T) locationStorage.get(location);
+			if (obj != null && (exclude == null || !exclude.equals(obj))) action.accept(obj);
+		} else {
+			super.forEachAt(location, exclude, action);
+		}
+	}
 }
@@ -0,0 +1,421 @@
+/*CopyrightHere*/
+package repast.simphony.space.grid;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import repast.simphony.random.RandomHelper;
+import repast.simphony.space.projection.ProjectionEvent;
+
+/**
+ * A multi occupancy n-dimensional grid whose cells are stored in flat int
+ * arrays rather than in a map of lists. Each cell holds the index of the first
+ * of its objects in a shared slot array, and the slots in a cell are linked
+ * together through int arrays. Storage is a fixed cost per cell plus a cost
+ * per object, and neither adding to nor iterating over a cell requires boxed
+ * keys or list objects. An object's GridPoint is updated in place when it has
+ * not been handed out by {@link #getLocation(Object)}, so moves need not
+ * allocate.
+ * <p>
+ *
+ * The objects in a cell can be iterated without allocation using the slot
+ * methods:
+ *
+ * <pre>
+ * for (int slot = grid.getFirstSlot(cell); slot != -1; slot = grid.getNextSlot(slot)) {
+ *   T obj = grid.getSlotObject(slot);
+ * }
+ * </pre>
+ *
+ * Locations are stored only for the cells within the grid's dimensions, so
+ * this grid cannot be used with {@link InfiniteBorders}. Passing
+ * InfiniteBorders to the constructor or to
+ * {@link #setGridPointTranslator(GridPointTranslator)} throws an
+ * IllegalArgumentException.
+ */
+public class DenseMultiOccuGrid<T> extends AbstractGrid<T, DenseMultiOccuGrid.Storage> {
+
+	/**
+	 * The flat array storage for a DenseMultiOccuGrid.
+	 */
+	public static final class Storage {
+
+		private int[] dims, origin, strides;
+		// the first slot in each cell, -1 if the cell is empty
+		private int[] heads;
+		// the object in each slot, and the next and previous slots
+		// in the same cell. The previous slot of a cell's first slot
+		// is the cell's last slot.
+		private Object[] objs = new Object[16];
+		private int[] next = new int[16];
+		private int[] prev = new int[16];
+		private int slotCount = 0;
+		private int freeSlot = -1;
+		// incremented whenever an object is added or removed so that
+		// iterators can detect concurrent modification
+		private int modCount = 0;
+
+		Storage(GridDimensions dimensions) {
+			int dimCount = dimensions.size();
+			dims = dimensions.toIntArray(null);
+			origin = dimensions.originToIntArray(null);
+			strides = new int[dimCount];
+			long cellCount = 1;
+			for (int i = 0; i < dimCount; i++) {
+				strides[i] = (int) cellCount;
+				cellCount *= dims[i];
+				if (cellCount > Integer.MAX_VALUE) {
+					throw new IllegalArgumentException("Grid has too many cells for dense storage");
+				}
+			}
+			heads = new int[(int) cellCount];
+			Arrays.fill(heads, -1);
+		}
+
+		/**
+		 * Gets the index of the cell at the specified location.
+		 *
+		 * @return the index of the cell at the specified location or -1 if
+		 *         the location is outside the grid.
+		 */
+		int index(int[] point) {
+			int index = 0;
+			for (int i = 0; i < dims.length; i++) {
+				int coord = point[i] + origin[i];
+				if (coord < 0 || coord >= dims[i]) return -1;
+				index += coord * strides[i];
+			}
+			return index;
+		}
+
+		private int allocSlot() {
+			if (freeSlot != -1) {
+				int slot = freeSlot;
+				freeSlot = next[slot];
+				return slot;
+			}
+			if (slotCount == objs.length) {
+				int length = slotCount * 2;
+				objs = Arrays.copyOf(objs, length);
+				next = Arrays.copyOf(next, length);
+				prev = Arrays.copyOf(prev, length);
+			}
+			return slotCount++;
+		}
+
+		void add(int cell, Object obj) {
+			modCount++;
+			int slot = allocSlot();
+			objs[slot] = obj;
+			next[slot] = -1;
+			int head = heads[cell];
+			if (head == -1) {
+				heads[cell] = slot;
+				prev[slot] = slot;
+			} else {
+				// append to the end of the cell
+				int tail = prev[head];
+				next[tail] = slot;
+				prev[slot] = tail;
+				prev[head] = slot;
+			}
+		}
+
+		boolean remove(int cell, Object obj) {
+			for (int slot = heads[cell]; slot != -1; slot = next[slot]) {
+				if (objs[slot].equals(obj)) {
+					modCount++;
+					int head = heads[cell];
+					if (slot == head) {
+						heads[cell] = next[slot];
+						if (next[slot] != -1) prev[next[slot]] = prev[slot];
+					} else {
+						next[prev[slot]] = next[slot];
+						if (next[slot] != -1) prev[next[slot]] = prev[slot];
+						else prev[head] = prev[slot];
+					}
+					objs[slot] = null;
+					next[slot] = freeSlot;
+					freeSlot = slot;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		int count(int cell) {
+			int count = 0;
+			for (int slot = heads[cell]; slot != -1; slot = next[slot]) {
+				count++;
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * An accessor for this grid class.
+	 */
+	public static final class DenseMultiAccessor<V> implements CellAccessor<V, Storage> {
+
+		@SuppressWarnings("unchecked")
+		public V get(Storage storage, GridPoint location) {
+			int cell = storage.index(location.point);
+			if (cell == -1) return null;
+			int slot = storage.heads[cell];
+			return slot == -1 ? null : (V) storage.objs[slot];
+		}
+
+		public Iterable<V> getAll(Storage storage, GridPoint location) {
+			int cell = storage.index(location.point);
+			if (cell == -1 || storage.heads[cell] == -1) return Collections.emptyList();
+			return new CellIterable<V>(storage, cell);
+		}
+
+		@SuppressWarnings("unchecked")
+		public V getRandom(Storage storage, GridPoint location) {
+			int cell = storage.index(location.point);
+			if (cell == -1 || storage.heads[cell] == -1) return null;
+			int slot = storage.heads[cell];
+			for (int i = RandomHelper.nextIntFromTo(0, storage.count(cell) - 1); i > 0; i--) {
+				slot = storage.next[slot];
+			}
+			return (V) storage.objs[slot];
+		}
+
+		public boolean put(V obj, Storage storage, GridPoint location) {
+			int cell = storage.index(location.point);
+			if (cell == -1) return false;
+			storage.add(cell, obj);
+			return true;
+		}
+
+		public void remove(V obj, Storage storage, GridPoint location) {
+			int cell = storage.index(location.point);
+			if (cell != -1) storage.remove(cell, obj);
+		}
+
+		/**
+		 * Always returns true.
+		 *
+		 * @return true
+		 */
+		public boolean allowsMultiOccupancy() {
+			return true;
+		}
+	}
+
+	/**
+	 * Iterable over the objects in a single cell. Each iterator starts at the
+	 * cell's first slot and throws a ConcurrentModificationException if the
+	 * grid's storage is modified during iteration.
+	 */
+	private static class CellIterable<V> implements Iterable<V> {
+
+		private Storage storage;
+		private int cell;
+
+		CellIterable(Storage storage, int cell) {
+			this.storage = storage;
+			this.cell = cell;
+		}
+
+		public Iterator<V> iterator() {
+			return new CellIterator<V>(storage, storage.heads[cell]);
+		}
+	}
+
+	private static class CellIterator<V> implements Iterator<V> {
+
+		private Storage storage;
+		private int slot;
+		private int expectedModCount;
+
+		CellIterator(Storage storage, int slot) {
+			this.storage = storage;
+			this.slot = slot;
+			expectedModCount = storage.modCount;
+		}
+
+		public boolean hasNext() {
+			return slot != -1;
+		}
+
+		@SuppressWarnings("unchecked")
+		public V next() {
+			if (storage.modCount != expectedModCount) throw new ConcurrentModificationException();
+			if (slot == -1) throw new NoSuchElementException();
+			V obj = (V) storage.objs[slot];
+			slot = storage.next[slot];
+			return obj;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException("Remove is not supported by this iterator");
+		}
+	}
+
+	/**
+	 * Constructs this grid with the specified name, adder, translator and
+	 * size. The size is the size of the space meaning [3, 3] is a 3x3 space.
+	 *
+	 * @param name
+	 *            the name of the grid
+	 * @param adder
+	 *            the adder for adding new objects to the grid
+	 * @param translator
+	 *            the rule for handling out of bounds coordinates
+	 * @param size
+	 *            the dimensions of the grid
+	 * @throws IllegalArgumentException
+	 *             if the translator is an InfiniteBorders
+	 */
+	public DenseMultiOccuGrid(String name, GridAdder<T> adder, GridPointTranslator translator,
+			int... size) {
+		super(name, adder, checkTranslator(translator), new DenseMultiAccessor<T>(), size);
+	}
+
+	/**
+	 * Constructs this grid with the specified name, adder, translator, size
+	 * and origin. The size is the size of the space meaning [3, 3] is a 3x3
+	 * space.
+	 *
+	 * @param name
+	 *            the name of the grid
+	 * @param adder
+	 *            the adder for adding new objects to the grid
+	 * @param translator
+	 *            the rule for handling out of bounds coordinates
+	 * @param size
+	 *            the dimensions of the grid
+	 * @param origin
+	 *            the origin of the grid
+	 * @throws IllegalArgumentException
+	 *             if the translator is an InfiniteBorders
+	 */
+	public DenseMultiOccuGrid(String name, GridAdder<T> adder, GridPointTranslator translator,
+			int[] size, int[] origin) {
+		super(name, adder, checkTranslator(translator), new DenseMultiAccessor<T>(), size, origin);
+	}
+
+	// dense storage only covers the cells within the grid's dimensions
+	static GridPointTranslator checkTranslator(GridPointTranslator translator) {
+		if (translator instanceof InfiniteBorders) {
+			throw new IllegalArgumentException("A dense grid cannot be used with InfiniteBorders");
+		}
+		return translator;
+	}
+
+	/**
+	 * Sets the rule for handling out of bounds coordinates.
+	 *
+	 * @param rule
+	 *            the rule for handling out of bounds coordinates
+	 * @throws IllegalArgumentException
+	 *             if the rule is an InfiniteBorders
+	 */
+	@Override
+	public void setGridPointTranslator(GridPointTranslator rule) {
+		super.setGridPointTranslator(checkTranslator(rule));
+	}
+
+	@Override
+	protected Storage createLocationStorage() {
+		return new Storage(dimensions);
+	}
+
+	@Override
+	protected GridPoint doMove(T object, int[] movedCoords, PointHolder holder) {
+		int cell = locationStorage.index(movedCoords);
+		if (cell == -1) return null;
+
+		locationStorage.add(cell, object);
+		if (holder.point == null) {
+			// if the object hasn't yet been put in the space
+			size++;
+		} else {
+			locationStorage.remove(holder.index, object);
+		}
+		holder.index = cell;
+		setLocation(holder, movedCoords);
+		if (!listeners.isEmpty()) {
+			fireProjectionEvent(new ProjectionEvent<T>(this, object, ProjectionEvent.OBJECT_MOVED));
+		}
+		return holder.point;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	protected void forEachAt(GridPoint location, Object exclude, Consumer<? super T> action) {
+		int cell = locationStorage.index(location.point);
+		for (int slot = locationStorage.heads[cell]; slot != -1; slot = locationStorage.next[slot]) {
+			T obj = (T) locationStorage.objs[slot];
+			if (exclude == null || !exclude.equals(obj)) action.accept(obj);
+		}
+	}
+
+	/**
+	 * Gets the index of the cell at the specified location. The location is
+	 * not transformed by the grid's border rule.
+	 *
+	 * @param location
+	 *            the location
+	 * @return the index of the cell at the specified location, or -1 if the
+	 *         location is outside the grid.
+	 */
+	public int getCellIndex(int... location) {
+		return locationStorage.index(location);
+	}
+
+	/**
+	 * Gets the first slot in the specified cell.
+	 *
+	 * @param cellIndex
+	 *            the index of the cell
+	 * @return the first slot in the specified cell, or -1 if the cell is
+	 *         empty.
+	 */
+	public int getFirstSlot(int cellIndex) {
+		return locationStorage.heads[cellIndex];
+	}
+
+	/**
+	 * Gets the slot following the specified slot in the same cell.
+	 *
+	 * @param slot
+	 *            the current slot
+	 * @return the slot following the specified slot in the same cell, or -1
+	 *         if the specified slot is the last one in its cell.
+	 */
+	public int getNextSlot(int slot) {
+		return locationStorage.next[slot];
+	}
+
+	/**
+	 * Gets the object in the specified slot.
+	 *
+	 * @param slot
+	 *            the slot
+	 * @return the object in the specified slot.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getSlotObject(int slot) {
+		return (T) locationStorage.objs[slot];
+	}
+
+	/**
+	 * Gets the number of objects at the specified location.
+	 *
+	 * @param location
+	 *            the location
+	 * @return the number of objects at the specified location.
+	 */
+	public int getObjectCountAt(int... location) {
+		int[] loc = getTransformedLocation(location);
+		int cell = locationStorage.index(loc);
+		return cell == -1 ? 0 : locationStorage.count(cell);
+	}
+}
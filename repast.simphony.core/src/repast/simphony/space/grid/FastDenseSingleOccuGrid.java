@@ -1,13 +1,25 @@
 /*CopyrightHere*/
 package repast.simphony.space.grid;
 
-import repast.simphony.space.continuous.MultiOccupancyCoordinateAccessor;
-
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.function.Consumer;
+
+import repast.simphony.space.projection.ProjectionEvent;
 
 /**
- * Default implementation of an n-dimensional continuous space.
+ * A single occupancy n-dimensional grid backed by a single flat array with
+ * one element per cell. A location is converted to an array index using row
+ * major index arithmetic, and the index of each object's cell is kept with
+ * the object's location so that a move is a check and a couple of array
+ * writes. An object's GridPoint is updated in place when it has not been
+ * handed out by {@link #getLocation(Object)}, so moves need not allocate.
+ * <p>
+ *
+ * Locations are stored only for the cells within the grid's dimensions, so
+ * this grid cannot be used with {@link InfiniteBorders}. Passing
+ * InfiniteBorders to the constructor or to
+ * {@link #setGridPointTranslator(GridPointTranslator)} throws an
+ * IllegalArgumentException.
  */
 public class FastDenseSingleOccuGrid<T> extends AbstractGrid<T, Object[]> {
 
@@ -17,21 +29,53 @@ public class FastDenseSingleOccuGrid<T> extends AbstractGrid<T, Object[]> {
 	public static final class FastDenseAccessor<V> implements
           CellAccessor<V, Object[]> {
 
-		public V get(Object[] locationStorage, GridPoint location) {
-			int dims = location.dimensionCount();
-			for (int i = 0; i < dims; i++) {
-				if (i == dims - 1) {
-					locationStorage = (Object[]) locationStorage[location
-							.getCoord(i)];
-				} else {
-					return (V) locationStorage[location.getCoord(i)];
+		private int[] dims, origin, strides;
+
+		void init(GridDimensions dimensions) {
+			int dimCount = dimensions.size();
+			dims = dimensions.toIntArray(null);
+			origin = dimensions.originToIntArray(null);
+			strides = new int[dimCount];
+			long cellCount = 1;
+			for (int i = 0; i < dimCount; i++) {
+				strides[i] = (int) cellCount;
+				cellCount *= dims[i];
+				if (cellCount > Integer.MAX_VALUE) {
+					throw new IllegalArgumentException("Grid has too many cells for dense storage");
 				}
 			}
-			return null;
+		}
+
+		int cellCount() {
+			return dims.length == 0 ? 0 : strides[dims.length - 1] * dims[dims.length - 1];
+		}
+
+		/**
+		 * Gets the index in the storage array of the specified coordinates.
+		 *
+		 * @return the index of the specified coordinates or -1 if the
+		 *         coordinates are outside the grid.
+		 */
+		int index(int[] point) {
+			int index = 0;
+			for (int i = 0; i < dims.length; i++) {
+				int coord = point[i] + origin[i];
+				if (coord < 0 || coord >= dims[i]) return -1;
+				index += coord * strides[i];
+			}
+			return index;
+		}
+
+		@SuppressWarnings("unchecked")
+		public V get(Object[] locationStorage, GridPoint location) {
+			int index = index(location.point);
+			return index == -1 ? null : (V) locationStorage[index];
 		}
 
 		public Iterable<V> getAll(Object[] locationStorage, GridPoint location) {
-			return Collections.singleton(get(locationStorage, location));
+			V obj = get(locationStorage, location);
+			if (obj == null) return Collections.emptyList();
+			return Collections.singletonList(obj);
 		}
 
 		public V getRandom(Object[] locationStorage, GridPoint location) {
@@ -39,36 +83,20 @@ public class FastDenseSingleOccuGrid<T> extends AbstractGrid<T, Object[]> {
 		}
 
 		public boolean put(V obj, Object[] locationStorage, GridPoint location) {
-			int dims = location.dimensionCount();
-			for (int i = 0; i < dims; i++) {
-				if (i != dims - 1) {
-					locationStorage = (Object[]) locationStorage[location
-							.getCoord(i)];
-				} else {
-					if (locationStorage[location.getCoord(i)] == null) {
-						locationStorage[location.getCoord(i)] = obj;
-						return true;
-					} else {
-						return false;
-					}
-				}
-			}
-			return false;
+			int index = index(location.point);
+			if (index == -1 || locationStorage[index] != null) return false;
+			locationStorage[index] = obj;
+			return true;
 		}
 
     public boolean allowsMultiOccupancy() {
-      return false; 
+      return false;
     }
 
     public void remove(V obj, Object[] locationStorage, GridPoint location) {
-			int dims = location.dimensionCount();
-			for (int i = 0; i < dims; i++) {
-				if (i == dims - 1) {
-					locationStorage = (Object[]) locationStorage[location
-							.getCoord(i)];
-				} else {
-					locationStorage[location.getCoord(i)] = null;
-				}
+			int index = index(location.point);
+			if (index != -1 && obj.equals(locationStorage[index])) {
+				locationStorage[index] = null;
 			}
 		}
 
@@ -78,25 +106,47 @@ public class FastDenseSingleOccuGrid<T> extends AbstractGrid<T, Object[]> {
 	 * Constructs this space with the specified name, adder, translator,
 	 * accessor and size. The size is the size of the space meaning [3, 3] is a
 	 * 3x3 space.
-	 * 
+	 *
 	 * @param name
 	 *            the name of the space
 	 * @param size
 	 *            the dimensions of the space
+	 * @throws IllegalArgumentException
+	 *             if the translator is an InfiniteBorders
 	 */
 	public FastDenseSingleOccuGrid(String name, GridAdder<T> adder, GridPointTranslator translator,
 			int... size) {
-		super(name, adder, translator, new FastDenseAccessor<T>(), size);
+		super(name, adder, DenseMultiOccuGrid.checkTranslator(translator), new FastDenseAccessor<T>(),
+				size);
+	}
+
+	/**
+	 * Constructs this space with the specified name, adder, translator, size
+	 * and origin. The size is the size of the space meaning [3, 3] is a 3x3
+	 * space.
+	 *
+	 * @param name
+	 *            the name of the space
+	 * @param size
+	 *            the dimensions of the space
+	 * @param origin
+	 *            the origin of the space
+	 * @throws IllegalArgumentException
+	 *             if the translator is an InfiniteBorders
+	 */
+	public FastDenseSingleOccuGrid(String name, GridAdder<T> adder, GridPointTranslator translator,
+			int[] size, int[] origin) {
+		super(name, adder, DenseMultiOccuGrid.checkTranslator(translator), new FastDenseAccessor<T>(),
+				size, origin);
 	}
 
 	/**
 	 * Constructs this space with the specified name and size. The size is the
 	 * size of the space meaning [3, 3] is a 3x3 space. This uses by default a
-	 * {@link SimpleGridAdder}, a {@link repast.simphony.space.continuous.StickyBorders},
-	 * and a {@link MultiOccupancyCoordinateAccessor}; this means that objects
-	 * cannot leave the space, are added to (0, 0, ..., 0) when added to the
-	 * context, and that multiple objects can be at the same coordinate.
-	 * 
+	 * {@link SimpleGridAdder} and {@link StrictBorders}; this means that
+	 * objects cannot leave the space and are added to (0, 0, ..., 0) when
+	 * added to the context.
+	 *
 	 * @param name
 	 *            the name of the space
 	 * @param size
@@ -106,24 +156,50 @@ public class FastDenseSingleOccuGrid<T> extends AbstractGrid<T, Object[]> {
 		super(name, new SimpleGridAdder<T>(), new StrictBorders(), new FastDenseAccessor<T>(), size);
 	}
 
+	/**
+	 * Sets the rule for handling out of bounds coordinates.
+	 *
+	 * @param rule
+	 *            the rule for handling out of bounds coordinates
+	 * @throws IllegalArgumentException
+	 *             if the rule is an InfiniteBorders
+	 */
+	@Override
+	public void setGridPointTranslator(GridPointTranslator rule) {
+		super.setGridPointTranslator(DenseMultiOccuGrid.checkTranslator(rule));
+	}
+
 	@Override
 	public Object[] createLocationStorage() {
-		Object[] storage = new Object[dimensions.getDimension(0)];
-
-		LinkedList<Object[]> prevLevel = new LinkedList<Object[]>();
-		prevLevel.add(storage);
-
-		for (int i = 1; i < dimensions.size(); i++) {
-			LinkedList<Object[]> prevLevelTemp = new LinkedList<Object[]>();
-			for (int j = 0; prevLevel.size() > 0; j++) {
-				Object[] level = prevLevel.remove();
-				for (int k = 0; k < level.length; k++) {
-					level[k] = new Object[dimensions.getDimension(i)];
-					prevLevelTemp.add((Object[]) level[k]);
-				}
-			}
-			prevLevel = prevLevelTemp;
+		FastDenseAccessor<T> fastAccessor = (FastDenseAccessor<T>) accessor;
+		fastAccessor.init(dimensions);
+		return new Object[fastAccessor.cellCount()];
+	}
+
+	@Override
+	protected GridPoint doMove(T object, int[] movedCoords, PointHolder holder) {
+		int index = ((FastDenseAccessor<T>) accessor).index(movedCoords);
+		if (index == -1 || locationStorage[index] != null) return null;
+
+		locationStorage[index] = object;
+		if (holder.point == null) {
+			// if the object hasn't yet been put in the space
+			size++;
+		} else {
+			locationStorage[holder.index] = null;
 		}
-		return storage;
+		holder.index = index;
+		setLocation(holder, movedCoords);
+		if (!listeners.isEmpty()) {
+			fireProjectionEvent(new ProjectionEvent<T>(this, object, ProjectionEvent.OBJECT_MOVED));
+		}
+		return holder.point;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	protected void forEachAt(GridPoint location, Object exclude, Consumer<? super T> action) {
+		T obj = (T) locationStorage[((FastDenseAccessor<T>) accessor).index(location.point)];
+		if (obj != null && (exclude == null || !exclude.equals(obj))) action.accept(obj);
 	}
 }
@@ -1,6 +1,11 @@
 /*CopyrightHere*/
 package repast.simphony.space.grid;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import repast.simphony.space.NearestNeighbors;
 import repast.simphony.space.projection.Projection;
 
 /**
@@ -49,6 +54,43 @@ public interface Grid<T> extends Projection<T> {
 	 */
 	boolean moveTo(T object, int... newLocation);
 
+	/**
+	 * Moves the specified object from its current location to the specified
+	 * 2D location without creating an array for the location.
+	 * 
+	 * @param object
+	 * @param x
+	 * @param y
+	 * @return true if the move was successful, otherwise false.
+	 * @throws repast.simphony.space.SpatialException
+	 *             if the object is not already in the space, if the grid is
+	 *             not 2 dimensional, or if the object is moved outside the
+	 *             grid dimensions.
+	 * @see #moveTo(Object, int...)
+	 */
+	default boolean moveTo(T object, int x, int y) {
+		return moveTo(object, new int[] { x, y });
+	}
+
+	/**
+	 * Moves the specified object from its current location to the specified
+	 * 3D location without creating an array for the location.
+	 * 
+	 * @param object
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return true if the move was successful, otherwise false.
+	 * @throws repast.simphony.space.SpatialException
+	 *             if the object is not already in the space, if the grid is
+	 *             not 3 dimensional, or if the object is moved outside the
+	 *             grid dimensions.
+	 * @see #moveTo(Object, int...)
+	 */
+	default boolean moveTo(T object, int x, int y, int z) {
+		return moveTo(object, new int[] { x, y, z });
+	}
+
 
   /**
 	 * Gets the location of the specified object.
@@ -59,6 +101,21 @@ public interface Grid<T> extends Projection<T> {
 	 */
 	GridPoint getLocation(Object obj);
 
+	/**
+	 * Copies the location of the specified object into the specified array.
+	 * 
+	 * @param obj
+	 * @param location
+	 *            the array to copy the location into. If this is null, a new
+	 *            array is created.
+	 * @return the array containing the location, or null if the object is not
+	 *         in the space.
+	 */
+	default int[] getLocation(Object obj, int[] location) {
+		GridPoint point = getLocation(obj);
+		return point == null ? null : point.toIntArray(location);
+	}
+
 	/**
 	 * Gets the number of objects currently in the space. This does NOT include
 	 * any objects that may have been added, but have NOT been moved to a space
@@ -215,4 +272,171 @@ public interface Grid<T> extends Projection<T> {
 	 * @return the square of the distance between the two points
 	 */
 	double getDistanceSq(GridPoint point1, GridPoint point2);
+
+	/**
+	 * Gets the k objects nearest to the specified object, taking into account
+	 * the grid's topology. The specified object itself is not included.
+	 * 
+	 * @param obj
+	 *            the object to measure the distance from
+	 * @param k
+	 *            the number of objects to get
+	 * @return the k nearest objects, sorted from nearest to farthest. This
+	 *         will contain fewer than k objects if the grid contains fewer
+	 *         than k other objects, and none if the object is not in the grid.
+	 */
+	default List<T> getNearest(T obj, int k) {
+		GridPoint point = getLocation(obj);
+		if (point == null) return new ArrayList<T>();
+		// checks every object, implementations with a spatial index override this
+		NearestNeighbors<T> nearest = new NearestNeighbors<T>(k, null, obj);
+		for (T other : getObjects()) {
+			GridPoint location = getLocation(other);
+			if (location != null) nearest.offer(other, getDistanceSq(point, location));
+		}
+		return nearest.toList();
+	}
+
+	/**
+	 * Gets the k objects nearest to the specified point that are instances of
+	 * the specified class, taking into account the grid's topology.
+	 * 
+	 * @param point
+	 *            the point to measure the distance from
+	 * @param k
+	 *            the number of objects to get
+	 * @param filter
+	 *            only objects that are instances of this class are returned. If
+	 *            this is null, objects of any class are returned.
+	 * @return the k nearest objects, sorted from nearest to farthest. This
+	 *         will contain fewer than k objects if the grid contains fewer
+	 *         than k matching objects.
+	 */
+	default List<T> getNearest(GridPoint point, int k, Class<?> filter) {
+		NearestNeighbors<T> nearest = new NearestNeighbors<T>(k, filter, null);
+		for (T obj : getObjects()) {
+			GridPoint location = getLocation(obj);
+			if (location != null) nearest.offer(obj, getDistanceSq(point, location));
+		}
+		return nearest.toList();
+	}
+
+	/**
+	 * Passes each object in the Moore neighborhood of the specified object to
+	 * the specified action. The neighborhood does not include the object's own
+	 * cell. Objects are visited in the same order as a
+	 * {@link repast.simphony.query.space.grid.MooreQuery} returns them, but
+	 * without allocating per cell or per object. Nothing is visited if the
+	 * object does not have a location. The action must not add, move or
+	 * remove objects in this grid.
+	 * 
+	 * @param source
+	 *            the object at the center of the neighborhood
+	 * @param extent
+	 *            the extent of the neighborhood in each dimension. If this is
+	 *            null or empty, the extent is one in each dimension.
+	 * @param action
+	 *            the action to pass the objects to
+	 */
+	default void forEachInMoore(T source, int[] extent, Consumer<? super T> action) {
+		GridPoint point = getLocation(source);
+		if (point != null) forEachInMoore(point, extent, action);
+	}
+
+	/**
+	 * Passes each object in the Moore neighborhood of the specified point to
+	 * the specified action. The neighborhood does not include the point's own
+	 * cell.
+	 * 
+	 * @param center
+	 *            the center of the neighborhood
+	 * @param extent
+	 *            the extent of the neighborhood in each dimension. If this is
+	 *            null or empty, the extent is one in each dimension.
+	 * @param action
+	 *            the action to pass the objects to
+	 * @see #forEachInMoore(Object, int[], Consumer)
+	 */
+	default void forEachInMoore(GridPoint center, int[] extent, Consumer<? super T> action) {
+		int[] offsets = GridNeighborhood.mooreOffsets(GridNeighborhood.checkExtent(
+				getDimensions().size(), extent));
+		GridNeighborhood.forEach(this, center, offsets, null, action);
+	}
+
+	/**
+	 * Passes each object in the Von Neumann neighborhood of the specified
+	 * object to the specified action. The neighborhood does not include the
+	 * object's own cell. Objects are visited in the same order as a
+	 * {@link repast.simphony.query.space.grid.VNQuery} returns them. Nothing is
+	 * visited if the object does not have a location.
+	 * 
+	 * @param source
+	 *            the object at the center of the neighborhood
+	 * @param extent
+	 *            the extent of the neighborhood in each dimension. If this is
+	 *            null or empty, the extent is one in each dimension.
+	 * @param action
+	 *            the action to pass the objects to
+	 */
+	default void forEachInVN(T source, int[] extent, Consumer<? super T> action) {
+		GridPoint point = getLocation(source);
+		if (point != null) forEachInVN(point, extent, action);
+	}
+
+	/**
+	 * Passes each object in the Von Neumann neighborhood of the specified
+	 * point to the specified action. The neighborhood does not include the
+	 * point's own cell.
+	 * 
+	 * @param center
+	 *            the center of the neighborhood
+	 * @param extent
+	 *            the extent of the neighborhood in each dimension. If this is
+	 *            null or empty, the extent is one in each dimension.
+	 * @param action
+	 *            the action to pass the objects to
+	 * @see #forEachInVN(Object, int[], Consumer)
+	 */
+	default void forEachInVN(GridPoint center, int[] extent, Consumer<? super T> action) {
+		int[] offsets = GridNeighborhood.vonNeumannOffsets(GridNeighborhood.checkExtent(
+				getDimensions().size(), extent));
+		GridNeighborhood.forEach(this, center, offsets, null, action);
+	}
+
+	/**
+	 * Passes each object within the specified distance of the specified object
+	 * to the specified action, taking into account the grid's topology. The
+	 * specified object itself is not passed. "Within" includes the distance.
+	 * Nothing is visited if the object does not have a location.
+	 * 
+	 * @param source
+	 *            the object to measure the distance from
+	 * @param distance
+	 *            the distance
+	 * @param action
+	 *            the action to pass the objects to
+	 */
+	default void forEachWithin(T source, double distance, Consumer<? super T> action) {
+		GridPoint point = getLocation(source);
+		if (point == null) return;
+		int[] offsets = GridNeighborhood.withinOffsets(distance, getDimensions(), isPeriodic());
+		GridNeighborhood.forEach(this, point, offsets, source, action);
+	}
+
+	/**
+	 * Passes each object within the specified distance of the specified point
+	 * to the specified action, taking into account the grid's topology.
+	 * "Within" includes the distance.
+	 * 
+	 * @param center
+	 *            the point to measure the distance from
+	 * @param distance
+	 *            the distance
+	 * @param action
+	 *            the action to pass the objects to
+	 */
+	default void forEachWithin(GridPoint center, double distance, Consumer<? super T> action) {
+		int[] offsets = GridNeighborhood.withinOffsets(distance, getDimensions(), isPeriodic());
+		GridNeighborhood.forEach(this, center, offsets, null, action);
+	}
 }
@@ -16,6 +16,7 @@ public class GridBuilderParameters<T> {
 	protected int[] dims;
 	protected int[] origin;
 	protected boolean isMulti;
+	protected boolean isDense;
 
 	/**
 	 * Creates parameters with the specified border rule, adder, multi occupancy and dimensions.
@@ -104,6 +105,27 @@ public class GridBuilderParameters<T> {
 		return isMulti;
 	}
 
+	/**
+	 * Sets whether or not the grid's cells are stored in flat arrays covering
+	 * every cell rather than in a map of the occupied cells. Dense storage
+	 * is faster and, for grids where most cells are occupied, smaller, but
+	 * cannot be used with {@link InfiniteBorders}.
+	 *
+	 * @param dense whether or not the grid's cells are stored densely
+	 * @return these parameters
+	 */
+	public GridBuilderParameters<T> setDense(boolean dense) {
+		isDense = dense;
+		return this;
+	}
+
+	/**
+	 * @return true if the grid's cells are stored in flat arrays covering every cell
+	 */
+	public boolean isDense() {
+		return isDense;
+	}
+
 	/**
 	 * Returns GridBuilderParameters suitable for creating a single occupancy 1 dimensional grid.
 	 *
@@ -267,4 +289,70 @@ public class GridBuilderParameters<T> {
 	public static <T> GridBuilderParameters<T> multiOccupancyNDTorus(GridAdder<T> adder, int... dimensions) {
 		return new GridBuilderParameters<T>(new WrapAroundBorders(), adder, true, dimensions);
 	}
+
+	/**
+	 * Returns GridBuilderParameters suitable for creating a multi occupancy 2 dimensional grid
+	 * whose cells are stored densely.
+	 *
+	 * @param adder the adder used to add objects to the grid when those objects are added to
+	 * the context for which the grid is a projection
+	 * @param borderRule the rule used to determine border behavior
+	 * @param xSize the size of the x dimension
+	 * @param ySize the size of the y dimension
+	 * @return GridBuilderParameters suitable for creating a dense multi occupancy 2 dimensional grid.
+	 * @see #setDense(boolean)
+	 */
+	public static <T> GridBuilderParameters<T> denseMultiOccupancy2D(GridAdder<T> adder,
+	                                                          GridPointTranslator borderRule, int xSize, int ySize) {
+		return new GridBuilderParameters<T>(borderRule, adder, true, xSize, ySize).setDense(true);
+	}
+
+	/**
+	 * Returns GridBuilderParameters suitable for creating a multi occupancy n-dimensional grid
+	 * whose cells are stored densely.
+	 *
+	 * @param adder the adder used to add objects to the grid when those objects are added to
+	 * the context for which the grid is a projection
+	 * @param borderRule the rule used to determine border behavior
+	 * @param dimensions the dimensions of the grid
+	 * @return GridBuilderParameters suitable for creating a dense multi occupancy n-dimensional grid.
+	 * @see #setDense(boolean)
+	 */
+	public static <T> GridBuilderParameters<T> denseMultiOccupancyND(GridAdder<T> adder,
+	                                                          GridPointTranslator borderRule, int... dimensions) {
+		return new GridBuilderParameters<T>(borderRule, adder, true, dimensions).setDense(true);
+	}
+
+	/**
+	 * Returns GridBuilderParameters suitable for creating a single occupancy 2 dimensional grid
+	 * whose cells are stored densely.
+	 *
+	 * @param adder the adder used to add objects to the grid when those objects are added to
+	 * the context for which the grid is a projection
+	 * @param borderRule the rule used to determine border behavior
+	 * @param xSize the size of the x dimension
+	 * @param ySize the size of the y dimension
+	 * @return GridBuilderParameters suitable for creating a dense single occupancy 2 dimensional grid.
+	 * @see #setDense(boolean)
+	 */
+	public static <T> GridBuilderParameters<T> denseSingleOccupancy2D(GridAdder<T> adder,
+	                                                          GridPointTranslator borderRule, int xSize, int ySize) {
+		return new GridBuilderParameters<T>(borderRule, adder, false, xSize, ySize).setDense(true);
+	}
+
+	/**
+	 * Returns GridBuilderParameters suitable for creating a single occupancy n-dimensional grid
+	 * whose cells are stored densely.
+	 *
+	 * @param adder the adder used to add objects to the grid when those objects are added to
+	 * the context for which the grid is a projection
+	 * @param borderRule the rule used to determine border behavior
+	 * @param dimensions the dimensions of the grid
+	 * @return GridBuilderParameters suitable for creating a dense single occupancy n-dimensional grid.
+	 * @see #setDense(boolean)
+	 */
+	public static <T> GridBuilderParameters<T> denseSingleOccupancyND(GridAdder<T> adder,
+	                                                          GridPointTranslator borderRule, int... dimensions) {
+		return new GridBuilderParameters<T>(borderRule, adder, false, dimensions).setDense(true);
+	}
 }
@@ -0,0 +1,241 @@
+package repast.simphony.space.grid;
+
+import java.util.function.Consumer;
+
+/**
+ * Offset tables for grid neighborhoods. A table holds the offsets of every
+ * cell in a neighborhood relative to the neighborhood's center, flattened so
+ * that the offsets of the i-th cell are at [i * dimCount, (i + 1) *
+ * dimCount). A table depends only on the neighborhood's shape and so can be
+ * computed once and reused for every center.
+ */
+public class GridNeighborhood {
+
+	private GridNeighborhood() {
+	}
+
+	/**
+	 * Gets the extent to use for a neighborhood query on a grid with the
+	 * specified number of dimensions. If the extent is null or empty, this
+	 * returns an extent of one in every dimension.
+	 *
+	 * @param dimCount
+	 *            the number of grid dimensions
+	 * @param extent
+	 *            the requested extent
+	 * @return the extent to use.
+	 * @throws IllegalArgumentException
+	 *             if the extent does not have an entry for each dimension
+	 */
+	public static int[] checkExtent(int dimCount, int[] extent) {
+		if (extent == null || extent.length == 0) {
+			extent = new int[dimCount];
+			for (int i = 0; i < dimCount; i++) {
+				extent[i] = 1;
+			}
+		}
+		if (extent.length != dimCount) {
+			throw new IllegalArgumentException("Number of extents must match the number of grid dimensions");
+		}
+		return extent;
+	}
+
+	/**
+	 * Creates the offset table for a Moore neighborhood with the specified
+	 * extent. The center cell is not included. For 1 and 2 dimensions the
+	 * offsets are ordered by x and then by y, and for 3 dimensions by z, then x
+	 * and then y, matching the order of {@link repast.simphony.query.space.grid.MooreQuery}.
+	 *
+	 * @param extent
+	 *            the extent of the neighborhood in each dimension
+	 * @return the offset table for a Moore neighborhood with the specified
+	 *         extent.
+	 */
+	public static int[] mooreOffsets(int[] extent) {
+		int dimCount = extent.length;
+		// dimensions from outermost to innermost
+		int[] order = new int[dimCount];
+		for (int i = 0; i < dimCount; i++) {
+			order[i] = i;
+		}
+		if (dimCount == 3) {
+			order[0] = 2;
+			order[1] = 0;
+			order[2] = 1;
+		}
+
+		int cellCount = 1;
+		for (int i = 0; i < dimCount; i++) {
+			cellCount *= 2 * extent[i] + 1;
+		}
+		int[] offsets = new int[(cellCount - 1) * dimCount];
+		int[] counter = new int[dimCount];
+		for (int i = 0; i < dimCount; i++) {
+			counter[i] = -extent[i];
+		}
+
+		int index = 0;
+		while (true) {
+			boolean center = true;
+			for (int i = 0; i < dimCount; i++) {
+				if (counter[i] != 0) center = false;
+			}
+			if (!center) {
+				System.arraycopy(counter, 0, offsets, index, dimCount);
+				index += dimCount;
+			}
+
+			int i = dimCount - 1;
+			while (i >= 0 && counter[order[i]] == extent[order[i]]) {
+				counter[order[i]] = -extent[order[i]];
+				i--;
+			}
+			if (i < 0) break;
+			counter[order[i]]++;
+		}
+		return offsets;
+	}
+
+	/**
+	 * Creates the offset table for a Von Neumann neighborhood with the
+	 * specified extent. The center cell is not included. The offsets are
+	 * ordered by dimension and then from negative to positive, matching the
+	 * order of {@link repast.simphony.query.space.grid.VNQuery}.
+	 *
+	 * @param extent
+	 *            the extent of the neighborhood in each dimension
+	 * @return the offset table for a Von Neumann neighborhood with the
+	 *         specified extent.
+	 */
+	public static int[] vonNeumannOffsets(int[] extent) {
+		int dimCount = extent.length;
+		int cellCount = 0;
+		for (int i = 0; i < dimCount; i++) {
+			cellCount += 2 * extent[i];
+		}
+		int[] offsets = new int[cellCount * dimCount];
+		int index = 0;
+		for (int i = 0; i < dimCount; i++) {
+			for (int offset = -extent[i]; offset <= extent[i]; offset++) {
+				if (offset == 0) continue;
+				offsets[index + i] = offset;
+				index += dimCount;
+			}
+		}
+		return offsets;
+	}
+
+	/**
+	 * Creates the offset table for all the cells within the specified
+	 * distance of the center in a grid with the specified dimensions. The
+	 * center cell is included. If the grid is periodic and the distance
+	 * reaches around the grid, each cell is included only once, at its
+	 * nearest offset.
+	 *
+	 * @param distance
+	 *            the distance
+	 * @param dimensions
+	 *            the dimensions of the grid
+	 * @param periodic
+	 *            whether or not the grid wraps around its borders
+	 * @return the offset table for all the cells within the specified
+	 *         distance of the center.
+	 */
+	public static int[] withinOffsets(double distance, GridDimensions dimensions, boolean periodic) {
+		int dimCount = dimensions.size();
+		if (!(distance >= 0)) return new int[0];
+		int radius = (int) Math.min(Math.floor(distance), Integer.MAX_VALUE / 2);
+		double distSq = distance * distance;
+
+		int[] los = new int[dimCount];
+		int[] his = new int[dimCount];
+		long cellCount = 1;
+		for (int i = 0; i < dimCount; i++) {
+			int n = dimensions.getDimension(i);
+			los[i] = -radius;
+			his[i] = radius;
+			if (periodic && 2L * radius + 1 > n) {
+				los[i] = -(n - 1) / 2;
+				his[i] = n / 2;
+			} else if (!periodic) {
+				// the center can be anywhere in the grid
+				los[i] = Math.max(-radius, -(n - 1));
+				his[i] = Math.min(radius, n - 1);
+			}
+			cellCount *= his[i] - los[i] + 1;
+		}
+		if (cellCount * dimCount > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Distance is too large for an offset table");
+		}
+
+		int[] offsets = new int[(int) cellCount * dimCount];
+		int[] counter = los.clone();
+		int index = 0;
+		while (true) {
+			double sum = 0;
+			for (int i = 0; i < dimCount; i++) {
+				sum += (double) counter[i] * counter[i];
+			}
+			if (sum <= distSq) {
+				System.arraycopy(counter, 0, offsets, index, dimCount);
+				index += dimCount;
+			}
+
+			int i = 0;
+			while (i < dimCount && counter[i] == his[i]) {
+				counter[i] = los[i];
+				i++;
+			}
+			if (i == dimCount) break;
+			counter[i]++;
+		}
+
+		int[] tmp = new int[index];
+		System.arraycopy(offsets, 0, tmp, 0, index);
+		return tmp;
+	}
+
+	/**
+	 * Passes the objects in each cell of a neighborhood to the specified
+	 * action, using only the public Grid methods to get the objects in a
+	 * cell. Cells outside a non-periodic grid are skipped.
+	 *
+	 * @param grid
+	 *            the grid
+	 * @param center
+	 *            the center of the neighborhood
+	 * @param offsets
+	 *            the neighborhood's offset table
+	 * @param exclude
+	 *            an object that is not passed to the action. This may be
+	 *            null.
+	 * @param action
+	 *            the action to pass the objects to
+	 */
+	public static <T> void forEach(Grid<T> grid, GridPoint center, int[] offsets, Object exclude,
+			Consumer<? super T> action) {
+		GridDimensions dimensions = grid.getDimensions();
+		int dimCount = dimensions.size();
+		boolean periodic = grid.isPeriodic();
+		int[] coords = new int[dimCount];
+		for (int j = 0; j < offsets.length; j += dimCount) {
+			boolean inside = true;
+			for (int i = 0; i < dimCount; i++) {
+				int c = center.getCoord(i) + offsets[j + i];
+				if (!periodic) {
+					int origin = dimensions.getOrigin(i);
+					if (c < -origin || c >= dimensions.getDimension(i) - origin) {
+						inside = false;
+						break;
+					}
+				}
+				coords[i] = c;
+			}
+			if (inside) {
+				for (T obj : grid.getObjectsAt(coords)) {
+					if (obj != null && (exclude == null || !exclude.equals(obj))) action.accept(obj);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package repast.simphony.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Invokes a specific method on target objects. MethodInvokers are created by a
+ * {@link MethodInvokerFactory}.
+ */
+public interface MethodInvoker {
+
+  /**
+   * Invokes the method on the specified target, passing the specified
+   * arguments. The target is ignored if the method is static.
+   *
+   * @param target
+   *          the object to invoke the method on
+   * @param args
+   *          the arguments to pass to the method
+   * @return the value returned by the method or null if the method is void
+   * @throws InvocationTargetException
+   *           if the invoked method throws an exception. Errors thrown by the
+   *           method are not wrapped.
+   * @throws IllegalArgumentException
+   *           if the target is not an instance of the method's class or the
+   *           arguments do not match the method's parameters
+   */
+  Object invoke(Object target, Object[] args) throws InvocationTargetException;
+
+  /**
+   * Gets the method that this MethodInvoker invokes.
+   *
+   * @return the method that this MethodInvoker invokes.
+   */
+  Method getMethod();
+}
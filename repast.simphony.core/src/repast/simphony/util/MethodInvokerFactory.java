@@ -0,0 +1,433 @@
+package repast.simphony.util;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Creates and caches {@link MethodInvoker}s. Where possible, an invoker calls
+ * its method through a class generated with the LambdaMetafactory so that the
+ * call is a direct call the JIT can inline and no argument array is needed for
+ * methods with fewer than three parameters. Static methods, methods with more
+ * parameters and methods whose classes cannot be linked from a generated class
+ * are invoked through a MethodHandle and, failing that, through reflection.
+ */
+public class MethodInvokerFactory {
+
+  // The functional interfaces implemented by the generated classes. These
+  // must be public so that they can be implemented by classes generated
+  // in the package of the invoked method.
+
+  public interface Function0 {
+    Object apply(Object target);
+  }
+
+  public interface Function1 {
+    Object apply(Object target, Object arg);
+  }
+
+  public interface Function2 {
+    Object apply(Object target, Object arg1, Object arg2);
+  }
+
+  public interface Procedure0 {
+    void apply(Object target);
+  }
+
+  public interface Procedure1 {
+    void apply(Object target, Object arg);
+  }
+
+  public interface Procedure2 {
+    void apply(Object target, Object arg1, Object arg2);
+  }
+
+  private static final Class<?>[] FUNCTIONS = { Function0.class, Function1.class,
+      Function2.class };
+  private static final Class<?>[] PROCEDURES = { Procedure0.class, Procedure1.class,
+      Procedure2.class };
+
+  // MethodHandles.privateLookupIn, only available in java 9 and later.
+  private static final Method PRIVATE_LOOKUP_IN = findPrivateLookupIn();
+
+  private static final ClassValue<ConcurrentMap<Method, MethodInvoker>> cache = new ClassValue<ConcurrentMap<Method, MethodInvoker>>() {
+    @Override
+    protected ConcurrentMap<Method, MethodInvoker> computeValue(Class<?> type) {
+      return new ConcurrentHashMap<Method, MethodInvoker>();
+    }
+  };
+
+  private static Method findPrivateLookupIn() {
+    try {
+      return MethodHandles.class.getMethod("privateLookupIn", Class.class, Lookup.class);
+    } catch (NoSuchMethodException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Gets a MethodInvoker for the specified method. The invoker is created the
+   * first time this is called for a method and cached for subsequent calls.
+   *
+   * @param method
+   *          the method to get the invoker for
+   * @return a MethodInvoker for the specified method.
+   */
+  public static MethodInvoker getInvoker(Method method) {
+    ConcurrentMap<Method, MethodInvoker> invokers = cache.get(method.getDeclaringClass());
+    MethodInvoker invoker = invokers.get(method);
+    if (invoker == null) {
+      invoker = createInvoker(method);
+      MethodInvoker existing = invokers.putIfAbsent(method, invoker);
+      if (existing != null)
+        invoker = existing;
+    }
+    return invoker;
+  }
+
+  /**
+   * Creates a new, uncached MethodInvoker for the specified method.
+   *
+   * @param method
+   *          the method to create the invoker for
+   * @return the created MethodInvoker.
+   */
+  public static MethodInvoker createInvoker(Method method) {
+    Lookup lookup = findLookup(method.getDeclaringClass());
+    MethodHandle handle = null;
+    try {
+      handle = lookup.unreflect(method);
+    } catch (IllegalAccessException ex) {
+      // fall back to reflection
+    }
+
+    if (handle != null) {
+      MethodInvoker invoker = createLambdaInvoker(lookup, method, handle);
+      if (invoker != null)
+        return invoker;
+      return new HandleInvoker(method, handle);
+    }
+    return new ReflectionInvoker(method);
+  }
+
+  // finds the lookup with the most access to the specified class
+  private static Lookup findLookup(Class<?> clazz) {
+    if (PRIVATE_LOOKUP_IN != null) {
+      try {
+        return (Lookup) PRIVATE_LOOKUP_IN.invoke(null, clazz, MethodHandles.lookup());
+      } catch (Exception ex) {
+        // fall through to the lookups below
+      }
+    }
+
+    if (isVisible(clazz, MethodInvokerFactory.class.getClassLoader())) {
+      return MethodHandles.lookup();
+    }
+    return MethodHandles.publicLookup();
+  }
+
+  private static boolean isVisible(Class<?> type, ClassLoader loader) {
+    while (type.isArray()) {
+      type = type.getComponentType();
+    }
+    if (type.isPrimitive())
+      return true;
+
+    try {
+      return Class.forName(type.getName(), false, loader) == type;
+    } catch (ClassNotFoundException ex) {
+      return false;
+    } catch (LinkageError er) {
+      return false;
+    }
+  }
+
+  // returns null if a generated invoker cannot be created
+  private static MethodInvoker createLambdaInvoker(Lookup lookup, Method method,
+      MethodHandle handle) {
+    Class<?>[] params = method.getParameterTypes();
+    if (Modifier.isStatic(method.getModifiers()) || method.isVarArgs()
+        || params.length >= FUNCTIONS.length || (lookup.lookupModes() & Lookup.PRIVATE) == 0) {
+      return null;
+    }
+
+    boolean isVoid = method.getReturnType().equals(void.class);
+    Class<?> fType = isVoid ? PROCEDURES[params.length] : FUNCTIONS[params.length];
+
+    // the generated class is defined by the lookup class's loader, so
+    // everything it refers to must be visible from there.
+    ClassLoader loader = lookup.lookupClass().getClassLoader();
+    if (!isVisible(fType, loader) || !isVisible(method.getDeclaringClass(), loader)
+        || !isVisible(method.getReturnType(), loader)) {
+      return null;
+    }
+    for (Class<?> param : params) {
+      if (!isVisible(param, loader))
+        return null;
+    }
+
+    MethodType fMethodType = MethodType.genericMethodType(params.length + 1);
+    MethodType instantiatedType = handle.type().wrap();
+    if (isVoid) {
+      fMethodType = fMethodType.changeReturnType(void.class);
+      instantiatedType = instantiatedType.changeReturnType(void.class);
+    }
+
+    Object function;
+    try {
+      CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(fType),
+          fMethodType, handle, instantiatedType);
+      function = site.getTarget().invoke();
+    } catch (Throwable ex) {
+      return null;
+    }
+
+    if (isVoid) {
+      switch (params.length) {
+      case 0:
+        return new Procedure0Invoker(method, (Procedure0) function);
+      case 1:
+        return new Procedure1Invoker(method, (Procedure1) function);
+      default:
+        return new Procedure2Invoker(method, (Procedure2) function);
+      }
+    }
+
+    switch (params.length) {
+    case 0:
+      return new Function0Invoker(method, (Function0) function);
+    case 1:
+      return new Function1Invoker(method, (Function1) function);
+    default:
+      return new Function2Invoker(method, (Function2) function);
+    }
+  }
+
+  private static abstract class AbstractInvoker implements MethodInvoker {
+
+    protected Method method;
+
+    AbstractInvoker(Method method) {
+      this.method = method;
+    }
+
+    public Method getMethod() {
+      return method;
+    }
+
+    @Override
+    public String toString() {
+      return method.toString();
+    }
+  }
+
+  /**
+   * Checks the target and arguments as reflection would before calling the
+   * method, so that only exceptions thrown by the method itself are wrapped in
+   * an InvocationTargetException. Errors are not wrapped. Arguments that need a
+   * widening conversion are passed on to reflection.
+   */
+  private static abstract class CheckedInvoker extends AbstractInvoker {
+
+    private boolean isStatic;
+    // the parameter types with primitives replaced by their wrappers
+    private Class<?>[] params;
+    private boolean[] primitive;
+    // used for arguments that need a widening conversion
+    private ReflectionInvoker reflection;
+
+    CheckedInvoker(Method method) {
+      super(method);
+      isStatic = Modifier.isStatic(method.getModifiers());
+      params = method.getParameterTypes();
+      primitive = new boolean[params.length];
+      for (int i = 0; i < params.length; i++) {
+        if (params[i].isPrimitive()) {
+          primitive[i] = true;
+          params[i] = MethodType.methodType(params[i]).wrap().returnType();
+        }
+      }
+    }
+
+    public Object invoke(Object target, Object[] args) throws InvocationTargetException {
+      if (!isStatic && !method.getDeclaringClass().isInstance(target)) {
+        if (target == null)
+          throw new NullPointerException("Cannot invoke " + method + " on null");
+        throw new IllegalArgumentException("Object is not an instance of declaring class: "
+            + target.getClass().getName());
+      }
+      int count = args == null ? 0 : args.length;
+      if (count != params.length)
+        throw new IllegalArgumentException("Wrong number of arguments for " + method);
+      for (int i = 0; i < count; i++) {
+        Object arg = args[i];
+        if (arg == null ? primitive[i] : !params[i].isInstance(arg)) {
+          // reflection converts the argument or throws an IllegalArgumentException
+          if (reflection == null)
+            reflection = new ReflectionInvoker(method);
+          return reflection.invoke(target, args);
+        }
+      }
+
+      try {
+        return call(target, args);
+      } catch (Error er) {
+        throw er;
+      } catch (Throwable ex) {
+        throw new InvocationTargetException(ex);
+      }
+    }
+
+    // calls the method with the checked target and arguments
+    protected abstract Object call(Object target, Object[] args) throws Throwable;
+  }
+
+  private static class Function0Invoker extends CheckedInvoker {
+
+    private Function0 function;
+
+    Function0Invoker(Method method, Function0 function) {
+      super(method);
+      this.function = function;
+    }
+
+    protected Object call(Object target, Object[] args) {
+      return function.apply(target);
+    }
+  }
+
+  private static class Function1Invoker extends CheckedInvoker {
+
+    private Function1 function;
+
+    Function1Invoker(Method method, Function1 function) {
+      super(method);
+      this.function = function;
+    }
+
+    protected Object call(Object target, Object[] args) {
+      return function.apply(target, args[0]);
+    }
+  }
+
+  private static class Function2Invoker extends CheckedInvoker {
+
+    private Function2 function;
+
+    Function2Invoker(Method method, Function2 function) {
+      super(method);
+      this.function = function;
+    }
+
+    protected Object call(Object target, Object[] args) {
+      return function.apply(target, args[0], args[1]);
+    }
+  }
+
+  private static class Procedure0Invoker extends CheckedInvoker {
+
+    private Procedure0 procedure;
+
+    Procedure0Invoker(Method method, Procedure0 procedure) {
+      super(method);
+      this.procedure = procedure;
+    }
+
+    protected Object call(Object target, Object[] args) {
+      procedure.apply(target);
+      return null;
+    }
+  }
+
+  private static class Procedure1Invoker extends CheckedInvoker {
+
+    private Procedure1 procedure;
+
+    Procedure1Invoker(Method method, Procedure1 procedure) {
+      super(method);
+      this.procedure = procedure;
+    }
+
+    protected Object call(Object target, Object[] args) {
+      procedure.apply(target, args[0]);
+      return null;
+    }
+  }
+
+  private static class Procedure2Invoker extends CheckedInvoker {
+
+    private Procedure2 procedure;
+
+    Procedure2Invoker(Method method, Procedure2 procedure) {
+      super(method);
+      this.procedure = procedure;
+    }
+
+    protected Object call(Object target, Object[] args) {
+      procedure.apply(target, args[0], args[1]);
+      return null;
+    }
+  }
+
+  /**
+   * Invokes the method through a MethodHandle that spreads the argument array.
+   */
+  private static class HandleInvoker extends CheckedInvoker {
+
+    private MethodHandle handle;
+
+    HandleInvoker(Method method, MethodHandle handle) {
+      super(method);
+      int count = method.getParameterTypes().length;
+      handle = handle.asFixedArity();
+      if (Modifier.isStatic(method.getModifiers())) {
+        handle = MethodHandles.dropArguments(handle, 0, Object.class);
+      }
+      this.handle = handle.asType(MethodType.genericMethodType(count + 1)).asSpreader(
+          Object[].class, count);
+    }
+
+    protected Object call(Object target, Object[] args) throws Throwable {
+      return (Object) handle.invokeExact(target, args);
+    }
+  }
+
+  /**
+   * Invokes the method using reflection.
+   */
+  private static class ReflectionInvoker extends AbstractInvoker {
+
+    ReflectionInvoker(Method method) {
+      super(method);
+      try {
+        method.setAccessible(true);
+      } catch (SecurityException ex) {
+        // invoke will fail if the method isn't accessible
+      } catch (RuntimeException ex) {
+        // InaccessibleObjectException in java 9 and later
+      }
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) throws InvocationTargetException {
+      try {
+        return method.invoke(target, args);
+      } catch (IllegalAccessException ex) {
+        throw new RuntimeException(ex);
+      } catch (InvocationTargetException ex) {
+        // reflection wraps errors too
+        if (ex.getCause() instanceof Error)
+          throw (Error) ex.getCause();
+        throw ex;
+      }
+    }
+  }
+}
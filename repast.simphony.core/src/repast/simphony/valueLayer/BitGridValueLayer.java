@@ -0,0 +1,76 @@
+package repast.simphony.valueLayer;
+
+import repast.simphony.space.grid.GridPointTranslator;
+import repast.simphony.space.grid.StrictBorders;
+
+/**
+ * A dense GridValueLayer whose cells are either 0 or 1, such as a mask. The
+ * cells are held in a {@link BitValueLayerStore} and so use a 64th of the memory of a
+ * GridValueLayer of doubles. Setting a cell to any non zero value sets it to
+ * 1. The cells can be read and written as booleans without going through
+ * doubles.
+ */
+public class BitGridValueLayer extends GridValueLayer {
+
+  protected BitValueLayerStore bitStore;
+
+  /**
+   * Creates a BitGridValueLayer with the specified name, default value and
+   * dimensions. The border behavior is strict.
+   * 
+   * @param name
+   *          the name of the value layer
+   * @param defaultValue
+   *          the value of each cell before it is set
+   * @param dimensions
+   *          the dimension of the value layer
+   */
+  public BitGridValueLayer(String name, boolean defaultValue, int... dimensions) {
+    this(name, defaultValue, new StrictBorders(), dimensions, new int[dimensions.length]);
+  }
+
+  /**
+   * Creates a BitGridValueLayer with the specified name, default value,
+   * translator, dimensions and origin.
+   * 
+   * @param name
+   *          the name of the value layer
+   * @param defaultValue
+   *          the value of each cell before it is set
+   * @param translator
+   *          the translator used
+   * @param dimensions
+   *          the dimension of the value layer
+   * @param origin
+   *          the origin of the value layer
+   */
+  public BitGridValueLayer(String name, boolean defaultValue, GridPointTranslator translator,
+      int[] dimensions, int[] origin) {
+    super(name, new BitValueLayerStore(denseSize(dimensions), defaultValue), translator, dimensions,
+        origin);
+    bitStore = (BitValueLayerStore) store;
+  }
+
+  /**
+   * Gets the value of the cell at the specified coordinates.
+   * 
+   * @param coordinate
+   *          the coordinate of the cell
+   * @return the value of the cell at the specified coordinates.
+   */
+  public boolean getBoolean(int... coordinate) {
+    return bitStore.getBoolean((int) getStoreIndex(coordinate));
+  }
+
+  /**
+   * Sets the specified cell to the specified value.
+   * 
+   * @param value
+   *          the new value of the cell
+   * @param coordinate
+   *          the coordinate of the cell whose value we want to set
+   */
+  public void set(boolean value, int... coordinate) {
+    bitStore.setBoolean((int) getStoreIndex(coordinate), value);
+  }
+}
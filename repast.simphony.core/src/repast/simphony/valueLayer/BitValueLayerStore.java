@@ -0,0 +1,63 @@
+package repast.simphony.valueLayer;
+
+import java.util.Arrays;
+
+/**
+ * Value layer store backed by a bit set. Each value is either 0 or 1, so this
+ * uses a 64th of the memory of a {@link DenseValueLayerStore}. Any non zero
+ * value is stored as 1.
+ */
+public class BitValueLayerStore implements ValueLayerStore {
+
+	protected long[] words;
+	protected int size;
+
+	public BitValueLayerStore(int size, boolean defaultValue) {
+		this.size = size;
+		words = new long[(int) (((long) size + 63) >>> 6)];
+		if (defaultValue) {
+			Arrays.fill(words, -1L);
+			// keep the bits past the end clear
+			if ((size & 63) != 0) words[words.length - 1] = (1L << size) - 1;
+		}
+	}
+
+	@Override
+	public double get(long index) {
+		return getBoolean((int) index) ? 1 : 0;
+	}
+
+	@Override
+	public void set(long index, double value) {
+		setBoolean((int) index, value != 0);
+	}
+
+	public boolean getBoolean(int index) {
+		if (index < 0 || index >= size) throw new ArrayIndexOutOfBoundsException(index);
+		return (words[index >>> 6] & (1L << index)) != 0;
+	}
+
+	public void setBoolean(int index, boolean value) {
+		if (index < 0 || index >= size) throw new ArrayIndexOutOfBoundsException(index);
+		if (value) words[index >>> 6] |= 1L << index;
+		else words[index >>> 6] &= ~(1L << index);
+	}
+
+	/**
+	 * Gets the number of values that are 1.
+	 * 
+	 * @return the number of values that are 1.
+	 */
+	public int cardinality() {
+		int count = 0;
+		for (long word : words) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+}
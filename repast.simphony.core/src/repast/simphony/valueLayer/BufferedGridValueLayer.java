@@ -122,6 +122,30 @@ public class BufferedGridValueLayer implements IGridValueLayer {
     write = new GridValueLayer(name, defaultValue, dense, translator, dimensions, origin);
   }
 
+  /**
+   * Creates a BufferedGridValueLayer with the specified name, stores,
+   * translator, dimensions and origin. This can be used to back the buffers
+   * with {@link MappedValueLayerStore}s.
+   * 
+   * @param name
+   *          the name of the value layer
+   * @param readStore
+   *          the store that initially holds the read buffer
+   * @param writeStore
+   *          the store that initially holds the write buffer
+   * @param translator
+   *          the translator used
+   * @param dimensions
+   *          the dimension of the value layer
+   * @param origin
+   *          the origin of the value layer
+   */
+  public BufferedGridValueLayer(String name, ValueLayerStore readStore,
+      ValueLayerStore writeStore, GridPointTranslator translator, int[] dimensions, int[] origin) {
+    read = new GridValueLayer(name, readStore, translator, dimensions, origin);
+    write = new GridValueLayer(name, writeStore, translator, dimensions, origin);
+  }
+
   /* (non-Javadoc)
    * @see repast.simphony.valueLayer.ValueLayer#get(double[])
    */
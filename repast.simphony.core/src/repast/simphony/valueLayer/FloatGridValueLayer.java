@@ -0,0 +1,75 @@
+package repast.simphony.valueLayer;
+
+import repast.simphony.space.grid.GridPointTranslator;
+import repast.simphony.space.grid.StrictBorders;
+
+/**
+ * A dense GridValueLayer that stores its values as floats. The cells are held
+ * in a {@link FloatValueLayerStore} and so use half the memory of a GridValueLayer of doubles.
+ * Double values are rounded to float precision when they are set. The cells can be read and
+ * written as floats without going through doubles.
+ */
+public class FloatGridValueLayer extends GridValueLayer {
+
+  protected FloatValueLayerStore floatStore;
+
+  /**
+   * Creates a FloatGridValueLayer with the specified name, default value and
+   * dimensions. The border behavior is strict.
+   * 
+   * @param name
+   *          the name of the value layer
+   * @param defaultValue
+   *          the value of each cell before it is set
+   * @param dimensions
+   *          the dimension of the value layer
+   */
+  public FloatGridValueLayer(String name, float defaultValue, int... dimensions) {
+    this(name, defaultValue, new StrictBorders(), dimensions, new int[dimensions.length]);
+  }
+
+  /**
+   * Creates a FloatGridValueLayer with the specified name, default value,
+   * translator, dimensions and origin.
+   * 
+   * @param name
+   *          the name of the value layer
+   * @param defaultValue
+   *          the value of each cell before it is set
+   * @param translator
+   *          the translator used
+   * @param dimensions
+   *          the dimension of the value layer
+   * @param origin
+   *          the origin of the value layer
+   */
+  public FloatGridValueLayer(String name, float defaultValue, GridPointTranslator translator,
+      int[] dimensions, int[] origin) {
+    super(name, new FloatValueLayerStore(denseSize(dimensions), defaultValue), translator, dimensions,
+        origin);
+    floatStore = (FloatValueLayerStore) store;
+  }
+
+  /**
+   * Gets the value of the cell at the specified coordinates.
+   * 
+   * @param coordinate
+   *          the coordinate of the cell
+   * @return the value of the cell at the specified coordinates.
+   */
+  public float getFloat(int... coordinate) {
+    return floatStore.getFloat((int) getStoreIndex(coordinate));
+  }
+
+  /**
+   * Sets the specified cell to the specified value.
+   * 
+   * @param value
+   *          the new value of the cell
+   * @param coordinate
+   *          the coordinate of the cell whose value we want to set
+   */
+  public void set(float value, int... coordinate) {
+    floatStore.setFloat((int) getStoreIndex(coordinate), value);
+  }
+}
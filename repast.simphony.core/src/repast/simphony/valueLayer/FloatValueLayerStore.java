@@ -0,0 +1,41 @@
+package repast.simphony.valueLayer;
+
+import java.util.Arrays;
+
+/**
+ * Value layer store backed by a dense float array. This uses half the memory
+ * of a {@link DenseValueLayerStore}. Values are rounded to float precision
+ * when they are set.
+ */
+public class FloatValueLayerStore implements ValueLayerStore {
+
+	protected float[] array;
+
+	public FloatValueLayerStore(int size, float defaultValue) {
+		array = new float[size];
+		if (defaultValue != 0) Arrays.fill(array, defaultValue);
+	}
+
+	@Override
+	public double get(long index) {
+		return array[(int) index];
+	}
+
+	@Override
+	public void set(long index, double value) {
+		array[(int) index] = (float) value;
+	}
+
+	public float getFloat(int index) {
+		return array[index];
+	}
+
+	public void setFloat(int index, float value) {
+		array[index] = value;
+	}
+
+	@Override
+	public int size() {
+		return array.length;
+	}
+}
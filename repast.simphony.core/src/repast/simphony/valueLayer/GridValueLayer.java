@@ -1,5 +1,7 @@
 package repast.simphony.valueLayer;
 
+import java.util.Arrays;
+
 import repast.simphony.space.Dimensions;
 import repast.simphony.space.SpatialException;
 import repast.simphony.space.grid.GridDimensions;
@@ -23,7 +25,10 @@ public class GridValueLayer implements IGridValueLayer {
 
   protected ValueLayerStore store;
   
+  // only valid for layers with at most Integer.MAX_VALUE cells, use
+  // longStride for the index arithmetic
   protected int[] stride;
+  private long[] longStride;
 
   protected Dimensions dims;
   // this field is read directly by the
@@ -36,6 +41,9 @@ public class GridValueLayer implements IGridValueLayer {
 
   protected GridPointTranslator translator;
 
+  // the array stencils are applied into
+  private transient double[] stencilBuffer;
+
   /**
    * Creates a GridValueLayer with the specified name, density, and dimensions.
    * The default value of every cell in the grid will be 0. The default border
@@ -136,34 +144,91 @@ public class GridValueLayer implements IGridValueLayer {
     this.dense = dense;
     this.translator = translator;
 
+    if (dense){
+    	 store = new DenseValueLayerStore(denseSize(dimensions), defaultValue);
+    }
+    else{
+    	long _size = 1;
+    	for (int dim : dimensions) {
+    		_size *= dim;
+    	}
+    	store = new SparseValueLayerStore((int)_size, defaultValue);
+    }
+
+    init(dimensions, origin);
+  }
+
+  /**
+   * Gets the number of cells in a dense layer with the specified dimensions.
+   * 
+   * @throws SpatialException
+   *           if the number of cells exceeds Integer.MAX_VALUE
+   */
+  static int denseSize(int[] dimensions) {
     long _size = 1;
     for (int dim : dimensions) {
       _size *= dim;
     }
- 
-    if (dense){
-    	// Dense size cannot exceed Integer.MAX_VALUE since the dense store is backed
-    	//   by an int indexed array.
-    	 if (_size > Integer.MAX_VALUE){ 
-       	SpatialException ex = new SpatialException(
-       		"Dense grid value layer capacity exceded: " + _size + ". Try sparse value layer.");
-       
-       	MessageCenter.getMessageCenter(GridValueLayer.class).error(
-       			"Value layer initialization error: ", ex);
-       	
-       	throw ex;
-       }
-    	
-    	 store = new DenseValueLayerStore((int)_size, defaultValue);
+
+    // Dense size cannot exceed Integer.MAX_VALUE since the dense store is backed
+    //   by an int indexed array.
+    if (_size > Integer.MAX_VALUE){ 
+      SpatialException ex = new SpatialException(
+          "Dense grid value layer capacity exceded: " + _size + ". Try sparse or mapped value layer.");
+
+      MessageCenter.getMessageCenter(GridValueLayer.class).error(
+          "Value layer initialization error: ", ex);
+
+      throw ex;
     }
-    else{
-    	store = new SparseValueLayerStore((int)_size, defaultValue);
+    return (int) _size;
+  }
+
+  /**
+   * Creates a GridValueLayer with the specified name, store, translator,
+   * dimensions and origin. This can be used to back a layer with a
+   * {@link MappedValueLayerStore} so that the layer is held outside the java
+   * heap and may have more than 2^31 cells.
+   * 
+   * @param name
+   *          the name of the value layer
+   * @param store
+   *          the store that holds the layer's values
+   * @param translator
+   *          the translator used
+   * @param dimensions
+   *          the dimension of the value layer
+   * @param origin
+   *          the origin of the value layer
+   */
+  public GridValueLayer(String name, ValueLayerStore store, GridPointTranslator translator,
+      int[] dimensions, int[] origin) {
+    this.name = name;
+    this.dense = !(store instanceof SparseValueLayerStore);
+    this.translator = translator;
+    this.store = store;
+
+    long _size = 1;
+    for (int dim : dimensions) {
+      _size *= dim;
+    }
+    long capacity = store instanceof MappedValueLayerStore ? ((MappedValueLayerStore) store)
+        .getLongSize() : store instanceof SparseValueLayerStore ? _size : store.size();
+    if (capacity < _size) {
+      throw new SpatialException("Value layer store is smaller than the value layer: "
+          + capacity + " < " + _size);
     }
 
-    int tmpStride = 1;
+    init(dimensions, origin);
+  }
+
+  private void init(int[] dimensions, int[] origin) {
+    long tmpStride = 1;
     stride = new int[dimensions.length];
+    longStride = new long[dimensions.length];
     for (int i = dimensions.length - 1; i >= 0; i--) {
-      stride[i] = tmpStride;
+      stride[i] = (int) tmpStride;
+      longStride[i] = tmpStride;
       tmpStride = tmpStride * dimensions[i];
     }
 
@@ -231,6 +296,77 @@ public class GridValueLayer implements IGridValueLayer {
     }
   }
 
+  /**
+   * Applies the specified stencil to every cell in this layer. Each cell is
+   * set to the weighted sum of the cells at the stencil's offsets from it,
+   * computed from the values before the stencil is applied. If this layer is
+   * not toroidal, cells outside the layer count as 0. This runs directly over
+   * the layer's array and so is much faster than the equivalent get and set
+   * calls.
+   * 
+   * @param stencil
+   *          the stencil to apply
+   * @throws IllegalArgumentException
+   *           if the stencil's dimensions do not match this layer's
+   * @throws UnsupportedOperationException
+   *           if this layer is not dense
+   */
+  public void apply(Stencil stencil) {
+    double[] src = getDenseArray(stencil);
+    if (stencilBuffer == null || stencilBuffer.length != src.length) {
+      stencilBuffer = new double[src.length];
+    }
+    stencil.apply(src, stencilBuffer, getDimensionSizes(), translator.isToroidal());
+    // swap the buffers
+    ((DenseValueLayerStore) store).array = stencilBuffer;
+    stencilBuffer = src;
+  }
+
+  /**
+   * Applies the specified stencil to every cell in this layer, putting the
+   * results in the target layer. This layer is not changed. See
+   * {@link #apply(Stencil)} for the details.
+   * 
+   * @param stencil
+   *          the stencil to apply
+   * @param target
+   *          the layer to put the results in. This must be dense and have the
+   *          same dimensions as this layer.
+   * @throws IllegalArgumentException
+   *           if the stencil's or the target's dimensions do not match this
+   *           layer's
+   * @throws UnsupportedOperationException
+   *           if this layer or the target is not dense
+   */
+  public void apply(Stencil stencil, GridValueLayer target) {
+    double[] src = getDenseArray(stencil);
+    double[] dst = target.getDenseArray(stencil);
+    int[] sizes = getDimensionSizes();
+    if (!Arrays.equals(sizes, target.getDimensionSizes()))
+      throw new IllegalArgumentException("Target layer dimensions must match this layer's dimensions");
+    if (dst == src) {
+      apply(stencil);
+    } else {
+      stencil.apply(src, dst, sizes, translator.isToroidal());
+    }
+  }
+
+  private double[] getDenseArray(Stencil stencil) {
+    if (stencil.getDimCount() != dims.size())
+      throw new IllegalArgumentException("Stencil dimensions must be equal to the number of grid dimensions.");
+    if (!(store instanceof DenseValueLayerStore))
+      throw new UnsupportedOperationException("Stencils are only supported on GridValueLayers with a DenseValueLayerStore");
+    return ((DenseValueLayerStore) store).array;
+  }
+
+  private int[] getDimensionSizes() {
+    int[] sizes = new int[dims.size()];
+    for (int i = 0; i < sizes.length; i++) {
+      sizes[i] = (int) dims.getDimension(i);
+    }
+    return sizes;
+  }
+
   /**
    * Gets a value given the specified coordinates. This assumes the coordinates
    * are int x, y, z, n values.
@@ -246,7 +382,7 @@ public class GridValueLayer implements IGridValueLayer {
     for (int i = 0; i < coordinates.length; i++)
       coords[i] = (int) coordinates[i];
 
-    int index = getIndex(getTransformedLocation(coords));
+    long index = getIndex(getTransformedLocation(coords));
     return store.get(index);
   }
 
@@ -257,19 +393,33 @@ public class GridValueLayer implements IGridValueLayer {
    * 
    * TODO Hotspot.  This accounts for 50% time in accessing the value layer.
    */
-  private int getIndex(int... point) {
+  private long getIndex(int... point) {
     int[] matrixPoint = new int[point.length];
    
     for (int i = 0; i < point.length; i++) {
       matrixPoint[i] = point[i] + origin[i];
     }
-    int index = 0;
+    long index = 0;
     for (int i = 0; i < matrixPoint.length; i++) {
-      index = index + matrixPoint[i] * stride[i];
+      index = index + matrixPoint[i] * longStride[i];
     }
     return index;
   }
 
+  /**
+   * Gets the index in this layer's store of the cell at the specified
+   * coordinates, applying this layer's translator and origin.
+   * 
+   * @param coordinate
+   *          the coordinate of the cell
+   * @return the index in this layer's store of the cell at the specified
+   *         coordinates.
+   */
+  protected long getStoreIndex(int... coordinate) {
+    if (coordinate.length != dims.size()) throw new SpatialException("Invalid number coordinates");
+    return getIndex(getTransformedLocation(coordinate));
+  }
+
   /**
    * Sets the specified cell to the specified value.
    * 
@@ -279,9 +429,7 @@ public class GridValueLayer implements IGridValueLayer {
    *          the coordinate of the cell whose value we want to set
    */
   public void set(double value, int... coordinate) {
-    if (coordinate.length != dims.size()) throw new SpatialException("Invalid number coordinates");
-    int index = getIndex(getTransformedLocation(coordinate));
-    store.set(index, value);
+    store.set(getStoreIndex(coordinate), value);
   }
 
   /**
@@ -0,0 +1,75 @@
+package repast.simphony.valueLayer;
+
+import repast.simphony.space.grid.GridPointTranslator;
+import repast.simphony.space.grid.StrictBorders;
+
+/**
+ * A dense GridValueLayer that stores its values as ints. The cells are held
+ * in a {@link IntValueLayerStore} and so use half the memory of a GridValueLayer of doubles.
+ * Double values are rounded toward zero and clamped to the int range when they are set. The cells can be read and
+ * written as ints without going through doubles.
+ */
+public class IntGridValueLayer extends GridValueLayer {
+
+  protected IntValueLayerStore intStore;
+
+  /**
+   * Creates a IntGridValueLayer with the specified name, default value and
+   * dimensions. The border behavior is strict.
+   * 
+   * @param name
+   *          the name of the value layer
+   * @param defaultValue
+   *          the value of each cell before it is set
+   * @param dimensions
+   *          the dimension of the value layer
+   */
+  public IntGridValueLayer(String name, int defaultValue, int... dimensions) {
+    this(name, defaultValue, new StrictBorders(), dimensions, new int[dimensions.length]);
+  }
+
+  /**
+   * Creates a IntGridValueLayer with the specified name, default value,
+   * translator, dimensions and origin.
+   * 
+   * @param name
+   *          the name of the value layer
+   * @param defaultValue
+   *          the value of each cell before it is set
+   * @param translator
+   *          the translator used
+   * @param dimensions
+   *          the dimension of the value layer
+   * @param origin
+   *          the origin of the value layer
+   */
+  public IntGridValueLayer(String name, int defaultValue, GridPointTranslator translator,
+      int[] dimensions, int[] origin) {
+    super(name, new IntValueLayerStore(denseSize(dimensions), defaultValue), translator, dimensions,
+        origin);
+    intStore = (IntValueLayerStore) store;
+  }
+
+  /**
+   * Gets the value of the cell at the specified coordinates.
+   * 
+   * @param coordinate
+   *          the coordinate of the cell
+   * @return the value of the cell at the specified coordinates.
+   */
+  public int getInt(int... coordinate) {
+    return intStore.getInt((int) getStoreIndex(coordinate));
+  }
+
+  /**
+   * Sets the specified cell to the specified value.
+   * 
+   * @param value
+   *          the new value of the cell
+   * @param coordinate
+   *          the coordinate of the cell whose value we want to set
+   */
+  public void set(int value, int... coordinate) {
+    intStore.setInt((int) getStoreIndex(coordinate), value);
+  }
+}
@@ -0,0 +1,43 @@
+package repast.simphony.valueLayer;
+
+import java.util.Arrays;
+
+/**
+ * Value layer store backed by a dense int array. This uses half the memory of
+ * a {@link DenseValueLayerStore}. Values are rounded toward zero when they
+ * are set, and values outside the range of an int are clamped to
+ * Integer.MIN_VALUE or Integer.MAX_VALUE. NaN is stored as 0.
+ */
+public class IntValueLayerStore implements ValueLayerStore {
+
+	protected int[] array;
+
+	public IntValueLayerStore(int size, int defaultValue) {
+		array = new int[size];
+		if (defaultValue != 0) Arrays.fill(array, defaultValue);
+	}
+
+	@Override
+	public double get(long index) {
+		return array[(int) index];
+	}
+
+	@Override
+	public void set(long index, double value) {
+		// the narrowing conversion clamps to the int range
+		array[(int) index] = (int) value;
+	}
+
+	public int getInt(int index) {
+		return array[index];
+	}
+
+	public void setInt(int index, int value) {
+		array[index] = value;
+	}
+
+	@Override
+	public int size() {
+		return array.length;
+	}
+}
@@ -0,0 +1,235 @@
+package repast.simphony.valueLayer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Value layer store backed by memory outside the java heap, either direct
+ * memory or a memory mapped file. The store is split into chunks of at most
+ * 2^27 doubles so it can hold more than 2^31 values. The values are stored as
+ * little endian doubles, so a file backed store is itself a snapshot of the
+ * layer that can be mapped again with {@link #open(File)}.
+ * <p>
+ *
+ * The store never deletes its file. The file stays on disk after the store is
+ * closed and can be mapped again, and it is up to whoever created it to
+ * delete it. Java provides no way to unmap a buffer explicitly, so
+ * {@link #close()} writes out any changes and drops the store's references to
+ * its buffers; the memory and the mapping are released once the buffers are
+ * garbage collected. Until then some platforms will not let the file be
+ * deleted or truncated.
+ */
+public class MappedValueLayerStore implements ValueLayerStore, Closeable {
+
+	private static final int CHUNK_SHIFT = 27;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+	protected final long size;
+	protected final DoubleBuffer[] chunks;
+	protected final ByteBuffer[] bytes;
+	protected final File file;
+	private boolean closed = false;
+
+	/**
+	 * Creates a store of the specified size in direct memory.
+	 *
+	 * @param size
+	 *          the number of values in the store
+	 * @param defaultValue
+	 *          the initial value of every entry
+	 */
+	public MappedValueLayerStore(long size, double defaultValue) {
+		this.size = size;
+		this.file = null;
+		int count = chunkCount(size);
+		bytes = new ByteBuffer[count];
+		chunks = new DoubleBuffer[count];
+		for (int i = 0; i < count; i++) {
+			bytes[i] = ByteBuffer.allocateDirect(chunkLength(i) * 8).order(ByteOrder.LITTLE_ENDIAN);
+			chunks[i] = bytes[i].asDoubleBuffer();
+		}
+		fill(defaultValue);
+	}
+
+	/**
+	 * Creates a store of the specified size backed by the specified file. Any
+	 * existing contents of the file are replaced.
+	 *
+	 * @param file
+	 *          the file to map
+	 * @param size
+	 *          the number of values in the store
+	 * @param defaultValue
+	 *          the initial value of every entry
+	 * @throws IOException
+	 *           if the file cannot be created or mapped
+	 */
+	public MappedValueLayerStore(File file, long size, double defaultValue) throws IOException {
+		this(file, size, true);
+		fill(defaultValue);
+	}
+
+	private MappedValueLayerStore(File file, long size, boolean create) throws IOException {
+		this.size = size;
+		this.file = file;
+		int count = chunkCount(size);
+		bytes = new ByteBuffer[count];
+		chunks = new DoubleBuffer[count];
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			if (create) {
+				raf.setLength(0);
+				raf.setLength(size * 8);
+			}
+			FileChannel channel = raf.getChannel();
+			for (int i = 0; i < count; i++) {
+				bytes[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * CHUNK_SIZE * 8,
+						chunkLength(i) * 8L).order(ByteOrder.LITTLE_ENDIAN);
+				chunks[i] = bytes[i].asDoubleBuffer();
+			}
+		}
+	}
+
+	/**
+	 * Maps a file previously written by a MappedValueLayerStore or by
+	 * {@link #writeTo(File)}. The store's size is taken from the file's length
+	 * and changes to the store are written through to the file.
+	 *
+	 * @param file
+	 *          the file to map
+	 * @return a store backed by the file.
+	 * @throws IOException
+	 *           if the file cannot be mapped
+	 */
+	public static MappedValueLayerStore open(File file) throws IOException {
+		if (!file.isFile()) throw new IOException("Value layer file not found: " + file);
+		return new MappedValueLayerStore(file, file.length() / 8, false);
+	}
+
+	private static int chunkCount(long size) {
+		if (size < 0) throw new IllegalArgumentException("Store size must be positive: " + size);
+		long count = (size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+		if (count > Integer.MAX_VALUE) throw new IllegalArgumentException("Store size is too large: " + size);
+		return (int) count;
+	}
+
+	private int chunkLength(int chunk) {
+		return (int) Math.min(CHUNK_SIZE, size - (long) chunk * CHUNK_SIZE);
+	}
+
+	private void fill(double value) {
+		// new direct memory and new file regions are already zeroed
+		if (Double.doubleToRawLongBits(value) == 0) return;
+		for (DoubleBuffer chunk : chunks) {
+			for (int i = 0, n = chunk.capacity(); i < n; i++) {
+				chunk.put(i, value);
+			}
+		}
+	}
+
+	@Override
+	public double get(long index) {
+		return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+	}
+
+	@Override
+	public void set(long index, double value) {
+		chunks[(int) (index >>> CHUNK_SHIFT)].put((int) (index & CHUNK_MASK), value);
+	}
+
+	/**
+	 * Gets the number of values in this store, or Integer.MAX_VALUE if that
+	 * number does not fit in an int. See {@link #getLongSize()}.
+	 */
+	@Override
+	public int size() {
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Gets the number of values in this store.
+	 *
+	 * @return the number of values in this store.
+	 */
+	public long getLongSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the file that backs this store.
+	 *
+	 * @return the file that backs this store, or null if this store is in
+	 *         direct memory.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Forces any changes to this store out to its backing file. This does
+	 * nothing if this store is in direct memory.
+	 */
+	public void force() {
+		if (file == null || closed) return;
+		for (ByteBuffer buffer : bytes) {
+			((MappedByteBuffer) buffer).force();
+		}
+	}
+
+	/**
+	 * Writes the values in this store to the specified file. The buffers are
+	 * written directly to the file's channel without copying them onto the
+	 * heap. The file can be mapped again with {@link #open(File)}.
+	 *
+	 * @param out
+	 *          the file to write to
+	 * @throws IOException
+	 *           if the file cannot be written
+	 */
+	public void writeTo(File out) throws IOException {
+		if (closed) throw new IOException("Value layer store is closed");
+		try (FileOutputStream stream = new FileOutputStream(out)) {
+			FileChannel channel = stream.getChannel();
+			for (ByteBuffer buffer : bytes) {
+				ByteBuffer src = buffer.duplicate();
+				src.clear();
+				while (src.hasRemaining()) {
+					channel.write(src);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Closes this store, writing any changes out to its backing file and
+	 * releasing the store's references to its buffers. The store must not be
+	 * read or written after it is closed. Closing a closed store does nothing.
+	 */
+	@Override
+	public void close() {
+		if (closed) return;
+		force();
+		closed = true;
+		for (int i = 0; i < chunks.length; i++) {
+			chunks[i] = null;
+			bytes[i] = null;
+		}
+	}
+
+	/**
+	 * Gets whether or not this store has been closed.
+	 *
+	 * @return true if this store has been closed, otherwise false.
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+}
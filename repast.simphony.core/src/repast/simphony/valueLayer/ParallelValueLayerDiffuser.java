@@ -0,0 +1,345 @@
+package repast.simphony.valueLayer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import repast.simphony.space.Dimensions;
+
+/**
+ * A {@link ValueLayerDiffuser} that computes the diffusion in parallel. The
+ * layer is split into stripes along its first dimension and the stripes are
+ * diffused as separate tasks on a ForkJoinPool. The new values are written to
+ * a preallocated buffer rather than to newly allocated arrays.
+ * <p/>
+ *
+ * If the layer is a dense {@link GridValueLayer} the diffusion reads the
+ * layer's array directly and the buffer is then swapped with that array, so a
+ * diffusion step neither allocates nor copies. Other layers are copied into a
+ * second buffer before each step and the results are set back on the layer.
+ * <p/>
+ *
+ * The diffusion, evaporation, min / max and toroidal semantics are the same as
+ * those of ValueLayerDiffuser. The diffusion is computed over all the cells in
+ * the layer, taking into account the layer's origin.
+ */
+public class ParallelValueLayerDiffuser extends ValueLayerDiffuser {
+
+  /**
+   * Layers with fewer cells than this are diffused in a single task.
+   */
+  public static final int MIN_PARALLEL_CELLS = 1 << 14;
+
+  private transient ForkJoinPool pool;
+
+  // the array that is diffused into
+  private transient double[] buffer;
+  // holds the current values of layers that are not dense GridValueLayers
+  private transient double[] values;
+
+  private int width, height, depth;
+
+  /**
+   * Constructs this with the default evaporation and diffusion constants using
+   * the common ForkJoinPool. Before this diffuser can be used, a value layer
+   * must be set through the {@link #setValueLayer(IGridValueLayer)} method.
+   */
+  public ParallelValueLayerDiffuser() {
+    super();
+    this.pool = ForkJoinPool.commonPool();
+  }
+
+  /**
+   * Constructs this with the specified evaporation constant, diffusion
+   * constant, and toroidal'ness using the common ForkJoinPool.
+   *
+   * @param valueLayer
+   *          the layer this will be diffusing values on
+   * @param evaporationConst
+   *          the constant used for evaporating values off the layer
+   * @param diffusionConst
+   *          the constant used for diffusing values on the layer
+   * @param toroidal
+   *          if this should act as though the edges of the layer are connected
+   */
+  public ParallelValueLayerDiffuser(IGridValueLayer valueLayer, double evaporationConst,
+      double diffusionConst, boolean toroidal) {
+    this(valueLayer, evaporationConst, diffusionConst, toroidal, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs this with the specified evaporation constant, diffusion
+   * constant, toroidal'ness and pool.
+   *
+   * @param valueLayer
+   *          the layer this will be diffusing values on
+   * @param evaporationConst
+   *          the constant used for evaporating values off the layer
+   * @param diffusionConst
+   *          the constant used for diffusing values on the layer
+   * @param toroidal
+   *          if this should act as though the edges of the layer are connected
+   * @param pool
+   *          the pool the diffusion tasks are run on
+   */
+  public ParallelValueLayerDiffuser(IGridValueLayer valueLayer, double evaporationConst,
+      double diffusionConst, boolean toroidal, ForkJoinPool pool) {
+    super(valueLayer, evaporationConst, diffusionConst, toroidal);
+    this.pool = pool;
+  }
+
+  /**
+   * Gets the pool that the diffusion tasks are run on.
+   *
+   * @return the pool that the diffusion tasks are run on.
+   */
+  public ForkJoinPool getPool() {
+    return pool;
+  }
+
+  /**
+   * Sets the pool that the diffusion tasks are run on.
+   *
+   * @param pool
+   *          the pool that the diffusion tasks are run on
+   */
+  public void setPool(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  @Override
+  public void setValueLayer(IGridValueLayer valueLayer) {
+    super.setValueLayer(valueLayer);
+    Dimensions dims = valueLayer.getDimensions();
+    int size = dims.size();
+    width = (int) dims.getWidth();
+    height = size > 1 ? (int) dims.getHeight() : 1;
+    depth = size > 2 ? (int) dims.getDepth() : 1;
+    buffer = null;
+    values = null;
+  }
+
+  /**
+   * Runs the diffusion with the current rates and values. See
+   * {@link ValueLayerDiffuser#diffuse()} for the details.
+   */
+  @Override
+  public void diffuse() {
+    int cellCount = width * height * depth;
+    if (buffer == null || buffer.length != cellCount) {
+      buffer = new double[cellCount];
+    }
+
+    DenseValueLayerStore store = getDenseStore();
+    double[] src;
+    if (store != null) {
+      src = store.array;
+    } else {
+      if (values == null || values.length != cellCount) {
+        values = new double[cellCount];
+      }
+      src = values;
+      readValues(src);
+    }
+
+    int stripes = 1;
+    if (cellCount >= MIN_PARALLEL_CELLS && width > 1) {
+      stripes = Math.min(width, pool.getParallelism() * 4);
+    }
+    if (stripes == 1) {
+      diffuse(src, buffer, 0, width);
+    } else {
+      List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(stripes);
+      for (int i = 0; i < stripes; i++) {
+        int x0 = (int) ((long) width * i / stripes);
+        int x1 = (int) ((long) width * (i + 1) / stripes);
+        tasks.add(new Stripe(src, buffer, x0, x1));
+      }
+      if (ForkJoinTask.inForkJoinPool()) {
+        ForkJoinTask.invokeAll(tasks);
+      } else {
+        pool.invoke(new RecursiveAction() {
+          protected void compute() {
+            invokeAll(tasks);
+          }
+        });
+      }
+    }
+
+    if (store != null) {
+      // swap the buffers
+      store.array = buffer;
+      buffer = src;
+    } else {
+      writeValues(buffer);
+    }
+  }
+
+  // returns the layer's store if it can be read and written directly
+  private DenseValueLayerStore getDenseStore() {
+    if (valueLayer.getClass() == GridValueLayer.class) {
+      ValueLayerStore store = ((GridValueLayer) valueLayer).store;
+      if (store.getClass() == DenseValueLayerStore.class) return (DenseValueLayerStore) store;
+    }
+    return null;
+  }
+
+  private void readValues(double[] array) {
+    Dimensions dims = valueLayer.getDimensions();
+    int size = dims.size();
+    double[] coords = new double[size];
+    int index = 0;
+    for (int x = 0; x < width; x++) {
+      for (int y = 0; y < height; y++) {
+        for (int z = 0; z < depth; z++) {
+          coords[0] = x - dims.getOrigin(0);
+          if (size > 1) coords[1] = y - dims.getOrigin(1);
+          if (size > 2) coords[2] = z - dims.getOrigin(2);
+          array[index++] = valueLayer.get(coords);
+        }
+      }
+    }
+  }
+
+  private void writeValues(double[] array) {
+    Dimensions dims = valueLayer.getDimensions();
+    int size = dims.size();
+    int[] coords = new int[size];
+    int index = 0;
+    for (int x = 0; x < width; x++) {
+      for (int y = 0; y < height; y++) {
+        for (int z = 0; z < depth; z++) {
+          coords[0] = x - (int) dims.getOrigin(0);
+          if (size > 1) coords[1] = y - (int) dims.getOrigin(1);
+          if (size > 2) coords[2] = z - (int) dims.getOrigin(2);
+          valueLayer.set(array[index++], coords);
+        }
+      }
+    }
+  }
+
+  private class Stripe extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    double[] src, dst;
+    int x0, x1;
+
+    Stripe(double[] src, double[] dst, int x0, int x1) {
+      this.src = src;
+      this.dst = dst;
+      this.x0 = x0;
+      this.x1 = x1;
+    }
+
+    protected void compute() {
+      diffuse(src, dst, x0, x1);
+    }
+  }
+
+  // diffuses the cells whose x coordinate is in [x0, x1). The arrays are in
+  // the GridValueLayer layout where the last dimension varies fastest.
+  private void diffuse(double[] src, double[] dst, int x0, int x1) {
+    int size = valueLayer.getDimensions().size();
+    if (size == 1) {
+      for (int x = x0; x < x1; x++) {
+        double sum = get(src, neighbor(x - 1, width)) + get(src, neighbor(x + 1, width));
+        dst[x] = newValue(src[x], sum / 2.0);
+      }
+    } else if (size == 2) {
+      diffuse2D(src, dst, x0, x1);
+    } else {
+      diffuse3D(src, dst, x0, x1);
+    }
+  }
+
+  private void diffuse2D(double[] src, double[] dst, int x0, int x1) {
+    for (int x = x0; x < x1; x++) {
+      int row = x * height;
+      int rowW = rowOffset(neighbor(x - 1, width), height);
+      int rowE = rowOffset(neighbor(x + 1, width), height);
+      for (int y = 0; y < height; y++) {
+        int yS = neighbor(y - 1, height);
+        int yN = neighbor(y + 1, height);
+
+        // those directly north/south/east/west are given 4 times the
+        // weight of those on a diagonal
+        double direct = get(src, rowE, y) + get(src, row, yN) + get(src, rowW, y)
+            + get(src, row, yS);
+        double diagonal = get(src, rowE, yN) + get(src, rowW, yN) + get(src, rowW, yS)
+            + get(src, rowE, yS);
+        double weightedAvg = (direct * 4 + diagonal) / 20.0;
+        dst[row + y] = newValue(src[row + y], weightedAvg);
+      }
+    }
+  }
+
+  private void diffuse3D(double[] src, double[] dst, int x0, int x1) {
+    int plane = height * depth;
+    int[] xs = new int[3];
+    int[] ys = new int[3];
+    int[] zs = new int[3];
+    for (int x = x0; x < x1; x++) {
+      for (int i = 0; i < 3; i++) {
+        xs[i] = rowOffset(neighbor(x + i - 1, width), plane);
+      }
+      for (int y = 0; y < height; y++) {
+        for (int i = 0; i < 3; i++) {
+          ys[i] = rowOffset(neighbor(y + i - 1, height), depth);
+        }
+        for (int z = 0; z < depth; z++) {
+          for (int i = 0; i < 3; i++) {
+            zs[i] = neighbor(z + i - 1, depth);
+          }
+
+          // direct (von neumann) neighbors are weighted 4, the others 1.
+          // Neighbors outside a non toroidal layer count as 0.
+          double weightedSum = 0;
+          for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+              for (int k = 0; k < 3; k++) {
+                int offCenter = (i != 1 ? 1 : 0) + (j != 1 ? 1 : 0) + (k != 1 ? 1 : 0);
+                if (offCenter == 0) continue;
+                double val = xs[i] < 0 || ys[j] < 0 || zs[k] < 0 ? OUT_OF_BOUNDS
+                    : src[xs[i] + ys[j] + zs[k]];
+                weightedSum += offCenter == 1 ? 4 * val : val;
+              }
+            }
+          }
+
+          int index = x * plane + y * depth + z;
+          dst[index] = newValue(src[index], weightedSum / 44.0);
+        }
+      }
+    }
+  }
+
+  private static final double OUT_OF_BOUNDS = 0.0;
+
+  private double newValue(double oldVal, double weightedAvg) {
+    double delta = weightedAvg - oldVal;
+    return constrainByMinMax((oldVal + delta * diffusionConst) * evaporationConst);
+  }
+
+  // returns the neighboring coordinate, wrapped if toroidal, or -1 if it is
+  // outside the layer
+  private int neighbor(int coord, int dimension) {
+    if (coord < 0) return toroidal ? coord + dimension : -1;
+    if (coord >= dimension) return toroidal ? coord - dimension : -1;
+    return coord;
+  }
+
+  private static int rowOffset(int coord, int rowSize) {
+    return coord < 0 ? -1 : coord * rowSize;
+  }
+
+  private static double get(double[] src, int index) {
+    return index < 0 ? OUT_OF_BOUNDS : src[index];
+  }
+
+  private static double get(double[] src, int row, int y) {
+    return row < 0 || y < 0 ? OUT_OF_BOUNDS : src[row + y];
+  }
+}
@@ -0,0 +1,75 @@
+package repast.simphony.valueLayer;
+
+import repast.simphony.space.grid.GridPointTranslator;
+import repast.simphony.space.grid.StrictBorders;
+
+/**
+ * A dense GridValueLayer that stores its values as shorts. The cells are held
+ * in a {@link ShortValueLayerStore} and so use a quarter of the memory of a GridValueLayer of doubles.
+ * Double values are rounded toward zero and clamped to the short range when they are set. The cells can be read and
+ * written as shorts without going through doubles.
+ */
+public class ShortGridValueLayer extends GridValueLayer {
+
+  protected ShortValueLayerStore shortStore;
+
+  /**
+   * Creates a ShortGridValueLayer with the specified name, default value and
+   * dimensions. The border behavior is strict.
+   * 
+   * @param name
+   *          the name of the value layer
+   * @param defaultValue
+   *          the value of each cell before it is set
+   * @param dimensions
+   *          the dimension of the value layer
+   */
+  public ShortGridValueLayer(String name, short defaultValue, int... dimensions) {
+    this(name, defaultValue, new StrictBorders(), dimensions, new int[dimensions.length]);
+  }
+
+  /**
+   * Creates a ShortGridValueLayer with the specified name, default value,
+   * translator, dimensions and origin.
+   * 
+   * @param name
+   *          the name of the value layer
+   * @param defaultValue
+   *          the value of each cell before it is set
+   * @param translator
+   *          the translator used
+   * @param dimensions
+   *          the dimension of the value layer
+   * @param origin
+   *          the origin of the value layer
+   */
+  public ShortGridValueLayer(String name, short defaultValue, GridPointTranslator translator,
+      int[] dimensions, int[] origin) {
+    super(name, new ShortValueLayerStore(denseSize(dimensions), defaultValue), translator, dimensions,
+        origin);
+    shortStore = (ShortValueLayerStore) store;
+  }
+
+  /**
+   * Gets the value of the cell at the specified coordinates.
+   * 
+   * @param coordinate
+   *          the coordinate of the cell
+   * @return the value of the cell at the specified coordinates.
+   */
+  public short getShort(int... coordinate) {
+    return shortStore.getShort((int) getStoreIndex(coordinate));
+  }
+
+  /**
+   * Sets the specified cell to the specified value.
+   * 
+   * @param value
+   *          the new value of the cell
+   * @param coordinate
+   *          the coordinate of the cell whose value we want to set
+   */
+  public void set(short value, int... coordinate) {
+    shortStore.setShort((int) getStoreIndex(coordinate), value);
+  }
+}
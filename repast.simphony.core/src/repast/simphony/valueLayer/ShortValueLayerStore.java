@@ -0,0 +1,46 @@
+package repast.simphony.valueLayer;
+
+import java.util.Arrays;
+
+/**
+ * Value layer store backed by a dense short array. This uses a quarter of the
+ * memory of a {@link DenseValueLayerStore}. Values are rounded toward zero
+ * when they are set, and values outside the range of a short are clamped to
+ * Short.MIN_VALUE or Short.MAX_VALUE rather than wrapping around. NaN is
+ * stored as 0.
+ */
+public class ShortValueLayerStore implements ValueLayerStore {
+
+	protected short[] array;
+
+	public ShortValueLayerStore(int size, short defaultValue) {
+		array = new short[size];
+		if (defaultValue != 0) Arrays.fill(array, defaultValue);
+	}
+
+	@Override
+	public double get(long index) {
+		return array[(int) index];
+	}
+
+	@Override
+	public void set(long index, double value) {
+		// (short) on its own would wrap values outside the short range
+		if (value > Short.MAX_VALUE) array[(int) index] = Short.MAX_VALUE;
+		else if (value < Short.MIN_VALUE) array[(int) index] = Short.MIN_VALUE;
+		else array[(int) index] = (short) value;
+	}
+
+	public short getShort(int index) {
+		return array[index];
+	}
+
+	public void setShort(int index, short value) {
+		array[index] = value;
+	}
+
+	@Override
+	public int size() {
+		return array.length;
+	}
+}
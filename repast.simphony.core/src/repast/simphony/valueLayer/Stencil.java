@@ -0,0 +1,227 @@
+package repast.simphony.valueLayer;
+
+import repast.simphony.space.grid.GridNeighborhood;
+
+/**
+ * A weighted stencil that can be applied to every cell of a dense
+ * {@link GridValueLayer}. Applying a stencil sets each cell to the weighted sum
+ * of the cells at the stencil's offsets from it. For example, a 2D stencil with
+ * the offsets (0, 0), (-1, 0), (1, 0), (0, -1), (0, 1) and a weight of 0.2 for
+ * each sets every cell to the average of its Von Neumann neighborhood.
+ * <p/>
+ *
+ * The offsets are stored as in a
+ * {@link repast.simphony.space.grid.GridNeighborhood} offset table: the offsets
+ * of the i-th entry are at [i * dimCount, (i + 1) * dimCount).
+ */
+public class Stencil {
+
+  private final int dimCount;
+  private final int[] offsets;
+  private final double[] weights;
+
+  /**
+   * Creates a Stencil with the specified offsets and weights.
+   *
+   * @param dimCount
+   *          the number of dimensions of the layers this can be applied to
+   * @param offsets
+   *          the offsets of each entry, flattened so that the offsets of the
+   *          i-th entry are at [i * dimCount, (i + 1) * dimCount)
+   * @param weights
+   *          the weight of each entry
+   * @throws IllegalArgumentException
+   *           if the number of offsets does not match the number of weights
+   */
+  public Stencil(int dimCount, int[] offsets, double[] weights) {
+    if (dimCount < 1)
+      throw new IllegalArgumentException("A stencil must have at least one dimension");
+    if (offsets.length != weights.length * dimCount)
+      throw new IllegalArgumentException("Number of offsets must be the number of weights times "
+          + "the number of dimensions");
+    this.dimCount = dimCount;
+    this.offsets = offsets.clone();
+    this.weights = weights.clone();
+  }
+
+  /**
+   * Creates a stencil over the Moore neighborhood of a cell with an extent of
+   * one in each dimension.
+   *
+   * @param dimCount
+   *          the number of dimensions
+   * @param centerWeight
+   *          the weight of the cell itself
+   * @param neighborWeight
+   *          the weight of each of the cell's neighbors
+   * @return a stencil over the Moore neighborhood of a cell.
+   */
+  public static Stencil moore(int dimCount, double centerWeight, double neighborWeight) {
+    return create(dimCount, GridNeighborhood.mooreOffsets(unitExtent(dimCount)), centerWeight,
+        neighborWeight);
+  }
+
+  /**
+   * Creates a stencil over the Von Neumann neighborhood of a cell with an
+   * extent of one in each dimension.
+   *
+   * @param dimCount
+   *          the number of dimensions
+   * @param centerWeight
+   *          the weight of the cell itself
+   * @param neighborWeight
+   *          the weight of each of the cell's neighbors
+   * @return a stencil over the Von Neumann neighborhood of a cell.
+   */
+  public static Stencil vonNeumann(int dimCount, double centerWeight, double neighborWeight) {
+    return create(dimCount, GridNeighborhood.vonNeumannOffsets(unitExtent(dimCount)),
+        centerWeight, neighborWeight);
+  }
+
+  private static int[] unitExtent(int dimCount) {
+    int[] extent = new int[dimCount];
+    for (int i = 0; i < dimCount; i++) {
+      extent[i] = 1;
+    }
+    return extent;
+  }
+
+  private static Stencil create(int dimCount, int[] neighborOffsets, double centerWeight,
+      double neighborWeight) {
+    int count = neighborOffsets.length / dimCount;
+    // the center is the first entry and its offsets are all 0
+    int[] offsets = new int[(count + 1) * dimCount];
+    System.arraycopy(neighborOffsets, 0, offsets, dimCount, neighborOffsets.length);
+    double[] weights = new double[count + 1];
+    weights[0] = centerWeight;
+    for (int i = 1; i <= count; i++) {
+      weights[i] = neighborWeight;
+    }
+    return new Stencil(dimCount, offsets, weights);
+  }
+
+  /**
+   * Gets the number of dimensions of the layers this can be applied to.
+   *
+   * @return the number of dimensions of the layers this can be applied to.
+   */
+  public int getDimCount() {
+    return dimCount;
+  }
+
+  /**
+   * Gets the number of entries in this stencil.
+   *
+   * @return the number of entries in this stencil.
+   */
+  public int size() {
+    return weights.length;
+  }
+
+  /**
+   * Gets the offset of the specified entry in the specified dimension.
+   *
+   * @param entry
+   *          the index of the entry
+   * @param dimension
+   *          the dimension
+   * @return the offset of the specified entry in the specified dimension.
+   */
+  public int getOffset(int entry, int dimension) {
+    return offsets[entry * dimCount + dimension];
+  }
+
+  /**
+   * Gets the weight of the specified entry.
+   *
+   * @param entry
+   *          the index of the entry
+   * @return the weight of the specified entry.
+   */
+  public double getWeight(int entry) {
+    return weights[entry];
+  }
+
+  /**
+   * Applies this stencil to the src array, putting the results in the dst
+   * array. The arrays are laid out as in a GridValueLayer with the last
+   * dimension varying fastest. Each entry is added to a row of dst at a time
+   * so that the innermost loop runs over contiguous ranges of both arrays.
+   * Cells outside a non toroidal layer count as 0.
+   *
+   * @param src
+   *          the values to apply this to
+   * @param dst
+   *          the array to put the results in. This must not be src.
+   * @param dims
+   *          the size of each dimension
+   * @param toroidal
+   *          whether or not the borders of the layer wrap around
+   */
+  void apply(double[] src, double[] dst, int[] dims, boolean toroidal) {
+    int last = dimCount - 1;
+    int rowLength = dims[last];
+    int rowCount = src.length / rowLength;
+    int[] rowCoords = new int[last];
+    for (int row = 0; row < rowCount; row++) {
+      int dstStart = row * rowLength;
+      for (int i = dstStart, n = dstStart + rowLength; i < n; i++) {
+        dst[i] = 0;
+      }
+
+      for (int entry = 0; entry < weights.length; entry++) {
+        int base = entry * dimCount;
+        // find the start of the source row, skipping the entry if the row is
+        // outside the layer
+        int srcStart = 0;
+        boolean inside = true;
+        for (int d = 0; d < last; d++) {
+          int c = rowCoords[d] + offsets[base + d];
+          if (c < 0 || c >= dims[d]) {
+            if (!toroidal) {
+              inside = false;
+              break;
+            }
+            c = Math.floorMod(c, dims[d]);
+          }
+          srcStart = srcStart * dims[d] + c;
+        }
+        if (!inside) continue;
+        srcStart *= rowLength;
+
+        double weight = weights[entry];
+        int shift = offsets[base + last];
+        if (shift <= -rowLength || shift >= rowLength) {
+          if (!toroidal) continue;
+          shift = Math.floorMod(shift, rowLength);
+        }
+        // dst[x] gets src[x + shift] where x + shift is in the row
+        int from = Math.max(0, -shift);
+        int to = Math.min(rowLength, rowLength - shift);
+        addRow(src, srcStart + shift, dst, dstStart, from, to, weight);
+        if (toroidal) {
+          // the part of the row that wraps around
+          if (shift > 0) {
+            addRow(src, srcStart + shift - rowLength, dst, dstStart, to, rowLength, weight);
+          } else if (shift < 0) {
+            addRow(src, srcStart + shift + rowLength, dst, dstStart, 0, from, weight);
+          }
+        }
+      }
+
+      for (int d = last - 1; d >= 0; d--) {
+        if (++rowCoords[d] < dims[d]) break;
+        rowCoords[d] = 0;
+      }
+    }
+  }
+
+  // dst[dstStart + x] += weight * src[srcStart + x] for x in [from, to)
+  private static void addRow(double[] src, int srcStart, double[] dst, int dstStart, int from,
+      int to, double weight) {
+    int delta = srcStart - dstStart;
+    for (int i = dstStart + from, n = dstStart + to; i < n; i++) {
+      dst[i] += weight * src[i + delta];
+    }
+  }
+}
@@ -3,6 +3,7 @@ package repast.simphony.context;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -371,6 +372,252 @@ public class DefaultContextTest extends MockObjectTestCase {
     assertEquals(0, set.size());
   }
 
+  public void testIndexedRemove() {
+    DefaultContext<Object> context = new DefaultContext<Object>("indexed");
+    List<Object> expected = new ArrayList<Object>();
+    for (int i = 0; i < 100; i++) {
+      context.add(i);
+      context.add("s" + i);
+      expected.add(i);
+      expected.add("s" + i);
+    }
+    assertFalse(context.add(5));
+    assertEquals(200, context.size());
+
+    for (int i = 0; i < 100; i += 3) {
+      assertTrue(context.remove(i));
+      assertFalse(context.remove(i));
+      expected.remove(Integer.valueOf(i));
+    }
+    assertEquals(expected.size(), context.size());
+    for (Object obj : expected) {
+      assertTrue(context.contains(obj));
+    }
+    assertFalse(context.contains(3));
+    assertEquals(expected.size() - 100, context.getObjects(Integer.class).size());
+
+    // remove through the iterator, including the moved last elements
+    for (Iterator<Object> iter = context.iterator(); iter.hasNext();) {
+      Object obj = iter.next();
+      if (obj instanceof String && ((String) obj).endsWith("1")) {
+        iter.remove();
+        expected.remove(obj);
+      }
+    }
+    assertEquals(expected.size(), context.size());
+    Set<Object> found = new HashSet<Object>();
+    for (Object obj : context) {
+      found.add(obj);
+    }
+    assertEquals(new HashSet<Object>(expected), found);
+    for (int i = 0; i < 20; i++) {
+      assertTrue(found.contains(context.getRandomObject()));
+    }
+
+    // the same sequence of adds and removes gives the same order
+    DefaultContext<Object> other = new DefaultContext<Object>("other");
+    for (int i = 0; i < 100; i++) {
+      other.add(i);
+      other.add("s" + i);
+    }
+    for (int i = 0; i < 100; i += 3) {
+      other.remove(i);
+    }
+    for (Iterator<Object> iter = other.iterator(); iter.hasNext();) {
+      Object obj = iter.next();
+      if (obj instanceof String && ((String) obj).endsWith("1")) iter.remove();
+    }
+    Iterator<Object> iter = other.iterator();
+    for (Object obj : context) {
+      assertEquals(obj, iter.next());
+    }
+  }
+
+  public void testRemoveDuringIteration() {
+    DefaultContext<Object> context = new DefaultContext<Object>("comod");
+    for (int i = 0; i < 10; i++) {
+      context.add(i);
+    }
+    try {
+      for (Object obj : context) {
+        if (obj.equals(2)) context.remove(obj);
+      }
+      fail("Expected ConcurrentModificationException");
+    } catch (ConcurrentModificationException ex) {
+    }
+    try {
+      for (Object obj : context) {
+        if (obj.equals(3)) context.add(10);
+      }
+      fail("Expected ConcurrentModificationException");
+    } catch (ConcurrentModificationException ex) {
+    }
+
+    // removing through the iterator visits every agent
+    Set<Object> found = new HashSet<Object>();
+    for (Iterator<Object> iter = context.iterator(); iter.hasNext();) {
+      Object obj = iter.next();
+      found.add(obj);
+      iter.remove();
+    }
+    assertEquals(10, found.size());
+    assertEquals(0, context.size());
+
+    // and the same for the views of each type
+    for (int i = 0; i < 10; i++) {
+      context.add(i);
+    }
+    context.add("a");
+    IndexedIterable<Object> numbers = context.getObjects(Integer.class);
+    try {
+      for (Object obj : numbers) {
+        if (obj.equals(2)) context.remove(obj);
+      }
+      fail("Expected ConcurrentModificationException");
+    } catch (ConcurrentModificationException ex) {
+    }
+    found.clear();
+    for (Iterator<Object> iter = numbers.iterator(); iter.hasNext();) {
+      found.add(iter.next());
+      iter.remove();
+    }
+    assertEquals(9, found.size());
+    assertEquals(0, numbers.size());
+    assertEquals(1, context.size());
+  }
+
+  public void testCachedObjectViews() {
+    DefaultContext<Object> context = new DefaultContext<Object>("views");
+    IndexedIterable<Object> numbers = context.getObjects(Number.class);
+    assertSame(numbers, context.getObjects(Number.class));
+    assertEquals(0, numbers.size());
+
+    context.add(1);
+    context.add("a");
+    assertEquals(1, numbers.size());
+    assertEquals(1, numbers.get(0));
+    // a new class is picked up by the existing view
+    context.add(2.0);
+    assertEquals(2, numbers.size());
+    assertSame(numbers, context.getObjects(Number.class));
+
+    DefaultContext<Object> sub = new DefaultContext<Object>("sub");
+    sub.add(3L);
+    context.addSubContext(sub);
+    assertEquals(3, numbers.size());
+    assertEquals(3L, numbers.get(2));
+    sub.add(4L);
+    assertEquals(4, numbers.size());
+
+    Set<Object> found = new HashSet<Object>();
+    for (Iterator<Object> iter = numbers.iterator(); iter.hasNext();) {
+      Object obj = iter.next();
+      found.add(obj);
+      if (obj.equals(1) || obj.equals(3L)) iter.remove();
+    }
+    assertEquals(new HashSet<Object>(Arrays.asList(1, 2.0, 3L, 4L)), found);
+    assertEquals(2, numbers.size());
+    assertFalse(context.contains(1));
+    assertFalse(sub.contains(3L));
+    assertTrue(context.contains("a"));
+
+    context.removeSubContext(sub);
+    assertEquals(1, numbers.size());
+    try {
+      numbers.get(1);
+      fail("Expected IndexOutOfBoundsException");
+    } catch (IndexOutOfBoundsException ex) {
+    }
+  }
+
+  /**
+   * Context that is not a SmallDefaultContext and so only returns snapshots
+   * from getObjects.
+   */
+  static class ListContext extends AbstractContext<Object> {
+
+    private List<Object> objs = new ArrayList<Object>();
+
+    ListContext(Object id) {
+      setId(id);
+      setTypeID(id);
+    }
+
+    protected boolean addInternal(Object o) {
+      return objs.add(o);
+    }
+
+    protected boolean containsInternal(Object o) {
+      return objs.contains(o);
+    }
+
+    protected Iterator<Object> iteratorInternal() {
+      return objs.iterator();
+    }
+
+    protected boolean removeInternal(Object o) {
+      return objs.remove(o);
+    }
+
+    protected int sizeInternal() {
+      return objs.size();
+    }
+
+    public IndexedIterable<Object> getObjects(Class<?> clazz) {
+      List<Object> list = new ArrayList<Object>();
+      for (Object obj : objs) {
+        if (clazz.isInstance(obj)) list.add(obj);
+      }
+      return new ContextIndexedIterable<Object>(this, list);
+    }
+
+    public Iterable<Object> getRandomObjects(Class<? extends Object> clazz, long count) {
+      throw new UnsupportedOperationException();
+    }
+
+    public Object getRandomObject() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  public void testNestedUnindexedObjectViews() {
+    DefaultContext<Object> context = new DefaultContext<Object>("views");
+    DefaultContext<Object> sub = new DefaultContext<Object>("sub");
+    context.add(1);
+    context.addSubContext(sub);
+    IndexedIterable<Object> numbers = context.getObjects(Number.class);
+    assertEquals(1, numbers.size());
+
+    // a context that is not a SmallDefaultContext added below the sub context
+    ListContext nested = new ListContext("nested");
+    sub.addSubContext(nested);
+    nested.add(2);
+    assertEquals(2, numbers.size());
+    nested.add(3.0);
+    assertEquals(3, numbers.size());
+    sub.add(4L);
+    assertEquals(4, numbers.size());
+    assertEquals(new HashSet<Object>(Arrays.asList(1, 2, 3.0, 4L)),
+        new HashSet<Object>(toList(numbers)));
+    nested.remove(2);
+    assertEquals(3, numbers.size());
+
+    // once the nested context is gone the cached view is returned again
+    sub.removeSubContext(nested);
+    assertEquals(2, numbers.size());
+    assertSame(numbers, context.getObjects(Number.class));
+    sub.add(5L);
+    assertEquals(3, numbers.size());
+  }
+
+  private List<Object> toList(Iterable<Object> iter) {
+    List<Object> list = new ArrayList<Object>();
+    for (Object obj : iter) {
+      list.add(obj);
+    }
+    return list;
+  }
+
   public void testGetRandomObject() {
     for (int i = 20; i < 30; i++) {
       child2.add(i);
@@ -0,0 +1,62 @@
+package repast.simphony.engine.schedule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import junit.framework.TestSuite;
+
+/**
+ * Runs the schedule unit tests against a CalendarSchedule.
+ */
+public class CalendarScheduleTest extends ScheduleTest {
+
+  @Override
+  protected ISchedule createSchedule() {
+    return new CalendarSchedule();
+  }
+
+  @Override
+  protected IActionQueue createActionQueue() {
+    // small calendar so some actions spill into the heap
+    return new CalendarActionQueue(8);
+  }
+
+  public static junit.framework.Test suite() {
+    return new TestSuite(repast.simphony.engine.schedule.CalendarScheduleTest.class);
+  }
+
+  public void testMixedTicks() {
+    IActionQueue queue = createActionQueue();
+    double[] times = { 3, 1.5, 20, 1, 3, 0, 7, 100, 2.25, 8, 1 };
+    for (int i = 0; i < times.length; i++) {
+      queue.toss(new DefaultAction(ScheduleParameters.createOneTime(times[i]), new EndAction(
+          new ArrayList<Integer>(), i), i));
+    }
+    assertEquals(times.length, queue.size());
+
+    double[] expected = times.clone();
+    Arrays.sort(expected);
+    for (double time : expected) {
+      assertEquals(time, queue.popMin().getNextTime());
+    }
+    assertTrue(queue.isEmpty());
+  }
+
+  public void testPeekKeepsCurrentTick() {
+    IActionQueue queue = createActionQueue();
+    queue.toss(new DefaultAction(ScheduleParameters.createOneTime(1), new EndAction(
+        new ArrayList<Integer>(), 0), 0));
+    queue.toss(new DefaultAction(ScheduleParameters.createOneTime(5), new EndAction(
+        new ArrayList<Integer>(), 1), 1));
+    assertEquals(1.0, queue.popMin().getNextTime());
+    assertEquals(5.0, queue.peekMin().getNextTime());
+
+    // peeking past the empty buckets must not move the calendar past tick 1
+    DefaultAction action = new DefaultAction(ScheduleParameters.createOneTime(1),
+        new EndAction(new ArrayList<Integer>(), 2), 2);
+    queue.insert(action);
+    assertTrue(action.getQueueIndex() < 0);
+    assertEquals(action, queue.popMin());
+    assertEquals(5.0, queue.popMin().getNextTime());
+  }
+}
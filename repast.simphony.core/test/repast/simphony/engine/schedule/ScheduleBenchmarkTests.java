@@ -64,6 +64,28 @@ public class ScheduleBenchmarkTests {
     System.out.println(queue.size());
   }
   
+  @Test
+  public void testQueueRemove() {
+    int count = 1000000;
+    ActionQueue queue = new ActionQueue();
+    List<ISchedulableAction> actions = new ArrayList<ISchedulableAction>(count);
+    for (int i = 0; i < count; i++) {
+      ScheduleParameters params = ScheduleParameters.createOneTime(RandomHelper.nextDoubleFromTo(1, 4));
+      ISchedulableAction action = new DefaultAction(params, new AnAction(), i);
+      actions.add(action);
+      queue.insert(action);
+    }
+
+    long start = System.currentTimeMillis();
+    // remove every other action
+    for (int i = 0; i < count; i += 2) {
+      queue.remove(actions.get(i));
+    }
+    long end = System.currentTimeMillis();
+    System.out.printf("Remove time for %d actions: %f%n", count / 2, (end - start) / 1000d);
+    assertEquals(count / 2, queue.size());
+  }
+  
   @Test
   public void addAtSameTimeTest() {
     ScheduleParameters params = ScheduleParameters.createOneTime(1);
@@ -1,11 +1,21 @@
 package repast.simphony.engine.schedule;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
 import java.io.Serializable;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -158,10 +168,18 @@ public class ScheduleTest extends TestCase {
 
   protected void setUp() {
     RunState.init();
-    schedule = new Schedule();
+    schedule = createSchedule();
     sameTickOrderList.clear();
   }
 
+  protected ISchedule createSchedule() {
+    return new Schedule();
+  }
+
+  protected IActionQueue createActionQueue() {
+    return new ActionQueue();
+  }
+
   public static junit.framework.Test suite() {
     return new TestSuite(repast.simphony.engine.schedule.ScheduleTest.class);
   }
@@ -180,7 +198,7 @@ public class ScheduleTest extends TestCase {
 
     RandomHelper.setSeed(1);
     List<Integer> actual = new ArrayList<Integer>();
-    schedule = new Schedule();
+    schedule = createSchedule();
 
     for (int i = 0; i < 30; i++) {
       schedule.schedule(ScheduleParameters.createRepeating(1, 1), new ReproduceCheckAction(i,
@@ -256,6 +274,42 @@ public class ScheduleTest extends TestCase {
     }
   }
 
+  public void testParallelExecution() {
+    final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+    final AtomicInteger count = new AtomicInteger();
+    ForkJoinPool pool = new ForkJoinPool(4);
+    schedule.setParallelExecutor(pool);
+    try {
+      schedule.schedule(ScheduleParameters.createRepeating(1, 1, 10), new EndAction(order, 1));
+      ScheduleParameters params = ScheduleParameters.createThreadSafe(ScheduleParameters
+          .createRepeating(1, 1, 5));
+      assertTrue(params.isThreadSafe());
+      for (int i = 0; i < 200; i++) {
+        schedule.schedule(params, new IAction() {
+          public void execute() {
+            count.incrementAndGet();
+            order.add(2);
+          }
+        });
+      }
+      schedule.schedule(ScheduleParameters.createRepeating(1, 1, 0), new EndAction(order, 3));
+
+      for (int tick = 0; tick < 3; tick++) {
+        order.clear();
+        schedule.execute();
+        assertEquals(202, order.size());
+        assertEquals(new Integer(1), order.get(0));
+        for (int i = 1; i < 201; i++) {
+          assertEquals(new Integer(2), order.get(i));
+        }
+        assertEquals(new Integer(3), order.get(201));
+      }
+      assertEquals(600, count.get());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   public void testRemove() {
     TestAction action1 = new TestAction(schedule);
     ScheduleParameters params = ScheduleParameters.createRepeating(3, 1);
@@ -291,7 +345,7 @@ public class ScheduleTest extends TestCase {
     ScheduleParameters params = ScheduleParameters.createOneTime(10);
     DefaultAction action1 = new DefaultAction(params, new TestAction(schedule), 1);
 
-    ActionQueue queue = new ActionQueue();
+    IActionQueue queue = createActionQueue();
     queue.insert(action1);
 
     params = ScheduleParameters.createOneTime(2);
@@ -331,6 +385,207 @@ public class ScheduleTest extends TestCase {
     }
   }
 
+  public void testQueueRemove() {
+    RandomHelper.setSeed(1);
+    IActionQueue queue = createActionQueue();
+    List<DefaultAction> actions = new ArrayList<DefaultAction>();
+    for (int i = 0; i < 1000; i++) {
+      ScheduleParameters params = ScheduleParameters.createOneTime(RandomHelper.nextDoubleFromTo(
+          0, 100));
+      DefaultAction action = new DefaultAction(params, new TestAction(schedule), i);
+      actions.add(action);
+      if (i % 2 == 0) queue.insert(action);
+      else queue.toss(action);
+    }
+
+    Set<DefaultAction> removed = new HashSet<DefaultAction>();
+    for (int i = 0; i < actions.size(); i += 3) {
+      DefaultAction action = actions.get(i);
+      assertTrue(queue.remove(action));
+      assertFalse(queue.remove(action));
+      assertEquals(0, action.getQueueIndex());
+      removed.add(action);
+    }
+    assertEquals(actions.size() - removed.size(), queue.size());
+
+    double prev = Double.NEGATIVE_INFINITY;
+    while (!queue.isEmpty()) {
+      ISchedulableAction action = queue.popMin();
+      assertFalse(removed.contains(action));
+      assertTrue(action.getNextTime() >= prev);
+      prev = action.getNextTime();
+    }
+    assertEquals(0, queue.getModelActionCount());
+  }
+
+  // an action that does not record its slot in the queue
+  static class UntrackedAction extends DefaultAction {
+    private static final long serialVersionUID = 1L;
+
+    UntrackedAction(ScheduleParameters params, IAction action, int order) {
+      super(params, action, order);
+    }
+
+    public int getQueueIndex() {
+      return NO_QUEUE_INDEX;
+    }
+
+    public void setQueueIndex(int index) {
+    }
+  }
+
+  public void testQueueRemoveUntracked() {
+    RandomHelper.setSeed(1);
+    IActionQueue queue = createActionQueue();
+    List<ISchedulableAction> actions = new ArrayList<ISchedulableAction>();
+    for (int i = 0; i < 200; i++) {
+      // whole and fractional ticks
+      double time = i % 2 == 0 ? RandomHelper.nextIntFromTo(0, 20) : RandomHelper
+          .nextDoubleFromTo(0, 20);
+      ScheduleParameters params = ScheduleParameters.createOneTime(time);
+      ISchedulableAction action = i % 3 == 0 ? new UntrackedAction(params,
+          new TestAction(schedule), i) : new DefaultAction(params, new TestAction(schedule), i);
+      actions.add(action);
+      queue.insert(action);
+    }
+
+    Set<ISchedulableAction> removed = new HashSet<ISchedulableAction>();
+    for (int i = 0; i < actions.size(); i += 2) {
+      ISchedulableAction action = actions.get(i);
+      assertTrue(queue.remove(action));
+      assertFalse(queue.remove(action));
+      removed.add(action);
+    }
+    assertEquals(actions.size() - removed.size(), queue.size());
+
+    double prev = Double.NEGATIVE_INFINITY;
+    while (!queue.isEmpty()) {
+      ISchedulableAction action = queue.popMin();
+      assertFalse(removed.contains(action));
+      assertTrue(action.getNextTime() >= prev);
+      prev = action.getNextTime();
+    }
+  }
+
+  public void testBulkInsert() {
+    RandomHelper.setSeed(1);
+    IActionQueue queue = createActionQueue();
+    for (int i = 0; i < 1000; i++) {
+      queue.insert(new DefaultAction(ScheduleParameters.createOneTime(RandomHelper
+          .nextIntFromTo(1, 100)), new TestAction(schedule), i));
+    }
+
+    // few actions relative to queue size, and then many
+    for (int count : new int[] { 5, 5000 }) {
+      queue.beginBulkInsert();
+      for (int i = 0; i < count; i++) {
+        queue.toss(new DefaultAction(ScheduleParameters.createOneTime(RandomHelper
+            .nextDoubleFromTo(1, 100)), new TestAction(schedule), i));
+      }
+      queue.endBulkInsert();
+    }
+    assertEquals(6005, queue.size());
+
+    double prev = Double.NEGATIVE_INFINITY;
+    while (!queue.isEmpty()) {
+      ISchedulableAction action = queue.popMin();
+      assertTrue(action.getNextTime() >= prev);
+      prev = action.getNextTime();
+    }
+  }
+
+  public void testRescheduleCount() {
+    for (int i = 0; i < 10; i++) {
+      schedule.schedule(ScheduleParameters.createRepeating(1, 1), new TestAction(schedule));
+    }
+    schedule.schedule(ScheduleParameters.createOneTime(1), new TestAction(schedule));
+    schedule.execute();
+    assertEquals(11, schedule.getLastRescheduleCount());
+    assertTrue(schedule.getLastRescheduleTime() >= 0);
+    schedule.execute();
+    assertEquals(10, schedule.getLastRescheduleCount());
+    assertEquals(10, schedule.getActionCount());
+  }
+
+  public void testProfiler() throws Exception {
+    ScheduleProfiler profiler = new ScheduleProfiler();
+    schedule.setProfiler(profiler);
+    assertEquals(profiler, schedule.getProfiler());
+
+    List order = new ArrayList();
+    CallBackObj obj = new CallBackObj(order);
+    schedule.schedule(ScheduleParameters.createRepeating(1, 1), obj, "run");
+    schedule.schedule(ScheduleParameters.createRepeating(1, 2), new ReproduceCheckAction(0,
+        new ArrayList<Integer>()));
+    schedule.schedule(ScheduleParameters.createAtEnd(0), obj, "run");
+    for (int i = 0; i < 3; i++) {
+      schedule.execute();
+    }
+
+    assertEquals(3, profiler.getTickCount());
+    assertEquals(3.0, profiler.getLastTick());
+    assertEquals(5, profiler.getExecutionCount());
+    String[] summary = profiler.getActionSummary();
+    assertEquals(2, summary.length);
+    Set<String> rows = new HashSet<String>();
+    for (String row : summary) {
+      String[] vals = row.split(",");
+      rows.add(vals[0] + "." + vals[1] + ":" + vals[2]);
+    }
+    assertTrue(rows.contains(CallBackObj.class.getName() + ".run:3"));
+    assertTrue(rows.contains(ReproduceCheckAction.class.getName() + ".execute:2"));
+
+    File actionFile = File.createTempFile("profile", ".csv");
+    File tickFile = File.createTempFile("ticks", ".csv");
+    actionFile.deleteOnExit();
+    tickFile.deleteOnExit();
+    profiler.setOutputFiles(actionFile, tickFile);
+    schedule.executeEndActions();
+    assertEquals(6, profiler.getExecutionCount());
+    BufferedReader reader = new BufferedReader(new FileReader(tickFile));
+    int lines = 0;
+    while (reader.readLine() != null) {
+      lines++;
+    }
+    reader.close();
+    // header + 3 ticks
+    assertEquals(4, lines);
+    assertTrue(actionFile.length() > 0);
+
+    schedule.setProfiler(null);
+    schedule.execute();
+    assertEquals(3, profiler.getTickCount());
+  }
+
+  public void testProfilerIterableAndHistory() throws Exception {
+    ScheduleProfiler profiler = new ScheduleProfiler(false);
+    profiler.setTickHistorySize(2);
+    schedule.setProfiler(profiler);
+
+    List order = new ArrayList();
+    List<CallBackObj> objs = new ArrayList<CallBackObj>();
+    objs.add(new CallBackObj(order));
+    objs.add(new CallBackObj(order));
+    schedule.scheduleIterable(ScheduleParameters.createRepeating(1, 1), objs, "run", false);
+    for (int i = 0; i < 3; i++) {
+      schedule.execute();
+    }
+
+    // the first execution is recorded under the method's class too
+    String[] summary = profiler.getActionSummary();
+    assertEquals(1, summary.length);
+    assertTrue(summary[0].startsWith(CallBackObj.class.getName() + ",run,3,"));
+
+    assertEquals(3, profiler.getTickCount());
+    assertEquals(3.0, profiler.getLastTick());
+    StringWriter writer = new StringWriter();
+    profiler.writeTickCSV(writer);
+    String[] lines = writer.toString().trim().split("\\r?\\n");
+    assertEquals(3, lines.length);
+    assertTrue(lines[1].startsWith("2.0,"));
+    assertTrue(lines[2].startsWith("3.0,"));
+  }
+
   public void testBasicAt() {
     TestAction action1 = new TestAction(schedule);
     TestAction action2 = new TestAction(schedule);
@@ -646,6 +901,71 @@ public class ScheduleTest extends TestCase {
     assertTrue(passed);
   }
 
+  public static class ChunkedObj {
+
+    int count = 0;
+    double draw;
+
+    public void step() {
+      count++;
+      draw = IterableCallBackAction.getChunkUniform().nextDouble();
+    }
+  }
+
+  private double[] runChunked(List<ChunkedObj> list) {
+    RandomHelper.setSeed(7);
+    schedule = createSchedule();
+    ScheduleParameters params = ScheduleParameters.createRepeating(1, 1);
+    schedule.scheduleIterable(params, list, "step", IterationParameters.createParallel(true, 4));
+    schedule.execute();
+    schedule.execute();
+    double[] draws = new double[list.size()];
+    for (int i = 0; i < draws.length; i++) {
+      draws[i] = list.get(i).draw;
+    }
+    return draws;
+  }
+
+  public void testIterableCallBackParallel() {
+    List<ChunkedObj> list = new ArrayList<ChunkedObj>();
+    for (int i = 0; i < 1000; i++) {
+      list.add(new ChunkedObj());
+    }
+    List<ChunkedObj> copy = new ArrayList<ChunkedObj>(list);
+
+    double[] expected = runChunked(list);
+    // target is not shuffled itself
+    assertEquals(copy, list);
+    for (ChunkedObj obj : list) {
+      assertEquals(2, obj.count);
+    }
+
+    // same seed, same draws regardless of thread scheduling
+    double[] actual = runChunked(list);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], actual[i]);
+    }
+  }
+
+  public void testIterableCallBackPermutation() {
+    // shuffled order from a permutation without copying a Set
+    List order = new ArrayList();
+    Set<CallBackObj> set = new HashSet<CallBackObj>();
+    for (int i = 0; i < 10; i++) {
+      set.add(new CallBackObj(order));
+    }
+
+    ScheduleParameters params = ScheduleParameters.createRepeating(1, 1);
+    schedule.scheduleIterable(params, set, "run", IterationParameters.createSerial(true));
+    schedule.execute();
+    assertEquals(10, new HashSet(order).size());
+    List first = new ArrayList(order);
+    order.clear();
+    schedule.execute();
+    assertEquals(10, new HashSet(order).size());
+    assertFalse(first.equals(order));
+  }
+
   public void testIterableCallBackI() {
     Set<CallBackObj> set = new HashSet<CallBackObj>();
     set.add(new CallBackObj());
@@ -879,6 +1199,74 @@ public class ScheduleTest extends TestCase {
     }
   }
 
+  public void testThreadedActionExecutor() {
+    final List<Runnable> submitted = new ArrayList<Runnable>();
+    ThreadedAction.setExecutor(new Executor() {
+      public void execute(Runnable command) {
+        submitted.add(command);
+        command.run();
+      }
+    });
+
+    try {
+      DurationTestAction durAction = new DurationTestAction();
+      schedule.schedule(ScheduleParameters.createRepeating(1, 2, 0, 1), durAction);
+      schedule.schedule(ScheduleParameters.createOneTime(2, 0, 1), new IAction() {
+        public void execute() {
+          throw new IllegalStateException("background");
+        }
+      });
+
+      // starts at 1, barrier at 2
+      schedule.execute();
+      assertEquals(1, submitted.size());
+      assertEquals(1000000, durAction.getCount());
+      durAction.reset();
+      try {
+        // barrier for the repeating action, and the one time action is
+        // started
+        schedule.execute();
+      } catch (IllegalStateException ex) {
+        fail("exception should be thrown at the barrier");
+      }
+      assertEquals(2, submitted.size());
+
+      try {
+        schedule.execute();
+        fail("expected the background exception to be rethrown");
+      } catch (IllegalStateException ex) {
+        assertEquals("background", ex.getMessage());
+      }
+      assertEquals(3, schedule.getTickCount(), 0);
+    } finally {
+      ThreadedAction.setExecutor(null);
+    }
+  }
+
+  public void testThreadedActionInterrupt() throws InterruptedException {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    ThreadedAction action = new ThreadedAction(ScheduleParameters.createOneTime(1,
+        ScheduleParameters.RANDOM_PRIORITY, 2), new IAction() {
+      public void execute() {
+        started.countDown();
+        try {
+          Thread.sleep(60000);
+        } catch (InterruptedException ex) {
+          interrupted.countDown();
+        }
+      }
+    }, 0);
+
+    action.execute();
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    // interrupting the wait at the barrier interrupts the running action
+    Thread.currentThread().interrupt();
+    action.execute();
+    assertTrue(Thread.interrupted());
+    assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+  }
+
   public void testRepeatDurationIAction() {
     TestAction tAction = new TestAction(schedule);
     ScheduleParameters params = ScheduleParameters.createRepeating(1, 1);
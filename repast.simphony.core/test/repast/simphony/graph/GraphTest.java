@@ -1,5 +1,7 @@
 package repast.simphony.graph;
 
+import edu.uci.ics.jung.algorithms.shortestpath.DijkstraShortestPath;
+import edu.uci.ics.jung.graph.Graph;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
 import repast.simphony.context.Context;
@@ -1487,6 +1489,549 @@ public class GraphTest extends TestCase {
 
   }
 
+  // checks that a compact network matches a JUNG network after the same
+  // random sequence of changes
+  private void compareCompact(boolean directed) {
+    JungNetwork<Integer> jung = directed ? new DirectedJungNetwork<Integer>("jung")
+            : new UndirectedJungNetwork<Integer>("jung");
+    CompactNetwork<Integer> compact = new CompactNetwork<Integer>("compact", directed);
+    Random random = new Random(11);
+    int nodeCount = 60;
+    for (int i = 0; i < nodeCount; i++) {
+      jung.addVertex(i);
+      compact.addVertex(i);
+    }
+
+    for (int step = 0; step < 6000; step++) {
+      int source = random.nextInt(nodeCount);
+      int target = random.nextInt(nodeCount);
+      int op = random.nextInt(10);
+      if (op < 6) {
+        double weight = random.nextInt(4);
+        jung.addEdge(source, target, weight);
+        compact.addEdge(source, target, weight);
+      } else if (op < 9) {
+        RepastEdge<Integer> jungEdge = jung.getEdge(source, target);
+        RepastEdge<Integer> compactEdge = compact.getEdge(source, target);
+        assertEquals(jungEdge == null, compactEdge == null);
+        if (jungEdge != null) {
+          jung.removeEdge(jungEdge);
+          compact.removeEdge(compactEdge);
+        }
+      } else if (step % 50 == 0) {
+        jung.removeVertex(source);
+        compact.removeVertex(source);
+        jung.addVertex(source);
+        compact.addVertex(source);
+      }
+      if (step == 3000) compact.compact();
+
+      if (step % 100 == 0) {
+        assertEquals(jung.numEdges(), compact.numEdges());
+        assertEquals(jung.size(), compact.size());
+        for (int i = 0; i < nodeCount; i++) {
+          assertEquals(jung.getDegree(i), compact.getDegree(i));
+          assertEquals(jung.getInDegree(i), compact.getInDegree(i));
+          assertEquals(jung.getOutDegree(i), compact.getOutDegree(i));
+          assertEquals(toSet(jung.getSuccessors(i)), toSet(compact.getSuccessors(i)));
+          assertEquals(toSet(jung.getPredecessors(i)), toSet(compact.getPredecessors(i)));
+          assertEquals(toSet(jung.getAdjacent(i)), toSet(compact.getAdjacent(i)));
+          assertEquals(size(jung.getEdges(i)), size(compact.getEdges(i)));
+          assertEquals(size(jung.getInEdges(i)), size(compact.getInEdges(i)));
+          assertEquals(size(jung.getOutEdges(i)), size(compact.getOutEdges(i)));
+
+          Integer succ = compact.getRandomSuccessor(i);
+          assertEquals(jung.getOutDegree(i) == 0, succ == null);
+          if (succ != null) assertTrue(compact.isSuccessor(succ, i));
+          Integer pred = compact.getRandomPredecessor(i);
+          if (pred != null) assertTrue(compact.isPredecessor(pred, i));
+          Integer adj = compact.getRandomAdjacent(i);
+          if (adj != null) assertTrue(compact.isAdjacent(adj, i));
+
+          int other = random.nextInt(nodeCount);
+          assertEquals(jung.isSuccessor(i, other), compact.isSuccessor(i, other));
+          assertEquals(jung.isPredecessor(i, other), compact.isPredecessor(i, other));
+          assertEquals(jung.isAdjacent(i, other), compact.isAdjacent(i, other));
+          RepastEdge<Integer> jungEdge = jung.getEdge(i, other);
+          RepastEdge<Integer> compactEdge = compact.getEdge(i, other);
+          assertEquals(jungEdge == null, compactEdge == null);
+          if (jungEdge != null) assertEquals(jungEdge.getWeight(), compactEdge.getWeight());
+        }
+        assertEquals(size(jung.getEdges()), size(compact.getEdges()));
+      }
+    }
+  }
+
+  private Set<Integer> toSet(Iterable<Integer> iter) {
+    Set<Integer> set = new HashSet<Integer>();
+    for (Integer i : iter) {
+      set.add(i);
+    }
+    return set;
+  }
+
+  private int size(Iterable<?> iter) {
+    int count = 0;
+    for (Object obj : iter) {
+      count++;
+    }
+    return count;
+  }
+
+  public void testCompactNetwork() {
+    compareCompact(true);
+    compareCompact(false);
+
+    // created through the factory and kept in sync with the context
+    Network<Integer> net = NetworkFactoryFinder.createNetworkFactory(null).createCompactNetwork(
+            "Compact", context, true, null);
+    assertTrue(net instanceof ContextCompactNetwork);
+    assertEquals(net, context.getProjection("Compact"));
+    Listener listener = new Listener();
+    net.addProjectionListener(listener);
+    context.add(ints.get(0));
+    context.add(ints.get(1));
+    context.add(ints.get(2));
+    assertEquals(3, net.size());
+
+    RepastEdge<Integer> edge = net.addEdge(ints.get(0), ints.get(1), 2.5);
+    net.addEdge(ints.get(1), ints.get(2));
+    assertTrue(listener.types.contains(ProjectionEvent.EDGE_ADDED));
+    assertEquals(2.5, net.getEdge(ints.get(0), ints.get(1)).getWeight());
+    edge.setWeight(4);
+    assertEquals(4.0, net.getEdge(ints.get(0), ints.get(1)).getWeight());
+    assertTrue(net.containsEdge(edge));
+
+    context.remove(ints.get(1));
+    assertEquals(2, net.size());
+    assertEquals(0, net.numEdges());
+    assertFalse(net.containsEdge(edge));
+    assertTrue(listener.types.contains(ProjectionEvent.EDGE_REMOVED));
+
+    try {
+      new NetworkBuilder<Integer>("Compact 2", context, true).setCompact(true)
+              .setEdgeCreator(new TestEdgeCreator()).buildNetwork();
+      fail("Compact networks should only support the default edge creator");
+    } catch (IllegalArgumentException ex) {
+    }
+  }
+
+  public void testCompactEdgeEquality() {
+    for (boolean directed : new boolean[] { true, false }) {
+      CompactNetwork<Integer> net = new CompactNetwork<Integer>("compact", directed);
+      Listener listener = new Listener();
+      net.addProjectionListener(listener);
+
+      net.addEdge(ints.get(0), ints.get(1));
+      RepastEdge<Integer> added = listener.edge;
+      RepastEdge<Integer> edge = net.getEdge(ints.get(0), ints.get(1));
+      assertEquals(added, edge);
+      assertEquals(added.hashCode(), edge.hashCode());
+      assertTrue(toList(net.getEdges()).contains(edge));
+      assertTrue(toList(net.getOutEdges(ints.get(0))).contains(edge));
+      assertEquals(!directed, edge.equals(net.getEdge(ints.get(1), ints.get(0))));
+
+      net.removeEdge(edge);
+      assertEquals(added, listener.edge);
+
+      // an edge added as an object is reported as the network's view of it
+      net.addEdge(new RepastEdge<Integer>(ints.get(1), ints.get(2), directed));
+      added = listener.edge;
+      net.removeVertex(ints.get(2));
+      assertEquals(added, listener.edge);
+      assertFalse(added.equals(new CompactNetwork<Integer>("other", directed).addEdge(ints.get(1),
+              ints.get(2))));
+    }
+  }
+
+  private void checkNeighbors(JungNetwork<Integer> net, int node) {
+    Graph<Integer, RepastEdge<Integer>> graph = net.getGraph();
+    Set<Integer> succs = new LinkedHashSet<Integer>(graph.getSuccessors(node));
+    Set<Integer> preds = new LinkedHashSet<Integer>(graph.getPredecessors(node));
+    Set<Integer> adjacent = new LinkedHashSet<Integer>(preds);
+    adjacent.addAll(succs);
+
+    assertEquals(new ArrayList<Integer>(succs), toList(net.getSuccessors(node)));
+    assertEquals(new ArrayList<Integer>(preds), toList(net.getPredecessors(node)));
+    assertEquals(new ArrayList<Integer>(adjacent), toList(net.getAdjacent(node)));
+    assertEquals(adjacent.size(), ((Collection<Integer>) net.getAdjacent(node)).size());
+
+    if (succs.isEmpty()) assertNull(net.getRandomSuccessor(node));
+    else assertTrue(succs.contains(net.getRandomSuccessor(node)));
+    if (preds.isEmpty()) assertNull(net.getRandomPredecessor(node));
+    else assertTrue(preds.contains(net.getRandomPredecessor(node)));
+    if (adjacent.isEmpty()) assertNull(net.getRandomAdjacent(node));
+    else assertTrue(adjacent.contains(net.getRandomAdjacent(node)));
+  }
+
+  private <E> List<E> toList(Iterable<E> iter) {
+    List<E> list = new ArrayList<E>();
+    for (E i : iter) {
+      list.add(i);
+    }
+    return list;
+  }
+
+  private void checkNeighborIndex(JungNetwork<Integer> net) {
+    Random random = new Random(7);
+    int nodeCount = 40;
+    for (int i = 0; i < nodeCount; i++) {
+      net.addVertex(i);
+    }
+
+    for (int step = 0; step < 4000; step++) {
+      int source = random.nextInt(nodeCount);
+      int target = random.nextInt(nodeCount);
+      int op = random.nextInt(20);
+      if (op < 12) {
+        net.addEdge(source, target);
+      } else if (op < 18) {
+        RepastEdge<Integer> edge = net.getEdge(source, target);
+        if (edge != null) net.removeEdge(edge);
+      } else if (op < 19) {
+        net.removeVertex(source);
+        net.addVertex(source);
+      } else if (net.getEdge(source, target) == null) {
+        // changes made directly to the graph are picked up as well
+        net.getGraph().addEdge(new RepastEdge<Integer>(source, target, net.isDirected()), source,
+                target);
+      }
+      checkNeighbors(net, source);
+      checkNeighbors(net, target);
+    }
+  }
+
+  public void testJungNeighborIndex() {
+    checkNeighborIndex(new DirectedJungNetwork<Integer>("directed"));
+    checkNeighborIndex(new UndirectedJungNetwork<Integer>("undirected"));
+
+    // adjacency views are live and random picks are uniform over distinct
+    // neighbors
+    JungNetwork<Integer> net = new DirectedJungNetwork<Integer>("net");
+    for (int i = 0; i < 4; i++) {
+      net.addVertex(i);
+    }
+    Iterable<Integer> adjacent = net.getAdjacent(0);
+    assertFalse(adjacent.iterator().hasNext());
+    net.addEdge(0, 1);
+    net.addEdge(1, 0);
+    net.addEdge(0, 2);
+    net.addEdge(3, 0);
+    assertEquals(Arrays.asList(1, 3, 2), toList(adjacent));
+    assertEquals(Arrays.asList(1, 2), toList(net.getSuccessors(0)));
+    assertEquals(Arrays.asList(1, 3), toList(net.getPredecessors(0)));
+    assertEquals(Arrays.asList(1, 3, 2), net.getAdjacentCopy(0));
+    try {
+      adjacent.iterator().remove();
+      fail("Views should be unmodifiable");
+    } catch (UnsupportedOperationException ex) {
+    }
+
+    int[] counts = new int[4];
+    for (int i = 0; i < 30000; i++) {
+      counts[net.getRandomAdjacent(0)]++;
+    }
+    assertEquals(0, counts[0]);
+    for (int i = 1; i < 4; i++) {
+      assertEquals(10000, counts[i], 600);
+    }
+
+    // the network can be modified while iterating over the copies
+    for (int n : net.getSuccessors(0)) {
+      net.removeEdge(net.getEdge(0, n));
+    }
+    assertEquals(0, net.getOutDegree(0));
+    for (int n : net.getPredecessors(0)) {
+      net.removeEdge(net.getEdge(n, 0));
+    }
+    assertEquals(0, net.getInDegree(0));
+    for (boolean directed : new boolean[] { true, false }) {
+      JungNetwork<Integer> network = directed ? new DirectedJungNetwork<Integer>("d")
+          : new UndirectedJungNetwork<Integer>("u");
+      network.addEdge(0, 1);
+      network.addEdge(0, 2);
+      network.addEdge(2, 3);
+      for (int n : network.getAdjacentCopy(0)) {
+        network.removeEdge(network.getEdge(0, n));
+      }
+      assertEquals(0, network.getDegree(0));
+      assertNull(network.getRandomAdjacent(0));
+    }
+
+    // a remove and an add made directly on the graph leave the edge count
+    // unchanged but are still seen by the index
+    net = new DirectedJungNetwork<Integer>("net");
+    net.addEdge(0, 1);
+    assertEquals(1, (int) net.getRandomSuccessor(0));
+    Graph<Integer, RepastEdge<Integer>> graph = net.getGraph();
+    graph.removeEdge(net.getEdge(0, 1));
+    graph.addEdge(new RepastEdge<Integer>(0, 2, true), 0, 2);
+    for (int i = 0; i < 20; i++) {
+      assertEquals(2, (int) net.getRandomSuccessor(0));
+      assertEquals(2, (int) net.getRandomAdjacent(0));
+    }
+    assertEquals(Arrays.asList(2), toList(net.getSuccessors(0)));
+  }
+
+  public void testBulkAddEdges() {
+    Random random = new Random(3);
+    for (boolean directed : new boolean[] { true, false }) {
+      JungNetwork<Integer> jung = directed ? new DirectedJungNetwork<Integer>("jung")
+              : new UndirectedJungNetwork<Integer>("jung");
+      CompactNetwork<Integer> compact = new CompactNetwork<Integer>("compact", directed);
+      List<Integer> nodes = new ArrayList<Integer>();
+      for (int i = 0; i < 50; i++) {
+        nodes.add(i);
+      }
+      // includes duplicate edges and self loops
+      int count = 400;
+      int[] sources = new int[count];
+      int[] targets = new int[count];
+      for (int i = 0; i < count; i++) {
+        sources[i] = random.nextInt(nodes.size());
+        targets[i] = random.nextInt(nodes.size());
+      }
+      jung.addEdges(nodes, sources, targets, count);
+      compact.addEdges(nodes, sources, targets, count);
+
+      assertEquals(jung.size(), compact.size());
+      assertEquals(jung.numEdges(), compact.numEdges());
+      for (RepastEdge<Integer> edge : jung.getEdges()) {
+        assertTrue(compact.containsEdge(edge));
+      }
+      for (Integer node : nodes) {
+        assertEquals(jung.getOutDegree(node), compact.getOutDegree(node));
+        assertEquals(jung.getInDegree(node), compact.getInDegree(node));
+      }
+
+      // the second call adds to the existing edges
+      compact.addEdges(nodes, new int[] { 0, 1 }, new int[] { 1, 2 }, 2);
+      jung.addEdges(nodes, new int[] { 0, 1 }, new int[] { 1, 2 }, 2);
+      assertEquals(jung.numEdges(), compact.numEdges());
+    }
+
+    CompactNetwork<Integer> compact = new CompactNetwork<Integer>("compact", false);
+    for (int i = 0; i < 30; i++) {
+      compact.addVertex(i);
+    }
+    new RandomDensityGenerator<Integer>(1, false, false).createNetwork(compact);
+    assertEquals(30 * 29 / 2, compact.numEdges());
+  }
+
+  public void testBarabasiAlbert() {
+    context.clear();
+    for (int i = 0; i < 200; i++) {
+      context.add(i);
+    }
+
+    Network<Integer> net2 = context.getProjection(Network.class, "Network 2");
+    new BarabasiAlbertGenerator<Integer>(5, 3).createNetwork(net2);
+    assertEquals(10 + 195 * 3, net2.numEdges());
+    int maxDegree = 0;
+    for (int i = 0; i < 200; i++) {
+      assertFalse(net2.isAdjacent(i, i));
+      assertTrue(net2.getDegree(i) >= 3);
+      maxDegree = Math.max(maxDegree, net2.getDegree(i));
+    }
+    // preferential attachment creates hubs
+    assertTrue(maxDegree > 12);
+
+    Network<Integer> net1 = context.getProjection(Network.class, "Network 1");
+    new BarabasiAlbertGenerator<Integer>(2, 2).createNetwork(net1);
+    assertEquals(1 + 198 * 2, net1.numEdges());
+  }
+
+  public void testConfigurationModel() {
+    context.clear();
+    for (int i = 0; i < 100; i++) {
+      context.add(i);
+    }
+
+    Network<Integer> net2 = context.getProjection(Network.class, "Network 2");
+    int[] degrees = new int[100];
+    Arrays.fill(degrees, 4);
+    new ConfigurationModelGenerator<Integer>(degrees, false).createNetwork(net2);
+    assertTrue(net2.numEdges() <= 200);
+    assertTrue(net2.numEdges() > 180);
+    assertNoParallelEdges(net2);
+    for (int i = 0; i < 100; i++) {
+      assertFalse(net2.isAdjacent(i, i));
+      assertTrue(net2.getDegree(i) <= 4);
+    }
+
+    Network<Integer> net1 = context.getProjection(Network.class, "Network 1");
+    int[] outDegrees = new int[100];
+    int[] inDegrees = new int[100];
+    for (int i = 0; i < 100; i++) {
+      outDegrees[i] = i % 2 == 0 ? 3 : 1;
+      inDegrees[i] = 2;
+    }
+    new ConfigurationModelGenerator<Integer>(outDegrees, inDegrees, false).createNetwork(net1);
+    assertTrue(net1.numEdges() <= 200);
+    assertTrue(net1.numEdges() > 180);
+    assertNoParallelEdges(net1);
+    int i = 0;
+    for (Integer node : net1.getNodes()) {
+      assertTrue(net1.getOutDegree(node) <= outDegrees[i]);
+      assertTrue(net1.getInDegree(node) <= inDegrees[i++]);
+    }
+
+    // dense degree sequences link the same pairs many times over. Repeated
+    // pairs are dropped rather than replacing the pair's edge.
+    for (boolean directed : new boolean[] { true, false }) {
+      JungNetwork<Integer> net = directed ? new DirectedJungNetwork<Integer>("dense")
+              : new UndirectedJungNetwork<Integer>("dense");
+      for (int node = 0; node < 20; node++) {
+        net.addVertex(node);
+      }
+      final int[] removed = new int[1];
+      net.addProjectionListener(new ProjectionListener<Integer>() {
+        public void projectionEventOccurred(ProjectionEvent<Integer> evt) {
+          if (evt.getType() == ProjectionEvent.EDGE_REMOVED) removed[0]++;
+        }
+      });
+      degrees = new int[20];
+      Arrays.fill(degrees, 10);
+      ConfigurationModelGenerator<Integer> generator = directed
+              ? new ConfigurationModelGenerator<Integer>(degrees, degrees, false)
+              : new ConfigurationModelGenerator<Integer>(degrees, false);
+      generator.createNetwork(net);
+      assertTrue(net.numEdges() > 0);
+      assertNoParallelEdges(net);
+      assertEquals(0, removed[0]);
+    }
+  }
+
+  private void assertNoParallelEdges(Network<Integer> net) {
+    Set<List<Integer>> pairs = new HashSet<List<Integer>>();
+    for (RepastEdge<Integer> edge : net.getEdges()) {
+      int source = edge.getSource(), target = edge.getTarget();
+      if (!net.isDirected() && source > target) {
+        int tmp = source;
+        source = target;
+        target = tmp;
+      }
+      assertTrue(pairs.add(Arrays.asList(source, target)));
+    }
+  }
+
+  private void checkPaths(Network<Integer> net, Graph<Integer, RepastEdge<Integer>> graph,
+          ShortestPath<Integer> path, int source, int nodeCount) {
+    DijkstraShortestPath<Integer, RepastEdge<Integer>> dsp = new DijkstraShortestPath<Integer,
+            RepastEdge<Integer>>(graph, new JungEdgeTransformer<Integer>());
+    for (int target = 0; target < nodeCount; target++) {
+      Number expected = dsp.getDistance(source, target);
+      double length = path.getPathLength(source, target);
+      assertEquals(expected == null ? Double.POSITIVE_INFINITY : expected.doubleValue(), length);
+
+      // the path's edges lead from source to target and add up to its length
+      List<RepastEdge<Integer>> edges = path.getPath(source, target);
+      double sum = 0;
+      Integer node = source;
+      for (RepastEdge<Integer> edge : edges) {
+        assertTrue(net.containsEdge(edge));
+        node = edge.getSource().equals(node) ? edge.getTarget() : edge.getSource();
+        sum += edge.getWeight();
+      }
+      if (expected != null) {
+        assertEquals(target, node.intValue());
+        assertEquals(length, sum);
+      } else {
+        assertTrue(edges.isEmpty());
+      }
+    }
+  }
+
+  private void compareShortestPaths(boolean directed, boolean weighted) {
+    JungNetwork<Integer> net = directed ? new DirectedJungNetwork<Integer>("net")
+            : new UndirectedJungNetwork<Integer>("net");
+    Random random = new Random(5);
+    int nodeCount = 40;
+    for (int i = 0; i < nodeCount; i++) {
+      net.addVertex(i);
+    }
+    for (int i = 0; i < 60; i++) {
+      net.addEdge(random.nextInt(nodeCount), random.nextInt(nodeCount),
+              weighted ? 1 + random.nextInt(5) : 1);
+    }
+
+    ShortestPath<Integer> cached = new ShortestPath<Integer>(net);
+    cached.setCacheSize(8);
+    ShortestPath<Integer> landmarks = new ShortestPath<Integer>(net);
+    assertEquals(3, landmarks.selectLandmarks(3).size());
+    List<Integer> sources = new ArrayList<Integer>();
+    for (int i = 0; i < 8; i++) {
+      sources.add(i);
+    }
+    cached.computePaths(sources);
+
+    for (int step = 0; step < 150; step++) {
+      int source = random.nextInt(nodeCount);
+      int target = random.nextInt(nodeCount);
+      if (random.nextBoolean()) {
+        net.addEdge(source, target, weighted ? 1 + random.nextInt(5) : 1);
+      } else if (net.getEdge(source, target) != null) {
+        net.removeEdge(net.getEdge(source, target));
+      } else if (step % 10 == 0) {
+        net.removeVertex(source);
+        net.addVertex(source);
+      }
+      // sources from the start keep their cached trees through the changes
+      int query = random.nextInt(nodeCount / 2);
+      checkPaths(net, net.getGraph(), cached, query, nodeCount);
+      checkPaths(net, net.getGraph(), landmarks, query, nodeCount);
+    }
+  }
+
+  public void testShortestPathUpdates() {
+    compareShortestPaths(true, true);
+    compareShortestPaths(false, true);
+    compareShortestPaths(true, false);
+    compareShortestPaths(false, false);
+
+    // works with networks that aren't JUNG based
+    CompactNetwork<Integer> compact = new CompactNetwork<Integer>("compact", true);
+    compact.addEdge(0, 1, 2);
+    compact.addEdge(1, 2, 2);
+    compact.addEdge(0, 2, 5);
+    ShortestPath<Integer> path = new ShortestPath<Integer>(compact);
+    assertEquals(4.0, path.getPathLength(0, 2));
+    assertEquals(2, path.getPath(0, 2).size());
+    compact.addEdge(0, 2, 1);
+    assertEquals(1.0, path.getPathLength(0, 2));
+    assertEquals(Double.POSITIVE_INFINITY, path.getPathLength(2, 0));
+
+    // weight changes are seen once the paths are cleared
+    JungNetwork<Integer> net = new DirectedJungNetwork<Integer>("net");
+    RepastEdge<Integer> edge = net.addEdge(0, 1, 2);
+    net.addEdge(1, 2, 2);
+    net.addEdge(0, 2, 5);
+    path = new ShortestPath<Integer>(net);
+    assertEquals(4.0, path.getPathLength(0, 2));
+    edge.setWeight(10);
+    assertEquals(4.0, path.getPathLength(0, 2));
+    path.clear();
+    assertEquals(5.0, path.getPathLength(0, 2));
+    assertEquals(12.0, path.getPathLength(0, 1) + path.getPathLength(1, 2));
+    assertNull(ShortestPath.finished(path));
+
+    // removing one of two parallel edges, whether or not it is the tree edge
+    for (boolean removeLight : new boolean[] { true, false }) {
+      net = new DirectedJungNetwork<Integer>("parallel");
+      RepastEdge<Integer> light = net.addEdge(0, 1, 2);
+      RepastEdge<Integer> heavy = new RepastEdge<Integer>(0, 1, true, 5);
+      // the network replaces an edge between the same nodes, so the parallel
+      // edge is added to the multigraph directly
+      net.getGraph().addEdge(heavy, 0, 1);
+      net.addEdge(1, 2, 1);
+      path = new ShortestPath<Integer>(net);
+      assertEquals(3.0, path.getPathLength(0, 2));
+      net.removeEdge(removeLight ? light : heavy);
+      assertEquals(removeLight ? 6.0 : 3.0, path.getPathLength(0, 2));
+      assertEquals(removeLight ? 5.0 : 2.0, path.getPathLength(0, 1));
+    }
+  }
+
   public static junit.framework.Test suite() {
     return new TestSuite(GraphTest.class);
   }
@@ -0,0 +1,36 @@
+package repast.simphony.graph;
+
+import repast.simphony.context.space.graph.BarabasiAlbertGenerator;
+import repast.simphony.context.space.graph.NetworkGenerator;
+import repast.simphony.context.space.graph.RandomDensityGenerator;
+import repast.simphony.context.space.graph.WattsBetaSmallWorldGenerator;
+import repast.simphony.space.graph.CompactNetwork;
+
+/**
+ * A benchmark that times the network generators on a million node
+ * CompactNetwork. Not a unit test.
+ */
+public class NetworkGeneratorBench {
+
+  private static final int NODES = 1000000;
+
+  public static void main(String[] args) {
+    // an average degree of 10
+    double density = 10.0 / (NODES - 1);
+    run("Random density", new RandomDensityGenerator<Integer>(density, false, false));
+    run("Watts beta", new WattsBetaSmallWorldGenerator<Integer>(.1, 10, false));
+    run("Barabasi Albert", new BarabasiAlbertGenerator<Integer>(5, 5));
+  }
+
+  private static void run(String name, NetworkGenerator<Integer> generator) {
+    CompactNetwork<Integer> net = new CompactNetwork<Integer>("net", false);
+    for (int i = 0; i < NODES; i++) {
+      net.addVertex(i);
+    }
+    long t0 = System.nanoTime();
+    generator.createNetwork(net);
+    long tf = System.nanoTime();
+    System.out.println(name + ": " + net.numEdges() + " edges in " + (tf - t0) / 1000000
+            + " ms");
+  }
+}
@@ -0,0 +1,196 @@
+package repast.simphony.graph;
+
+import edu.uci.ics.jung.algorithms.cluster.WeakComponentClusterer;
+import edu.uci.ics.jung.algorithms.scoring.BetweennessCentrality;
+import edu.uci.ics.jung.graph.Graph;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import repast.simphony.space.graph.CompactNetwork;
+import repast.simphony.space.graph.DirectedJungNetwork;
+import repast.simphony.space.graph.JungNetwork;
+import repast.simphony.space.graph.NetworkMetrics;
+import repast.simphony.space.graph.RepastEdge;
+import repast.simphony.space.graph.UndirectedJungNetwork;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Tests NetworkMetrics against the JUNG algorithms.
+ */
+public class NetworkMetricsTest extends TestCase {
+
+  private void compareMetrics(boolean directed) {
+    JungNetwork<Integer> net = directed ? new DirectedJungNetwork<Integer>("net")
+            : new UndirectedJungNetwork<Integer>("net");
+    Random random = new Random(7);
+    int nodeCount = 60;
+    for (int i = 0; i < nodeCount; i++) {
+      net.addVertex(i);
+    }
+    NetworkMetrics<Integer> metrics = new NetworkMetrics<Integer>(net);
+    assertEquals(nodeCount, metrics.getComponentCount());
+
+    for (int step = 0; step < 3; step++) {
+      for (int i = 0; i < 40; i++) {
+        int source = random.nextInt(nodeCount);
+        int target = random.nextInt(nodeCount);
+        if (net.getEdge(source, target) == null) net.addEdge(source, target);
+      }
+      Graph<Integer, RepastEdge<Integer>> graph = net.getGraph();
+      assertEquals(nodeCount, metrics.getNodeCount());
+      assertEquals(net.numEdges(), metrics.getEdgeCount());
+
+      long[] distribution = metrics.getDegreeDistribution();
+      long[] expected = new long[distribution.length];
+      double degreeSum = 0;
+      for (Integer node : net.getNodes()) {
+        expected[net.getDegree(node)]++;
+        degreeSum += net.getDegree(node);
+      }
+      assertTrue(Arrays.equals(expected, distribution));
+      assertEquals(degreeSum / nodeCount, metrics.getMeanDegree(), 1E-9);
+
+      // the clustering coefficient as RepastJungGraphStatistics computes it
+      double clusteringSum = 0;
+      for (Integer node : net.getNodes()) {
+        List<Integer> neighbors = new ArrayList<Integer>(graph.getNeighbors(node));
+        neighbors.remove(node);
+        double coefficient = neighbors.size();
+        if (neighbors.size() > 1) {
+          int links = 0;
+          for (int i = 0; i < neighbors.size(); i++) {
+            for (int j = i + 1; j < neighbors.size(); j++) {
+              if (graph.isNeighbor(neighbors.get(i), neighbors.get(j))) links++;
+            }
+          }
+          coefficient = links / (neighbors.size() * (neighbors.size() - 1) / 2.0);
+        }
+        assertEquals(coefficient, metrics.getClusteringCoefficient(node), 1E-9);
+        clusteringSum += coefficient;
+      }
+      assertEquals(clusteringSum / nodeCount, metrics.getAverageClusteringCoefficient(), 1E-9);
+
+      BetweennessCentrality<Integer, RepastEdge<Integer>> jungBetweenness =
+              new BetweennessCentrality<Integer, RepastEdge<Integer>>(graph);
+      Map<Integer, Double> betweenness = metrics.getBetweenness(nodeCount);
+      for (Integer node : net.getNodes()) {
+        assertEquals(jungBetweenness.getVertexScore(node), betweenness.get(node), 1E-6);
+      }
+      Map<Integer, Double> sampled = metrics.getBetweenness(nodeCount / 2);
+      assertEquals(nodeCount, sampled.size());
+
+      Set<Set<Integer>> clusters = new WeakComponentClusterer<Integer, RepastEdge<Integer>>()
+              .transform(graph);
+      assertEquals(clusters.size(), metrics.getComponentCount());
+      int largest = 0;
+      for (Set<Integer> cluster : clusters) {
+        largest = Math.max(largest, cluster.size());
+        Integer first = cluster.iterator().next();
+        for (Integer node : cluster) {
+          assertTrue(metrics.isConnected(first, node));
+        }
+      }
+      assertEquals(largest, metrics.getLargestComponentSize());
+      List<List<Integer>> components = metrics.getComponents();
+      assertEquals(clusters.size(), components.size());
+      assertEquals(largest, components.get(0).size());
+    }
+  }
+
+  public void testDirectedMetrics() {
+    compareMetrics(true);
+  }
+
+  public void testUndirectedMetrics() {
+    compareMetrics(false);
+  }
+
+  public void testCompactNetworkMetrics() {
+    NetworkMetrics<Integer> metrics = new NetworkMetrics<Integer>(
+            new CompactNetwork<Integer>("compact", false));
+    assertEquals(0, metrics.getNodeCount());
+    assertEquals(0.0, metrics.getAverageClusteringCoefficient());
+    assertEquals(0, metrics.getComponentCount());
+    metrics.getNetwork().addEdge(0, 1);
+    metrics.getNetwork().addEdge(1, 2);
+    metrics.getNetwork().addEdge(2, 0);
+    metrics.getNetwork().addEdge(3, 3);
+    assertEquals(4, metrics.getNodeCount());
+    assertEquals(1.0, metrics.getClusteringCoefficient(0));
+    assertEquals(0.0, metrics.getClusteringCoefficient(3));
+    assertEquals(2, metrics.getComponentCount());
+    assertFalse(metrics.isConnected(0, 3));
+  }
+
+  // large enough that the edge and node ranges are split into several tasks
+  public void testParallelMetrics() {
+    int nodeCount = 10000;
+    CompactNetwork<Integer> net = new CompactNetwork<Integer>("large", false);
+    for (int i = 0; i < nodeCount; i++) {
+      net.addVertex(i);
+    }
+    Random random = new Random(11);
+    for (int i = 0; i < 15000; i++) {
+      net.addEdge(random.nextInt(nodeCount), random.nextInt(nodeCount));
+    }
+    assertTrue(net.numEdges() > 8192);
+
+    // serial union-find over the edges
+    int[] parents = new int[nodeCount];
+    for (int i = 0; i < nodeCount; i++) {
+      parents[i] = i;
+    }
+    for (RepastEdge<Integer> edge : net.getEdges()) {
+      int a = root(parents, edge.getSource()), b = root(parents, edge.getTarget());
+      if (a != b) parents[a] = b;
+    }
+    int[] sizes = new int[nodeCount];
+    int componentCount = 0, largest = 0;
+    for (int i = 0; i < nodeCount; i++) {
+      int size = ++sizes[root(parents, i)];
+      if (size == 1) componentCount++;
+      largest = Math.max(largest, size);
+    }
+    long[] expected = new long[nodeCount];
+    int maxDegree = 0;
+    for (int i = 0; i < nodeCount; i++) {
+      expected[net.getDegree(i)]++;
+      maxDegree = Math.max(maxDegree, net.getDegree(i));
+    }
+    expected = Arrays.copyOf(expected, maxDegree + 1);
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    ForkJoinPool single = new ForkJoinPool(1);
+    try {
+      NetworkMetrics<Integer> parallel = new NetworkMetrics<Integer>(net, pool);
+      NetworkMetrics<Integer> serial = new NetworkMetrics<Integer>(net, single);
+      assertEquals(componentCount, parallel.getComponentCount());
+      assertEquals(largest, parallel.getLargestComponentSize());
+      assertEquals(serial.getComponentCount(), parallel.getComponentCount());
+      for (int i = 0; i < nodeCount; i += 7) {
+        int j = (i * 31 + 5) % nodeCount;
+        assertEquals(root(parents, i) == root(parents, j), parallel.isConnected(i, j));
+      }
+      assertTrue(Arrays.equals(expected, parallel.getDegreeDistribution()));
+      assertTrue(Arrays.equals(serial.getDegreeDistribution(), parallel.getDegreeDistribution()));
+      for (int i = 0; i < nodeCount; i++) {
+        assertEquals(serial.getClusteringCoefficient(i), parallel.getClusteringCoefficient(i), 1E-12);
+      }
+    } finally {
+      pool.shutdown();
+      single.shutdown();
+    }
+  }
+
+  private static int root(int[] parents, int node) {
+    while (parents[node] != node) {
+      node = parents[node];
+    }
+    return node;
+  }
+
+  public static junit.framework.Test suite() {
+    return new TestSuite(NetworkMetricsTest.class);
+  }
+}
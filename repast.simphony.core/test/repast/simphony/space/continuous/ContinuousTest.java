@@ -8,6 +8,8 @@ import repast.simphony.query.space.continuous.ContinuousWithin;
 import repast.simphony.query.space.projection.Within;
 import repast.simphony.space.SpatialException;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.*;
 
 /**
@@ -117,6 +119,227 @@ public class ContinuousTest extends TestCase {
 		assertEquals(0, expected.size());
 	}
 
+	private void checkObjectsWithin(AbstractContinuousSpace<Integer, ?> space, Context<Integer> context,
+					Random random) {
+		for (int q = 0; q < 50; q++) {
+			NdPoint point = new NdPoint(random.nextDouble() * 30 - 5, random.nextDouble() * 20 - 5);
+			double dist = random.nextDouble() * 12;
+			Set<Integer> expected = new HashSet<Integer>();
+			for (Integer i : context) {
+				NdPoint location = space.getLocation(i);
+				if (location != null && space.getDistanceSq(point, location) <= dist * dist) expected.add(i);
+			}
+			List<Integer> found = space.getObjectsWithin(point, dist);
+			assertEquals(expected.size(), found.size());
+			assertEquals(expected, new HashSet<Integer>(found));
+		}
+	}
+
+	public void testObjectsWithinIndex() {
+		Context<Integer> context = new DefaultContext<Integer>();
+		for (int i = 0; i < 300; i++) {
+			context.add(i);
+		}
+		Random random = new Random(1);
+		PointTranslator[] borders = {new WrapAroundBorders(), new StickyBorders(), new InfiniteBorders()};
+		for (int b = 0; b < borders.length; b++) {
+			AbstractContinuousSpace<Integer, ?> space = (AbstractContinuousSpace<Integer, ?>)
+							ContinuousSpaceFactoryFinder.createContinuousSpaceFactory(null).createContinuousSpace(
+											"cs" + b, context, new RandomCartesianAdder<Integer>(), borders[b],
+											new double[]{20, 10}, new double[]{2, 0});
+			if (b == 2) {
+				// some objects outside of the space's extent
+				for (int i = 0; i < 30; i++) {
+					space.moveTo(i, random.nextDouble() * 40 - 10, random.nextDouble() * 40 - 10);
+				}
+			}
+			checkObjectsWithin(space, context, random);
+
+			space.setIndexCellSize(3);
+			assertEquals(3.0, space.getIndexCellSize());
+			checkObjectsWithin(space, context, random);
+
+			for (int i = 0; i < 300; i++) {
+				space.moveByDisplacement(i, random.nextDouble() * 6 - 3, random.nextDouble() * 6 - 3);
+			}
+			for (int i = 0; i < 300; i += 7) {
+				context.remove(i);
+			}
+			checkObjectsWithin(space, context, random);
+			context.removeProjection(space.getName());
+			for (int i = 0; i < 300; i += 7) {
+				context.add(i);
+			}
+		}
+	}
+
+	public void testPrimitiveMoveTo() {
+		ContinuousSpace<Integer> space = ContinuousSpaceFactoryFinder.createContinuousSpaceFactory(null)
+						.createContinuousSpace("space", context, new SimpleCartesianAdder<Integer>(),
+										new WrapAroundBorders(), 10, 8);
+		assertTrue(space.moveTo(1, 2.5, 3));
+		assertEquals(new NdPoint(2.5, 3), space.getLocation(1));
+		assertTrue(space.moveTo(1, 12.5, -1));
+		assertEquals(new NdPoint(2.5, 7), space.getLocation(1));
+		assertEquals(Integer.valueOf(1), space.getObjectAt(2.5, 7));
+		try {
+			space.moveTo(1, 1, 1, 1);
+			fail("Expected SpatialException");
+		} catch (SpatialException ex) {
+		}
+
+		ContinuousSpace<Integer> space3D = ContinuousSpaceFactoryFinder.createContinuousSpaceFactory(null)
+						.createContinuousSpace("space3D", context, new SimpleCartesianAdder<Integer>(),
+										new WrapAroundBorders(), 10, 8, 6);
+		try {
+			space3D.moveTo(1, 1, 1);
+			fail("Expected SpatialException");
+		} catch (SpatialException ex) {
+		}
+		assertTrue(space3D.moveTo(1, 1, 2, 3));
+		assertEquals(new NdPoint(1, 2, 3), space3D.getLocation(1));
+	}
+
+	public void testMoveInPlace() {
+		ContinuousSpace<Integer> space = ContinuousSpaceFactoryFinder.createContinuousSpaceFactory(null)
+						.createContinuousSpace("space", context, new SimpleCartesianAdder<Integer>(),
+										new WrapAroundBorders(), 10, 8);
+		space.moveTo(1, 2, 3);
+		AbstractContinuousSpace.PointHolder holder = ((AbstractContinuousSpace<Integer, ?>) space).agentLocationMap.get(1);
+		NdPoint point = holder.point;
+
+		// the point hasn't been handed out so it is updated in place
+		assertTrue(space.moveTo(1, 4, 5));
+		assertSame(point, holder.point);
+		assertTrue(Arrays.equals(new double[] { 4, 5 }, space.getLocation(1, null)));
+		assertSame(point, holder.point);
+		assertEquals(Integer.valueOf(1), space.getObjectAt(4, 5));
+		assertNull(space.getObjectAt(2, 3));
+		assertEquals(Integer.valueOf(1), space.getObjectsWithin(new NdPoint(4, 5), 0.5).iterator().next());
+
+		// a point that has been handed out is not changed by later moves
+		NdPoint location = space.getLocation(1);
+		assertTrue(space.moveTo(1, 6, 7));
+		assertEquals(new NdPoint(4, 5), location);
+		assertEquals(new NdPoint(6, 7), space.getLocation(1));
+		NdPoint displaced = space.moveByDisplacement(1, 1, 0);
+		assertEquals(new NdPoint(7, 7), displaced);
+		space.moveTo(1, 2, 2);
+		assertEquals(new NdPoint(7, 7), displaced);
+		point = holder.point;
+		space.moveTo(1, 3, 3);
+		assertSame(point, holder.point);
+
+		// a failed move leaves the point where it was
+		DefaultContinuousSpace<Integer> single = new DefaultContinuousSpace<Integer>("single",
+						new SimpleCartesianAdder<Integer>(), new StrictBorders(),
+						new SingleOccupancyCoordinateAccessor<Integer>(), 10, 8);
+		single.agentLocationMap.put(1, new AbstractContinuousSpace.PointHolder());
+		single.agentLocationMap.put(2, new AbstractContinuousSpace.PointHolder());
+		assertTrue(single.moveTo(1, 1, 1));
+		assertTrue(single.moveTo(2, 2, 2));
+		holder = single.agentLocationMap.get(2);
+		point = holder.point;
+		assertFalse(single.moveTo(2, 1, 1));
+		assertFalse(single.moveTo(2, 2, 2));
+		assertSame(point, holder.point);
+		assertTrue(Arrays.equals(new double[] { 2, 2 }, single.getLocation(2, null)));
+		assertEquals(Integer.valueOf(2), single.getObjectAt(2, 2));
+		assertEquals(Integer.valueOf(1), single.getObjectAt(1, 1));
+		assertTrue(single.moveTo(2, 3, 3));
+		assertSame(point, holder.point);
+		assertNull(single.getObjectAt(2, 2));
+	}
+
+	public void testMoveAllocation() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) return;
+		com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+		if (!sunBean.isThreadAllocatedMemorySupported()) return;
+		sunBean.setThreadAllocatedMemoryEnabled(true);
+
+		DefaultContinuousSpace<Integer> space = new DefaultContinuousSpace<Integer>("single",
+						new SimpleCartesianAdder<Integer>(), new StrictBorders(),
+						new SingleOccupancyCoordinateAccessor<Integer>(), 10, 8);
+		space.agentLocationMap.put(1, new AbstractContinuousSpace.PointHolder());
+		space.moveTo(1, 1, 1);
+
+		int moves = 10000;
+		long inPlace = 0, replaced = 0;
+		// the first rounds warm up the moves
+		for (int round = 0; round < 3; round++) {
+			long start = sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			for (int i = 0; i < moves; i++) {
+				space.moveTo(1, i % 2, 1);
+			}
+			inPlace = sunBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - start;
+
+			start = sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			for (int i = 0; i < moves; i++) {
+				space.getLocation(1);
+				space.moveTo(1, i % 2, 1);
+			}
+			replaced = sunBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - start;
+		}
+		// a replaced location costs an NdPoint and its coordinate array, each at
+		// least 16 bytes. The storage's map entry is allocated either way.
+		assertTrue("in place: " + inPlace + ", replaced: " + replaced,
+						replaced - inPlace >= 32L * moves);
+	}
+
+	public void testNearest() {
+		Context<Object> context = new DefaultContext<Object>();
+		for (int i = 0; i < 200; i++) {
+			context.add(i);
+			context.add("s" + i);
+		}
+		Random random = new Random(2);
+		PointTranslator[] borders = {new WrapAroundBorders(), new StickyBorders(), new InfiniteBorders()};
+		for (int b = 0; b < borders.length; b++) {
+			AbstractContinuousSpace<Object, ?> space = (AbstractContinuousSpace<Object, ?>)
+							ContinuousSpaceFactoryFinder.createContinuousSpaceFactory(null).createContinuousSpace(
+											"cs" + b, context, new RandomCartesianAdder<Object>(), borders[b],
+											new double[]{20, 10}, new double[]{2, 0});
+			if (b == 2) {
+				for (int i = 0; i < 30; i++) {
+					space.moveTo(i, random.nextDouble() * 40 - 10, random.nextDouble() * 40 - 10);
+				}
+			}
+			space.setIndexCellSize(0.5 + b);
+
+			for (int k : new int[]{1, 4, 1000}) {
+				for (Object obj : context) {
+					NdPoint point = space.getLocation(obj);
+					List<Double> expected = new ArrayList<Double>();
+					for (Object other : context) {
+						if (other != obj) expected.add(space.getDistanceSq(point, space.getLocation(other)));
+					}
+					Collections.sort(expected);
+					List<Object> found = space.getNearest(obj, k);
+					assertEquals(Math.min(k, expected.size()), found.size());
+					for (int i = 0; i < found.size(); i++) {
+						assertTrue(found.get(i) != obj);
+						assertEquals(expected.get(i), space.getDistanceSq(point, space.getLocation(found.get(i))));
+					}
+				}
+
+				NdPoint point = new NdPoint(random.nextDouble() * 20 - 2, random.nextDouble() * 10);
+				List<Double> expected = new ArrayList<Double>();
+				for (Object other : context) {
+					if (other instanceof Integer) expected.add(space.getDistanceSq(point, space.getLocation(other)));
+				}
+				Collections.sort(expected);
+				List<Object> found = space.getNearest(point, k, Integer.class);
+				assertEquals(Math.min(k, expected.size()), found.size());
+				for (int i = 0; i < found.size(); i++) {
+					assertTrue(found.get(i) instanceof Integer);
+					assertEquals(expected.get(i), space.getDistanceSq(point, space.getLocation(found.get(i))));
+				}
+			}
+			context.removeProjection(space.getName());
+		}
+	}
+
 	public void testAdder() {
 		double[] size = {50, 50};
 		ContinuousSpace<Integer> cs1 = ContinuousSpaceFactoryFinder.createContinuousSpaceFactory(null)
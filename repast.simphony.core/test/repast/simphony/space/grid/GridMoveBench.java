@@ -0,0 +1,63 @@
+package repast.simphony.space.grid;
+
+import java.util.Random;
+
+import repast.simphony.context.Context;
+import repast.simphony.context.DefaultContext;
+import repast.simphony.context.space.grid.GridFactoryFinder;
+
+/**
+ * A benchmark comparing random moves in the map backed DefaultGrid with the
+ * array backed dense grids. Not a unit test.
+ */
+public class GridMoveBench {
+
+	private static final int SIZE = 500;
+	private static final int AGENTS = 100000;
+	private static final int MOVES = 5000000;
+
+	public static void main(String[] args) {
+		GridBuilderParameters<Integer> defaultSingle = new GridBuilderParameters<Integer>(
+				new WrapAroundBorders(), new RandomGridAdder<Integer>(), false, SIZE, SIZE);
+		GridBuilderParameters<Integer> denseSingle = GridBuilderParameters.denseSingleOccupancy2D(
+				new RandomGridAdder<Integer>(), new WrapAroundBorders(), SIZE, SIZE);
+		GridBuilderParameters<Integer> defaultMulti = GridBuilderParameters.multiOccupancy2D(
+				new RandomGridAdder<Integer>(), new WrapAroundBorders(), SIZE, SIZE);
+		GridBuilderParameters<Integer> denseMulti = GridBuilderParameters.denseMultiOccupancy2D(
+				new RandomGridAdder<Integer>(), new WrapAroundBorders(), SIZE, SIZE);
+
+		// Warm up
+		for (int i = 0; i < 3; i++) {
+			run(defaultSingle);
+			run(denseSingle);
+			run(defaultMulti);
+			run(denseMulti);
+		}
+
+		System.out.println("Default single: " + run(defaultSingle) + " ns/move");
+		System.out.println("Dense single:   " + run(denseSingle) + " ns/move");
+		System.out.println("Default multi:  " + run(defaultMulti) + " ns/move");
+		System.out.println("Dense multi:    " + run(denseMulti) + " ns/move");
+	}
+
+	// returns the average time per move in ns
+	private static double run(GridBuilderParameters<Integer> params) {
+		Context<Integer> context = new DefaultContext<Integer>();
+		Grid<Integer> grid = GridFactoryFinder.createGridFactory(null).createGrid("grid", context,
+				params);
+		for (int i = 0; i < AGENTS; i++) {
+			context.add(i);
+		}
+
+		Random random = new Random(1);
+		int[] location = new int[2];
+		long t0 = System.nanoTime();
+		for (int i = 0; i < MOVES; i++) {
+			Integer agent = random.nextInt(AGENTS);
+			grid.getLocation(agent, location);
+			grid.moveTo(agent, location[0] + random.nextInt(3) - 1, location[1] + random.nextInt(3) - 1);
+		}
+		long tf = System.nanoTime();
+		return (tf - t0) / (double) MOVES;
+	}
+}
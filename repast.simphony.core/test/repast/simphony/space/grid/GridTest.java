@@ -1,12 +1,19 @@
 package repast.simphony.space.grid;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.vecmath.Matrix3d;
 import javax.vecmath.Vector3d;
@@ -15,6 +22,7 @@ import junit.framework.TestCase;
 import junit.framework.TestSuite;
 import repast.simphony.context.Context;
 import repast.simphony.context.DefaultContext;
+import repast.simphony.context.space.grid.ContextFastSingleGrid;
 import repast.simphony.context.space.grid.GridFactoryFinder;
 import repast.simphony.engine.environment.RunState;
 import repast.simphony.query.space.grid.GridCell;
@@ -78,6 +86,394 @@ public class GridTest extends TestCase {
     RunState.init(null, null, null);
   }
 
+  private void checkNearest(Grid<Object> grid, Context<Object> context, Random random, int k) {
+    for (Object obj : context) {
+      GridPoint point = grid.getLocation(obj);
+      List<Double> expected = new ArrayList<Double>();
+      for (Object other : context) {
+        if (other != obj) expected.add(grid.getDistanceSq(point, grid.getLocation(other)));
+      }
+      Collections.sort(expected);
+      List<Object> found = grid.getNearest(obj, k);
+      assertEquals(Math.min(k, expected.size()), found.size());
+      for (int i = 0; i < found.size(); i++) {
+        assertTrue(found.get(i) != obj);
+        assertEquals(expected.get(i), grid.getDistanceSq(point, grid.getLocation(found.get(i))));
+      }
+    }
+
+    GridDimensions dims = grid.getDimensions();
+    GridPoint point = new GridPoint(random.nextInt(dims.getWidth()), random.nextInt(dims.getHeight()));
+    List<Double> expected = new ArrayList<Double>();
+    for (Object other : context) {
+      if (other instanceof String) expected.add(grid.getDistanceSq(point, grid.getLocation(other)));
+    }
+    Collections.sort(expected);
+    List<Object> found = grid.getNearest(point, k, String.class);
+    assertEquals(Math.min(k, expected.size()), found.size());
+    for (int i = 0; i < found.size(); i++) {
+      assertTrue(found.get(i) instanceof String);
+      assertEquals(expected.get(i), grid.getDistanceSq(point, grid.getLocation(found.get(i))));
+    }
+  }
+
+  public void testNearest() {
+    Random random = new Random(1);
+    int[][] sizes = { { 20, 15 }, { 200, 150 } };
+    int[] counts = { 150, 12 };
+    for (int s = 0; s < sizes.length; s++) {
+      for (int b = 0; b < 2; b++) {
+        Context<Object> context = new DefaultContext<Object>();
+        for (int i = 0; i < counts[s]; i++) {
+          context.add(i);
+          context.add("s" + i);
+        }
+        GridPointTranslator borders = b == 0 ? new StrictBorders() : new WrapAroundBorders();
+        Grid<Object> grid = GridFactoryFinder.createGridFactory(null).createGrid("grid", context,
+            new GridBuilderParameters<Object>(borders, new RandomGridAdder<Object>(), true, sizes[s]));
+        checkNearest(grid, context, random, 1);
+        checkNearest(grid, context, random, 5);
+        checkNearest(grid, context, random, 4 * counts[s]);
+      }
+    }
+
+    // a query doesn't stop the object's point being updated in place
+    Context<Object> context = new DefaultContext<Object>();
+    AbstractGrid<Object, ?> grid = (AbstractGrid<Object, ?>) GridFactoryFinder
+        .createGridFactory(null).createGrid("grid", context, new GridBuilderParameters<Object>(
+            new StrictBorders(), new SimpleGridAdder<Object>(), true, 10, 10));
+    context.add("a");
+    context.add("b");
+    grid.moveTo("a", 1, 1);
+    grid.moveTo("b", 3, 3);
+    assertEquals(Collections.singletonList("b"), grid.getNearest("a", 1));
+    assertFalse(grid.agentLocationMap.get("a").shared);
+  }
+
+  public void testDenseMultiGrid() {
+    Context<Integer> context = new DefaultContext<Integer>();
+    for (int i = 0; i < 200; i++) {
+      context.add(i);
+    }
+    Grid<Integer> dense = GridFactoryFinder.createGridFactory(null).createGrid("dense", context,
+        GridBuilderParameters.denseMultiOccupancy2D(new SimpleGridAdder<Integer>(), new WrapAroundBorders(), 7, 5));
+    Grid<Integer> map = GridFactoryFinder.createGridFactory(null).createGrid("map", context,
+        GridBuilderParameters.multiOccupancy2D(new SimpleGridAdder<Integer>(), new WrapAroundBorders(), 7, 5));
+    assertTrue(dense instanceof DenseMultiOccuGrid);
+    assertTrue(dense.getCellAccessor().allowsMultiOccupancy());
+
+    Random random = new Random(3);
+    for (int step = 0; step < 2000; step++) {
+      int obj = random.nextInt(200);
+      if (!context.contains(obj)) {
+        context.add(obj);
+      } else if (random.nextInt(10) == 0) {
+        context.remove(obj);
+      } else {
+        int x = random.nextInt(20) - 10, y = random.nextInt(20) - 10;
+        assertTrue(dense.moveTo(obj, x, y));
+        assertTrue(map.moveTo(obj, x, y));
+        assertEquals(map.getLocation(obj), dense.getLocation(obj));
+      }
+    }
+
+    assertEquals(map.size(), dense.size());
+    DenseMultiOccuGrid<Integer> grid = (DenseMultiOccuGrid<Integer>) dense;
+    for (int x = 0; x < 7; x++) {
+      for (int y = 0; y < 5; y++) {
+        List<Integer> expected = new ArrayList<Integer>();
+        for (Integer obj : map.getObjectsAt(x, y)) {
+          expected.add(obj);
+        }
+        List<Integer> found = new ArrayList<Integer>();
+        for (Integer obj : dense.getObjectsAt(x, y)) {
+          found.add(obj);
+        }
+        assertEquals(expected, found);
+        assertEquals(map.getObjectAt(x, y), dense.getObjectAt(x, y));
+        assertEquals(expected.size(), grid.getObjectCountAt(x, y));
+
+        found.clear();
+        int cell = grid.getCellIndex(x, y);
+        for (int slot = grid.getFirstSlot(cell); slot != -1; slot = grid.getNextSlot(slot)) {
+          found.add(grid.getSlotObject(slot));
+        }
+        assertEquals(expected, found);
+        if (expected.size() > 0) assertTrue(expected.contains(dense.getRandomObjectAt(x, y)));
+      }
+    }
+    assertEquals(-1, grid.getCellIndex(7, 0));
+
+    // the objects in a cell can be iterated more than once
+    Context<Integer> smallContext = new DefaultContext<Integer>();
+    Grid<Integer> small = GridFactoryFinder.createGridFactory(null).createGrid("small", smallContext,
+        GridBuilderParameters.denseMultiOccupancy2D(new SimpleGridAdder<Integer>(), new StrictBorders(), 3, 3));
+    smallContext.add(1);
+    smallContext.add(2);
+    small.moveTo(1, 1, 1);
+    small.moveTo(2, 1, 1);
+    Iterable<Integer> objs = small.getObjectsAt(1, 1);
+    assertEquals(2, count(objs));
+    assertEquals(2, count(objs));
+    try {
+      for (Integer obj : objs) {
+        small.moveTo(obj, 0, 0);
+      }
+      fail("Expected ConcurrentModificationException");
+    } catch (ConcurrentModificationException ex) {
+    }
+
+    try {
+      new DenseMultiOccuGrid<Integer>("infinite", new SimpleGridAdder<Integer>(),
+          new InfiniteBorders<Integer>(), 7, 5);
+      fail("Dense grids should reject InfiniteBorders");
+    } catch (IllegalArgumentException ex) {
+    }
+    try {
+      grid.setGridPointTranslator(new InfiniteBorders<Integer>());
+      fail("Dense grids should reject InfiniteBorders");
+    } catch (IllegalArgumentException ex) {
+    }
+  }
+
+  public void testDenseSingleGrid() {
+    Context<Integer> context = new DefaultContext<Integer>();
+    for (int i = 0; i < 100; i++) {
+      context.add(i);
+    }
+    Grid<Integer> dense = GridFactoryFinder.createGridFactory(null).createGrid("dense", context,
+        GridBuilderParameters.denseSingleOccupancyND(new RandomGridAdder<Integer>(), new WrapAroundBorders(), 6, 5, 4));
+    Grid<Integer> map = GridFactoryFinder.createGridFactory(null).createGrid("map", context,
+        new GridBuilderParameters<Integer>(new WrapAroundBorders(), new SimpleGridAdder<Integer>(), false, 6, 5, 4));
+    assertTrue(dense instanceof FastDenseSingleOccuGrid);
+    assertFalse(dense.getCellAccessor().allowsMultiOccupancy());
+    assertEquals(100, dense.size());
+    for (Integer obj : context) {
+      GridPoint pt = dense.getLocation(obj);
+      assertTrue(map.moveTo(obj, pt.toIntArray(null)));
+    }
+
+    Random random = new Random(5);
+    for (int step = 0; step < 5000; step++) {
+      int obj = random.nextInt(100);
+      if (!context.contains(obj)) {
+        context.add(obj);
+        assertTrue(map.moveTo(obj, dense.getLocation(obj).toIntArray(null)));
+      } else if (random.nextInt(10) == 0) {
+        context.remove(obj);
+      } else {
+        int x = random.nextInt(20) - 10, y = random.nextInt(20) - 10, z = random.nextInt(20) - 10;
+        assertEquals(map.moveTo(obj, x, y, z), dense.moveTo(obj, x, y, z));
+        assertEquals(map.getLocation(obj), dense.getLocation(obj));
+      }
+      assertEquals(map.size(), dense.size());
+    }
+
+    for (int x = 0; x < 6; x++) {
+      for (int y = 0; y < 5; y++) {
+        for (int z = 0; z < 4; z++) {
+          assertEquals(map.getObjectAt(x, y, z), dense.getObjectAt(x, y, z));
+          int count = 0;
+          for (Integer obj : dense.getObjectsAt(x, y, z)) {
+            assertEquals(map.getObjectAt(x, y, z), obj);
+            count++;
+          }
+          assertEquals(map.getObjectAt(x, y, z) == null ? 0 : 1, count);
+        }
+      }
+    }
+
+    context = new DefaultContext<Integer>();
+    Grid<Integer> grid = new ContextFastSingleGrid<Integer>("origin", new SimpleGridAdder<Integer>(),
+        new StrictBorders(), new int[] { 4, 3 }, new int[] { 2, 1 });
+    context.addProjection(grid);
+    context.add(1);
+    context.add(2);
+    assertTrue(grid.moveTo(1, -2, -1));
+    assertFalse(grid.moveTo(2, -2, -1));
+    assertTrue(grid.moveTo(2, 1, 1));
+    assertEquals(Integer.valueOf(1), grid.getObjectAt(-2, -1));
+    assertTrue(grid.moveTo(1, 0, 0));
+    assertNull(grid.getObjectAt(-2, -1));
+    assertEquals(Integer.valueOf(1), grid.getObjectAt(0, 0));
+    assertEquals(2, grid.size());
+
+    try {
+      grid.setGridPointTranslator(new InfiniteBorders<Integer>());
+      fail("Dense grids should reject InfiniteBorders");
+    } catch (IllegalArgumentException ex) {
+    }
+  }
+
+  public void testPrimitiveMoveTo() {
+    List<GridBuilderParameters<Integer>> params = new ArrayList<GridBuilderParameters<Integer>>();
+    params.add(GridBuilderParameters.multiOccupancy2D(new SimpleGridAdder<Integer>(), new WrapAroundBorders(), 5, 4));
+    params.add(GridBuilderParameters.denseMultiOccupancy2D(new SimpleGridAdder<Integer>(), new WrapAroundBorders(), 5, 4));
+    params.add(GridBuilderParameters.denseSingleOccupancy2D(new SimpleGridAdder<Integer>(), new WrapAroundBorders(), 5, 4));
+    for (GridBuilderParameters<Integer> param : params) {
+      Context<Integer> context = new DefaultContext<Integer>();
+      Grid<Integer> grid = GridFactoryFinder.createGridFactory(null).createGrid("grid", context, param);
+      context.add(1);
+      context.add(2);
+      assertTrue(grid.moveTo(1, 2, 3));
+      assertTrue(grid.moveTo(2, 0, 0));
+      assertEquals(new GridPoint(2, 3), grid.getLocation(1));
+
+      // points that have been handed out are never changed
+      GridPoint pt = grid.getLocation(1);
+      assertTrue(grid.moveTo(1, 6, -1));
+      assertEquals(new GridPoint(2, 3), pt);
+      assertTrue(grid.moveTo(1, 3, 1));
+      assertTrue(grid.moveTo(1, 4, 2));
+      assertEquals(new GridPoint(2, 3), pt);
+      assertEquals(new GridPoint(4, 2), grid.getLocation(1));
+      assertEquals(Integer.valueOf(1), grid.getObjectAt(4, 2));
+      assertNull(grid.getObjectAt(3, 1));
+
+      int[] location = grid.getLocation(1, new int[2]);
+      assertEquals(4, location[0]);
+      assertEquals(2, location[1]);
+      assertNull(grid.getLocation(3, location));
+
+      GridPoint moved = grid.moveByDisplacement(1, 1, 1);
+      assertEquals(new GridPoint(0, 3), moved);
+      assertTrue(grid.moveTo(1, 1, 1));
+      assertEquals(new GridPoint(0, 3), moved);
+      assertEquals(2, grid.size());
+
+      try {
+        grid.moveTo(1, 1, 1, 1);
+        fail("Expected SpatialException");
+      } catch (SpatialException ex) {
+      }
+    }
+  }
+
+  public void testForEachInNeighborhood() {
+    for (boolean periodic : new boolean[] { true, false }) {
+      GridPointTranslator borders = periodic ? new WrapAroundBorders() : new StrictBorders();
+      List<GridBuilderParameters<Integer>> params = new ArrayList<GridBuilderParameters<Integer>>();
+      params.add(GridBuilderParameters.multiOccupancy2D(new RandomGridAdder<Integer>(), borders, 7, 6));
+      params.add(GridBuilderParameters.denseMultiOccupancy2D(new RandomGridAdder<Integer>(), borders, 7, 6));
+      params.add(GridBuilderParameters.denseSingleOccupancy2D(new RandomGridAdder<Integer>(), borders, 7, 6));
+      params.add(new GridBuilderParameters<Integer>(borders, new RandomGridAdder<Integer>(), false, 7, 6));
+
+      for (GridBuilderParameters<Integer> param : params) {
+        Context<Integer> context = new DefaultContext<Integer>();
+        Grid<Integer> grid = GridFactoryFinder.createGridFactory(null).createGrid("grid", context, param);
+        for (int i = 0; i < 30; i++) {
+          context.add(i);
+        }
+
+        for (int i = 0; i < 30; i++) {
+          GridPoint center = grid.getLocation(i);
+          for (double distance : new double[] { 0, 1, 1.5, 2.5, 4 }) {
+            // brute force
+            Set<Integer> expected = new HashSet<Integer>();
+            for (Integer obj : context) {
+              if (!obj.equals(i) && grid.getDistanceSq(center, grid.getLocation(obj)) <= distance * distance) {
+                expected.add(obj);
+              }
+            }
+            final List<Integer> found = new ArrayList<Integer>();
+            grid.forEachWithin(Integer.valueOf(i), distance, obj -> found.add(obj));
+            assertEquals(expected.size(), found.size());
+            assertEquals(expected, new HashSet<Integer>(found));
+
+            found.clear();
+            for (Integer obj : new GridWithin<Integer>(grid, i, distance).query()) {
+              found.add(obj);
+            }
+            assertEquals(expected.size(), found.size());
+            assertEquals(expected, new HashSet<Integer>(found));
+          }
+
+          Set<Integer> moore = new HashSet<Integer>();
+          Set<Integer> vn = new HashSet<Integer>();
+          for (Integer obj : context) {
+            GridPoint pt = grid.getLocation(obj);
+            int dx = Math.abs(pt.getX() - center.getX());
+            int dy = Math.abs(pt.getY() - center.getY());
+            if (periodic) {
+              dx = Math.min(dx, 7 - dx);
+              dy = Math.min(dy, 6 - dy);
+            }
+            if ((dx != 0 || dy != 0) && dx <= 1 && dy <= 2) moore.add(obj);
+            if ((dx == 0 && dy != 0 && dy <= 2) || (dy == 0 && dx == 1)) vn.add(obj);
+          }
+          final List<Integer> found = new ArrayList<Integer>();
+          grid.forEachInMoore(Integer.valueOf(i), new int[] { 1, 2 }, obj -> found.add(obj));
+          assertEquals(moore.size(), found.size());
+          assertEquals(moore, new HashSet<Integer>(found));
+          List<Integer> queried = new ArrayList<Integer>();
+          for (Integer obj : new MooreQuery<Integer>(grid, i, 1, 2).query()) {
+            queried.add(obj);
+          }
+          assertEquals(found, queried);
+
+          found.clear();
+          grid.forEachInVN(center, new int[] { 1, 2 }, obj -> found.add(obj));
+          assertEquals(vn.size(), found.size());
+          assertEquals(vn, new HashSet<Integer>(found));
+        }
+      }
+    }
+  }
+
+  public void testConcurrentNeighborhoods() throws Exception {
+    Context<Integer> context = new DefaultContext<Integer>();
+    final Grid<Integer> grid = GridFactoryFinder.createGridFactory(null).createGrid("grid", context,
+        GridBuilderParameters.denseMultiOccupancy2D(new RandomGridAdder<Integer>(), new WrapAroundBorders(), 20, 20));
+    for (int i = 0; i < 200; i++) {
+      context.add(i);
+    }
+
+    // the expected neighborhood sizes, queried sequentially
+    final int[][] expected = new int[200][3];
+    for (int i = 0; i < 200; i++) {
+      expected[i][0] = count(new MooreQuery<Integer>(grid, i, 1, 1).query());
+      expected[i][1] = count(new MooreQuery<Integer>(grid, i, 2, 3).query());
+      expected[i][2] = count(new GridWithin<Integer>(grid, i, 2.5).query());
+    }
+
+    // different extents in each thread so that the cached offset tables
+    // keep being replaced
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+      for (int t = 0; t < 4; t++) {
+        final int which = t % 3;
+        results.add(pool.submit(new Callable<Boolean>() {
+          public Boolean call() {
+            for (int round = 0; round < 50; round++) {
+              for (int i = 0; i < 200; i++) {
+                int found;
+                if (which == 0) found = count(new MooreQuery<Integer>(grid, i, 1, 1).query());
+                else if (which == 1) found = count(new MooreQuery<Integer>(grid, i, 2, 3).query());
+                else found = count(new GridWithin<Integer>(grid, i, 2.5).query());
+                if (found != expected[i][which]) return false;
+              }
+            }
+            return true;
+          }
+        }));
+      }
+      for (Future<Boolean> result : results) {
+        assertTrue(result.get());
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static int count(Iterable<?> iter) {
+    int count = 0;
+    for (Object obj : iter) {
+      count++;
+    }
+    return count;
+  }
+
   public void testSimpleAsParkingLot() {
     Grid<Integer> grid = context.getProjection(Grid.class, "2D Grid");
     assertEquals(0, grid.size());
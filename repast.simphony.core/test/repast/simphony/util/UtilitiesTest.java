@@ -37,6 +37,7 @@ import repast.simphony.util.ClassUtilities;
 import repast.simphony.util.SimUtilities;
 
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 
 /**
@@ -170,4 +171,91 @@ public class UtilitiesTest extends TestCase {
 			e.printStackTrace();
 		}
 	}
+
+	public static class Invoked {
+		int count = 0;
+
+		public void step() {
+			count++;
+		}
+
+		public int add(int a, Integer b) {
+			return a + b;
+		}
+
+		public double sum(double a, double b, double c) {
+			return a + b + c;
+		}
+
+		public static String name(String prefix) {
+			return prefix + "invoked";
+		}
+
+		void fail() {
+			throw new IllegalStateException();
+		}
+
+		void error() {
+			throw new AssertionError();
+		}
+	}
+
+	public void testMethodInvoker() throws Exception {
+		Invoked obj = new Invoked();
+		MethodInvoker invoker = MethodInvokerFactory.getInvoker(Invoked.class.getMethod("step"));
+		assertSame(invoker, MethodInvokerFactory.getInvoker(Invoked.class.getMethod("step")));
+		assertEquals(Invoked.class.getMethod("step"), invoker.getMethod());
+		assertNull(invoker.invoke(obj, new Object[0]));
+		invoker.invoke(obj, new Object[0]);
+		assertEquals(2, obj.count);
+
+		invoker = MethodInvokerFactory.getInvoker(Invoked.class.getMethod("add", int.class,
+				Integer.class));
+		assertEquals(5, invoker.invoke(obj, new Object[] { 2, 3 }));
+
+		invoker = MethodInvokerFactory.getInvoker(Invoked.class.getMethod("sum", double.class,
+				double.class, double.class));
+		assertEquals(6.0, invoker.invoke(obj, new Object[] { 1.0, 2.0, 3.0 }));
+
+		invoker = MethodInvokerFactory.getInvoker(Invoked.class.getMethod("name", String.class));
+		assertEquals("invoked", invoker.invoke(null, new Object[] { "" }));
+
+		invoker = MethodInvokerFactory.getInvoker(Invoked.class.getDeclaredMethod("fail"));
+		try {
+			invoker.invoke(obj, new Object[0]);
+			fail("Expected InvocationTargetException");
+		} catch (InvocationTargetException ex) {
+			assertTrue(ex.getCause() instanceof IllegalStateException);
+		}
+
+		// errors and bad targets or arguments are not wrapped
+		invoker = MethodInvokerFactory.getInvoker(Invoked.class.getDeclaredMethod("error"));
+		boolean thrown = false;
+		try {
+			invoker.invoke(obj, new Object[0]);
+		} catch (AssertionError er) {
+			thrown = true;
+		}
+		assertTrue("Expected AssertionError", thrown);
+		try {
+			invoker.invoke("not invoked", new Object[0]);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException ex) {
+		}
+		try {
+			invoker.invoke(obj, new Object[] { 1 });
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException ex) {
+		}
+
+		// arguments are widened as with reflection
+		invoker = MethodInvokerFactory.getInvoker(Invoked.class.getMethod("sum", double.class,
+				double.class, double.class));
+		assertEquals(6.0, invoker.invoke(obj, new Object[] { 1, 2L, 3.0f }));
+		try {
+			invoker.invoke(obj, new Object[] { 1, "2", 3 });
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException ex) {
+		}
+	}
 }
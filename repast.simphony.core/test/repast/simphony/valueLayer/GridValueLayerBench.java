@@ -78,6 +78,43 @@ public class GridValueLayerBench {
 		
 		// Best new sparse: 50k x 50k result
 		// Sparse GVL: 8.426135835 Size: 570.426284
+
+		// Stencil vs per cell get / set on a dense value layer
+		xdim = 2048;
+		ydim = 2048;
+		int steps = 10;
+		grid = new GridValueLayer("Grid", true, xdim, ydim);
+		GridValueLayer target = new GridValueLayer("Target", true, xdim, ydim);
+		grid.set(1000.0, xdim / 2, ydim / 2);
+
+		t0 = System.nanoTime();
+		for (int step = 0; step < steps; step++) {
+			for (int x = 0; x < xdim; x++) {
+				for (int y = 0; y < ydim; y++) {
+					double sum = 0;
+					for (int dx = -1; dx <= 1; dx++) {
+						for (int dy = -1; dy <= 1; dy++) {
+							int nx = x + dx;
+							int ny = y + dy;
+							if (nx >= 0 && nx < xdim && ny >= 0 && ny < ydim) {
+								sum += grid.get(nx, ny) / 9;
+							}
+						}
+					}
+					target.set(sum, x, y);
+				}
+			}
+		}
+		tf = System.nanoTime();
+		System.out.println("Get / set Moore average: " + (tf-t0)/1E6/steps + " ms/step");
+
+		Stencil stencil = Stencil.moore(2, 1.0 / 9, 1.0 / 9);
+		t0 = System.nanoTime();
+		for (int step = 0; step < steps; step++) {
+			grid.apply(stencil, target);
+		}
+		tf = System.nanoTime();
+		System.out.println("Stencil Moore average: " + (tf-t0)/1E6/steps + " ms/step");
 	
 
 	}
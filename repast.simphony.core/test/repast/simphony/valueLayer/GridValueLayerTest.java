@@ -1,7 +1,10 @@
 package repast.simphony.valueLayer;
 
+import java.io.File;
+
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
+import repast.simphony.space.SpatialException;
 import repast.simphony.space.grid.WrapAroundBorders;
 
 /**
@@ -146,6 +149,207 @@ public class GridValueLayerTest extends TestCase {
 	
 	
 
+	public void testMappedStore() throws Exception {
+		MappedValueLayerStore store = new MappedValueLayerStore(20 * 10 * 3, 2.5);
+		GridValueLayer grid = new GridValueLayer("Grid", store, new WrapAroundBorders(), new int[] {
+				20, 10, 3 }, new int[3]);
+		assertEquals(600, grid.size());
+		assertEquals(2.5, grid.get(19, 9, 2));
+		grid.set(4.0, 3, 4, 1);
+		grid.set(5.0, -1, 0, 0);
+		assertEquals(4.0, grid.get(3, 4, 1));
+		assertEquals(5.0, grid.get(19, 0, 0));
+		assertNull(store.getFile());
+
+		File file = File.createTempFile("gvl", ".bin");
+		try {
+			store.writeTo(file);
+			assertEquals(600 * 8, file.length());
+			MappedValueLayerStore mapped = MappedValueLayerStore.open(file);
+			assertEquals(600, mapped.getLongSize());
+			grid = new GridValueLayer("Grid", mapped, new WrapAroundBorders(), new int[] { 20, 10, 3 },
+					new int[3]);
+			assertEquals(4.0, grid.get(3, 4, 1));
+			assertEquals(5.0, grid.get(19, 0, 0));
+			assertEquals(2.5, grid.get(0, 0, 0));
+
+			// changes are written through to the file
+			grid.set(7.0, 0, 0, 0);
+			mapped.close();
+			assertTrue(mapped.isClosed());
+			mapped.close();
+			try (MappedValueLayerStore reopened = MappedValueLayerStore.open(file)) {
+				assertEquals(7.0, reopened.get(0));
+			}
+
+		} finally {
+			file.delete();
+		}
+
+		file = File.createTempFile("gvl", ".bin");
+		try (MappedValueLayerStore fileStore = new MappedValueLayerStore(file, 4, 1.5)) {
+			assertEquals(4 * 8, file.length());
+			assertEquals(1.5, fileStore.get(3));
+			assertEquals(file, fileStore.getFile());
+		} finally {
+			file.delete();
+		}
+
+		try {
+			new GridValueLayer("Grid", new MappedValueLayerStore(10, 0), new WrapAroundBorders(),
+					new int[] { 4, 4 }, new int[2]);
+			fail("Store should be too small for the layer");
+		} catch (SpatialException ex) {
+		}
+
+		BufferedGridValueLayer buffered = new BufferedGridValueLayer("Buffered",
+				new MappedValueLayerStore(16, 0), new MappedValueLayerStore(16, 0),
+				new WrapAroundBorders(), new int[] { 4, 4 }, new int[2]);
+		buffered.set(3.0, 1, 1);
+		assertEquals(0.0, buffered.get(1, 1));
+		buffered.swap();
+		assertEquals(3.0, buffered.get(1, 1));
+	}
+
+	public void testTypedLayers() {
+		FloatGridValueLayer floats = new FloatGridValueLayer("Floats", 1.5f, 4, 3);
+		assertEquals(1.5f, floats.getFloat(3, 2));
+		floats.set(2.25f, 1, 1);
+		floats.set(0.1, 2, 2);
+		assertEquals(2.25f, floats.getFloat(1, 1));
+		assertEquals(2.25, floats.get(1, 1));
+		assertEquals((double) 0.1f, floats.get(2, 2));
+		assertEquals(12, floats.size());
+
+		IntGridValueLayer ints = new IntGridValueLayer("Ints", -1, new WrapAroundBorders(),
+				new int[] { 5, 5 }, new int[2]);
+		ints.set(7, 0, 0);
+		ints.set(3.9, 1, 0);
+		assertEquals(7, ints.getInt(5, 5));
+		assertEquals(3, ints.getInt(1, 0));
+		assertEquals(-1.0, ints.get(4, 4));
+
+		ShortGridValueLayer shorts = new ShortGridValueLayer("Shorts", (short) 0, 2, 2, 2);
+		shorts.set((short) 300, 1, 1, 1);
+		assertEquals(300, shorts.getShort(1, 1, 1));
+		assertEquals(300.0, shorts.get(1, 1, 1));
+		assertEquals(0, shorts.getShort(0, 1, 1));
+
+		// out of range values are clamped rather than wrapped
+		shorts.set(40000.0, 0, 0, 0);
+		shorts.set(-40000.0, 1, 0, 0);
+		shorts.set(-2.7, 0, 1, 0);
+		assertEquals(Short.MAX_VALUE, shorts.getShort(0, 0, 0));
+		assertEquals(Short.MIN_VALUE, shorts.getShort(1, 0, 0));
+		assertEquals(-2, shorts.getShort(0, 1, 0));
+		ints.set(1e12, 2, 2);
+		ints.set(Double.NEGATIVE_INFINITY, 3, 3);
+		assertEquals(Integer.MAX_VALUE, ints.getInt(2, 2));
+		assertEquals(Integer.MIN_VALUE, ints.getInt(3, 3));
+
+		BitGridValueLayer bits = new BitGridValueLayer("Bits", true, 10, 13);
+		assertEquals(130, ((BitValueLayerStore) bits.store).cardinality());
+		bits.set(false, 9, 12);
+		bits.set(0.0, 0, 0);
+		bits.set(5.0, 0, 0);
+		assertTrue(bits.getBoolean(0, 0));
+		assertFalse(bits.getBoolean(9, 12));
+		assertEquals(0.0, bits.get(9, 12));
+		assertEquals(1.0, bits.get(3, 4));
+		assertEquals(129, ((BitValueLayerStore) bits.store).cardinality());
+		bits = new BitGridValueLayer("Bits", false, 64, 2);
+		bits.set(true, 63, 1);
+		assertEquals(1, ((BitValueLayerStore) bits.store).cardinality());
+
+		// the typed layers work with the diffusers through get and set
+		FloatGridValueLayer layer = new FloatGridValueLayer("Floats", 0f, 10, 10);
+		layer.set(10f, 4, 4);
+		new ParallelValueLayerDiffuser(layer, .5, 1, false).diffuse();
+		assertEquals(.25f, layer.getFloat(3, 3));
+		assertEquals(1f, layer.getFloat(4, 3));
+	}
+
+	public void testStencil() {
+		int[][] sizes = { { 9 }, { 6, 5 }, { 4, 5, 3 } };
+		java.util.Random random = new java.util.Random(3);
+		for (int[] dims : sizes) {
+			Stencil[] stencils = { Stencil.moore(dims.length, .5, .25),
+					Stencil.vonNeumann(dims.length, 1, -2), randomStencil(dims.length, random) };
+			for (Stencil stencil : stencils) {
+				for (boolean toroidal : new boolean[] { true, false }) {
+					GridValueLayer grid = toroidal ? new GridValueLayer("Grid", true,
+							new WrapAroundBorders(), dims) : new GridValueLayer("Grid", true, dims);
+					GridValueLayer target = new GridValueLayer("Target", true, dims);
+					int cellCount = grid.size();
+					double[] vals = new double[cellCount];
+					for (int i = 0; i < cellCount; i++) {
+						vals[i] = random.nextInt(100);
+						grid.set(vals[i], toCoords(i, dims));
+					}
+
+					grid.apply(stencil, target);
+					grid.apply(stencil);
+					for (int i = 0; i < cellCount; i++) {
+						int[] coords = toCoords(i, dims);
+						double expected = 0;
+						for (int entry = 0; entry < stencil.size(); entry++) {
+							int index = 0;
+							boolean inside = true;
+							for (int d = 0; d < dims.length; d++) {
+								int c = coords[d] + stencil.getOffset(entry, d);
+								if (c < 0 || c >= dims[d]) {
+									inside = toroidal;
+									c = ((c % dims[d]) + dims[d]) % dims[d];
+								}
+								index = index * dims[d] + c;
+							}
+							if (inside) expected += stencil.getWeight(entry) * vals[index];
+						}
+						double[] point = new double[dims.length];
+						for (int d = 0; d < dims.length; d++) {
+							point[d] = coords[d];
+						}
+						assertEquals(expected, grid.get(point), 1e-9);
+						assertEquals(expected, target.get(point), 1e-9);
+					}
+				}
+			}
+		}
+
+		try {
+			new GridValueLayer("Grid", false, 3, 3).apply(Stencil.moore(2, 1, 1));
+			fail("Stencils should not be supported on sparse layers");
+		} catch (UnsupportedOperationException ex) {
+		}
+		try {
+			new GridValueLayer("Grid", true, 3, 3).apply(Stencil.moore(3, 1, 1));
+			fail("Stencil dimensions should match the layer's");
+		} catch (IllegalArgumentException ex) {
+		}
+	}
+
+	private Stencil randomStencil(int dimCount, java.util.Random random) {
+		int count = 6;
+		int[] offsets = new int[count * dimCount];
+		double[] weights = new double[count];
+		for (int i = 0; i < count; i++) {
+			for (int d = 0; d < dimCount; d++) {
+				offsets[i * dimCount + d] = random.nextInt(21) - 10;
+			}
+			weights[i] = random.nextDouble();
+		}
+		return new Stencil(dimCount, offsets, weights);
+	}
+
+	private int[] toCoords(int index, int[] dims) {
+		int[] coords = new int[dims.length];
+		for (int d = dims.length - 1; d >= 0; d--) {
+			coords[d] = index % dims[d];
+			index /= dims[d];
+		}
+		return coords;
+	}
+
 	public static junit.framework.Test suite() {
 		return new TestSuite(GridValueLayerTest.class);
 	}
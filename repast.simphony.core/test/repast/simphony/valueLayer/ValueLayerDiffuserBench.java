@@ -0,0 +1,36 @@
+package repast.simphony.valueLayer;
+
+/**
+ * A benchmark comparing ValueLayerDiffuser with ParallelValueLayerDiffuser on
+ * a large dense layer. Not a unit test.
+ */
+public class ValueLayerDiffuserBench {
+
+	private static final int SIZE = 4096;
+	private static final int STEPS = 10;
+
+	public static void main(String[] args) {
+		GridValueLayer layer = new GridValueLayer("Grid", true, SIZE, SIZE);
+		layer.set(1000.0, SIZE / 2, SIZE / 2);
+
+		ValueLayerDiffuser serial = new ValueLayerDiffuser(layer, .99, .5, true);
+		ValueLayerDiffuser parallel = new ParallelValueLayerDiffuser(layer, .99, .5, true);
+
+		// Warm up
+		run(serial, 2);
+		run(parallel, 2);
+
+		System.out.println("Serial:   " + run(serial, STEPS) + " ms/step");
+		System.out.println("Parallel: " + run(parallel, STEPS) + " ms/step");
+	}
+
+	// returns the average time per diffusion step in ms
+	private static double run(ValueLayerDiffuser diffuser, int steps) {
+		long t0 = System.nanoTime();
+		for (int i = 0; i < steps; i++) {
+			diffuser.diffuse();
+		}
+		long tf = System.nanoTime();
+		return (tf - t0) / 1E6 / steps;
+	}
+}
@@ -778,4 +778,55 @@ public class ValueLayerDiffuserTest extends TestCase {
 			}
 		}
 	}
+
+	public void testParallelMatchesSerial() {
+		int[][] sizes = { { 20000 }, { 7 }, { 150, 140 }, { 12, 9 }, { 30, 30, 30 }, { 5, 5, 5 } };
+		java.util.Random random = new java.util.Random(7);
+		for (int[] dims : sizes) {
+			for (int i = 0; i < 4; i++) {
+				boolean toroidal = i % 2 == 0;
+				boolean dense = i < 2;
+				GridValueLayer serialLayer = new GridValueLayer("serial", dense, dims);
+				GridValueLayer parallelLayer = new GridValueLayer("parallel", dense, dims);
+				int cellCount = 1;
+				for (int dim : dims) {
+					cellCount *= dim;
+				}
+				int[] coords = new int[dims.length];
+				for (int j = 0; j < cellCount; j++) {
+					int index = j;
+					for (int d = dims.length - 1; d >= 0; d--) {
+						coords[d] = index % dims[d];
+						index /= dims[d];
+					}
+					double val = random.nextDouble() * 100;
+					serialLayer.set(val, coords);
+					parallelLayer.set(val, coords);
+				}
+
+				ValueLayerDiffuser serial = new ValueLayerDiffuser(serialLayer, .9, .7, toroidal);
+				ParallelValueLayerDiffuser parallel = new ParallelValueLayerDiffuser(parallelLayer, .9,
+						.7, toroidal);
+				serial.setMaxValue(80);
+				parallel.setMaxValue(80);
+				for (int step = 0; step < 3; step++) {
+					serial.diffuse();
+					parallel.diffuse();
+				}
+
+				for (int j = 0; j < cellCount; j++) {
+					int index = j;
+					for (int d = dims.length - 1; d >= 0; d--) {
+						coords[d] = index % dims[d];
+						index /= dims[d];
+					}
+					double[] point = new double[dims.length];
+					for (int d = 0; d < dims.length; d++) {
+						point[d] = coords[d];
+					}
+					assertEquals(serialLayer.get(point), parallelLayer.get(point), 1e-9);
+				}
+			}
+		}
+	}
 }
@@ -6,6 +6,8 @@ import net.sf.cglib.reflect.FastClass;
 import net.sf.cglib.reflect.FastMethod;
 
 import org.apache.commons.lang3.ClassUtils;
+import repast.simphony.util.MethodInvoker;
+import repast.simphony.util.MethodInvokerFactory;
 
 /**
  * 
@@ -20,6 +22,7 @@ public class MethodDataSource implements NonAggregateDataSource {
 
   private static Object[] NO_ARGS = {};
 
+  private MethodInvoker invoker;
   private FastMethod fmethod;
   private String id;
   private Class<?> type, sourceType;
@@ -43,9 +46,9 @@ public class MethodDataSource implements NonAggregateDataSource {
       Method method = clazz.getMethod(methodName);
       if (method.getReturnType().equals(void.class))
         throw new DataException("Error creating MethodDataSource: method must not return void");
-      fmethod = FastClass.create(clazz).getMethod(method);
+      invoker = MethodInvokerFactory.getInvoker(method);
       sourceType = clazz;
-      Class<?> ret = fmethod.getReturnType();
+      Class<?> ret = method.getReturnType();
       if (ret.isPrimitive())
         type = ClassUtils.primitiveToWrapper(ret);
       else
@@ -53,7 +56,7 @@ public class MethodDataSource implements NonAggregateDataSource {
       
       hashcode = 17;
       hashcode = 31 * hashcode + id.hashCode();
-      hashcode = 31 * hashcode + fmethod.hashCode();
+      hashcode = 31 * hashcode + method.hashCode();
       hashcode = 31 * hashcode + sourceType.hashCode();
       hashcode = 31 * hashcode + type.hashCode();
     } catch (Exception ex) {
@@ -66,11 +69,24 @@ public class MethodDataSource implements NonAggregateDataSource {
    * Gets the FastMethod that this MethodDataSource will invoke on a "get".
    * 
    * @return the FastMethod that this MethodDataSource will invoke on a "get".
+   * @deprecated use {@link #getJavaMethod()} instead.
    */
+  @Deprecated
   public FastMethod getMethod() {
+    if (fmethod == null)
+      fmethod = FastClass.create(sourceType).getMethod(invoker.getMethod());
     return fmethod;
   }
 
+  /**
+   * Gets the Method that this MethodDataSource will invoke on a "get".
+   * 
+   * @return the Method that this MethodDataSource will invoke on a "get".
+   */
+  public Method getJavaMethod() {
+    return invoker.getMethod();
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -94,7 +110,7 @@ public class MethodDataSource implements NonAggregateDataSource {
   @Override
   public Object get(Object obj) {
     try {
-      return fmethod.invoke(obj, NO_ARGS);
+      return invoker.invoke(obj, NO_ARGS);
     } catch (Exception e) {
       throw new DataException("Error invoking method on object", e);
     }
@@ -122,7 +138,7 @@ public class MethodDataSource implements NonAggregateDataSource {
   public boolean equals(Object obj) {
     if (obj instanceof MethodDataSource) {
       MethodDataSource other = (MethodDataSource)obj;
-      return other.fmethod.equals(fmethod) && other.id.equals(id) && other.sourceType.equals(sourceType) && other.type.equals(type);
+      return other.invoker.getMethod().equals(invoker.getMethod()) && other.id.equals(id) && other.sourceType.equals(sourceType) && other.type.equals(type);
     }
     
     return false;
@@ -0,0 +1,121 @@
+/**
+ *
+ */
+package repast.simphony.data2;
+
+import repast.simphony.space.graph.Network;
+import repast.simphony.space.graph.NetworkMetrics;
+
+/**
+ * AggregateDataSource that returns a metric of a network computed by a
+ * {@link NetworkMetrics}. The objects passed to get are ignored. Data sources
+ * that share a NetworkMetrics share its computed metrics, so recording several
+ * metrics of the same network each tick only copies the network once.
+ */
+public class NetworkMetricDataSource implements AggregateDataSource {
+
+  /**
+   * The metrics that a NetworkMetricDataSource can return.
+   */
+  public enum Metric {
+    NODE_COUNT, EDGE_COUNT, MEAN_DEGREE, AVERAGE_CLUSTERING, COMPONENT_COUNT, LARGEST_COMPONENT_SIZE
+  }
+
+  private String id;
+  private NetworkMetrics<?> metrics;
+  private Metric metric;
+
+  /**
+   * Creates a NetworkMetricDataSource that returns the specified metric of
+   * the specified network.
+   *
+   * @param id
+   *          the id of the data source
+   * @param network
+   *          the network
+   * @param metric
+   *          the metric to return
+   */
+  public <T> NetworkMetricDataSource(String id, Network<T> network, Metric metric) {
+    this(id, new NetworkMetrics<T>(network), metric);
+  }
+
+  /**
+   * Creates a NetworkMetricDataSource that returns the specified metric
+   * computed by the specified NetworkMetrics.
+   *
+   * @param id
+   *          the id of the data source
+   * @param metrics
+   *          the NetworkMetrics that computes the metric
+   * @param metric
+   *          the metric to return
+   */
+  public NetworkMetricDataSource(String id, NetworkMetrics<?> metrics, Metric metric) {
+    this.id = id;
+    this.metrics = metrics;
+    this.metric = metric;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see repast.simphony.data2.DataSource#getId()
+   */
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see repast.simphony.data2.DataSource#getDataType()
+   */
+  @Override
+  public Class<Double> getDataType() {
+    return Double.class;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see repast.simphony.data2.DataSource#getSourceType()
+   */
+  @Override
+  public Class<?> getSourceType() {
+    return void.class;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see repast.simphony.data2.AggregateDataSource#get(java.lang.Iterable, int)
+   */
+  @Override
+  public Double get(Iterable<?> objs, int size) {
+    switch (metric) {
+    case NODE_COUNT:
+      return (double) metrics.getNodeCount();
+    case EDGE_COUNT:
+      return (double) metrics.getEdgeCount();
+    case MEAN_DEGREE:
+      return metrics.getMeanDegree();
+    case AVERAGE_CLUSTERING:
+      return metrics.getAverageClusteringCoefficient();
+    case COMPONENT_COUNT:
+      return (double) metrics.getComponentCount();
+    default:
+      return (double) metrics.getLargestComponentSize();
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see repast.simphony.data2.AggregateDataSource#reset()
+   */
+  @Override
+  public void reset() {
+  }
+}
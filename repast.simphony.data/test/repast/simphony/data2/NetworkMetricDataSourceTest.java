@@ -0,0 +1,107 @@
+package repast.simphony.data2;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import repast.simphony.data2.NetworkMetricDataSource.Metric;
+import repast.simphony.space.graph.NetworkMetrics;
+import repast.simphony.space.graph.UndirectedJungNetwork;
+
+public class NetworkMetricDataSourceTest {
+
+  // counts the snapshots the metrics take of it
+  static class CountingNetwork extends UndirectedJungNetwork<Integer> {
+
+    int nodeQueries = 0;
+
+    public CountingNetwork() {
+      super("network");
+    }
+
+    @Override
+    public Iterable<Integer> getNodes() {
+      nodeQueries++;
+      return super.getNodes();
+    }
+  }
+
+  private CountingNetwork createNetwork() {
+    CountingNetwork network = new CountingNetwork();
+    // a triangle, a path of three and an isolated node
+    network.addEdge(0, 1);
+    network.addEdge(1, 2);
+    network.addEdge(2, 0);
+    network.addEdge(3, 4);
+    network.addEdge(4, 5);
+    network.addVertex(6);
+    return network;
+  }
+
+  private List<NetworkMetricDataSource> createSources(NetworkMetrics<Integer> metrics) {
+    List<NetworkMetricDataSource> sources = new ArrayList<NetworkMetricDataSource>();
+    for (Metric metric : Metric.values()) {
+      sources.add(new NetworkMetricDataSource(metric.name(), metrics, metric));
+    }
+    return sources;
+  }
+
+  private double get(NetworkMetricDataSource source) {
+    return source.get(null, 0);
+  }
+
+  @Test
+  public void testValues() {
+    CountingNetwork network = createNetwork();
+    NetworkMetrics<Integer> metrics = new NetworkMetrics<Integer>(network);
+    List<NetworkMetricDataSource> sources = createSources(metrics);
+
+    assertEquals(7, get(sources.get(Metric.NODE_COUNT.ordinal())), 0);
+    assertEquals(5, get(sources.get(Metric.EDGE_COUNT.ordinal())), 0);
+    assertEquals(10.0 / 7, get(sources.get(Metric.MEAN_DEGREE.ordinal())), 1e-9);
+    assertEquals(metrics.getAverageClusteringCoefficient(),
+        get(sources.get(Metric.AVERAGE_CLUSTERING.ordinal())), 0);
+    // the triangle and the two ends of the path, which have one neighbor
+    assertEquals(5.0 / 7, get(sources.get(Metric.AVERAGE_CLUSTERING.ordinal())), 1e-9);
+    assertEquals(3, get(sources.get(Metric.COMPONENT_COUNT.ordinal())), 0);
+    assertEquals(3, get(sources.get(Metric.LARGEST_COMPONENT_SIZE.ordinal())), 0);
+
+    // a data source created from the network computes the same values
+    NetworkMetricDataSource source = new NetworkMetricDataSource("count", network,
+        Metric.COMPONENT_COUNT);
+    assertEquals(3, get(source), 0);
+    assertEquals(Double.class, source.getDataType());
+    assertEquals(void.class, source.getSourceType());
+    assertEquals("count", source.getId());
+  }
+
+  @Test
+  public void testSharedSnapshot() {
+    CountingNetwork network = createNetwork();
+    NetworkMetrics<Integer> metrics = new NetworkMetrics<Integer>(network);
+    List<NetworkMetricDataSource> sources = createSources(metrics);
+
+    // recording every source copies the network once
+    for (NetworkMetricDataSource source : sources) {
+      get(source);
+    }
+    assertEquals(1, network.nodeQueries);
+    for (NetworkMetricDataSource source : sources) {
+      get(source);
+    }
+    assertEquals(1, network.nodeQueries);
+
+    // and once more after the network changes
+    network.addEdge(5, 6);
+    for (NetworkMetricDataSource source : sources) {
+      get(source);
+    }
+    assertEquals(2, network.nodeQueries);
+    assertEquals(6, get(sources.get(Metric.EDGE_COUNT.ordinal())), 0);
+    assertEquals(2, get(sources.get(Metric.COMPONENT_COUNT.ordinal())), 0);
+    assertEquals(4, get(sources.get(Metric.LARGEST_COMPONENT_SIZE.ordinal())), 0);
+  }
+}
@@ -2,10 +2,10 @@ package repast.simphony.relogo.factories;
 
 import java.lang.reflect.InvocationTargetException;
 
-import net.sf.cglib.reflect.FastMethod;
 import repast.simphony.engine.schedule.CallBackAction;
 import repast.simphony.engine.schedule.IAction;
 import repast.simphony.relogo.Stop;
+import repast.simphony.util.MethodInvoker;
 
 public class StopEnabledCallBackAction implements IAction{
 	
@@ -13,7 +13,7 @@ public class StopEnabledCallBackAction implements IAction{
 	String actionName;
 	CallBackAction action;
 	Object target;
-	FastMethod method;
+	MethodInvoker method;
 	Object[] args;
 	
 	
@@ -21,7 +21,7 @@ public class StopEnabledCallBackAction implements IAction{
 		this.bool = bool;
 		this.action = new CallBackAction(target, method, parameters);
 		this.target = this.action.getTarget();
-		this.method = this.action.getFastMethod();
+		this.method = this.action.getInvoker();
 		this.args = this.action.getArgs();
 	}
 
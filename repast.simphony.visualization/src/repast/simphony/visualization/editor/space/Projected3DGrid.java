@@ -1,5 +1,6 @@
 package repast.simphony.visualization.editor.space;
 
+import repast.simphony.space.SpatialException;
 import repast.simphony.space.grid.*;
 import repast.simphony.space.projection.DefaultProjection;
 import repast.simphony.space.projection.ProjectionEvent;
@@ -127,6 +128,13 @@ public class Projected3DGrid<T> extends DefaultProjection<T> implements Grid<T>,
     return grid.moveTo(object, loc);
   }
 
+  /**
+   * Unsupported operation, this projected grid is 2 dimensional.
+   */
+  public boolean moveTo(T object, int x, int y, int z) {
+    throw new SpatialException("Number of new location dimensions must match grid dimensions");
+  }
+
   /**
    * Gets the location of the specified object.
    *
@@ -1,6 +1,7 @@
 package repast.simphony.visualization.editor.space;
 
 import repast.simphony.space.Dimensions;
+import repast.simphony.space.SpatialException;
 import repast.simphony.space.continuous.ContinuousAdder;
 import repast.simphony.space.continuous.ContinuousSpace;
 import repast.simphony.space.continuous.NdPoint;
@@ -113,6 +114,13 @@ public class Projected3DSpace<T> extends DefaultProjection<T> implements Continu
     return space.moveTo(object, loc);
   }
 
+  /**
+   * Unsupported operation, this projected space is 2 dimensional.
+   */
+  public boolean moveTo(T object, double x, double y, double z) {
+    throw new SpatialException("Number of new location dimensions must match space dimensions");
+  }
+
   /**
    * Gets the location of the specified object.
    *